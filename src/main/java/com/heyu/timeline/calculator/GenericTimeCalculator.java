@@ -92,6 +92,44 @@ public class GenericTimeCalculator<T> implements TimeCalculator<T> {
         throw new UnsupportedOperationException("Unsupported zero value for type: " + type.getName());
     }
     
+    /**
+     * 转换为长整数：Integer和Long保持原值，Date为毫秒数，
+     * Duration为纳秒数，LocalDateTime为相对零点（2000-01-01T00:00）的纳秒数
+     * @param time 时间
+     * @return 长整数表示
+     */
+    @Override
+    public long toLong(T time) {
+        if (isType(Integer.class, time)) {
+            return (Integer) time;
+        } else if (isType(Long.class, time)) {
+            return (Long) time;
+        } else if (isType(Date.class, time)) {
+            return ((Date) time).getTime();
+        } else if (isType(LocalDateTime.class, time)) {
+            return Duration.between(LocalDateTime.of(2000, 1, 1, 0, 0), (LocalDateTime) time).toNanos();
+        } else if (isType(Duration.class, time)) {
+            return ((Duration) time).toNanos();
+        }
+        throw new UnsupportedOperationException("Unsupported numeric conversion for type: " + type.getName());
+    }
+    
+    @Override
+    public T fromLong(long value) {
+        if (isType(Integer.class)) {
+            return type.cast(Math.toIntExact(value));
+        } else if (isType(Long.class)) {
+            return type.cast(value);
+        } else if (isType(Date.class)) {
+            return type.cast(new Date(value));
+        } else if (isType(LocalDateTime.class)) {
+            return type.cast(LocalDateTime.of(2000, 1, 1, 0, 0).plusNanos(value));
+        } else if (isType(Duration.class)) {
+            return type.cast(Duration.ofNanos(value));
+        }
+        throw new UnsupportedOperationException("Unsupported numeric conversion for type: " + type.getName());
+    }
+    
     /**
      * 检查类型是否匹配
      * @param targetType 目标类型
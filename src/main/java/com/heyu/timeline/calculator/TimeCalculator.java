@@ -35,4 +35,24 @@ public interface TimeCalculator<T> {
      * @return 零点时间
      */
     T getZero();
-}
\ No newline at end of file
+    
+    /**
+     * 将时间转换为以最小时间单位表示的长整数，用于需要数值运算的场景（如比例、统计）
+     * @param time 时间
+     * @return 长整数表示
+     * @throws UnsupportedOperationException 当时间类型不支持数值转换时抛出异常
+     */
+    default long toLong(T time) {
+        throw new UnsupportedOperationException("Numeric conversion is not supported by this TimeCalculator");
+    }
+    
+    /**
+     * 将长整数表示还原为时间，是toLong的逆运算
+     * @param value 长整数表示
+     * @return 时间
+     * @throws UnsupportedOperationException 当时间类型不支持数值转换时抛出异常
+     */
+    default T fromLong(long value) {
+        throw new UnsupportedOperationException("Numeric conversion is not supported by this TimeCalculator");
+    }
+}
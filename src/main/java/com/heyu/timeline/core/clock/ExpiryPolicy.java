@@ -0,0 +1,76 @@
+package com.heyu.timeline.core.clock;
+
+import lombok.Getter;
+
+/**
+ * 过期策略，描述时间线如何根据时钟自动处理已经结束的事件
+ * 时间线在每次访问时按批次处理过期事件，避免一次性扫描整个时间线
+ * @param <T> 时间类型
+ */
+@Getter
+public class ExpiryPolicy<T> {
+
+    /**
+     * 默认的批次大小
+     */
+    public static final int DEFAULT_BATCH_SIZE = 64;
+
+    /**
+     * 过期事件的处理方式
+     */
+    public enum Mode {
+        /**
+         * 仅将过期事件设置为非活跃状态，事件仍保留在时间线中
+         */
+        DEACTIVATE,
+        /**
+         * 将过期事件从时间线中移出，转入冷存储
+         */
+        ARCHIVE
+    }
+
+    /**
+     * 提供当前时间的时间源
+     */
+    private final TimeSource<T> timeSource;
+
+    /**
+     * 过期事件的处理方式
+     */
+    private final Mode mode;
+
+    /**
+     * 每次访问时间线时最多处理的过期事件数量
+     */
+    private final int batchSize;
+
+    /**
+     * 使用默认批次大小创建过期策略
+     * @param timeSource 时间源
+     * @param mode 处理方式
+     */
+    public ExpiryPolicy(TimeSource<T> timeSource, Mode mode) {
+        this(timeSource, mode, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * 创建过期策略
+     * @param timeSource 时间源
+     * @param mode 处理方式
+     * @param batchSize 每批最多处理的事件数量
+     */
+    public ExpiryPolicy(TimeSource<T> timeSource, Mode mode, int batchSize) {
+        if (timeSource == null) {
+            throw new IllegalArgumentException("Time source cannot be null");
+        }
+        if (mode == null) {
+            throw new IllegalArgumentException("Expiry mode cannot be null");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.timeSource = timeSource;
+        this.mode = mode;
+        this.batchSize = batchSize;
+    }
+}
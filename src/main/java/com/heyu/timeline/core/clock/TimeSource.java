@@ -0,0 +1,43 @@
+package com.heyu.timeline.core.clock;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+
+/**
+ * 时间源接口，为时间线提供"当前时间"
+ * 可以替换为虚拟时钟以便在测试中控制时间的流逝
+ * @param <T> 时间类型
+ */
+@FunctionalInterface
+public interface TimeSource<T> {
+
+    /**
+     * 获取当前时间
+     * @return 当前时间
+     */
+    T now();
+
+    /**
+     * 获取以毫秒表示的系统时间源
+     * @return 系统时间源
+     */
+    static TimeSource<Long> systemMillis() {
+        return System::currentTimeMillis;
+    }
+
+    /**
+     * 获取Date类型的系统时间源
+     * @return 系统时间源
+     */
+    static TimeSource<Date> systemDate() {
+        return Date::new;
+    }
+
+    /**
+     * 获取LocalDateTime类型的系统时间源
+     * @return 系统时间源
+     */
+    static TimeSource<LocalDateTime> systemLocalDateTime() {
+        return LocalDateTime::now;
+    }
+}
@@ -0,0 +1,72 @@
+package com.heyu.timeline.core.index;
+
+import com.heyu.timeline.core.model.Event;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 属性过滤条件，不同属性之间取与，同一属性的多个取值之间取或
+ */
+public class AttributeFilter {
+
+    private final Map<String, Set<Object>> conditions = new LinkedHashMap<>();
+
+    /**
+     * 创建只包含一个条件的过滤条件
+     * @param name 属性名
+     * @param values 允许的取值
+     * @return 过滤条件
+     */
+    public static AttributeFilter where(String name, Object... values) {
+        return new AttributeFilter().and(name, values);
+    }
+
+    /**
+     * 追加一个条件，与已有的不同属性条件取与；同一属性重复出现时取值合并
+     * @param name 属性名
+     * @param values 允许的取值
+     * @return 当前过滤条件
+     */
+    public AttributeFilter and(String name, Object... values) {
+        if (name == null || values == null || values.length == 0) {
+            throw new IllegalArgumentException("Attribute name and at least one value are required");
+        }
+        conditions.computeIfAbsent(name, k -> new HashSet<>()).addAll(Arrays.asList(values));
+        return this;
+    }
+
+    /**
+     * 获取所有条件
+     * @return 属性名到允许取值的映射
+     */
+    public Map<String, Set<Object>> getConditions() {
+        return Collections.unmodifiableMap(conditions);
+    }
+
+    /**
+     * 判断是否没有任何条件
+     * @return 如果没有条件返回true，否则返回false
+     */
+    public boolean isEmpty() {
+        return conditions.isEmpty();
+    }
+
+    /**
+     * 直接判断事件是否满足过滤条件
+     * @param event 事件
+     * @return 如果满足返回true，否则返回false
+     */
+    public boolean matches(Event<?> event) {
+        for (Map.Entry<String, Set<Object>> condition : conditions.entrySet()) {
+            if (!condition.getValue().contains(event.getAttribute(condition.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
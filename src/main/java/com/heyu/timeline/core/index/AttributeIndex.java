@@ -0,0 +1,134 @@
+package com.heyu.timeline.core.index;
+
+import com.heyu.timeline.core.model.Event;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 属性标签的位图索引
+ * 每个带标签的事件分配一个序号，每个属性取值对应一个保存序号的压缩位图，
+ * 过滤时对位图做与、或运算，只访问满足条件的事件
+ * @param <T> 时间类型
+ */
+public class AttributeIndex<T> {
+
+    // 序号到事件的映射，空出的位置为null
+    private final List<Event<T>> eventsByOrdinal = new ArrayList<>();
+
+    // 事件到序号的映射，按对象身份区分
+    private final Map<Event<T>, Integer> ordinals = new IdentityHashMap<>();
+
+    // 加入索引时的属性快照，保证移除时清理的是加入时设置的位
+    private final List<Map<String, Object>> indexedAttributes = new ArrayList<>();
+
+    // 可以复用的序号
+    private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+
+    // 属性名 -> 属性值 -> 位图
+    private final Map<String, Map<Object, RoaringBitmap>> bitmaps = new HashMap<>();
+
+    /**
+     * 将事件加入索引，没有属性标签的事件不占用序号
+     * @param event 事件
+     */
+    public void add(Event<T> event) {
+        if (event.getAttributes() == null || event.getAttributes().isEmpty() || ordinals.containsKey(event)) {
+            return;
+        }
+        Map<String, Object> snapshot = new HashMap<>(event.getAttributes());
+        int ordinal;
+        if (freeOrdinals.isEmpty()) {
+            ordinal = eventsByOrdinal.size();
+            eventsByOrdinal.add(event);
+            indexedAttributes.add(snapshot);
+        } else {
+            ordinal = freeOrdinals.pop();
+            eventsByOrdinal.set(ordinal, event);
+            indexedAttributes.set(ordinal, snapshot);
+        }
+        ordinals.put(event, ordinal);
+        for (Map.Entry<String, Object> attribute : snapshot.entrySet()) {
+            bitmaps.computeIfAbsent(attribute.getKey(), k -> new HashMap<>())
+                    .computeIfAbsent(attribute.getValue(), k -> new RoaringBitmap())
+                    .add(ordinal);
+        }
+    }
+
+    /**
+     * 将事件从索引中移除
+     * @param event 事件
+     */
+    public void remove(Event<T> event) {
+        Integer ordinal = ordinals.remove(event);
+        if (ordinal == null) {
+            return;
+        }
+        for (Map.Entry<String, Object> attribute : indexedAttributes.get(ordinal).entrySet()) {
+            Map<Object, RoaringBitmap> byValue = bitmaps.get(attribute.getKey());
+            RoaringBitmap bitmap = byValue.get(attribute.getValue());
+            bitmap.remove(ordinal);
+            if (bitmap.isEmpty()) {
+                byValue.remove(attribute.getValue());
+                if (byValue.isEmpty()) {
+                    bitmaps.remove(attribute.getKey());
+                }
+            }
+        }
+        eventsByOrdinal.set(ordinal, null);
+        indexedAttributes.set(ordinal, null);
+        freeOrdinals.push(ordinal);
+    }
+
+    /**
+     * 计算满足过滤条件的事件序号，同一属性的取值位图取或，不同属性之间取与
+     * @param filter 过滤条件，不能为空
+     * @return 满足条件的事件序号
+     */
+    public RoaringBitmap select(AttributeFilter filter) {
+        RoaringBitmap result = null;
+        for (Map.Entry<String, Set<Object>> condition : filter.getConditions().entrySet()) {
+            Map<Object, RoaringBitmap> byValue = bitmaps.get(condition.getKey());
+            RoaringBitmap matched = new RoaringBitmap();
+            if (byValue != null) {
+                for (Object value : condition.getValue()) {
+                    RoaringBitmap bitmap = byValue.get(value);
+                    if (bitmap != null) {
+                        matched = matched.or(bitmap);
+                    }
+                }
+            }
+            result = result == null ? matched : result.and(matched);
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result == null ? new RoaringBitmap() : result;
+    }
+
+    /**
+     * 根据序号获取事件
+     * @param ordinal 序号
+     * @return 事件
+     */
+    public Event<T> get(int ordinal) {
+        return eventsByOrdinal.get(ordinal);
+    }
+
+    /**
+     * 清空索引
+     */
+    public void clear() {
+        eventsByOrdinal.clear();
+        ordinals.clear();
+        indexedAttributes.clear();
+        freeOrdinals.clear();
+        bitmaps.clear();
+    }
+}
@@ -0,0 +1,416 @@
+package com.heyu.timeline.core.index;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+
+/**
+ * 压缩位图，存放非负整数集合，结构与Roaring位图相同
+ * 整数按高16位分块，每块根据元素数量使用有序数组或固定大小的位图保存低16位，
+ * 稀疏的块占用空间与元素数量成正比，稠密的块按位进行与、或运算
+ */
+public class RoaringBitmap {
+
+    /**
+     * 数组容器的最大元素数量，超过后转换为位图容器
+     */
+    private static final int ARRAY_LIMIT = 4096;
+
+    // 按高16位排列的容器
+    private final TreeMap<Integer, Container> containers = new TreeMap<>();
+
+    /**
+     * 加入一个整数
+     * @param value 非负整数
+     */
+    public void add(int value) {
+        checkValue(value);
+        int key = value >>> 16;
+        Container container = containers.get(key);
+        if (container == null) {
+            container = new ArrayContainer();
+        }
+        containers.put(key, container.add((char) value));
+    }
+
+    /**
+     * 移除一个整数
+     * @param value 非负整数
+     */
+    public void remove(int value) {
+        checkValue(value);
+        int key = value >>> 16;
+        Container container = containers.get(key);
+        if (container == null) {
+            return;
+        }
+        Container updated = container.remove((char) value);
+        if (updated.cardinality() == 0) {
+            containers.remove(key);
+        } else {
+            containers.put(key, updated);
+        }
+    }
+
+    /**
+     * 判断是否包含一个整数
+     * @param value 整数
+     * @return 如果包含返回true，否则返回false
+     */
+    public boolean contains(int value) {
+        if (value < 0) {
+            return false;
+        }
+        Container container = containers.get(value >>> 16);
+        return container != null && container.contains((char) value);
+    }
+
+    /**
+     * 获取元素数量
+     * @return 元素数量
+     */
+    public int cardinality() {
+        int cardinality = 0;
+        for (Container container : containers.values()) {
+            cardinality += container.cardinality();
+        }
+        return cardinality;
+    }
+
+    /**
+     * 判断是否为空
+     * @return 如果为空返回true，否则返回false
+     */
+    public boolean isEmpty() {
+        return containers.isEmpty();
+    }
+
+    /**
+     * 计算与另一个位图的交集，只访问双方都存在的块
+     * @param other 另一个位图
+     * @return 新的位图
+     */
+    public RoaringBitmap and(RoaringBitmap other) {
+        RoaringBitmap result = new RoaringBitmap();
+        RoaringBitmap smaller = containers.size() <= other.containers.size() ? this : other;
+        RoaringBitmap larger = smaller == this ? other : this;
+        for (Map.Entry<Integer, Container> entry : smaller.containers.entrySet()) {
+            Container container = larger.containers.get(entry.getKey());
+            if (container != null) {
+                Container intersection = entry.getValue().and(container);
+                if (intersection.cardinality() > 0) {
+                    result.containers.put(entry.getKey(), intersection);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 计算与另一个位图的并集
+     * @param other 另一个位图
+     * @return 新的位图
+     */
+    public RoaringBitmap or(RoaringBitmap other) {
+        RoaringBitmap result = new RoaringBitmap();
+        for (Map.Entry<Integer, Container> entry : containers.entrySet()) {
+            result.containers.put(entry.getKey(), entry.getValue().copy());
+        }
+        for (Map.Entry<Integer, Container> entry : other.containers.entrySet()) {
+            Container existing = result.containers.get(entry.getKey());
+            result.containers.put(entry.getKey(),
+                    existing == null ? entry.getValue().copy() : existing.or(entry.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * 按从小到大的顺序访问所有元素
+     * @param consumer 元素的处理函数
+     */
+    public void forEach(IntConsumer consumer) {
+        for (Map.Entry<Integer, Container> entry : containers.entrySet()) {
+            int high = entry.getKey() << 16;
+            entry.getValue().forEach(low -> consumer.accept(high | low));
+        }
+    }
+
+    /**
+     * 清空位图
+     */
+    public void clear() {
+        containers.clear();
+    }
+
+    private static void checkValue(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Bitmap only stores non-negative integers: " + value);
+        }
+    }
+
+    /**
+     * 保存同一个块中元素低16位的容器，修改操作返回修改后应使用的容器
+     */
+    private interface Container {
+
+        Container add(char low);
+
+        Container remove(char low);
+
+        boolean contains(char low);
+
+        int cardinality();
+
+        Container and(Container other);
+
+        Container or(Container other);
+
+        Container copy();
+
+        void forEach(IntConsumer consumer);
+    }
+
+    /**
+     * 有序数组容器，用于稀疏的块
+     */
+    private static final class ArrayContainer implements Container {
+
+        private char[] values;
+
+        private int size;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int size) {
+            this.values = values;
+            this.size = size;
+        }
+
+        @Override
+        public Container add(char low) {
+            int position = Arrays.binarySearch(values, 0, size, low);
+            if (position >= 0) {
+                return this;
+            }
+            if (size >= ARRAY_LIMIT) {
+                return toBitmap().add(low);
+            }
+            int insertAt = -position - 1;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, Math.max(4, values.length * 2)));
+            }
+            System.arraycopy(values, insertAt, values, insertAt + 1, size - insertAt);
+            values[insertAt] = low;
+            size++;
+            return this;
+        }
+
+        @Override
+        public Container remove(char low) {
+            int position = Arrays.binarySearch(values, 0, size, low);
+            if (position >= 0) {
+                System.arraycopy(values, position + 1, values, position, size - position - 1);
+                size--;
+            }
+            return this;
+        }
+
+        @Override
+        public boolean contains(char low) {
+            return Arrays.binarySearch(values, 0, size, low) >= 0;
+        }
+
+        @Override
+        public int cardinality() {
+            return size;
+        }
+
+        @Override
+        public Container and(Container other) {
+            char[] result = new char[Math.min(size, other.cardinality())];
+            int count = 0;
+            if (other instanceof ArrayContainer) {
+                ArrayContainer array = (ArrayContainer) other;
+                int i = 0;
+                int j = 0;
+                while (i < size && j < array.size) {
+                    if (values[i] < array.values[j]) {
+                        i++;
+                    } else if (values[i] > array.values[j]) {
+                        j++;
+                    } else {
+                        result[count++] = values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < size; i++) {
+                    if (other.contains(values[i])) {
+                        result[count++] = values[i];
+                    }
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        public Container or(Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.or(this);
+            }
+            ArrayContainer array = (ArrayContainer) other;
+            char[] result = new char[size + array.size];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < size || j < array.size) {
+                if (j >= array.size || (i < size && values[i] < array.values[j])) {
+                    result[count++] = values[i++];
+                } else if (i >= size || values[i] > array.values[j]) {
+                    result[count++] = array.values[j++];
+                } else {
+                    result[count++] = values[i];
+                    i++;
+                    j++;
+                }
+            }
+            ArrayContainer merged = new ArrayContainer(result, count);
+            return count > ARRAY_LIMIT ? merged.toBitmap() : merged;
+        }
+
+        @Override
+        public Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(size, 4)), size);
+        }
+
+        @Override
+        public void forEach(IntConsumer consumer) {
+            for (int i = 0; i < size; i++) {
+                consumer.accept(values[i]);
+            }
+        }
+
+        private BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < size; i++) {
+                bitmap.set(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    /**
+     * 位图容器，用于稠密的块，固定占用8KB
+     */
+    private static final class BitmapContainer implements Container {
+
+        private final long[] words;
+
+        private int cardinality;
+
+        BitmapContainer() {
+            this(new long[1024], 0);
+        }
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        void set(char low) {
+            long mask = 1L << low;
+            int index = low >>> 6;
+            if ((words[index] & mask) == 0) {
+                words[index] |= mask;
+                cardinality++;
+            }
+        }
+
+        @Override
+        public Container add(char low) {
+            set(low);
+            return this;
+        }
+
+        @Override
+        public Container remove(char low) {
+            long mask = 1L << low;
+            int index = low >>> 6;
+            if ((words[index] & mask) != 0) {
+                words[index] &= ~mask;
+                cardinality--;
+            }
+            return cardinality <= ARRAY_LIMIT ? toArray() : this;
+        }
+
+        @Override
+        public boolean contains(char low) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            BitmapContainer bitmap = (BitmapContainer) other;
+            long[] result = new long[1024];
+            int count = 0;
+            for (int i = 0; i < result.length; i++) {
+                result[i] = words[i] & bitmap.words[i];
+                count += Long.bitCount(result[i]);
+            }
+            BitmapContainer intersection = new BitmapContainer(result, count);
+            return count <= ARRAY_LIMIT ? intersection.toArray() : intersection;
+        }
+
+        @Override
+        public Container or(Container other) {
+            BitmapContainer union = (BitmapContainer) copy();
+            if (other instanceof ArrayContainer) {
+                other.forEach(low -> union.set((char) low));
+                return union;
+            }
+            BitmapContainer bitmap = (BitmapContainer) other;
+            int count = 0;
+            for (int i = 0; i < union.words.length; i++) {
+                union.words[i] |= bitmap.words[i];
+                count += Long.bitCount(union.words[i]);
+            }
+            union.cardinality = count;
+            return union;
+        }
+
+        @Override
+        public Container copy() {
+            return new BitmapContainer(words.clone(), cardinality);
+        }
+
+        @Override
+        public void forEach(IntConsumer consumer) {
+            for (int i = 0; i < words.length; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    consumer.accept((i << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        private ArrayContainer toArray() {
+            char[] values = new char[cardinality];
+            int[] count = {0};
+            forEach(low -> values[count[0]++] = (char) low);
+            return new ArrayContainer(values, cardinality);
+        }
+    }
+}
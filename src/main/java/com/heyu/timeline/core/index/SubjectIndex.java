@@ -0,0 +1,113 @@
+package com.heyu.timeline.core.index;
+
+import com.heyu.timeline.core.model.Event;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * 事件主体的二级索引，按键分组后每组再按开始时间排列
+ * 键默认是事件主体本身，也可以由调用方提供的函数从事件中提取
+ * @param <T> 时间类型
+ */
+public class SubjectIndex<T> {
+
+    private final Function<? super Event<T>, ?> keyExtractor;
+
+    private final Comparator<? super T> comparator;
+
+    private final Map<Object, TreeMap<T, List<Event<T>>>> index = new HashMap<>();
+
+    /**
+     * 构造函数
+     * @param keyExtractor 从事件中提取索引键的函数
+     * @param comparator 时间比较器，与时间线的索引保持一致
+     */
+    public SubjectIndex(Function<? super Event<T>, ?> keyExtractor, Comparator<? super T> comparator) {
+        if (keyExtractor == null) {
+            throw new IllegalArgumentException("Key extractor cannot be null");
+        }
+        this.keyExtractor = keyExtractor;
+        this.comparator = comparator;
+    }
+
+    /**
+     * 将事件加入索引
+     * @param event 事件
+     */
+    public void add(Event<T> event) {
+        index.computeIfAbsent(keyExtractor.apply(event), k -> new TreeMap<>(comparator))
+                .computeIfAbsent(event.getStart(), k -> new ArrayList<>())
+                .add(event);
+    }
+
+    /**
+     * 将事件从索引中移除，事件的键必须与加入时相同
+     * @param event 事件
+     */
+    public void remove(Event<T> event) {
+        Object key = keyExtractor.apply(event);
+        TreeMap<T, List<Event<T>>> byStart = index.get(key);
+        if (byStart == null) {
+            return;
+        }
+        List<Event<T>> bucket = byStart.get(event.getStart());
+        if (bucket != null && bucket.remove(event) && bucket.isEmpty()) {
+            byStart.remove(event.getStart());
+            if (byStart.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    /**
+     * 获取指定键的所有事件
+     * @param key 索引键
+     * @return 按开始时间排列的事件
+     */
+    public List<Event<T>> get(Object key) {
+        List<Event<T>> result = new ArrayList<>();
+        TreeMap<T, List<Event<T>>> byStart = index.get(key);
+        if (byStart != null) {
+            for (List<Event<T>> bucket : byStart.values()) {
+                result.addAll(bucket);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 获取指定键下与时间段有交集（包含端点）的事件
+     * 只访问该键下开始时间不晚于时间段结束的事件
+     * @param key 索引键
+     * @param start 开始时间
+     * @param end 结束时间
+     * @return 按开始时间排列的事件
+     */
+    public List<Event<T>> getBetween(Object key, T start, T end) {
+        List<Event<T>> result = new ArrayList<>();
+        TreeMap<T, List<Event<T>>> byStart = index.get(key);
+        if (byStart != null) {
+            for (List<Event<T>> bucket : byStart.headMap(end, true).values()) {
+                for (Event<T> event : bucket) {
+                    if (comparator.compare(event.getEnd(), start) >= 0) {
+                        result.add(event);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 清空索引
+     */
+    public void clear() {
+        index.clear();
+    }
+}
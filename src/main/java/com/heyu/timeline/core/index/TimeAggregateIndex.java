@@ -0,0 +1,218 @@
+package com.heyu.timeline.core.index;
+
+import com.heyu.timeline.calculator.TimeCalculator;
+import com.heyu.timeline.core.model.Event;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 时间轴上的聚合索引，用于按时间段统计事件数量和占用时长
+ * 内部是建立在长整数时间轴上的稀疏树状数组，分别累计开始时间和结束时间的数量与总和，
+ * 每次更新和每个时间段的统计都只需要O(log U)次访问，U为时间轴的取值范围
+ * 事件可以在任意时间动态加入，无法预先压缩坐标，因此树状数组的节点保存在以下标为键的HashMap中，
+ * 每个节点的四个累计值放在同一个long[]里；每个事件最多涉及约2 * 62个节点，
+ * 每个节点约占一个装箱的键、一个数组和一个哈希表项共约80字节，在事件数量很大时比定长数组明显更占内存
+ * @param <T> 时间类型
+ */
+public class TimeAggregateIndex<T> {
+
+    /**
+     * 支持的时间范围为[-OFFSET, OFFSET - 2]，保证树状数组的下标不会溢出
+     */
+    private static final long OFFSET = 1L << 62;
+
+    private final TimeCalculator<T> calculator;
+
+    // 节点中各累计值的位置：开始时间的数量与总和、结束时间的数量与总和
+    private static final int START_COUNT = 0;
+    private static final int START_SUM = 1;
+    private static final int END_COUNT = 2;
+    private static final int END_SUM = 3;
+
+    // 树状数组的非零节点
+    private final Map<Long, long[]> nodes = new HashMap<>();
+
+    /**
+     * 构造函数
+     * @param calculator 时间计算器，必须支持数值转换
+     */
+    public TimeAggregateIndex(TimeCalculator<T> calculator) {
+        if (calculator == null) {
+            throw new IllegalArgumentException("TimeCalculator cannot be null");
+        }
+        this.calculator = calculator;
+    }
+
+    /**
+     * 获取索引使用的时间计算器
+     * @return 时间计算器
+     */
+    public TimeCalculator<T> getCalculator() {
+        return calculator;
+    }
+
+    /**
+     * 将事件计入索引
+     * @param event 事件
+     */
+    public void add(Event<T> event) {
+        update(event, 1);
+    }
+
+    /**
+     * 将事件从索引中扣除
+     * @param event 事件
+     */
+    public void remove(Event<T> event) {
+        update(event, -1);
+    }
+
+    /**
+     * 统计与时间段[from, to)有交集的事件数量
+     * @param from 开始时间
+     * @param to 结束时间
+     * @return 事件数量
+     */
+    public long count(T from, T to) {
+        return count(calculator.toLong(from), calculator.toLong(to));
+    }
+
+    /**
+     * 统计事件在时间段[from, to)内的占用时长之和，重叠的事件分别计算
+     * @param from 开始时间
+     * @param to 结束时间
+     * @return 以持续时间表示的占用时长
+     */
+    public T busyTime(T from, T to) {
+        return calculator.fromLong(busyTimeUntil(calculator.toLong(to)) - busyTimeUntil(calculator.toLong(from)));
+    }
+
+    /**
+     * 按固定长度切分时间段，统计每个时间段内的事件数量，最后一个时间段在to处截断
+     * @param from 开始时间
+     * @param to 结束时间
+     * @param bucketSize 时间段长度
+     * @return 每个时间段的事件数量
+     */
+    public List<Long> countPerBucket(T from, T to, T bucketSize) {
+        long[] bounds = bucketBounds(from, to, bucketSize);
+        List<Long> counts = new ArrayList<>(bounds.length - 1);
+        for (int i = 0; i + 1 < bounds.length; i++) {
+            counts.add(count(bounds[i], bounds[i + 1]));
+        }
+        return counts;
+    }
+
+    /**
+     * 按固定长度切分时间段，统计每个时间段内的占用时长之和，最后一个时间段在to处截断
+     * @param from 开始时间
+     * @param to 结束时间
+     * @param bucketSize 时间段长度
+     * @return 每个时间段以持续时间表示的占用时长
+     */
+    public List<T> busyTimePerBucket(T from, T to, T bucketSize) {
+        long[] bounds = bucketBounds(from, to, bucketSize);
+        List<T> busy = new ArrayList<>(bounds.length - 1);
+        long previous = busyTimeUntil(bounds[0]);
+        for (int i = 1; i < bounds.length; i++) {
+            long current = busyTimeUntil(bounds[i]);
+            busy.add(calculator.fromLong(current - previous));
+            previous = current;
+        }
+        return busy;
+    }
+
+    /**
+     * 清空索引
+     */
+    public void clear() {
+        nodes.clear();
+    }
+
+    private long[] bucketBounds(T from, T to, T bucketSize) {
+        long lo = calculator.toLong(from);
+        long hi = calculator.toLong(to);
+        long size = calculator.toLong(bucketSize);
+        if (size <= 0) {
+            throw new IllegalArgumentException("Bucket size must be positive");
+        }
+        if (lo > hi) {
+            throw new IllegalArgumentException("Start time cannot be after end time");
+        }
+        // hi - lo可能超出long范围，按无符号数计算时间段个数，结果溢出为负数时同样视为过多
+        long span = hi - lo;
+        long buckets = span == 0 ? 1 : Long.divideUnsigned(span - 1, size) + 1;
+        if (buckets < 0 || buckets >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many buckets: " + buckets);
+        }
+        long[] bounds = new long[(int) buckets + 1];
+        for (int i = 0; i < buckets; i++) {
+            bounds[i] = lo + i * size;
+        }
+        bounds[(int) buckets] = hi;
+        return bounds;
+    }
+
+    private long count(long lo, long hi) {
+        // 开始早于hi的事件中，扣除在lo或之前已经结束的事件
+        return prefix(hi - 1)[START_COUNT] - prefix(lo)[END_COUNT];
+    }
+
+    /**
+     * 计算所有事件在(-∞, x]内的占用时长之和
+     * 已开始的事件贡献 x - start，已结束的事件再扣除 x - end，中间结果溢出不影响最终结果
+     */
+    private long busyTimeUntil(long x) {
+        long[] sums = prefix(x);
+        long started = x * sums[START_COUNT] - sums[START_SUM];
+        long ended = x * sums[END_COUNT] - sums[END_SUM];
+        return started - ended;
+    }
+
+    private void update(Event<T> event, int delta) {
+        long start = calculator.toLong(event.getStart());
+        long end = calculator.toLong(event.getEnd());
+        add(start, START_COUNT, START_SUM, delta);
+        add(end, END_COUNT, END_SUM, delta);
+    }
+
+    private void add(long position, int countField, int sumField, int delta) {
+        for (long i = toIndex(position); i > 0; i += i & -i) {
+            long[] node = nodes.computeIfAbsent(i, key -> new long[4]);
+            node[countField] += delta;
+            node[sumField] += delta * position;
+            if (node[START_COUNT] == 0 && node[START_SUM] == 0 && node[END_COUNT] == 0 && node[END_SUM] == 0) {
+                nodes.remove(i);
+            }
+        }
+    }
+
+    /**
+     * 在一次遍历中计算位置不大于position的各项累计值
+     */
+    private long[] prefix(long position) {
+        long[] sums = new long[4];
+        if (position < -OFFSET) {
+            return sums;
+        }
+        for (long i = toIndex(Math.min(position, OFFSET - 2)); i > 0; i -= i & -i) {
+            long[] node = nodes.get(i);
+            if (node != null) {
+                for (int field = 0; field < sums.length; field++) {
+                    sums[field] += node[field];
+                }
+            }
+        }
+        return sums;
+    }
+
+    private static long toIndex(long position) {
+        if (position < -OFFSET || position > OFFSET - 2) {
+            throw new IllegalArgumentException("Time value out of aggregate range: " + position);
+        }
+        return position + OFFSET + 1;
+    }
+}
@@ -0,0 +1,58 @@
+package com.heyu.timeline.core.model;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 添加事件的结果，描述新事件是否被接受以及因此被挤占的现有事件
+ * @param <T> 时间类型
+ */
+@Getter
+public class AddResult<T> {
+
+    /**
+     * 实际加入时间线的事件，新事件被丢弃时为null
+     */
+    private final Event<T> event;
+
+    /**
+     * 被挤占并从时间线中移除的事件
+     */
+    private final List<Event<T>> displacedEvents;
+
+    /**
+     * 被挤占后重新安排到其他时间段的事件
+     */
+    private final List<Event<T>> rescheduledEvents;
+
+    /**
+     * 构造函数
+     * @param event 实际加入时间线的事件
+     * @param displacedEvents 被移除的事件
+     * @param rescheduledEvents 被重新安排的事件
+     */
+    public AddResult(Event<T> event, List<Event<T>> displacedEvents, List<Event<T>> rescheduledEvents) {
+        this.event = event;
+        this.displacedEvents = Collections.unmodifiableList(displacedEvents);
+        this.rescheduledEvents = Collections.unmodifiableList(rescheduledEvents);
+    }
+
+    /**
+     * 创建新事件被丢弃的结果
+     * @param <T> 时间类型
+     * @return 添加结果
+     */
+    public static <T> AddResult<T> rejected() {
+        return new AddResult<>(null, Collections.emptyList(), Collections.emptyList());
+    }
+
+    /**
+     * 判断新事件是否被接受
+     * @return 如果新事件加入了时间线返回true，否则返回false
+     */
+    public boolean isAccepted() {
+        return event != null;
+    }
+}
@@ -1,15 +1,17 @@
 package com.heyu.timeline.core.model;
 
-import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * 时间线事件
  * @param <T> 用来判断先后所需要的事件类型
  */
 @Data
-@AllArgsConstructor
 @NoArgsConstructor
 public class Event<T> {
 
@@ -36,6 +38,33 @@ public class Event<T> {
      * 事件的活跃状态，默认为true（活跃）
      */
     private boolean active = true;
+    
+    /**
+     * 事件的优先级，数值越大优先级越高，默认为0
+     */
+    private int priority;
+    
+    /**
+     * 事件的属性标签，如地区、类型、状态等取值较少的属性，不参与事件的相等比较
+     */
+    @EqualsAndHashCode.Exclude
+    private Map<String, Object> attributes = new HashMap<>();
+
+    /**
+     * 构造函数，用于创建完整描述的事件
+     * @param start 开始时间
+     * @param end 结束时间
+     * @param duration 持续时间
+     * @param subject 事件主体
+     * @param active 是否活跃
+     */
+    public Event(T start, T end, T duration, Object subject, boolean active) {
+        this.start = start;
+        this.end = end;
+        this.duration = duration;
+        this.subject = subject;
+        this.active = active;
+    }
 
     /**
      * 构造函数，用于创建具有明确开始和结束时间的事件
@@ -50,6 +79,18 @@ public class Event<T> {
         this.active = true;
     }
     
+    /**
+     * 构造函数，用于创建具有明确开始和结束时间以及优先级的事件
+     * @param start 开始时间
+     * @param end 结束时间
+     * @param subject 事件主体
+     * @param priority 优先级
+     */
+    public Event(T start, T end, Object subject, int priority) {
+        this(start, end, subject);
+        this.priority = priority;
+    }
+    
     /**
      * 构造函数，用于创建只有持续时间的事件
      * @param duration 持续时间
@@ -61,6 +102,27 @@ public class Event<T> {
         this.active = true;
     }
 
+    /**
+     * 为事件添加属性标签，应在事件加入时间线之前调用
+     * 已经加入可重叠时间线的事件应通过OverlappingTimeLine.tagEvent设置，否则属性索引不会更新
+     * @param name 属性名
+     * @param value 属性值
+     * @return 当前事件
+     */
+    public Event<T> tag(String name, Object value) {
+        attributes.put(name, value);
+        return this;
+    }
+    
+    /**
+     * 获取属性标签的值
+     * @param name 属性名
+     * @return 属性值，不存在时返回null
+     */
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
     /**
      * 设置事件为活跃状态
      */
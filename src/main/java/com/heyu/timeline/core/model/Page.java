@@ -0,0 +1,42 @@
+package com.heyu.timeline.core.model;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 分页查询的一页结果
+ * @param <T> 时间类型
+ */
+@Getter
+public class Page<T> {
+
+    /**
+     * 本页的事件
+     */
+    private final List<Event<T>> events;
+
+    /**
+     * 获取下一页使用的游标，没有下一页时为null
+     */
+    private final PageCursor<T> nextCursor;
+
+    /**
+     * 构造函数
+     * @param events 本页的事件
+     * @param nextCursor 下一页的游标
+     */
+    public Page(List<Event<T>> events, PageCursor<T> nextCursor) {
+        this.events = Collections.unmodifiableList(events);
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * 判断是否还有下一页
+     * @return 如果还有下一页返回true，否则返回false
+     */
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
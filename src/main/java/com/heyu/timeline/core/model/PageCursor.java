@@ -0,0 +1,60 @@
+package com.heyu.timeline.core.model;
+
+import lombok.Data;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 分页游标，记录上一页最后一个事件的排序键，下一页从该键之后继续
+ * 排序键依次为开始时间、结束时间和事件加入时间线时分配的序号
+ * @param <T> 时间类型
+ */
+@Data
+public class PageCursor<T> {
+
+    /**
+     * 上一页最后一个事件的开始时间
+     */
+    private final T start;
+
+    /**
+     * 上一页最后一个事件的结束时间
+     */
+    private final T end;
+
+    /**
+     * 上一页最后一个事件的序号，用于区分开始时间和结束时间都相同的事件
+     */
+    private final long sequence;
+
+    /**
+     * 开始于窗口之前、与窗口相交且尚未返回的事件，按排序键排列
+     * 在第一页时求出一次，之后随游标传递；为null时表示未知，需要重新查找
+     */
+    private final List<Event<T>> pendingStraddlers;
+
+    /**
+     * 构造函数
+     * @param start 上一页最后一个事件的开始时间
+     * @param end 上一页最后一个事件的结束时间
+     * @param sequence 上一页最后一个事件的序号
+     */
+    public PageCursor(T start, T end, long sequence) {
+        this(start, end, sequence, null);
+    }
+
+    /**
+     * 构造函数
+     * @param start 上一页最后一个事件的开始时间
+     * @param end 上一页最后一个事件的结束时间
+     * @param sequence 上一页最后一个事件的序号
+     * @param pendingStraddlers 开始于窗口之前且尚未返回的事件，为null时表示未知
+     */
+    public PageCursor(T start, T end, long sequence, List<Event<T>> pendingStraddlers) {
+        this.start = start;
+        this.end = end;
+        this.sequence = sequence;
+        this.pendingStraddlers = pendingStraddlers == null ? null : Collections.unmodifiableList(pendingStraddlers);
+    }
+}
@@ -0,0 +1,97 @@
+package com.heyu.timeline.core.model;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 重复规则，描述重复事件按固定周期重复的方式
+ * @param <T> 时间类型
+ */
+@Getter
+public class RecurrenceRule<T> {
+
+    /**
+     * 相邻两次发生的开始时间间隔，与事件的持续时间使用相同的表示方式
+     */
+    private final T period;
+
+    /**
+     * 最多发生的次数，0表示不限次数
+     */
+    private final int count;
+
+    /**
+     * 最后一次发生的开始时间不能晚于该时间，为null表示不限
+     */
+    private final T until;
+
+    /**
+     * 被排除的发生，以该次发生的开始时间表示
+     */
+    private final Set<T> exceptions = new HashSet<>();
+
+    /**
+     * 创建不限次数的重复规则
+     * @param period 重复周期
+     */
+    public RecurrenceRule(T period) {
+        this(period, 0, null);
+    }
+
+    /**
+     * 创建限定次数的重复规则
+     * @param period 重复周期
+     * @param count 最多发生的次数，0表示不限次数
+     */
+    public RecurrenceRule(T period, int count) {
+        this(period, count, null);
+    }
+
+    /**
+     * 创建重复规则
+     * @param period 重复周期
+     * @param count 最多发生的次数，0表示不限次数
+     * @param until 最后一次发生的开始时间上限，为null表示不限
+     */
+    public RecurrenceRule(T period, int count, T until) {
+        if (period == null) {
+            throw new IllegalArgumentException("Recurrence period cannot be null");
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("Recurrence count cannot be negative");
+        }
+        this.period = period;
+        this.count = count;
+        this.until = until;
+    }
+
+    /**
+     * 排除某一次发生
+     * 只能在重复事件加入时间线之前调用，或者用于释放已经占用的时间
+     * @param occurrenceStart 要排除的那次发生的开始时间
+     * @return 当前规则
+     */
+    public RecurrenceRule<T> except(T occurrenceStart) {
+        exceptions.add(occurrenceStart);
+        return this;
+    }
+
+    /**
+     * 获取被排除的发生
+     * @return 被排除的发生的开始时间
+     */
+    public Set<T> getExceptions() {
+        return Collections.unmodifiableSet(exceptions);
+    }
+
+    /**
+     * 判断规则是否只产生有限次发生
+     * @return 如果限定了次数或截止时间返回true，否则返回false
+     */
+    public boolean isBounded() {
+        return count > 0 || until != null;
+    }
+}
@@ -0,0 +1,202 @@
+package com.heyu.timeline.core.model;
+
+import com.heyu.timeline.calculator.TimeCalculator;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 重复事件，由第一次发生的时间段和重复规则组成
+ * 时间线只保存一份重复事件，各次发生只在查询的时间窗口内按需展开
+ * @param <T> 时间类型
+ */
+@Getter
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+public class RecurringEvent<T> extends Event<T> {
+
+    /**
+     * 重复规则
+     */
+    private final RecurrenceRule<T> rule;
+
+    /**
+     * 构造函数
+     * @param start 第一次发生的开始时间
+     * @param end 第一次发生的结束时间
+     * @param subject 事件主体
+     * @param rule 重复规则
+     */
+    public RecurringEvent(T start, T end, Object subject, RecurrenceRule<T> rule) {
+        super(start, end, subject);
+        if (start == null || end == null) {
+            throw new IllegalArgumentException("Recurring event must have both start and end time");
+        }
+        if (rule == null) {
+            throw new IllegalArgumentException("Recurrence rule cannot be null");
+        }
+        this.rule = rule;
+    }
+
+    /**
+     * 展开与指定时间段有交集（包含端点）的所有发生
+     * @param from 时间段开始时间
+     * @param to 时间段结束时间
+     * @param calculator 时间计算器
+     * @return 按开始时间排序的发生
+     */
+    public List<Event<T>> getOccurrencesBetween(T from, T to, TimeCalculator<T> calculator) {
+        long period = calculator.toLong(rule.getPeriod());
+        long start = calculator.toLong(getStart());
+        long end = calculator.toLong(getEnd());
+        // 第k次发生为[start + k * period, end + k * period]
+        long lo = Math.max(0, ceilDiv(calculator.toLong(from) - end, period));
+        long hi = Math.min(lastIndex(calculator), Math.floorDiv(calculator.toLong(to) - start, period));
+
+        List<Event<T>> occurrences = new ArrayList<>();
+        for (long k = lo; k <= hi; k++) {
+            T occurrenceStart = calculator.fromLong(start + k * period);
+            if (isException(occurrenceStart)) {
+                continue;
+            }
+            Event<T> occurrence = new Event<>(occurrenceStart, calculator.fromLong(end + k * period), getSubject(),
+                    getPriority());
+            occurrence.setActive(isActive());
+            occurrence.getAttributes().putAll(getAttributes());
+            occurrences.add(occurrence);
+        }
+        return occurrences;
+    }
+
+    /**
+     * 查找第一个与指定时间段重叠（首尾相接不算）的发生
+     * 只计算发生的下标，不创建事件对象
+     * @param from 时间段开始时间
+     * @param to 时间段结束时间
+     * @param calculator 时间计算器
+     * @return 该次发生的结束时间，不存在时返回null
+     */
+    public T findOverlappingOccurrenceEnd(T from, T to, TimeCalculator<T> calculator) {
+        long period = calculator.toLong(rule.getPeriod());
+        long start = calculator.toLong(getStart());
+        long end = calculator.toLong(getEnd());
+        long lo = Math.max(0, Math.floorDiv(calculator.toLong(from) - end, period) + 1);
+        long hi = Math.min(lastIndex(calculator), ceilDiv(calculator.toLong(to) - start, period) - 1);
+        // 最多跳过与排除项数量相同的发生
+        for (long k = lo; k <= hi; k++) {
+            if (!isException(calculator.fromLong(start + k * period))) {
+                return calculator.fromLong(end + k * period);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 查找第一次开始时间不早于指定时间的发生
+     * @param time 时间
+     * @param calculator 时间计算器
+     * @return 该次发生的开始时间，不存在时返回null
+     */
+    public T findNextOccurrenceStart(T time, TimeCalculator<T> calculator) {
+        long period = calculator.toLong(rule.getPeriod());
+        long start = calculator.toLong(getStart());
+        long last = lastIndex(calculator);
+        for (long k = Math.max(0, ceilDiv(calculator.toLong(time) - start, period)); k <= last; k++) {
+            T occurrenceStart = calculator.fromLong(start + k * period);
+            if (!isException(occurrenceStart)) {
+                return occurrenceStart;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 判断两个重复事件是否存在重叠（首尾相接不算）的发生
+     * 至少一方有限时逐次检查有限一方的发生；双方都不限次数时通过周期的最大公约数直接判断，此时不考虑排除项
+     * @param other 另一个重复事件
+     * @param calculator 时间计算器
+     * @return 如果存在重叠返回true，否则返回false
+     */
+    public boolean overlaps(RecurringEvent<T> other, TimeCalculator<T> calculator) {
+        if (rule.isBounded() && (!other.rule.isBounded() || lastIndex(calculator) <= other.lastIndex(calculator))) {
+            long period = calculator.toLong(rule.getPeriod());
+            long start = calculator.toLong(getStart());
+            long end = calculator.toLong(getEnd());
+            long last = lastIndex(calculator);
+            for (long k = 0; k <= last; k++) {
+                T occurrenceStart = calculator.fromLong(start + k * period);
+                if (isException(occurrenceStart)) {
+                    continue;
+                }
+                if (other.findOverlappingOccurrenceEnd(occurrenceStart, calculator.fromLong(end + k * period),
+                        calculator) != null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (other.rule.isBounded()) {
+            return other.overlaps(this, calculator);
+        }
+
+        // 重叠当且仅当 (b - a) + j * q - i * p 落在 (-L2, L1) 内，而 j * q - i * p 可以取到 gcd(p, q) 的任意倍数
+        long p = calculator.toLong(rule.getPeriod());
+        long q = calculator.toLong(other.rule.getPeriod());
+        long diff = calculator.toLong(other.getStart()) - calculator.toLong(getStart());
+        long length = calculator.toLong(getEnd()) - calculator.toLong(getStart());
+        long otherLength = calculator.toLong(other.getEnd()) - calculator.toLong(other.getStart());
+        long g = gcd(p, q);
+        long low = -otherLength - diff;
+        long high = length - diff;
+        long multiple = (Math.floorDiv(low, g) + 1) * g;
+        return multiple < high;
+    }
+
+    /**
+     * 获取最后一次发生的结束时间
+     * @param calculator 时间计算器
+     * @return 最后一次发生的结束时间，不限次数时返回null
+     */
+    public T getLastEnd(TimeCalculator<T> calculator) {
+        if (!rule.isBounded()) {
+            return null;
+        }
+        long last = Math.max(0, lastIndex(calculator));
+        return calculator.fromLong(calculator.toLong(getEnd()) + last * calculator.toLong(rule.getPeriod()));
+    }
+
+    /**
+     * 计算最后一次发生的下标，没有任何发生时返回-1
+     */
+    private long lastIndex(TimeCalculator<T> calculator) {
+        long last = rule.getCount() > 0 ? rule.getCount() - 1 : Long.MAX_VALUE;
+        if (rule.getUntil() != null) {
+            long span = calculator.toLong(rule.getUntil()) - calculator.toLong(getStart());
+            if (span < 0) {
+                return -1;
+            }
+            last = Math.min(last, span / calculator.toLong(rule.getPeriod()));
+        }
+        return last;
+    }
+
+    private boolean isException(T occurrenceStart) {
+        return !rule.getExceptions().isEmpty() && rule.getExceptions().contains(occurrenceStart);
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return -Math.floorDiv(-x, y);
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
@@ -0,0 +1,21 @@
+package com.heyu.timeline.core.model;
+
+import lombok.Data;
+
+/**
+ * 时间段，由开始时间和结束时间组成
+ * @param <T> 时间类型
+ */
+@Data
+public class TimeSlot<T> {
+
+    /**
+     * 时间段的开始时间
+     */
+    private final T start;
+
+    /**
+     * 时间段的结束时间，为null表示该时间段之后不再有占用
+     */
+    private final T end;
+}
@@ -0,0 +1,67 @@
+package com.heyu.timeline.core.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一批需要原子地应用到时间线上的修改，先执行全部删除，再执行全部添加
+ * 例如调整预约时间：删除原来的事件并添加新的事件，两步要么都成功，要么都不生效
+ * @param <T> 时间类型
+ */
+public class TimelineBatch<T> {
+
+    private final List<Event<T>> removals = new ArrayList<>();
+
+    private final List<Event<T>> additions = new ArrayList<>();
+
+    /**
+     * 加入一个要删除的事件
+     * @param event 要删除的事件
+     * @return 当前批次
+     */
+    public TimelineBatch<T> remove(Event<T> event) {
+        if (event == null) {
+            throw new IllegalArgumentException("Batch event cannot be null");
+        }
+        removals.add(event);
+        return this;
+    }
+
+    /**
+     * 加入一个要添加的事件，事件必须有明确的开始时间和结束时间
+     * @param event 要添加的事件
+     * @return 当前批次
+     */
+    public TimelineBatch<T> add(Event<T> event) {
+        if (event == null) {
+            throw new IllegalArgumentException("Batch event cannot be null");
+        }
+        additions.add(event);
+        return this;
+    }
+
+    /**
+     * 获取要删除的事件
+     * @return 要删除的事件
+     */
+    public List<Event<T>> getRemovals() {
+        return Collections.unmodifiableList(removals);
+    }
+
+    /**
+     * 获取要添加的事件
+     * @return 要添加的事件
+     */
+    public List<Event<T>> getAdditions() {
+        return Collections.unmodifiableList(additions);
+    }
+
+    /**
+     * 判断批次是否为空
+     * @return 如果没有任何修改返回true，否则返回false
+     */
+    public boolean isEmpty() {
+        return removals.isEmpty() && additions.isEmpty();
+    }
+}
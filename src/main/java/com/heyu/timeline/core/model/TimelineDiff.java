@@ -0,0 +1,50 @@
+package com.heyu.timeline.core.model;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 两个版本的时间线之间的差异
+ * 开始时间和主体都相同的事件视为同一个事件
+ * @param <T> 时间类型
+ */
+@Getter
+public class TimelineDiff<T> {
+
+    /**
+     * 只在新版本中存在的事件
+     */
+    private final List<Event<T>> added;
+
+    /**
+     * 只在旧版本中存在的事件
+     */
+    private final List<Event<T>> removed;
+
+    /**
+     * 两个版本中都存在但结束时间、活跃状态、优先级或属性发生变化的事件，保存新版本
+     */
+    private final List<Event<T>> changed;
+
+    /**
+     * 构造函数
+     * @param added 新增的事件
+     * @param removed 删除的事件
+     * @param changed 修改的事件
+     */
+    public TimelineDiff(List<Event<T>> added, List<Event<T>> removed, List<Event<T>> changed) {
+        this.added = Collections.unmodifiableList(added);
+        this.removed = Collections.unmodifiableList(removed);
+        this.changed = Collections.unmodifiableList(changed);
+    }
+
+    /**
+     * 判断两个版本是否完全相同
+     * @return 如果没有任何差异返回true，否则返回false
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+}
@@ -0,0 +1,233 @@
+package com.heyu.timeline.core.scheduler;
+
+import com.heyu.timeline.calculator.TimeCalculator;
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.core.model.TimeSlot;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 批量安排器，在一次遍历空闲时间段的过程中为一批只有持续时间的事件分配开始和结束时间
+ * 安排器本身不持有时间线，只根据已占用的时间段计算安排结果
+ * @param <T> 时间类型
+ */
+public class BatchPlanner<T> {
+
+    private final TimeCalculator<T> timeCalculator;
+
+    /**
+     * 构造函数
+     * @param timeCalculator 时间计算器
+     */
+    public BatchPlanner(TimeCalculator<T> timeCalculator) {
+        if (timeCalculator == null) {
+            throw new IllegalArgumentException("TimeCalculator cannot be null");
+        }
+        this.timeCalculator = timeCalculator;
+    }
+
+    /**
+     * 为一批事件安排时间，直接设置每个事件的开始和结束时间
+     * 与已占用时间段首尾相接的位置视为空闲
+     * @param busySlots 已占用的时间段，按开始时间排序
+     * @param origin 安排的起点，所有事件都不早于该时间开始
+     * @param jobs 只有持续时间的事件
+     * @param policy 安排策略
+     * @return 安排结果
+     */
+    public BatchScheduleResult<T> plan(List<TimeSlot<T>> busySlots, T origin, Collection<Event<T>> jobs,
+                                       BatchPolicy policy) {
+        // 一次遍历已占用时间段，得到起点之后的所有有限间隙以及最后的开放区间
+        List<T> gapStarts = new ArrayList<>();
+        List<T> gapEnds = new ArrayList<>();
+        T cursor = origin;
+        for (TimeSlot<T> slot : busySlots) {
+            if (timeCalculator.compare(slot.getEnd(), cursor) <= 0) {
+                continue;
+            }
+            if (timeCalculator.compare(slot.getStart(), cursor) > 0) {
+                gapStarts.add(cursor);
+                gapEnds.add(slot.getStart());
+            }
+            cursor = slot.getEnd();
+        }
+        T tail = cursor;
+
+        List<Event<T>> ordered = new ArrayList<>(jobs);
+        Comparator<Event<T>> byDuration = (e1, e2) -> timeCalculator.compare(e1.getDuration(), e2.getDuration());
+        ordered.sort(policy == BatchPolicy.SHORTEST_FIRST ? byDuration : byDuration.reversed());
+
+        if (policy == BatchPolicy.FIRST_FIT_DECREASING) {
+            placeFirstFit(ordered, gapStarts, gapEnds, tail);
+        } else {
+            placeSequentially(ordered, gapStarts, gapEnds, tail, origin);
+        }
+
+        // 汇总结果
+        T completionTime = origin;
+        for (Event<T> event : ordered) {
+            if (timeCalculator.compare(event.getEnd(), completionTime) > 0) {
+                completionTime = event.getEnd();
+            }
+        }
+        ordered.sort((e1, e2) -> timeCalculator.compare(e1.getStart(), e2.getStart()));
+        T makespan = timeCalculator.subtract(completionTime, origin);
+        double utilization = computeUtilization(busySlots, ordered, origin, completionTime);
+        return new BatchScheduleResult<>(ordered, completionTime, makespan, utilization);
+    }
+
+    /**
+     * 按顺序安排事件，每个事件都排在前一个事件之后的第一个足够大的空闲时间段
+     */
+    private void placeSequentially(List<Event<T>> ordered, List<T> gapStarts, List<T> gapEnds, T tail, T origin) {
+        T cursor = origin;
+        int gap = 0;
+        for (Event<T> event : ordered) {
+            T duration = event.getDuration();
+            T start = null;
+            while (gap < gapStarts.size()) {
+                T candidate = max(cursor, gapStarts.get(gap));
+                if (timeCalculator.compare(timeCalculator.add(candidate, duration), gapEnds.get(gap)) <= 0) {
+                    start = candidate;
+                    break;
+                }
+                gap++;
+            }
+            if (start == null) {
+                start = max(cursor, tail);
+            }
+            assign(event, start, duration);
+            cursor = event.getEnd();
+        }
+    }
+
+    /**
+     * 按首次适应安排事件，借助间隙剩余长度的最大值树在O(log n)内找到最早的足够大的间隙
+     */
+    private void placeFirstFit(List<Event<T>> ordered, List<T> gapStarts, List<T> gapEnds, T tail) {
+        List<T> remaining = new ArrayList<>(gapStarts.size());
+        for (int i = 0; i < gapStarts.size(); i++) {
+            remaining.add(timeCalculator.subtract(gapEnds.get(i), gapStarts.get(i)));
+        }
+        GapTree tree = new GapTree(remaining);
+
+        for (Event<T> event : ordered) {
+            T duration = event.getDuration();
+            int gap = tree.findFirst(duration);
+            if (gap < 0) {
+                assign(event, tail, duration);
+                tail = event.getEnd();
+                continue;
+            }
+            assign(event, gapStarts.get(gap), duration);
+            gapStarts.set(gap, event.getEnd());
+            tree.update(gap, timeCalculator.subtract(gapEnds.get(gap), event.getEnd()));
+        }
+    }
+
+    /**
+     * 计算从起点到完工时间之间的占用比例
+     */
+    private double computeUtilization(List<TimeSlot<T>> busySlots, List<Event<T>> scheduled, T origin, T completion) {
+        try {
+            long from = timeCalculator.toLong(origin);
+            long to = timeCalculator.toLong(completion);
+            if (to <= from) {
+                return 0.0;
+            }
+            long busy = 0;
+            long cursor = from;
+            for (TimeSlot<T> slot : busySlots) {
+                long start = Math.max(cursor, timeCalculator.toLong(slot.getStart()));
+                long end = Math.min(to, timeCalculator.toLong(slot.getEnd()));
+                if (end > start) {
+                    busy += end - start;
+                    cursor = end;
+                }
+            }
+            for (Event<T> event : scheduled) {
+                busy += timeCalculator.toLong(event.getEnd()) - timeCalculator.toLong(event.getStart());
+            }
+            return Math.min(1.0, (double) busy / (to - from));
+        } catch (UnsupportedOperationException e) {
+            return Double.NaN;
+        }
+    }
+
+    private void assign(Event<T> event, T start, T duration) {
+        event.setStart(start);
+        event.setEnd(timeCalculator.add(start, duration));
+    }
+
+    private T max(T t1, T t2) {
+        return timeCalculator.compare(t1, t2) >= 0 ? t1 : t2;
+    }
+
+    /**
+     * 间隙剩余长度的最大值线段树
+     */
+    private class GapTree {
+
+        private final int size;
+
+        private final Object[] max;
+
+        GapTree(List<T> values) {
+            int n = 1;
+            while (n < values.size()) {
+                n <<= 1;
+            }
+            this.size = n;
+            this.max = new Object[2 * n];
+            for (int i = 0; i < values.size(); i++) {
+                max[n + i] = values.get(i);
+            }
+            for (int i = n - 1; i > 0; i--) {
+                max[i] = larger(value(2 * i), value(2 * i + 1));
+            }
+        }
+
+        /**
+         * 查找最靠前的剩余长度不小于指定值的间隙
+         * @param need 需要的长度
+         * @return 间隙下标，不存在时返回-1
+         */
+        int findFirst(T need) {
+            if (value(1) == null || timeCalculator.compare(value(1), need) < 0) {
+                return -1;
+            }
+            int node = 1;
+            while (node < size) {
+                T left = value(2 * node);
+                node = left != null && timeCalculator.compare(left, need) >= 0 ? 2 * node : 2 * node + 1;
+            }
+            return node - size;
+        }
+
+        void update(int index, T newValue) {
+            int node = size + index;
+            max[node] = newValue;
+            for (node >>= 1; node > 0; node >>= 1) {
+                max[node] = larger(value(2 * node), value(2 * node + 1));
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private T value(int node) {
+            return (T) max[node];
+        }
+
+        private T larger(T t1, T t2) {
+            if (t1 == null) {
+                return t2;
+            }
+            if (t2 == null) {
+                return t1;
+            }
+            return timeCalculator.compare(t1, t2) >= 0 ? t1 : t2;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.heyu.timeline.core.scheduler;
+
+/**
+ * 批量安排只有持续时间的事件时使用的策略
+ */
+public enum BatchPolicy {
+
+    /**
+     * 最短优先：按持续时间从短到长依次排在前一个事件之后，使平均完成时间最小
+     */
+    SHORTEST_FIRST,
+
+    /**
+     * 最长优先：按持续时间从长到短依次排在前一个事件之后，尽早开始耗时最长的事件
+     */
+    LONGEST_FIRST,
+
+    /**
+     * 首次适应递减：按持续时间从长到短，每个事件放入最早的足够大的空闲时间段，尽量填满已有的间隙
+     */
+    FIRST_FIT_DECREASING
+}
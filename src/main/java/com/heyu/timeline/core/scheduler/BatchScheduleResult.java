@@ -0,0 +1,50 @@
+package com.heyu.timeline.core.scheduler;
+
+import com.heyu.timeline.core.model.Event;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 批量安排的结果
+ * @param <T> 时间类型
+ */
+@Getter
+public class BatchScheduleResult<T> {
+
+    /**
+     * 已安排的事件，按开始时间排序
+     */
+    private final List<Event<T>> scheduledEvents;
+
+    /**
+     * 批次中最晚结束的时间，没有事件时为安排的起点
+     */
+    private final T completionTime;
+
+    /**
+     * 完工时间跨度，即从安排的起点到最晚结束时间的持续时间
+     */
+    private final T makespan;
+
+    /**
+     * 从安排的起点到最晚结束时间之间被占用的比例，取值范围为0到1
+     * 时间计算器不支持数值转换时为NaN
+     */
+    private final double utilization;
+
+    /**
+     * 构造函数
+     * @param scheduledEvents 已安排的事件
+     * @param completionTime 最晚结束时间
+     * @param makespan 完工时间跨度
+     * @param utilization 占用比例
+     */
+    public BatchScheduleResult(List<Event<T>> scheduledEvents, T completionTime, T makespan, double utilization) {
+        this.scheduledEvents = Collections.unmodifiableList(scheduledEvents);
+        this.completionTime = completionTime;
+        this.makespan = makespan;
+        this.utilization = utilization;
+    }
+}
@@ -0,0 +1,41 @@
+package com.heyu.timeline.core.scheduler;
+
+import lombok.Getter;
+
+/**
+ * 预约时间段时的约束条件，未设置的条件不做限制
+ * @param <T> 时间类型
+ */
+@Getter
+public class ReservationConstraints<T> {
+
+    /**
+     * 最早开始时间，未设置时从时间计算器的零点开始
+     */
+    private T notBefore;
+
+    /**
+     * 最晚结束时间
+     */
+    private T deadline;
+
+    /**
+     * 设置最早开始时间
+     * @param notBefore 最早开始时间
+     * @return 当前约束
+     */
+    public ReservationConstraints<T> notBefore(T notBefore) {
+        this.notBefore = notBefore;
+        return this;
+    }
+
+    /**
+     * 设置最晚结束时间
+     * @param deadline 最晚结束时间
+     * @return 当前约束
+     */
+    public ReservationConstraints<T> deadline(T deadline) {
+        this.deadline = deadline;
+        return this;
+    }
+}
@@ -0,0 +1,591 @@
+package com.heyu.timeline.core.scheduler;
+
+import com.heyu.timeline.calculator.TimeCalculator;
+import com.heyu.timeline.core.model.AddResult;
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.core.model.TimeSlot;
+import com.heyu.timeline.core.timeline.TimeLine;
+import com.heyu.timeline.exception.TimeLineException;
+import com.heyu.timeline.factory.TimeLinePool;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 资源组调度器，把一组相同的时间线视为多台机器，为只有持续时间的事件选择能够最早开始的时间线
+ * 每条时间线的有限空闲时间段按位置保存在一棵线段树中，节点记录子树内最长的空闲时间段；
+ * 各时间线之上再有一棵锦标赛树，节点记录子树内最长的空闲时间段、最早的空闲时间段开始时间和最早的末尾空闲时间，
+ * 安排事件时从根开始分支定界：放不下事件或最早开始时间不可能更早的子树直接跳过，安排后只更新变化的时间线到根的路径
+ * 最早能容纳事件的位置取决于事件的持续时间，无法为每条时间线预先算出一个键，最坏情况下仍会访问较多时间线；
+ * 只能使用末尾空闲时间或各时间线空闲时间段相近时，每次安排访问O(log N)个节点
+ * @param <T> 时间类型
+ */
+public class ResourceGroupScheduler<T> {
+
+    /**
+     * 含重复事件的时间线在已读取范围之后最多再查找这么多个事件持续时间，仍放不下时认为重复事件已经占满时间线
+     * 范围每次至少翻倍，读取空闲时间段的总代价与时间线的已有内容成正比
+     */
+    private static final int MAX_LOOKAHEAD_DURATIONS = 32;
+
+    private final List<TimeLine<T>> resources;
+
+    private final TimeCalculator<T> timeCalculator;
+
+    // 每条时间线的空闲时间段，与resources中的下标一一对应
+    private final List<ResourceGaps<T>> gaps = new ArrayList<>();
+
+    // 各时间线之上的锦标赛树，叶子从下标leaves开始
+    // treeMaxGap：子树中最长的有限空闲时间段；treeMinGapStart：子树中最早的有限空闲时间段开始时间；
+    // treeMinTail：子树中末尾空闲时间最早的时间线下标，开始时间相同时取下标较小的
+    private Object[] treeMaxGap;
+    private Object[] treeMinGapStart;
+    private int[] treeMinTail;
+    private int leaves;
+
+    // 由调度器安排的事件，用于重新平衡
+    private final List<Assignment<T>> assignments = new ArrayList<>();
+
+    private final Lock lock = new ReentrantLock();
+
+    /**
+     * 构造函数
+     * @param resources 作为资源的时间线
+     * @param timeCalculator 时间计算器
+     * @throws TimeLineException 当读取时间线的空闲时间段失败时抛出异常
+     */
+    public ResourceGroupScheduler(List<TimeLine<T>> resources, TimeCalculator<T> timeCalculator) throws TimeLineException {
+        if (resources == null || resources.isEmpty()) {
+            throw new IllegalArgumentException("Resource group must contain at least one timeline");
+        }
+        if (timeCalculator == null) {
+            throw new IllegalArgumentException("TimeCalculator cannot be null");
+        }
+        this.resources = new ArrayList<>(resources);
+        this.timeCalculator = timeCalculator;
+        refresh();
+    }
+
+    /**
+     * 使用时间线池中的时间线创建资源组调度器
+     * @param timeCalculator 时间计算器
+     * @param names 时间线名称
+     * @param <T> 时间类型
+     * @return 资源组调度器
+     * @throws TimeLineException 当时间线数量达到上限时抛出异常
+     */
+    public static <T extends Comparable<T>> ResourceGroupScheduler<T> fromPool(TimeCalculator<T> timeCalculator,
+                                                                               String... names) throws TimeLineException {
+        List<TimeLine<T>> resources = new ArrayList<>();
+        for (String name : names) {
+            TimeLine<T> timeLine = TimeLinePool.getTimeLine(name);
+            resources.add(timeLine);
+        }
+        return new ResourceGroupScheduler<>(resources, timeCalculator);
+    }
+
+    /**
+     * 重新读取所有时间线的空闲时间段
+     * 在调度器之外修改了时间线之后需要调用
+     * @throws TimeLineException 当读取时间线失败时抛出异常
+     */
+    public void refresh() throws TimeLineException {
+        lock.lock();
+        try {
+            gaps.clear();
+            for (TimeLine<T> resource : resources) {
+                gaps.add(readGaps(resource, null));
+            }
+            leaves = 1;
+            while (leaves < resources.size()) {
+                leaves <<= 1;
+            }
+            treeMaxGap = new Object[leaves * 2];
+            treeMinGapStart = new Object[leaves * 2];
+            treeMinTail = new int[leaves * 2];
+            Arrays.fill(treeMinTail, -1);
+            for (int i = 0; i < resources.size(); i++) {
+                setLeaf(i);
+            }
+            for (int node = leaves - 1; node >= 1; node--) {
+                pull(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 从时间线的占用时间段读取空闲时间段，调用方需持有锁
+     * 没有重复事件时，最后一个占用时间段之后全部空闲；
+     * 有重复事件时只读取到给定范围为止，范围之后的空闲时间在需要时再延长读取
+     * @param resource 时间线
+     * @param horizon 读取范围，为null时读取到最后一个占用时间段结束
+     */
+    private ResourceGaps<T> readGaps(TimeLine<T> resource, T horizon) throws TimeLineException {
+        T zero = timeCalculator.getZero();
+        List<TimeSlot<T>> coverage = resource.getCoverage();
+        T lastEnd = zero;
+        if (!coverage.isEmpty() && timeCalculator.compare(coverage.get(coverage.size() - 1).getEnd(), zero) > 0) {
+            lastEnd = coverage.get(coverage.size() - 1).getEnd();
+        }
+        List<T> starts = new ArrayList<>();
+        List<T> ends = new ArrayList<>();
+        if (resource.getRecurringEvents().isEmpty()) {
+            T cursor = zero;
+            for (TimeSlot<T> slot : coverage) {
+                if (timeCalculator.compare(slot.getStart(), cursor) > 0) {
+                    starts.add(cursor);
+                    ends.add(slot.getStart());
+                }
+                if (timeCalculator.compare(slot.getEnd(), cursor) > 0) {
+                    cursor = slot.getEnd();
+                }
+            }
+            // 每条时间线最后都有一个没有结束时间的空闲时间段
+            return new ResourceGaps<>(starts, ends, cursor, false, timeCalculator);
+        }
+
+        T end = horizon == null || timeCalculator.compare(horizon, lastEnd) < 0 ? lastEnd : horizon;
+        for (TimeSlot<T> slot : resource.getFreeSlots(zero, end, zero)) {
+            starts.add(slot.getStart());
+            ends.add(slot.getEnd());
+        }
+        return new ResourceGaps<>(starts, ends, end, true, timeCalculator);
+    }
+
+    /**
+     * 将一个只有持续时间的事件安排到能够最早开始的时间线上
+     * @param event 只有持续时间的事件
+     * @return 安排结果
+     * @throws TimeLineException 当事件不是只有持续时间或无法加入时间线时抛出异常
+     */
+    public Assignment<T> assign(Event<T> event) throws TimeLineException {
+        if (event == null || event.getDuration() == null || event.getStart() != null || event.getEnd() != null) {
+            throw new TimeLineException("Resource group scheduling only accepts events with only duration");
+        }
+        lock.lock();
+        try {
+            return place(event);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 批量安排事件，按持续时间从长到短依次安排到能够最早开始的时间线上
+     * @param events 只有持续时间的事件
+     * @return 按安排顺序排列的结果
+     * @throws TimeLineException 当事件不是只有持续时间或无法加入时间线时抛出异常
+     */
+    public List<Assignment<T>> assignAll(Collection<Event<T>> events) throws TimeLineException {
+        for (Event<T> event : events) {
+            if (event == null || event.getDuration() == null || event.getStart() != null || event.getEnd() != null) {
+                throw new TimeLineException("Resource group scheduling only accepts events with only duration");
+            }
+        }
+        List<Event<T>> ordered = new ArrayList<>(events);
+        ordered.sort((e1, e2) -> timeCalculator.compare(e2.getDuration(), e1.getDuration()));
+
+        lock.lock();
+        try {
+            List<Assignment<T>> result = new ArrayList<>(ordered.size());
+            for (Event<T> event : ordered) {
+                result.add(place(event));
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 重新平衡由调度器安排的所有事件
+     * 先把这些事件从时间线中移除，再按持续时间从长到短重新安排；
+     * 重新安排失败时撤销已经完成的部分，所有事件回到原来的时间线和时间
+     * @return 重新安排的结果
+     * @throws TimeLineException 当移除或重新加入事件失败时抛出异常
+     */
+    public List<Assignment<T>> rebalance() throws TimeLineException {
+        lock.lock();
+        try {
+            List<Assignment<T>> original = new ArrayList<>(assignments.size());
+            List<T> originalStarts = new ArrayList<>(assignments.size());
+            List<T> originalEnds = new ArrayList<>(assignments.size());
+            List<Event<T>> movable = new ArrayList<>(assignments.size());
+            for (Assignment<T> assignment : assignments) {
+                Event<T> event = assignment.getEvent();
+                T start = event.getStart();
+                T end = event.getEnd();
+                if (assignment.getTimeLine().removeEvent(event)) {
+                    original.add(assignment);
+                    originalStarts.add(start);
+                    originalEnds.add(end);
+                    event.setStart(null);
+                    event.setEnd(null);
+                    movable.add(event);
+                }
+            }
+            assignments.clear();
+            refresh();
+            try {
+                return assignAll(movable);
+            } catch (TimeLineException | RuntimeException e) {
+                for (Assignment<T> placed : assignments) {
+                    placed.getTimeLine().removeEvent(placed.getEvent());
+                }
+                assignments.clear();
+                for (int i = 0; i < original.size(); i++) {
+                    Assignment<T> assignment = original.get(i);
+                    assignment.getEvent().setStart(originalStarts.get(i));
+                    assignment.getEvent().setEnd(originalEnds.get(i));
+                    assignment.getTimeLine().addEvent(assignment.getEvent());
+                    assignments.add(assignment);
+                }
+                refresh();
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取由调度器安排且尚未被重新平衡的事件
+     * @return 安排结果列表
+     */
+    public List<Assignment<T>> getAssignments() {
+        lock.lock();
+        try {
+            return new ArrayList<>(assignments);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取资源组中的时间线
+     * @return 时间线列表
+     */
+    public List<TimeLine<T>> getResources() {
+        return Collections.unmodifiableList(resources);
+    }
+
+    /**
+     * 在各时间线上找出最早的、能够容纳事件的空闲时间段，选出开始时间最早的一个并安排事件，调用方需持有锁
+     * 开始时间相同时选择下标较小的时间线
+     */
+    private Assignment<T> place(Event<T> event) throws TimeLineException {
+        T duration = event.getDuration();
+        T giveUpAt = null;
+        while (true) {
+            Candidate<T> best = new Candidate<>();
+            int tail = treeMinTail[1];
+            best.offer(tail, -1, gaps.get(tail).tailStart, timeCalculator);
+            search(1, duration, best);
+            ResourceGaps<T> chosen = gaps.get(best.resource);
+            if (best.gap >= 0 || !chosen.bounded) {
+                return commit(event, best.resource, best.gap, best.start);
+            }
+            // 含重复事件的时间线在读取范围之后的空闲情况未知，延长范围后重新选择
+            if (giveUpAt == null) {
+                giveUpAt = chosen.tailStart;
+                for (int i = 0; i < MAX_LOOKAHEAD_DURATIONS; i++) {
+                    giveUpAt = timeCalculator.add(giveUpAt, duration);
+                }
+            } else if (timeCalculator.compare(chosen.tailStart, giveUpAt) >= 0) {
+                throw new TimeLineException("Cannot place event around recurring events: " + event.getSubject());
+            }
+            T zero = timeCalculator.getZero();
+            T span = timeCalculator.subtract(chosen.tailStart, zero);
+            T step = timeCalculator.compare(span, duration) > 0 ? span : duration;
+            gaps.set(best.resource, readGaps(resources.get(best.resource), timeCalculator.add(chosen.tailStart, step)));
+            update(best.resource);
+        }
+    }
+
+    /**
+     * 在锦标赛树中分支定界，查找开始时间最早的、能够容纳事件的有限空闲时间段，调用方需持有锁
+     */
+    @SuppressWarnings("unchecked")
+    private void search(int node, T duration, Candidate<T> best) {
+        if (!fits(treeMaxGap[node], duration, timeCalculator)
+                || !best.mayImprove((T) treeMinGapStart[node], timeCalculator)) {
+            return;
+        }
+        if (node >= leaves) {
+            int resource = node - leaves;
+            ResourceGaps<T> resourceGaps = gaps.get(resource);
+            int index = resourceGaps.findFirst(duration);
+            best.offer(resource, index, resourceGaps.start(index), timeCalculator);
+            return;
+        }
+        // 先访问最早开始时间较早的一侧，尽早得到更紧的界
+        int first = node * 2;
+        int second = node * 2 + 1;
+        if (treeMinGapStart[second] != null && (treeMinGapStart[first] == null
+                || timeCalculator.compare((T) treeMinGapStart[second], (T) treeMinGapStart[first]) < 0)) {
+            first = node * 2 + 1;
+            second = node * 2;
+        }
+        search(first, duration, best);
+        search(second, duration, best);
+    }
+
+    private Assignment<T> commit(Event<T> event, int resource, int gap, T start) throws TimeLineException {
+        T duration = event.getDuration();
+        T end = timeCalculator.add(start, duration);
+        event.setStart(start);
+        event.setEnd(end);
+        TimeLine<T> timeLine = resources.get(resource);
+        AddResult<T> added = timeLine.addEventWithResult(event);
+        if (!added.isAccepted() || added.getEvent() != event || !isAt(event, start, end)) {
+            // 时间线在调度器之外被修改过，撤销这次安排并提示刷新
+            if (added.getEvent() == event) {
+                timeLine.removeEvent(event);
+            }
+            event.setStart(null);
+            event.setEnd(null);
+            throw new TimeLineException("Timeline " + resource + " was modified outside of the scheduler. " +
+                    "Please call refresh before assigning more events.");
+        }
+
+        // 空闲时间段的剩余部分从新的结束时间开始
+        ResourceGaps<T> resourceGaps = gaps.get(resource);
+        if (gap >= 0) {
+            resourceGaps.shrink(gap, end);
+        } else {
+            resourceGaps.tailStart = end;
+        }
+        update(resource);
+        Assignment<T> assignment = new Assignment<>(event, resource, timeLine);
+        assignments.add(assignment);
+        return assignment;
+    }
+
+    /**
+     * 更新一条时间线在锦标赛树中的叶子和到根的路径，调用方需持有锁
+     */
+    private void update(int resource) {
+        setLeaf(resource);
+        for (int node = (leaves + resource) >> 1; node >= 1; node >>= 1) {
+            pull(node);
+        }
+    }
+
+    private void setLeaf(int resource) {
+        ResourceGaps<T> resourceGaps = gaps.get(resource);
+        int node = leaves + resource;
+        treeMaxGap[node] = resourceGaps.maxGap();
+        treeMinGapStart[node] = resourceGaps.firstStart();
+        treeMinTail[node] = resource;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void pull(int node) {
+        int left = node * 2;
+        int right = node * 2 + 1;
+        treeMaxGap[node] = max(treeMaxGap[left], treeMaxGap[right], timeCalculator);
+        treeMinGapStart[node] = treeMinGapStart[left] == null || (treeMinGapStart[right] != null
+                && timeCalculator.compare((T) treeMinGapStart[right], (T) treeMinGapStart[left]) < 0)
+                ? treeMinGapStart[right] : treeMinGapStart[left];
+        int a = treeMinTail[left];
+        int b = treeMinTail[right];
+        // 左子树的下标较小，开始时间相同时保留左侧
+        treeMinTail[node] = a < 0 ? b : b < 0 ? a
+                : timeCalculator.compare(gaps.get(b).tailStart, gaps.get(a).tailStart) < 0 ? b : a;
+    }
+
+    /**
+     * 长度不为null且不小于持续时间
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> boolean fits(Object length, T duration, TimeCalculator<T> timeCalculator) {
+        return length != null && timeCalculator.compare((T) length, duration) >= 0;
+    }
+
+    /**
+     * 两个可能为null的长度中较大的一个
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Object max(Object a, Object b, TimeCalculator<T> timeCalculator) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        return timeCalculator.compare((T) a, (T) b) >= 0 ? a : b;
+    }
+
+    private boolean isAt(Event<T> event, T start, T end) {
+        return timeCalculator.compare(event.getStart(), start) == 0 && timeCalculator.compare(event.getEnd(), end) == 0;
+    }
+
+    /**
+     * 一条时间线上的空闲时间段
+     * 有限的空闲时间段按位置排列，安排事件只会推迟其开始时间，不会改变彼此的顺序；
+     * 线段树的每个节点记录子树中最长的空闲时间段长度，为null表示子树中没有可用的时间段
+     */
+    private static class ResourceGaps<T> {
+
+        private final TimeCalculator<T> timeCalculator;
+
+        private final Object[] starts;
+
+        private final Object[] ends;
+
+        // 线段树，叶子从下标capacity开始
+        private final Object[] longest;
+
+        private final int capacity;
+
+        // 最后一个没有结束时间的空闲时间段的开始时间
+        private T tailStart;
+
+        // 时间线含有重复事件，tailStart只是已读取范围的终点，之后不一定空闲
+        private final boolean bounded;
+
+        ResourceGaps(List<T> starts, List<T> ends, T tailStart, boolean bounded, TimeCalculator<T> timeCalculator) {
+            this.timeCalculator = timeCalculator;
+            this.starts = starts.toArray();
+            this.ends = ends.toArray();
+            this.tailStart = tailStart;
+            this.bounded = bounded;
+            int size = 1;
+            while (size < this.starts.length) {
+                size <<= 1;
+            }
+            this.capacity = size;
+            this.longest = new Object[size * 2];
+            for (int i = 0; i < this.starts.length; i++) {
+                longest[size + i] = timeCalculator.subtract(ends.get(i), starts.get(i));
+            }
+            for (int node = size - 1; node >= 1; node--) {
+                longest[node] = max(longest[node * 2], longest[node * 2 + 1], timeCalculator);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        T start(int index) {
+            return (T) starts[index];
+        }
+
+        /**
+         * 最长的有限空闲时间段长度，没有时返回null
+         */
+        Object maxGap() {
+            return longest[1];
+        }
+
+        /**
+         * 第一个仍然可用的有限空闲时间段的开始时间，没有时返回null
+         */
+        Object firstStart() {
+            if (longest[1] == null) {
+                return null;
+            }
+            int node = 1;
+            while (node < capacity) {
+                node = longest[node * 2] != null ? node * 2 : node * 2 + 1;
+            }
+            return starts[node - capacity];
+        }
+
+        /**
+         * 查找第一个长度不小于给定值的有限空闲时间段
+         * @return 下标，不存在时返回-1
+         */
+        int findFirst(T duration) {
+            if (!fits(longest[1], duration, timeCalculator)) {
+                return -1;
+            }
+            int node = 1;
+            while (node < capacity) {
+                node = fits(longest[node * 2], duration, timeCalculator) ? node * 2 : node * 2 + 1;
+            }
+            return node - capacity;
+        }
+
+        /**
+         * 将空闲时间段的开始时间推迟到给定时间，用完时从线段树中去掉
+         */
+        @SuppressWarnings("unchecked")
+        void shrink(int index, T newStart) {
+            starts[index] = newStart;
+            T end = (T) ends[index];
+            int node = capacity + index;
+            longest[node] = timeCalculator.compare(newStart, end) < 0 ? timeCalculator.subtract(end, newStart) : null;
+            for (node >>= 1; node >= 1; node >>= 1) {
+                longest[node] = max(longest[node * 2], longest[node * 2 + 1], timeCalculator);
+            }
+        }
+    }
+
+    /**
+     * 查找过程中目前最好的位置，按开始时间、再按时间线下标比较
+     */
+    private static class Candidate<T> {
+
+        private int resource = -1;
+
+        // 有限空闲时间段的下标，使用末尾空闲时间时为-1
+        private int gap = -1;
+
+        private T start;
+
+        void offer(int resource, int gap, T start, TimeCalculator<T> timeCalculator) {
+            int cmp = this.start == null ? -1 : timeCalculator.compare(start, this.start);
+            if (cmp < 0 || cmp == 0 && resource < this.resource) {
+                this.resource = resource;
+                this.gap = gap;
+                this.start = start;
+            }
+        }
+
+        boolean mayImprove(T lowerBound, TimeCalculator<T> timeCalculator) {
+            return lowerBound != null && (start == null || timeCalculator.compare(lowerBound, start) <= 0);
+        }
+    }
+
+    /**
+     * 一次安排的结果
+     * @param <T> 时间类型
+     */
+    @Getter
+    public static class Assignment<T> {
+
+        /**
+         * 被安排的事件
+         */
+        private final Event<T> event;
+
+        /**
+         * 事件所在时间线在资源组中的下标
+         */
+        private final int resourceIndex;
+
+        /**
+         * 事件所在的时间线
+         */
+        private final TimeLine<T> timeLine;
+
+        /**
+         * 构造函数
+         * @param event 被安排的事件
+         * @param resourceIndex 时间线下标
+         * @param timeLine 时间线
+         */
+        public Assignment(Event<T> event, int resourceIndex, TimeLine<T> timeLine) {
+            this.event = event;
+            this.resourceIndex = resourceIndex;
+            this.timeLine = timeLine;
+        }
+    }
+}
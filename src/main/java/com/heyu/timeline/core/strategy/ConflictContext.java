@@ -0,0 +1,89 @@
+package com.heyu.timeline.core.strategy;
+
+import com.heyu.timeline.calculator.TimeCalculator;
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.exception.TimeLineException;
+
+import java.util.Collection;
+
+/**
+ * 冲突上下文，由时间线在发生冲突时提供给淘汰策略
+ * 只暴露与新事件冲突的事件以及在索引上导航的能力，避免策略复制或扫描整个时间线
+ * @param <T> 时间类型
+ */
+public interface ConflictContext<T> {
+
+    /**
+     * 获取与新事件冲突的现有事件
+     * 返回的是索引上的只读惰性视图，按开始时间排序，仅在本次冲突处理期间有效
+     * @return 冲突事件视图
+     */
+    Collection<Event<T>> getConflictingEvents();
+
+    /**
+     * 获取开始时间不晚于指定时间的最后一个事件
+     * @param time 时间点
+     * @return 事件，不存在时返回null
+     */
+    Event<T> getPreviousEvent(T time);
+
+    /**
+     * 获取开始时间晚于指定时间的第一个事件
+     * @param time 时间点
+     * @return 事件，不存在时返回null
+     */
+    Event<T> getNextEvent(T time);
+
+    /**
+     * 获取时间线上最后结束的事件
+     * @return 事件，时间线为空时返回null
+     */
+    Event<T> getLastEvent();
+
+    /**
+     * 从指定时间开始向后寻找第一个能够容纳给定持续时间的空闲时间段
+     * 与冲突事件首尾相接的位置视为空闲
+     * @param notBefore 最早开始时间
+     * @param duration 持续时间
+     * @return 空闲时间段的开始时间
+     * @throws TimeLineException 当无法进行时间计算时抛出异常
+     */
+    T findFreeStart(T notBefore, T duration) throws TimeLineException;
+
+    /**
+     * 获取时间计算器，时间线未设置时根据时间类型推断
+     * @return 时间计算器
+     * @throws TimeLineException 当无法获得可用的时间计算器时抛出异常
+     */
+    TimeCalculator<T> getTimeCalculator() throws TimeLineException;
+
+    /**
+     * 将现有事件从时间线中淘汰
+     * 淘汰在策略返回后与新事件的插入一起生效，如果策略返回null则不会生效
+     * @param event 要淘汰的现有事件
+     */
+    void evict(Event<T> event);
+
+    /**
+     * 将现有事件挤出当前位置，并在新事件插入后重新安排到原开始时间之后第一个足够大的空闲时间段
+     * 与淘汰一样，只有在策略返回非null事件时才会生效
+     * @param event 要重新安排的现有事件
+     */
+    void reschedule(Event<T> event);
+
+    /**
+     * 获取事件的持续时间，优先使用开始和结束时间计算
+     * @param event 事件
+     * @return 持续时间
+     * @throws TimeLineException 当无法计算持续时间时抛出异常
+     */
+    default T getDuration(Event<T> event) throws TimeLineException {
+        if (event.getStart() != null && event.getEnd() != null) {
+            return getTimeCalculator().subtract(event.getEnd(), event.getStart());
+        }
+        if (event.getDuration() == null) {
+            throw new TimeLineException("Event must have a duration or both start and end time");
+        }
+        return event.getDuration();
+    }
+}
@@ -1,9 +1,10 @@
 package com.heyu.timeline.core.strategy;
 
+import com.heyu.timeline.calculator.TimeCalculator;
 import com.heyu.timeline.core.model.Event;
 import com.heyu.timeline.exception.TimeLineException;
 
-import java.util.List;
+import java.util.Collection;
 
 /**
  * 淘汰策略接口
@@ -21,21 +22,41 @@ public interface EvictionStrategy<T> {
      */
     EvictionStrategy<?> DELAY = new DelayEvictionStrategy();
     
+    /**
+     * 顺延策略：当有冲突时将新事件移动到其开始时间之后第一个足够大的空闲时间段
+     */
+    EvictionStrategy<?> SHIFT = new ShiftEvictionStrategy();
+    
+    /**
+     * 替换策略：当有冲突时淘汰所有冲突的现有事件，保留新事件
+     */
+    EvictionStrategy<?> REPLACE = new ReplaceEvictionStrategy();
+    
+    /**
+     * 抢占策略：新事件优先级高于所有冲突事件时挤占并丢弃它们，否则丢弃新事件
+     */
+    EvictionStrategy<?> PREEMPT = new PreemptionEvictionStrategy(false);
+    
+    /**
+     * 抢占并重排策略：新事件优先级高于所有冲突事件时挤占它们并重新安排到后续空闲时间段，否则丢弃新事件
+     */
+    EvictionStrategy<?> PREEMPT_RESCHEDULE = new PreemptionEvictionStrategy(true);
+    
     /**
      * 解决事件冲突
      * @param newEvent 新事件
-     * @param existingEvents 现有事件列表
+     * @param context 冲突上下文，提供冲突事件视图和索引导航
      * @return 解决冲突后的事件，如果返回null表示丢弃该事件
      * @throws TimeLineException 时间线异常
      */
-    Event<T> resolveConflict(Event<T> newEvent, List<Event<T>> existingEvents) throws TimeLineException;
+    Event<T> resolveConflict(Event<T> newEvent, ConflictContext<T> context) throws TimeLineException;
     
     /**
      * 丢弃策略实现
      */
     class DiscardEvictionStrategy<T> implements EvictionStrategy<T> {
         @Override
-        public Event<T> resolveConflict(Event<T> newEvent, List<Event<T>> existingEvents) throws TimeLineException {
+        public Event<T> resolveConflict(Event<T> newEvent, ConflictContext<T> context) throws TimeLineException {
             // 直接丢弃新事件
             return null;
         }
@@ -45,31 +66,83 @@ public interface EvictionStrategy<T> {
      * 延迟策略实现
      */
     class DelayEvictionStrategy<T> implements EvictionStrategy<T> {
-        @SuppressWarnings("unchecked")
         @Override
-        public Event<T> resolveConflict(Event<T> newEvent, List<Event<T>> existingEvents) throws TimeLineException {
-            if (existingEvents.isEmpty()) {
+        public Event<T> resolveConflict(Event<T> newEvent, ConflictContext<T> context) throws TimeLineException {
+            // 找到最后结束的事件
+            Event<T> lastEvent = context.getLastEvent();
+            if (lastEvent == null) {
                 return newEvent;
             }
             
-            // 找到最后一个事件
-            Event<T> lastEvent = existingEvents.get(existingEvents.size() - 1);
-            for (Event<T> event : existingEvents) {
-                boolean isAfter = false;
-                if (event.getEnd() instanceof Comparable && lastEvent.getEnd() instanceof Comparable) {
-                    isAfter = ((Comparable<T>) event.getEnd()).compareTo(lastEvent.getEnd()) > 0;
-                } else {
-                    isAfter = event.getEnd().toString().compareTo(lastEvent.getEnd().toString()) > 0;
-                }
-                
-                if (isAfter) {
-                    lastEvent = event;
+            // 将新事件安排在最后事件之后，并保持原有的持续时间
+            T duration = context.getDuration(newEvent);
+            TimeCalculator<T> calculator = context.getTimeCalculator();
+            newEvent.setStart(lastEvent.getEnd());
+            newEvent.setEnd(calculator.add(lastEvent.getEnd(), duration));
+            return newEvent;
+        }
+    }
+    
+    /**
+     * 顺延策略实现
+     */
+    class ShiftEvictionStrategy<T> implements EvictionStrategy<T> {
+        @Override
+        public Event<T> resolveConflict(Event<T> newEvent, ConflictContext<T> context) throws TimeLineException {
+            T duration = context.getDuration(newEvent);
+            T start = context.findFreeStart(newEvent.getStart(), duration);
+            newEvent.setStart(start);
+            newEvent.setEnd(context.getTimeCalculator().add(start, duration));
+            return newEvent;
+        }
+    }
+    
+    /**
+     * 替换策略实现
+     */
+    class ReplaceEvictionStrategy<T> implements EvictionStrategy<T> {
+        @Override
+        public Event<T> resolveConflict(Event<T> newEvent, ConflictContext<T> context) throws TimeLineException {
+            for (Event<T> existingEvent : context.getConflictingEvents()) {
+                context.evict(existingEvent);
+            }
+            return newEvent;
+        }
+    }
+    
+    /**
+     * 抢占策略实现
+     * 冲突事件以开始时间索引上的惰性视图给出，遇到不低于新事件优先级的事件时立即放弃抢占
+     */
+    class PreemptionEvictionStrategy<T> implements EvictionStrategy<T> {
+        
+        private final boolean rescheduleDisplaced;
+        
+        /**
+         * 构造函数
+         * @param rescheduleDisplaced 被挤占的事件是否重新安排，false表示直接丢弃
+         */
+        public PreemptionEvictionStrategy(boolean rescheduleDisplaced) {
+            this.rescheduleDisplaced = rescheduleDisplaced;
+        }
+        
+        @Override
+        public Event<T> resolveConflict(Event<T> newEvent, ConflictContext<T> context) throws TimeLineException {
+            Collection<Event<T>> conflicts = context.getConflictingEvents();
+            for (Event<T> existingEvent : conflicts) {
+                if (existingEvent.getPriority() >= newEvent.getPriority()) {
+                    // 无法抢占优先级不低于自己的事件
+                    return null;
                 }
             }
             
-            // 将新事件安排在最后事件之后
-            newEvent.setStart(lastEvent.getEnd());
-            // 注意：这里需要TimeCalculator来计算结束时间
+            for (Event<T> existingEvent : conflicts) {
+                if (rescheduleDisplaced) {
+                    context.reschedule(existingEvent);
+                } else {
+                    context.evict(existingEvent);
+                }
+            }
             return newEvent;
         }
     }
@@ -93,4 +166,44 @@ public interface EvictionStrategy<T> {
     static <T> EvictionStrategy<T> getDelayStrategy() {
         return (EvictionStrategy<T>) DELAY;
     }
-}
\ No newline at end of file
+    
+    /**
+     * 获取顺延策略实例
+     * @param <T> 时间类型
+     * @return 顺延策略实例
+     */
+    @SuppressWarnings("unchecked")
+    static <T> EvictionStrategy<T> getShiftStrategy() {
+        return (EvictionStrategy<T>) SHIFT;
+    }
+    
+    /**
+     * 获取替换策略实例
+     * @param <T> 时间类型
+     * @return 替换策略实例
+     */
+    @SuppressWarnings("unchecked")
+    static <T> EvictionStrategy<T> getReplaceStrategy() {
+        return (EvictionStrategy<T>) REPLACE;
+    }
+    
+    /**
+     * 获取抢占策略实例，被挤占的事件直接丢弃
+     * @param <T> 时间类型
+     * @return 抢占策略实例
+     */
+    @SuppressWarnings("unchecked")
+    static <T> EvictionStrategy<T> getPreemptStrategy() {
+        return (EvictionStrategy<T>) PREEMPT;
+    }
+    
+    /**
+     * 获取抢占并重排策略实例，被挤占的事件重新安排到后续空闲时间段
+     * @param <T> 时间类型
+     * @return 抢占并重排策略实例
+     */
+    @SuppressWarnings("unchecked")
+    static <T> EvictionStrategy<T> getPreemptAndRescheduleStrategy() {
+        return (EvictionStrategy<T>) PREEMPT_RESCHEDULE;
+    }
+}
@@ -0,0 +1,320 @@
+package com.heyu.timeline.core.timeline;
+
+import com.heyu.timeline.core.model.AddResult;
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.core.model.TimelineBatch;
+import com.heyu.timeline.exception.TimeLineException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 单写线程模式的时间线
+ * 任意多个线程提交的修改进入无锁队列，由唯一的写线程按批次应用到底层时间线，提交方不会阻塞在全局锁上；
+ * 每批修改应用之后发布一个新的快照，读取方直接读取最近发布的快照
+ * 写线程通过线程工厂创建，在较新的JDK上提交方可以是虚拟线程，写线程本身也可以使用虚拟线程工厂
+ * 结果在写线程上完成，通过thenRun等方法注册的回调也在写线程上执行，耗时的回调应使用带Async后缀的方法
+ * @param <T> 时间类型
+ */
+public class AsyncTimeLine<T> implements AutoCloseable {
+
+    /**
+     * 默认每批最多应用的修改数量
+     */
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    /**
+     * 队列中的一个修改，添加和删除只会设置其中一个结果
+     */
+    private static final class Mutation<T> {
+        private final Event<T> event;
+        private final CompletableFuture<AddResult<T>> added;
+        private final CompletableFuture<Boolean> removed;
+
+        private Mutation(Event<T> event, CompletableFuture<AddResult<T>> added, CompletableFuture<Boolean> removed) {
+            this.event = event;
+            this.added = added;
+            this.removed = removed;
+        }
+
+        private boolean isRemoval() {
+            return removed != null;
+        }
+
+        private void fail(Throwable cause) {
+            if (isRemoval()) {
+                removed.completeExceptionally(cause);
+            } else {
+                added.completeExceptionally(cause);
+            }
+        }
+    }
+
+    // 多个提交方、单个消费方的队列
+    private final Queue<Mutation<T>> queue = new ConcurrentLinkedQueue<>();
+
+    // 底层时间线，只由写线程修改
+    private final TimelineStructure<T> delegate;
+
+    // 每批最多应用的修改数量
+    private final int batchSize;
+
+    // 写线程
+    private final Thread writer;
+
+    // 最近发布的快照
+    private volatile TimelineSnapshot<T> published;
+
+    // 写线程是否准备休眠，提交方只在此时唤醒写线程
+    private volatile boolean idle;
+
+    // 是否仍然接受新的修改
+    private volatile boolean running = true;
+
+    /**
+     * 使用默认批次大小和守护线程创建单写线程时间线
+     * @param delegate 底层时间线
+     */
+    public AsyncTimeLine(TimelineStructure<T> delegate) {
+        this(delegate, DEFAULT_BATCH_SIZE, runnable -> {
+            Thread thread = new Thread(runnable, "timeline-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 创建单写线程时间线
+     * @param delegate 底层时间线，创建之后不应再被其他线程直接修改
+     * @param batchSize 每批最多应用的修改数量
+     * @param threadFactory 创建写线程的线程工厂
+     */
+    public AsyncTimeLine(TimelineStructure<T> delegate, int batchSize, ThreadFactory threadFactory) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Delegate timeline cannot be null");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        if (threadFactory == null) {
+            throw new IllegalArgumentException("Thread factory cannot be null");
+        }
+        this.delegate = delegate;
+        this.batchSize = batchSize;
+        this.published = delegate.snapshot();
+        this.writer = threadFactory.newThread(this::drain);
+        this.writer.start();
+    }
+
+    /**
+     * 异步添加事件
+     * @param event 要添加的事件
+     * @return 在事件应用到时间线并发布快照之后完成的添加结果，淘汰策略丢弃新事件时结果为未接受，添加失败时以异常完成
+     */
+    public CompletableFuture<AddResult<T>> addEventAsync(Event<T> event) {
+        CompletableFuture<AddResult<T>> future = new CompletableFuture<>();
+        submit(new Mutation<>(event, future, null));
+        return future;
+    }
+
+    /**
+     * 异步删除事件
+     * @param event 要删除的事件
+     * @return 在删除应用到时间线并发布快照之后完成的结果，表示事件是否存在
+     */
+    public CompletableFuture<Boolean> removeEventAsync(Event<T> event) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        submit(new Mutation<>(event, null, future));
+        return future;
+    }
+
+    /**
+     * 获取最近发布的快照
+     * @return 快照
+     */
+    public TimelineSnapshot<T> getSnapshot() {
+        return published;
+    }
+
+    /**
+     * 在最近发布的快照中查询与时间段有重叠的活跃事件
+     * @param start 开始时间
+     * @param end 结束时间
+     * @return 事件列表，按开始时间排列
+     * @throws TimeLineException 当时间为null时抛出异常
+     */
+    public List<Event<T>> getEventsBetween(T start, T end) throws TimeLineException {
+        if (start == null || end == null) {
+            throw new TimeLineException("Start time and end time cannot be null");
+        }
+        return published.getEventsBetween(start, end);
+    }
+
+    /**
+     * 停止接受新的修改，等待写线程应用完队列中已有的修改后退出
+     * 在写线程上调用时（例如在结果的回调中）不等待，写线程完成当前批次后自行退出；
+     * 等待时被中断则恢复中断状态并立即返回
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        if (Thread.currentThread() == writer) {
+            return;
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void submit(Mutation<T> mutation) {
+        if (mutation.event == null) {
+            mutation.fail(new TimeLineException("Event cannot be null"));
+            return;
+        }
+        if (!running) {
+            mutation.fail(new IllegalStateException("Timeline has been closed"));
+            return;
+        }
+        queue.offer(mutation);
+        if (idle) {
+            LockSupport.unpark(writer);
+        }
+        // 关闭与提交同时发生时写线程可能已经退出，此时修改仍在队列中，由提交方自己取回
+        if (!running && queue.remove(mutation)) {
+            mutation.fail(new IllegalStateException("Timeline has been closed"));
+        }
+    }
+
+    /**
+     * 写线程的主循环
+     */
+    private void drain() {
+        List<Mutation<T>> batch = new ArrayList<>(batchSize);
+        while (true) {
+            Mutation<T> mutation;
+            while (batch.size() < batchSize && (mutation = queue.poll()) != null) {
+                batch.add(mutation);
+            }
+            if (!batch.isEmpty()) {
+                apply(batch);
+                batch.clear();
+                continue;
+            }
+            if (!running) {
+                failPending();
+                return;
+            }
+            idle = true;
+            if (queue.isEmpty() && running) {
+                LockSupport.park(this);
+            }
+            idle = false;
+        }
+    }
+
+    /**
+     * 应用一批修改并发布快照
+     * 连续的删除加上之后连续的添加合并为一次批量修改，只获取一次全局锁；
+     * 合并修改失败时退回逐个应用，以便每个修改得到自己的结果
+     */
+    private void apply(List<Mutation<T>> mutations) {
+        List<Runnable> completions = new ArrayList<>(mutations.size());
+        int from = 0;
+        while (from < mutations.size()) {
+            int to = from;
+            while (to < mutations.size() && mutations.get(to).isRemoval()) {
+                to++;
+            }
+            while (to < mutations.size() && !mutations.get(to).isRemoval()) {
+                to++;
+            }
+            List<Mutation<T>> group = mutations.subList(from, to);
+            if (!applyGroup(group, completions)) {
+                for (Mutation<T> mutation : group) {
+                    applyOne(mutation, completions);
+                }
+            }
+            from = to;
+        }
+
+        try {
+            published = delegate.snapshot();
+        } catch (RuntimeException e) {
+            // 修改已经应用但读取方看不到，以异常完成整批结果，读取方继续使用上一个快照
+            TimeLineException failure = new TimeLineException(
+                    "Mutations were applied but the snapshot could not be published", e);
+            for (Mutation<T> mutation : mutations) {
+                mutation.fail(failure);
+            }
+            return;
+        }
+        for (Runnable completion : completions) {
+            completion.run();
+        }
+    }
+
+    private boolean applyGroup(List<Mutation<T>> group, List<Runnable> completions) {
+        if (group.size() == 1) {
+            return false;
+        }
+        TimelineBatch<T> batch = new TimelineBatch<>();
+        for (Mutation<T> mutation : group) {
+            if (mutation.isRemoval()) {
+                batch.remove(mutation.event);
+            } else {
+                batch.add(mutation.event);
+            }
+        }
+        try {
+            delegate.applyBatch(batch);
+        } catch (TimeLineException | RuntimeException e) {
+            return false;
+        }
+        for (Mutation<T> mutation : group) {
+            if (mutation.isRemoval()) {
+                completions.add(() -> mutation.removed.complete(true));
+            } else {
+                AddResult<T> result = new AddResult<>(mutation.event, Collections.emptyList(), Collections.emptyList());
+                completions.add(() -> mutation.added.complete(result));
+            }
+        }
+        return true;
+    }
+
+    private void applyOne(Mutation<T> mutation, List<Runnable> completions) {
+        try {
+            if (mutation.isRemoval()) {
+                boolean removed = delegate.removeEvent(mutation.event);
+                completions.add(() -> mutation.removed.complete(removed));
+            } else {
+                AddResult<T> result;
+                if (delegate instanceof TimeLine) {
+                    // 不重叠的时间线可能按淘汰策略丢弃新事件或挤占已有事件
+                    result = ((TimeLine<T>) delegate).addEventWithResult(mutation.event);
+                } else {
+                    delegate.addEvent(mutation.event);
+                    result = new AddResult<>(mutation.event, Collections.emptyList(), Collections.emptyList());
+                }
+                completions.add(() -> mutation.added.complete(result));
+            }
+        } catch (TimeLineException | RuntimeException e) {
+            completions.add(() -> mutation.fail(e));
+        }
+    }
+
+    private void failPending() {
+        Mutation<T> mutation;
+        while ((mutation = queue.poll()) != null) {
+            mutation.fail(new IllegalStateException("Timeline has been closed"));
+        }
+    }
+}
@@ -0,0 +1,390 @@
+package com.heyu.timeline.core.timeline;
+
+import com.heyu.timeline.calculator.TimeCalculator;
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.exception.TimeLineException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 按列存储在堆上的时间线，允许事件重叠
+ * 开始时间和结束时间保存在按开始时间排序的long数组中，活跃标志保存在byte数组中，
+ * 查询先在原始类型数组上逐行计算匹配标志，再按标志收集行号，只有匹配的行才会生成事件对象；
+ * 计算标志的循环没有跨迭代的依赖，满足C2自动向量化的条件，收集行号的循环只处理一个字节数组
+ * 适合读多写少、事件密集的时间线；单个事件的插入和删除需要移动数组，批量加入时一次归并完成
+ * 只保存开始时间、结束时间、主体和活跃状态，持续时间、优先级和属性不会被保存
+ * @param <T> 时间类型
+ */
+public class ColumnarTimeLine<T> {
+
+    // 时间与长整数之间的转换
+    private final TimeCalculator<T> timeCalculator;
+
+    // 按开始时间排序的各列
+    private long[] starts = new long[16];
+    private long[] ends = new long[16];
+    private byte[] active = new byte[16];
+    private Object[] subjects = new Object[16];
+    private int size;
+
+    // 最长事件的长度，用于确定查询时向前扫描的范围，删除事件时不缩小
+    private long maxLength;
+
+    // 查询时保存各行匹配标志和匹配行号的缓冲区
+    private byte[] mask = new byte[16];
+    private int[] matches = new int[16];
+
+    // 全局锁
+    private final Lock globalLock = new ReentrantLock();
+
+    /**
+     * 创建时间线
+     * @param timeCalculator 支持数值转换的时间计算器
+     */
+    public ColumnarTimeLine(TimeCalculator<T> timeCalculator) {
+        if (timeCalculator == null) {
+            throw new IllegalArgumentException("TimeCalculator cannot be null");
+        }
+        this.timeCalculator = timeCalculator;
+    }
+
+    /**
+     * 添加事件
+     * @param event 要添加的事件
+     * @throws TimeLineException 当事件为null、缺少开始或结束时间或开始时间晚于结束时间时抛出异常
+     */
+    public void addEvent(Event<T> event) throws TimeLineException {
+        long start = toStart(event);
+        long end = timeCalculator.toLong(event.getEnd());
+
+        globalLock.lock();
+        try {
+            ensureCapacity(size + 1);
+            int row = upperBound(start);
+            System.arraycopy(starts, row, starts, row + 1, size - row);
+            System.arraycopy(ends, row, ends, row + 1, size - row);
+            System.arraycopy(active, row, active, row + 1, size - row);
+            System.arraycopy(subjects, row, subjects, row + 1, size - row);
+            set(row, start, end, event);
+            size++;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 批量添加事件，先对新事件排序，再与已有的列一次归并
+     * @param batch 要添加的事件
+     * @throws TimeLineException 当任一事件无效时抛出异常，此时不会加入任何事件
+     */
+    public void addEvents(Collection<Event<T>> batch) throws TimeLineException {
+        if (batch == null) {
+            throw new TimeLineException("Events cannot be null");
+        }
+        List<Event<T>> sorted = new ArrayList<>(batch);
+        long[] batchStarts = new long[sorted.size()];
+        for (int i = 0; i < sorted.size(); i++) {
+            batchStarts[i] = toStart(sorted.get(i));
+        }
+        Integer[] order = new Integer[sorted.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(batchStarts[a], batchStarts[b]));
+
+        globalLock.lock();
+        try {
+            int total = size + order.length;
+            long[] newStarts = new long[Math.max(16, total)];
+            long[] newEnds = new long[newStarts.length];
+            byte[] newActive = new byte[newStarts.length];
+            Object[] newSubjects = new Object[newStarts.length];
+            long[] oldStarts = starts;
+            long[] oldEnds = ends;
+            byte[] oldActive = active;
+            Object[] oldSubjects = subjects;
+            starts = newStarts;
+            ends = newEnds;
+            active = newActive;
+            subjects = newSubjects;
+
+            int i = 0;
+            int j = 0;
+            for (int k = 0; k < total; k++) {
+                if (j >= order.length || (i < size && oldStarts[i] <= batchStarts[order[j]])) {
+                    starts[k] = oldStarts[i];
+                    ends[k] = oldEnds[i];
+                    active[k] = oldActive[i];
+                    subjects[k] = oldSubjects[i];
+                    i++;
+                } else {
+                    Event<T> event = sorted.get(order[j]);
+                    set(k, batchStarts[order[j]], timeCalculator.toLong(event.getEnd()), event);
+                    j++;
+                }
+            }
+            size = total;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 删除开始时间、结束时间和主体都相同的一个事件
+     * @param event 要删除的事件
+     * @return 如果成功删除返回true，否则返回false
+     * @throws TimeLineException 当事件为null时抛出异常
+     */
+    public boolean removeEvent(Event<T> event) throws TimeLineException {
+        if (event == null) {
+            throw new TimeLineException("Cannot remove null event from timeline");
+        }
+        if (event.getStart() == null || event.getEnd() == null) {
+            return false;
+        }
+        long start = timeCalculator.toLong(event.getStart());
+        long end = timeCalculator.toLong(event.getEnd());
+
+        globalLock.lock();
+        try {
+            for (int row = lowerBound(start); row < size && starts[row] == start; row++) {
+                if (ends[row] == end && Objects.equals(subjects[row], event.getSubject())) {
+                    int moved = size - row - 1;
+                    System.arraycopy(starts, row + 1, starts, row, moved);
+                    System.arraycopy(ends, row + 1, ends, row, moved);
+                    System.arraycopy(active, row + 1, active, row, moved);
+                    System.arraycopy(subjects, row + 1, subjects, row, moved);
+                    size--;
+                    subjects[size] = null;
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取包含某个时间点的活跃事件
+     * @param time 时间点
+     * @return 事件列表，按开始时间排列
+     * @throws TimeLineException 当时间为null时抛出异常
+     */
+    public List<Event<T>> getEventsAt(T time) throws TimeLineException {
+        return getEventsBetween(time, time);
+    }
+
+    /**
+     * 获取与时间段有重叠的活跃事件，首尾相接也视为重叠
+     * @param start 开始时间
+     * @param end 结束时间
+     * @return 事件列表，按开始时间排列
+     * @throws TimeLineException 当时间为null或开始时间晚于结束时间时抛出异常
+     */
+    public List<Event<T>> getEventsBetween(T start, T end) throws TimeLineException {
+        long[] range = toRange(start, end);
+
+        globalLock.lock();
+        try {
+            int count = scan(range[0], range[1]);
+            List<Event<T>> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int row = matches[i];
+                result.add(new Event<>(timeCalculator.fromLong(starts[row]), timeCalculator.fromLong(ends[row]),
+                        subjects[row]));
+            }
+            return result;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 统计与时间段有重叠的活跃事件数量，不生成任何事件对象
+     * @param start 开始时间
+     * @param end 结束时间
+     * @return 事件数量
+     * @throws TimeLineException 当时间为null或开始时间晚于结束时间时抛出异常
+     */
+    public int countBetween(T start, T end) throws TimeLineException {
+        long[] range = toRange(start, end);
+
+        globalLock.lock();
+        try {
+            int lo = scanFrom(range[0]);
+            int rows = markMatches(lo, upperBound(range[1]), range[0]);
+            byte[] flags = mask;
+            int count = 0;
+            for (int i = 0; i < rows; i++) {
+                count += flags[i];
+            }
+            return count;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取事件数量
+     * @return 事件数量
+     */
+    public int size() {
+        globalLock.lock();
+        try {
+            return size;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 清空所有事件
+     */
+    public void clear() {
+        globalLock.lock();
+        try {
+            starts = new long[16];
+            ends = new long[16];
+            active = new byte[16];
+            subjects = new Object[16];
+            mask = new byte[16];
+            matches = new int[16];
+            size = 0;
+            maxLength = 0;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 把匹配的行号写入缓冲区，调用方需持有全局锁
+     * 先计算匹配标志，再按标志压缩出行号：压缩循环中每一行都写入缓冲区，只有匹配时才移动写入位置
+     * @return 匹配的行数
+     */
+    private int scan(long from, long to) {
+        int lo = scanFrom(from);
+        int rows = markMatches(lo, upperBound(to), from);
+        if (matches.length < rows + 1) {
+            matches = new int[Math.max(matches.length * 2, rows + 1)];
+        }
+        byte[] flags = mask;
+        int[] out = matches;
+        int count = 0;
+        for (int i = 0; i < rows; i++) {
+            out[count] = lo + i;
+            count += flags[i];
+        }
+        return count;
+    }
+
+    /**
+     * 计算候选行的匹配标志，结束时间不早于from且活跃的行为1，调用方需持有全局锁
+     * 每次迭代只读写自己的下标，没有跨迭代的依赖
+     * @return 候选行数
+     */
+    private int markMatches(int lo, int hi, long from) {
+        int rows = hi - lo;
+        if (mask.length < rows) {
+            mask = new byte[Math.max(mask.length * 2, rows)];
+        }
+        byte[] flags = mask;
+        long[] endColumn = ends;
+        byte[] activeColumn = active;
+        for (int i = 0; i < rows; i++) {
+            flags[i] = (byte) ((endColumn[lo + i] >= from ? 1 : 0) & activeColumn[lo + i]);
+        }
+        return rows;
+    }
+
+    /**
+     * 可能与从某个时间开始的时间段重叠的第一行，调用方需持有全局锁
+     */
+    private int scanFrom(long from) {
+        return lowerBound(LongSpans.earliestStart(from, maxLength));
+    }
+
+    /**
+     * 第一个开始时间不小于给定值的行
+     */
+    private int lowerBound(long value) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (starts[mid] < value) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * 第一个开始时间大于给定值的行
+     */
+    private int upperBound(long value) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (starts[mid] <= value) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private void set(int row, long start, long end, Event<T> event) {
+        starts[row] = start;
+        ends[row] = end;
+        active[row] = (byte) (event.isActive() ? 1 : 0);
+        subjects[row] = event.getSubject();
+        maxLength = Math.max(maxLength, LongSpans.length(start, end));
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > starts.length) {
+            int newCapacity = Math.max(capacity, starts.length * 2);
+            starts = Arrays.copyOf(starts, newCapacity);
+            ends = Arrays.copyOf(ends, newCapacity);
+            active = Arrays.copyOf(active, newCapacity);
+            subjects = Arrays.copyOf(subjects, newCapacity);
+        }
+    }
+
+    private long toStart(Event<T> event) throws TimeLineException {
+        if (event == null) {
+            throw new TimeLineException("Cannot add null event to timeline");
+        }
+        if (event.getStart() == null || event.getEnd() == null) {
+            throw new TimeLineException("Columnar timeline requires events with start and end time");
+        }
+        long start = timeCalculator.toLong(event.getStart());
+        if (start > timeCalculator.toLong(event.getEnd())) {
+            throw new TimeLineException("Start time cannot be after end time");
+        }
+        return start;
+    }
+
+    private long[] toRange(T start, T end) throws TimeLineException {
+        if (start == null || end == null) {
+            throw new TimeLineException("Start time and end time cannot be null");
+        }
+        long from = timeCalculator.toLong(start);
+        long to = timeCalculator.toLong(end);
+        if (from > to) {
+            throw new TimeLineException("Start time cannot be after end time");
+        }
+        return new long[] {from, to};
+    }
+}
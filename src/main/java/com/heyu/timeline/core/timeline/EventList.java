@@ -0,0 +1,192 @@
+package com.heyu.timeline.core.timeline;
+
+import com.heyu.timeline.core.model.Event;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * 按加入顺序保存事件的列表，额外支持按对象身份批量移除
+ * 按身份移除只把对应位置置空，空位在下一次按位置访问时或空位多于事件数时统一压缩
+ * 开启位置记录后，按身份移除通过事件到位置的映射定位，过期处理每批移除的开销与批次大小成正比；
+ * 位置记录只在归档模式的过期处理中需要，默认关闭，关闭时按身份移除需要扫描整个列表，其余操作没有额外开销
+ * 其余操作与ArrayList相同，remove(Object)和indexOf仍按equals比较
+ * @param <T> 时间类型
+ */
+final class EventList<T> extends AbstractList<Event<T>> implements RandomAccess {
+
+    private Object[] slots = new Object[16];
+
+    // 已使用的位置数，包括空位
+    private int used;
+
+    // 事件数，不包括空位
+    private int size;
+
+    // 事件对象到位置的映射，用于按身份移除时定位，未开启位置记录时为null
+    private Map<Event<T>, Integer> positions;
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Event<T> get(int index) {
+        compact();
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return (Event<T>) slots[index];
+    }
+
+    @Override
+    public boolean add(Event<T> event) {
+        if (used == slots.length) {
+            compact();
+            if (used == slots.length) {
+                slots = Arrays.copyOf(slots, slots.length * 2);
+            }
+        }
+        if (positions != null) {
+            positions.put(event, used);
+        }
+        slots[used++] = event;
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void add(int index, Event<T> event) {
+        compact();
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        add(event);
+        if (index < size - 1) {
+            System.arraycopy(slots, index, slots, index + 1, size - 1 - index);
+            slots[index] = event;
+            reindex(index);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Event<T> remove(int index) {
+        compact();
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        Event<T> removed = (Event<T>) slots[index];
+        if (positions != null) {
+            positions.remove(removed);
+        }
+        System.arraycopy(slots, index + 1, slots, index, size - 1 - index);
+        slots[--size] = null;
+        used = size;
+        reindex(index);
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        slots = new Object[16];
+        used = 0;
+        size = 0;
+        if (positions != null) {
+            positions.clear();
+        }
+        modCount++;
+    }
+
+    /**
+     * 开启或关闭位置记录，开启时按当前内容建立映射
+     * @param track 是否记录事件的位置
+     */
+    void trackPositions(boolean track) {
+        if (!track) {
+            positions = null;
+        } else if (positions == null) {
+            compact();
+            positions = new IdentityHashMap<>();
+            reindex(0);
+        }
+    }
+
+    /**
+     * 按对象身份移除一批事件，不在列表中的事件被忽略
+     * 开启位置记录时开销与批次大小成正比，否则需要扫描整个列表
+     * @param removals 要移除的事件
+     * @return 实际移除的事件数量
+     */
+    int removeInstances(Collection<Event<T>> removals) {
+        int removed = 0;
+        if (positions != null) {
+            for (Event<T> event : removals) {
+                Integer position = positions.remove(event);
+                if (position != null) {
+                    slots[position] = null;
+                    removed++;
+                }
+            }
+        } else {
+            Set<Object> targets = Collections.newSetFromMap(new IdentityHashMap<>());
+            targets.addAll(removals);
+            for (int i = 0; i < used && removed < targets.size(); i++) {
+                if (slots[i] != null && targets.contains(slots[i])) {
+                    slots[i] = null;
+                    removed++;
+                }
+            }
+        }
+        if (removed > 0) {
+            size -= removed;
+            modCount++;
+            // 空位多于事件数时压缩，保证压缩的开销均摊到每次移除上
+            if (used - size > size) {
+                compact();
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * 去掉空位，使事件重新连续排列
+     */
+    private void compact() {
+        if (used == size) {
+            return;
+        }
+        int kept = 0;
+        for (int i = 0; i < used; i++) {
+            if (slots[i] != null) {
+                slots[kept++] = slots[i];
+            }
+        }
+        Arrays.fill(slots, kept, used, null);
+        used = kept;
+        reindex(0);
+    }
+
+    /**
+     * 从指定位置开始重新记录事件的位置
+     */
+    @SuppressWarnings("unchecked")
+    private void reindex(int from) {
+        if (positions == null) {
+            return;
+        }
+        for (int i = from; i < used; i++) {
+            positions.put((Event<T>) slots[i], i);
+        }
+    }
+}
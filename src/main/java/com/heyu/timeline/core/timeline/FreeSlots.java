@@ -0,0 +1,56 @@
+package com.heyu.timeline.core.timeline;
+
+import com.heyu.timeline.calculator.TimeCalculator;
+import com.heyu.timeline.core.model.TimeSlot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 空闲时间段的计算工具，供两种时间线共用
+ */
+final class FreeSlots {
+
+    private FreeSlots() {
+    }
+
+    /**
+     * 在时间窗口内收集占用时间段之间的空闲时间段
+     * @param busySlots 按开始时间排序的占用时间段，允许相互重叠
+     * @param start 窗口开始时间
+     * @param end 窗口结束时间
+     * @param minDuration 空闲时间段的最小长度
+     * @param calculator 时间计算器
+     * @param <T> 时间类型
+     * @return 按时间顺序排列的空闲时间段
+     */
+    static <T> List<TimeSlot<T>> collect(List<TimeSlot<T>> busySlots, T start, T end, T minDuration,
+                                         TimeCalculator<T> calculator) {
+        List<TimeSlot<T>> freeSlots = new ArrayList<>();
+        T cursor = start;
+        for (TimeSlot<T> slot : busySlots) {
+            if (calculator.compare(cursor, end) >= 0) {
+                return freeSlots;
+            }
+            if (calculator.compare(slot.getEnd(), cursor) <= 0) {
+                continue;
+            }
+            if (calculator.compare(slot.getStart(), cursor) > 0) {
+                T gapEnd = calculator.compare(slot.getStart(), end) < 0 ? slot.getStart() : end;
+                addIfLongEnough(freeSlots, cursor, gapEnd, minDuration, calculator);
+            }
+            cursor = slot.getEnd();
+        }
+        if (calculator.compare(cursor, end) < 0) {
+            addIfLongEnough(freeSlots, cursor, end, minDuration, calculator);
+        }
+        return freeSlots;
+    }
+
+    private static <T> void addIfLongEnough(List<TimeSlot<T>> freeSlots, T gapStart, T gapEnd, T minDuration,
+                                            TimeCalculator<T> calculator) {
+        if (calculator.compare(calculator.subtract(gapEnd, gapStart), minDuration) >= 0) {
+            freeSlots.add(new TimeSlot<>(gapStart, gapEnd));
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.heyu.timeline.core.timeline;
+
+/**
+ * 以long表示时间的事件跨度计算工具，供列式、堆外和LSM时间线共用
+ * 这些时间线按开始时间排序，并记录最长事件的长度，查询时只需从from - 最长长度开始向后扫描
+ */
+final class LongSpans {
+
+    private LongSpans() {
+    }
+
+    /**
+     * 计算事件的长度，跨度超出long范围时差值溢出为负数，截断为Long.MAX_VALUE
+     * @param start 开始时间
+     * @param end 结束时间，不早于开始时间
+     * @return 事件长度
+     */
+    static long length(long start, long end) {
+        long length = end - start;
+        return length < 0 ? Long.MAX_VALUE : length;
+    }
+
+    /**
+     * 计算可能延伸到给定时间的事件的最早开始时间，开始时间更早的事件不可能与从该时间开始的时间段重叠
+     * 最长长度被截断或相减溢出时真实范围未知，返回Long.MIN_VALUE，即从第一行开始扫描
+     * @param from 时间段的开始时间
+     * @param maxLength 最长事件的长度
+     * @return 需要扫描的最早开始时间
+     */
+    static long earliestStart(long from, long maxLength) {
+        if (maxLength == Long.MAX_VALUE || from - maxLength > from) {
+            return Long.MIN_VALUE;
+        }
+        return from - maxLength;
+    }
+}
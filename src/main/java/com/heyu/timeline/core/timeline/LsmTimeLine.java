@@ -0,0 +1,634 @@
+package com.heyu.timeline.core.timeline;
+
+import com.heyu.timeline.calculator.TimeCalculator;
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.exception.TimeLineException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 日志结构合并（LSM）方式组织的时间线
+ * 写入只追加到一个很小的内存表，内存表写满后排序成一个不可变的有序段；删除以墓碑记录写入，
+ * 后台线程在有序段过多时合并相邻的段，合并时只保留每个事件最新的记录，包含最早一段时连同墓碑一起清除
+ * 开始时间、结束时间和主体都相同的事件视为同一个事件，只保存一份
+ * 查询在内存表和所有有序段上进行，再按序号解析出每个事件的最新状态；不允许重叠时，冲突检查同样会查看每一层
+ * @param <T> 时间类型
+ */
+public class LsmTimeLine<T> implements AutoCloseable {
+
+    /**
+     * 默认的内存表大小
+     */
+    public static final int DEFAULT_MEMTABLE_SIZE = 1024;
+
+    /**
+     * 默认允许存在的有序段数量，超过后触发后台合并
+     */
+    public static final int DEFAULT_MAX_RUNS = 8;
+
+    // 记录标志：事件非活跃
+    private static final byte INACTIVE = 1;
+
+    // 记录标志：墓碑
+    private static final byte TOMBSTONE = 2;
+
+    /**
+     * 一条写入记录
+     */
+    private static final class Record {
+        private final long start;
+        private final long end;
+        private final int hash;
+        private final Object subject;
+        private final long sequence;
+        private final byte flags;
+
+        private Record(long start, long end, Object subject, long sequence, byte flags) {
+            this.start = start;
+            this.end = end;
+            this.hash = Objects.hashCode(subject);
+            this.subject = subject;
+            this.sequence = sequence;
+            this.flags = flags;
+        }
+
+        private boolean sameEvent(Record other) {
+            return start == other.start && end == other.end && Objects.equals(subject, other.subject);
+        }
+    }
+
+    /**
+     * 不可变的有序段，记录按开始时间、结束时间、主体的哈希值和序号排列，同一个事件的记录相邻
+     */
+    private static final class Run {
+        private final long[] starts;
+        private final long[] ends;
+        private final int[] hashes;
+        private final long[] sequences;
+        private final Object[] subjects;
+        private final byte[] flags;
+        // 段内最长事件的长度，用于确定查询时向前扫描的范围
+        private final long maxLength;
+
+        private Run(RunBuilder builder) {
+            int size = builder.size;
+            starts = Arrays.copyOf(builder.starts, size);
+            ends = Arrays.copyOf(builder.ends, size);
+            hashes = Arrays.copyOf(builder.hashes, size);
+            sequences = Arrays.copyOf(builder.sequences, size);
+            subjects = Arrays.copyOf(builder.subjects, size);
+            flags = Arrays.copyOf(builder.flags, size);
+            long longest = 0;
+            for (int i = 0; i < size; i++) {
+                longest = Math.max(longest, LongSpans.length(starts[i], ends[i]));
+            }
+            maxLength = longest;
+        }
+
+        private int size() {
+            return starts.length;
+        }
+
+        private Record get(int row) {
+            return new Record(starts[row], ends[row], subjects[row], sequences[row], flags[row]);
+        }
+
+        /**
+         * 比较两个段中两行的排序键
+         */
+        private static int compare(Run a, int i, Run b, int j) {
+            int cmp = Long.compare(a.starts[i], b.starts[j]);
+            if (cmp == 0) {
+                cmp = Long.compare(a.ends[i], b.ends[j]);
+            }
+            if (cmp == 0) {
+                cmp = Integer.compare(a.hashes[i], b.hashes[j]);
+            }
+            return cmp != 0 ? cmp : Long.compare(a.sequences[i], b.sequences[j]);
+        }
+
+        /**
+         * 收集开始时间不晚于to、结束时间不早于from的记录
+         */
+        private void collect(long from, long to, List<Record> result) {
+            long lowest = LongSpans.earliestStart(from, maxLength);
+            int lo = 0;
+            int hi = starts.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (starts[mid] < lowest) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            for (int row = lo; row < starts.length && starts[row] <= to; row++) {
+                if (ends[row] >= from) {
+                    result.add(get(row));
+                }
+            }
+        }
+    }
+
+    /**
+     * 按顺序写入的有序段缓冲区
+     */
+    private static final class RunBuilder {
+        private long[] starts;
+        private long[] ends;
+        private int[] hashes;
+        private long[] sequences;
+        private Object[] subjects;
+        private byte[] flags;
+        private int size;
+
+        private RunBuilder(int capacity) {
+            int initial = Math.max(16, capacity);
+            starts = new long[initial];
+            ends = new long[initial];
+            hashes = new int[initial];
+            sequences = new long[initial];
+            subjects = new Object[initial];
+            flags = new byte[initial];
+        }
+
+        private void add(long start, long end, int hash, Object subject, long sequence, byte flag) {
+            if (size == starts.length) {
+                int capacity = size * 2;
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                hashes = Arrays.copyOf(hashes, capacity);
+                sequences = Arrays.copyOf(sequences, capacity);
+                subjects = Arrays.copyOf(subjects, capacity);
+                flags = Arrays.copyOf(flags, capacity);
+            }
+            starts[size] = start;
+            ends[size] = end;
+            hashes[size] = hash;
+            sequences[size] = sequence;
+            subjects[size] = subject;
+            flags[size] = flag;
+            size++;
+        }
+
+        private void add(Run run, int row) {
+            add(run.starts[row], run.ends[row], run.hashes[row], run.subjects[row], run.sequences[row], run.flags[row]);
+        }
+
+        /**
+         * 每个事件只保留序号最大的记录，可以清除墓碑时连同墓碑一起去掉
+         * 同一个事件的记录相邻且按序号排列，只需在开始时间、结束时间和哈希值都相同的一小组记录中比较主体
+         */
+        private void resolve(boolean dropTombstones) {
+            int kept = 0;
+            int group = 0;
+            while (group < size) {
+                int groupEnd = group + 1;
+                while (groupEnd < size && starts[groupEnd] == starts[group] && ends[groupEnd] == ends[group]
+                        && hashes[groupEnd] == hashes[group]) {
+                    groupEnd++;
+                }
+                for (int i = group; i < groupEnd; i++) {
+                    if (dropTombstones && (flags[i] & TOMBSTONE) != 0 || supersededInGroup(i, groupEnd)) {
+                        continue;
+                    }
+                    starts[kept] = starts[i];
+                    ends[kept] = ends[i];
+                    hashes[kept] = hashes[i];
+                    sequences[kept] = sequences[i];
+                    subjects[kept] = subjects[i];
+                    flags[kept] = flags[i];
+                    kept++;
+                }
+                group = groupEnd;
+            }
+            Arrays.fill(subjects, kept, size, null);
+            size = kept;
+        }
+
+        private boolean supersededInGroup(int row, int groupEnd) {
+            for (int later = row + 1; later < groupEnd; later++) {
+                if (Objects.equals(subjects[row], subjects[later])) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final Comparator<Record> RECORD_ORDER = (a, b) -> {
+        int cmp = Long.compare(a.start, b.start);
+        if (cmp == 0) {
+            cmp = Long.compare(a.end, b.end);
+        }
+        if (cmp == 0) {
+            cmp = Integer.compare(a.hash, b.hash);
+        }
+        return cmp != 0 ? cmp : Long.compare(a.sequence, b.sequence);
+    };
+
+    // 时间与长整数之间的转换
+    private final TimeCalculator<T> timeCalculator;
+
+    // 是否允许事件重叠
+    private final boolean allowOverlap;
+
+    // 内存表的容量和有序段数量的上限
+    private final int memtableSize;
+    private final int maxRuns;
+
+    // 内存表，未排序
+    private List<Record> memtable = new ArrayList<>();
+
+    // 有序段，从旧到新排列，每次修改都替换为新的列表，读取方拿到的列表不会再变化
+    private volatile List<Run> runs = Collections.emptyList();
+
+    // 下一条记录的序号
+    private long nextSequence;
+
+    // 是否已经安排了后台合并
+    private boolean compactionScheduled;
+
+    // 合并锁，同一时间只有一个合并在进行，合并期间有序段列表只会在末尾追加新的段
+    private final Lock compactionLock = new ReentrantLock();
+
+    // 写入锁，保护内存表、序号和有序段列表的替换
+    private final Lock globalLock = new ReentrantLock();
+
+    // 执行后台合并的线程
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "timeline-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 使用默认参数创建时间线
+     * @param timeCalculator 支持数值转换的时间计算器
+     * @param allowOverlap 是否允许事件重叠，不允许时首尾相接的事件不视为重叠
+     */
+    public LsmTimeLine(TimeCalculator<T> timeCalculator, boolean allowOverlap) {
+        this(timeCalculator, allowOverlap, DEFAULT_MEMTABLE_SIZE, DEFAULT_MAX_RUNS);
+    }
+
+    /**
+     * 创建时间线
+     * @param timeCalculator 支持数值转换的时间计算器
+     * @param allowOverlap 是否允许事件重叠，不允许时首尾相接的事件不视为重叠
+     * @param memtableSize 内存表容纳的记录数量
+     * @param maxRuns 允许存在的有序段数量，超过后触发后台合并
+     */
+    public LsmTimeLine(TimeCalculator<T> timeCalculator, boolean allowOverlap, int memtableSize, int maxRuns) {
+        if (timeCalculator == null) {
+            throw new IllegalArgumentException("TimeCalculator cannot be null");
+        }
+        if (memtableSize <= 0) {
+            throw new IllegalArgumentException("Memtable size must be positive");
+        }
+        if (maxRuns <= 0) {
+            throw new IllegalArgumentException("Maximum run count must be positive");
+        }
+        this.timeCalculator = timeCalculator;
+        this.allowOverlap = allowOverlap;
+        this.memtableSize = memtableSize;
+        this.maxRuns = maxRuns;
+    }
+
+    /**
+     * 添加事件，相同的事件已经存在时只更新其活跃状态
+     * @param event 要添加的事件
+     * @throws TimeLineException 当事件为null、缺少开始或结束时间、开始时间晚于结束时间，或不允许重叠时与已有事件冲突时抛出异常
+     */
+    public void addEvent(Event<T> event) throws TimeLineException {
+        if (event == null) {
+            throw new TimeLineException("Cannot add null event to timeline");
+        }
+        if (event.getStart() == null || event.getEnd() == null) {
+            throw new TimeLineException("LSM timeline requires events with start and end time");
+        }
+        long start = timeCalculator.toLong(event.getStart());
+        long end = timeCalculator.toLong(event.getEnd());
+        if (start > end) {
+            throw new TimeLineException("Start time cannot be after end time");
+        }
+
+        globalLock.lock();
+        try {
+            Record record = new Record(start, end, event.getSubject(), nextSequence,
+                    event.isActive() ? 0 : INACTIVE);
+            if (!allowOverlap) {
+                for (Record existing : resolve(collect(memtable, runs, start, end))) {
+                    boolean overlaps = existing.start == start || (existing.start < end && existing.end > start);
+                    if (overlaps && !existing.sameEvent(record)) {
+                        throw new TimeLineException("Event conflicts with existing events: " + event.getSubject());
+                    }
+                }
+            }
+            nextSequence++;
+            append(record);
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 删除事件，写入一条墓碑记录
+     * @param event 要删除的事件
+     * @return 如果事件存在返回true，否则返回false
+     * @throws TimeLineException 当事件为null时抛出异常
+     */
+    public boolean removeEvent(Event<T> event) throws TimeLineException {
+        if (event == null) {
+            throw new TimeLineException("Cannot remove null event from timeline");
+        }
+        if (event.getStart() == null || event.getEnd() == null) {
+            return false;
+        }
+        long start = timeCalculator.toLong(event.getStart());
+        long end = timeCalculator.toLong(event.getEnd());
+
+        globalLock.lock();
+        try {
+            Record tombstone = new Record(start, end, event.getSubject(), nextSequence, TOMBSTONE);
+            for (Record existing : resolve(collect(memtable, runs, start, start))) {
+                if (existing.sameEvent(tombstone)) {
+                    nextSequence++;
+                    append(tombstone);
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取包含某个时间点的活跃事件
+     * @param time 时间点
+     * @return 事件列表，按开始时间排列
+     * @throws TimeLineException 当时间为null时抛出异常
+     */
+    public List<Event<T>> getEventsAt(T time) throws TimeLineException {
+        return getEventsBetween(time, time);
+    }
+
+    /**
+     * 获取与时间段有重叠的活跃事件，首尾相接也视为重叠
+     * 只在复制内存表和读取有序段列表时持有写入锁，其余工作在锁外完成
+     * @param start 开始时间
+     * @param end 结束时间
+     * @return 事件列表，按开始时间排列
+     * @throws TimeLineException 当时间为null或开始时间晚于结束时间时抛出异常
+     */
+    public List<Event<T>> getEventsBetween(T start, T end) throws TimeLineException {
+        if (start == null || end == null) {
+            throw new TimeLineException("Start time and end time cannot be null");
+        }
+        long from = timeCalculator.toLong(start);
+        long to = timeCalculator.toLong(end);
+        if (from > to) {
+            throw new TimeLineException("Start time cannot be after end time");
+        }
+
+        List<Record> memtableCopy;
+        List<Run> currentRuns;
+        globalLock.lock();
+        try {
+            memtableCopy = new ArrayList<>(memtable);
+            currentRuns = runs;
+        } finally {
+            globalLock.unlock();
+        }
+
+        List<Record> live = resolve(collect(memtableCopy, currentRuns, from, to));
+        List<Event<T>> result = new ArrayList<>(live.size());
+        for (Record record : live) {
+            if ((record.flags & INACTIVE) == 0) {
+                result.add(new Event<>(timeCalculator.fromLong(record.start), timeCalculator.fromLong(record.end),
+                        record.subject));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 获取当前的有序段数量
+     * @return 有序段数量
+     */
+    public int getRunCount() {
+        return runs.size();
+    }
+
+    /**
+     * 将内存表写成有序段，并把所有有序段合并为一个，同时清除所有墓碑
+     * 归并在写入锁之外进行，期间写入的记录进入内存表或新的有序段，不受影响
+     */
+    public void compact() {
+        compactionLock.lock();
+        try {
+            List<Run> captured;
+            globalLock.lock();
+            try {
+                flush();
+                captured = runs;
+            } finally {
+                globalLock.unlock();
+            }
+            if (captured.isEmpty()) {
+                return;
+            }
+            Run merged = merge(captured, true);
+            replace(0, captured.size(), merged);
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    /**
+     * 停止后台合并线程
+     */
+    @Override
+    public void close() {
+        compactor.shutdown();
+    }
+
+    /**
+     * 追加一条记录，内存表写满时写成有序段，调用方需持有写入锁
+     */
+    private void append(Record record) {
+        memtable.add(record);
+        if (memtable.size() >= memtableSize) {
+            flush();
+            if (runs.size() > maxRuns && !compactionScheduled && !compactor.isShutdown()) {
+                compactionScheduled = true;
+                try {
+                    compactor.execute(this::compactInBackground);
+                } catch (RejectedExecutionException e) {
+                    // close与写入同时发生，不再合并
+                    compactionScheduled = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * 将内存表排序成新的有序段，调用方需持有写入锁
+     */
+    private void flush() {
+        if (memtable.isEmpty()) {
+            return;
+        }
+        List<Record> sorted = memtable;
+        memtable = new ArrayList<>();
+        Collections.sort(sorted, RECORD_ORDER);
+        RunBuilder builder = new RunBuilder(sorted.size());
+        for (Record record : sorted) {
+            builder.add(record.start, record.end, record.hash, record.subject, record.sequence, record.flags);
+        }
+        List<Run> newRuns = new ArrayList<>(runs);
+        newRuns.add(new Run(builder));
+        runs = newRuns;
+    }
+
+    /**
+     * 后台合并：反复选出总大小最小的两个相邻段合并，直到段数不超过上限
+     * 归并在写入锁之外进行，完成后在锁内用合并结果替换原来的两个段
+     */
+    private void compactInBackground() {
+        compactionLock.lock();
+        try {
+            while (true) {
+                List<Run> current;
+                globalLock.lock();
+                try {
+                    current = runs;
+                    if (current.size() <= maxRuns) {
+                        compactionScheduled = false;
+                        return;
+                    }
+                } finally {
+                    globalLock.unlock();
+                }
+
+                int best = 0;
+                for (int i = 1; i + 1 < current.size(); i++) {
+                    if (current.get(i).size() + current.get(i + 1).size()
+                            < current.get(best).size() + current.get(best + 1).size()) {
+                        best = i;
+                    }
+                }
+                Run merged = merge(current.subList(best, best + 2), best == 0);
+                replace(best, best + 2, merged);
+            }
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    /**
+     * 用合并结果替换一段相邻的有序段，调用方需持有合并锁
+     * 持有合并锁期间有序段只会在末尾追加，所以这些段的位置不会变化
+     */
+    private void replace(int from, int to, Run merged) {
+        globalLock.lock();
+        try {
+            List<Run> newRuns = new ArrayList<>(runs.size() - (to - from) + 1);
+            newRuns.addAll(runs.subList(0, from));
+            newRuns.add(merged);
+            newRuns.addAll(runs.subList(to, runs.size()));
+            runs = newRuns;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 对若干相邻的有序段做多路归并，每个事件只保留最新的记录
+     * @param sources 从旧到新排列的相邻有序段
+     * @param includesOldest 是否包含最早的一段，包含时墓碑可以连同被删除的记录一起清除
+     */
+    private static Run merge(List<Run> sources, boolean includesOldest) {
+        int total = 0;
+        for (Run run : sources) {
+            total += run.size();
+        }
+        RunBuilder builder = new RunBuilder(total);
+        int[] positions = new int[sources.size()];
+        PriorityQueue<Integer> heads = new PriorityQueue<>(Math.max(1, sources.size()), (a, b) ->
+                Run.compare(sources.get(a), positions[a], sources.get(b), positions[b]));
+        for (int i = 0; i < sources.size(); i++) {
+            if (sources.get(i).size() > 0) {
+                heads.add(i);
+            }
+        }
+        while (!heads.isEmpty()) {
+            int source = heads.poll();
+            Run run = sources.get(source);
+            builder.add(run, positions[source]++);
+            if (positions[source] < run.size()) {
+                heads.add(source);
+            }
+        }
+        builder.resolve(includesOldest);
+        return new Run(builder);
+    }
+
+    /**
+     * 从内存表和各有序段中收集与时间段有重叠的记录
+     */
+    private static List<Record> collect(List<Record> memtable, List<Run> runs, long from, long to) {
+        List<Record> result = new ArrayList<>();
+        for (Run run : runs) {
+            run.collect(from, to, result);
+        }
+        for (Record record : memtable) {
+            if (record.start <= to && record.end >= from) {
+                result.add(record);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 按序号解析出每个事件的最新记录，去掉最新记录为墓碑的事件
+     * 排序后同一个事件的记录相邻，只需在开始时间、结束时间和哈希值都相同的一小组记录中比较主体
+     * @return 按开始时间排列的记录
+     */
+    private static List<Record> resolve(List<Record> records) {
+        records.sort(RECORD_ORDER);
+        List<Record> live = new ArrayList<>();
+        int group = 0;
+        while (group < records.size()) {
+            Record first = records.get(group);
+            int groupEnd = group + 1;
+            while (groupEnd < records.size() && records.get(groupEnd).start == first.start
+                    && records.get(groupEnd).end == first.end && records.get(groupEnd).hash == first.hash) {
+                groupEnd++;
+            }
+            for (int i = group; i < groupEnd; i++) {
+                Record record = records.get(i);
+                boolean superseded = false;
+                for (int later = i + 1; later < groupEnd && !superseded; later++) {
+                    superseded = Objects.equals(record.subject, records.get(later).subject);
+                }
+                if (!superseded && (record.flags & TOMBSTONE) == 0) {
+                    live.add(record);
+                }
+            }
+            group = groupEnd;
+        }
+        return live;
+    }
+}
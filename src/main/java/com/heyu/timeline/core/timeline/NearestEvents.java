@@ -0,0 +1,82 @@
+package com.heyu.timeline.core.timeline;
+
+import com.heyu.timeline.calculator.TimeCalculator;
+import com.heyu.timeline.core.model.Event;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 最近事件查询的合并工具，供两种时间线共用
+ * 两侧的事件各自按到指定时间的距离递增排列，合并时只访问结果需要的事件
+ */
+final class NearestEvents {
+
+    private NearestEvents() {
+    }
+
+    /**
+     * 合并两侧的事件，得到距离指定时间最近的k个活跃事件
+     * @param time 指定时间
+     * @param k 事件数量
+     * @param containing 包含指定时间的事件，距离为零
+     * @param before 在指定时间之前的事件，按结束时间从晚到早排列
+     * @param after 在指定时间之后开始的事件，按开始时间从早到晚排列
+     * @param calculator 时间计算器
+     * @param <T> 时间类型
+     * @return 按距离从近到远排列的事件，距离相同时之前的事件优先
+     */
+    static <T> List<Event<T>> merge(T time, int k, List<Event<T>> containing, Iterator<Event<T>> before,
+                                    Iterator<Event<T>> after, TimeCalculator<T> calculator) {
+        List<Event<T>> result = new ArrayList<>(k);
+        for (Event<T> event : containing) {
+            if (result.size() >= k) {
+                return result;
+            }
+            if (event.isActive()) {
+                result.add(event);
+            }
+        }
+
+        Event<T> left = nextActive(before);
+        Event<T> right = nextActive(after);
+        while (result.size() < k && (left != null || right != null)) {
+            boolean takeLeft;
+            if (left == null) {
+                takeLeft = false;
+            } else if (right == null) {
+                takeLeft = true;
+            } else {
+                T leftDistance = distanceBefore(left, time, calculator);
+                T rightDistance = calculator.subtract(right.getStart(), time);
+                takeLeft = calculator.compare(leftDistance, rightDistance) <= 0;
+            }
+            if (takeLeft) {
+                result.add(left);
+                left = nextActive(before);
+            } else {
+                result.add(right);
+                right = nextActive(after);
+            }
+        }
+        return result;
+    }
+
+    private static <T> T distanceBefore(Event<T> event, T time, TimeCalculator<T> calculator) {
+        if (calculator.compare(event.getEnd(), time) >= 0) {
+            return calculator.subtract(time, time);
+        }
+        return calculator.subtract(time, event.getEnd());
+    }
+
+    private static <T> Event<T> nextActive(Iterator<Event<T>> iterator) {
+        while (iterator.hasNext()) {
+            Event<T> event = iterator.next();
+            if (event.isActive()) {
+                return event;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,553 @@
+package com.heyu.timeline.core.timeline;
+
+import com.heyu.timeline.calculator.TimeCalculator;
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.exception.TimeLineException;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * 堆外列式存储的时间线，允许事件重叠
+ * 开始时间、结束时间、主体句柄和状态标志按列保存在直接内存中，每个不同的主体只在堆上保存一份并按引用计数回收，
+ * 堆内存随仍在时间线中的不同主体数量增长，而不随事件数量增长
+ * 新事件先写入固定大小的堆内缓冲区，缓冲区满后排序写成一个有序段，大小相近的段按二进制计数器的方式合并，
+ * 因此每个事件的均摊写入代价为O(log n)，查询在每个有序段上二分查找
+ * 每个有序段按固定行数分块占用直接内存，行号和事件数量都是long，单个段不受单块直接内存大小的限制；
+ * 被合并掉的段的直接内存由GC回收段对象时释放，Java 8没有可移植的立即释放方式，
+ * 合并按二进制计数器进行，等待回收的直接内存最多与存活的段相当，应按两倍数据量设置-XX:MaxDirectMemorySize
+ * 删除只做标记，段内过半已删除时就地重写，也可以调用compact()立即清除所有已删除的行
+ * 这是独立的存储组件，不实现TimelineStructure，只提供增删和按时间段查询
+ * 只保存开始时间、结束时间、主体和活跃状态，持续时间、优先级和属性不会被保存
+ * @param <T> 时间类型
+ */
+public class OffHeapTimeLine<T> {
+
+    /**
+     * 默认的堆内缓冲区大小
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1024;
+
+    // 状态标志：事件非活跃
+    private static final byte INACTIVE = 1;
+
+    // 状态标志：事件已删除，在下一次合并或段内过半已删除时清除
+    private static final byte DELETED = 2;
+
+    // 每块直接内存的行数，约21MB
+    private static final int CHUNK_SHIFT = 20;
+    private static final long CHUNK_ROWS = 1L << CHUNK_SHIFT;
+    private static final long CHUNK_MASK = CHUNK_ROWS - 1;
+
+    /**
+     * 按开始时间排序的一个段，按固定行数分成若干块，每块是一块直接内存，各列是它的不同切片
+     * 行号为long，单个段的行数不受单块直接内存大小的限制
+     */
+    private static final class Run {
+        private final LongBuffer[] starts;
+        private final LongBuffer[] ends;
+        private final IntBuffer[] subjects;
+        private final ByteBuffer[] flags;
+        private final long size;
+        // 段内最长事件的长度，用于确定查询时向前扫描的范围
+        private final long maxLength;
+        private long deleted;
+
+        private Run(long size, long maxLength) {
+            int chunks = (int) ((size + CHUNK_ROWS - 1) >>> CHUNK_SHIFT);
+            this.starts = new LongBuffer[chunks];
+            this.ends = new LongBuffer[chunks];
+            this.subjects = new IntBuffer[chunks];
+            this.flags = new ByteBuffer[chunks];
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                // 最后一块只分配剩余的行，每行8字节开始时间、8字节结束时间、4字节主体句柄和1字节标志
+                int rows = (int) Math.min(CHUNK_ROWS, size - ((long) chunk << CHUNK_SHIFT));
+                ByteBuffer block = ByteBuffer.allocateDirect(rows * 21).order(ByteOrder.nativeOrder());
+                starts[chunk] = slice(block, 0, rows * 8).asLongBuffer();
+                ends[chunk] = slice(block, rows * 8, rows * 8).asLongBuffer();
+                subjects[chunk] = slice(block, rows * 16, rows * 4).asIntBuffer();
+                flags[chunk] = slice(block, rows * 20, rows);
+            }
+            this.size = size;
+            this.maxLength = maxLength;
+        }
+
+        private static ByteBuffer slice(ByteBuffer block, int offset, int length) {
+            ByteBuffer view = block.duplicate();
+            view.position(offset);
+            view.limit(offset + length);
+            return view.slice().order(ByteOrder.nativeOrder());
+        }
+
+        private long start(long row) {
+            return starts[(int) (row >>> CHUNK_SHIFT)].get((int) (row & CHUNK_MASK));
+        }
+
+        private long end(long row) {
+            return ends[(int) (row >>> CHUNK_SHIFT)].get((int) (row & CHUNK_MASK));
+        }
+
+        private int subject(long row) {
+            return subjects[(int) (row >>> CHUNK_SHIFT)].get((int) (row & CHUNK_MASK));
+        }
+
+        private byte flag(long row) {
+            return flags[(int) (row >>> CHUNK_SHIFT)].get((int) (row & CHUNK_MASK));
+        }
+
+        private void setFlag(long row, byte flag) {
+            flags[(int) (row >>> CHUNK_SHIFT)].put((int) (row & CHUNK_MASK), flag);
+        }
+
+        private void put(long row, long start, long end, int subject, byte flag) {
+            int chunk = (int) (row >>> CHUNK_SHIFT);
+            int offset = (int) (row & CHUNK_MASK);
+            starts[chunk].put(offset, start);
+            ends[chunk].put(offset, end);
+            subjects[chunk].put(offset, subject);
+            flags[chunk].put(offset, flag);
+        }
+
+        private long live() {
+            return size - deleted;
+        }
+
+        private long bytes() {
+            long bytes = 0;
+            for (ByteBuffer chunk : flags) {
+                bytes += chunk.capacity() * 21L;
+            }
+            return bytes;
+        }
+
+        /**
+         * 第一个开始时间不小于给定值的行
+         */
+        private long lowerBound(long start) {
+            long lo = 0;
+            long hi = size;
+            while (lo < hi) {
+                long mid = (lo + hi) >>> 1;
+                if (start(mid) < start) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+    // 时间与长整数之间的转换
+    private final TimeCalculator<T> timeCalculator;
+
+    // 主体字典，句柄即主体在列表中的下标；引用计数降为0的句柄放入空闲列表复用
+    private final List<Object> subjectValues = new ArrayList<>();
+    private final Map<Object, Integer> subjectHandles = new HashMap<>();
+    private int[] subjectRefs = new int[16];
+    private int[] freeHandles = new int[16];
+    private int freeCount;
+
+    // 堆内缓冲区，大小固定，不随事件数量增长
+    private final long[] bufferStarts;
+    private final long[] bufferEnds;
+    private final int[] bufferSubjects;
+    private final byte[] bufferFlags;
+    private int bufferSize;
+
+    // 有序段，从大到小排列
+    private final List<Run> runs = new ArrayList<>();
+
+    // 未删除的事件数量
+    private long size;
+
+    // 全局锁
+    private final Lock globalLock = new ReentrantLock();
+
+    /**
+     * 使用默认缓冲区大小创建时间线
+     * @param timeCalculator 支持数值转换的时间计算器
+     */
+    public OffHeapTimeLine(TimeCalculator<T> timeCalculator) {
+        this(timeCalculator, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * 创建时间线
+     * @param timeCalculator 支持数值转换的时间计算器
+     * @param bufferSize 堆内缓冲区可以容纳的事件数量
+     */
+    public OffHeapTimeLine(TimeCalculator<T> timeCalculator, int bufferSize) {
+        if (timeCalculator == null) {
+            throw new IllegalArgumentException("TimeCalculator cannot be null");
+        }
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive");
+        }
+        this.timeCalculator = timeCalculator;
+        this.bufferStarts = new long[bufferSize];
+        this.bufferEnds = new long[bufferSize];
+        this.bufferSubjects = new int[bufferSize];
+        this.bufferFlags = new byte[bufferSize];
+    }
+
+    /**
+     * 添加事件，只保存开始时间、结束时间、主体和活跃状态
+     * @param event 要添加的事件
+     * @throws TimeLineException 当事件为null、缺少开始或结束时间或开始时间晚于结束时间时抛出异常
+     */
+    public void addEvent(Event<T> event) throws TimeLineException {
+        if (event == null) {
+            throw new TimeLineException("Cannot add null event to timeline");
+        }
+        if (event.getStart() == null || event.getEnd() == null) {
+            throw new TimeLineException("Off-heap timeline requires events with start and end time");
+        }
+        long start = timeCalculator.toLong(event.getStart());
+        long end = timeCalculator.toLong(event.getEnd());
+        if (start > end) {
+            throw new TimeLineException("Start time cannot be after end time");
+        }
+
+        globalLock.lock();
+        try {
+            int handle = acquireHandle(event.getSubject());
+            bufferStarts[bufferSize] = start;
+            bufferEnds[bufferSize] = end;
+            bufferSubjects[bufferSize] = handle;
+            bufferFlags[bufferSize] = event.isActive() ? 0 : INACTIVE;
+            bufferSize++;
+            size++;
+            if (bufferSize == bufferStarts.length) {
+                flushBuffer();
+            }
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 删除开始时间、结束时间和主体都相同的一个事件
+     * @param event 要删除的事件
+     * @return 如果成功删除返回true，否则返回false
+     * @throws TimeLineException 当事件为null时抛出异常
+     */
+    public boolean removeEvent(Event<T> event) throws TimeLineException {
+        if (event == null) {
+            throw new TimeLineException("Cannot remove null event from timeline");
+        }
+        if (event.getStart() == null || event.getEnd() == null) {
+            return false;
+        }
+        long start = timeCalculator.toLong(event.getStart());
+        long end = timeCalculator.toLong(event.getEnd());
+
+        globalLock.lock();
+        try {
+            Integer handle = subjectHandles.get(event.getSubject());
+            if (handle == null) {
+                return false;
+            }
+            for (int i = 0; i < bufferSize; i++) {
+                if (bufferStarts[i] == start && bufferEnds[i] == end && bufferSubjects[i] == handle) {
+                    // 缓冲区内直接用最后一行覆盖
+                    bufferSize--;
+                    bufferStarts[i] = bufferStarts[bufferSize];
+                    bufferEnds[i] = bufferEnds[bufferSize];
+                    bufferSubjects[i] = bufferSubjects[bufferSize];
+                    bufferFlags[i] = bufferFlags[bufferSize];
+                    size--;
+                    releaseHandle(handle);
+                    return true;
+                }
+            }
+            for (int index = 0; index < runs.size(); index++) {
+                Run run = runs.get(index);
+                for (long row = run.lowerBound(start); row < run.size && run.start(row) == start; row++) {
+                    if (run.end(row) == end && run.subject(row) == handle && (run.flag(row) & DELETED) == 0) {
+                        run.setFlag(row, (byte) (run.flag(row) | DELETED));
+                        run.deleted++;
+                        size--;
+                        // 已删除的行不会再被读取，句柄可以立即回收
+                        releaseHandle(handle);
+                        // 段内过半已删除时就地重写，避免大段迟迟等不到合并而一直占着墓碑
+                        if (run.deleted * 2 > run.size) {
+                            rewrite(index);
+                        }
+                        return true;
+                    }
+                }
+            }
+            return false;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取包含某个时间点的活跃事件
+     * @param time 时间点
+     * @return 事件列表
+     * @throws TimeLineException 当时间为null时抛出异常
+     */
+    public List<Event<T>> getEventsAt(T time) throws TimeLineException {
+        return getEventsBetween(time, time);
+    }
+
+    /**
+     * 获取与时间段有重叠的活跃事件，首尾相接也视为重叠
+     * @param start 开始时间
+     * @param end 结束时间
+     * @return 事件列表，结果是独立的事件对象
+     * @throws TimeLineException 当时间为null或开始时间晚于结束时间时抛出异常
+     */
+    public List<Event<T>> getEventsBetween(T start, T end) throws TimeLineException {
+        List<Event<T>> result = new ArrayList<>();
+        forEachBetween(start, end, view -> result.add(new Event<>(view.getStart(), view.getEnd(), view.getSubject())));
+        return result;
+    }
+
+    /**
+     * 遍历与时间段有重叠的活跃事件
+     * 回调收到的是同一个被反复填充的事件视图，只在回调期间有效，需要保留时应自行复制
+     * @param start 开始时间
+     * @param end 结束时间
+     * @param action 回调
+     * @throws TimeLineException 当时间为null或开始时间晚于结束时间时抛出异常
+     */
+    public void forEachBetween(T start, T end, Consumer<? super Event<T>> action) throws TimeLineException {
+        if (start == null || end == null) {
+            throw new TimeLineException("Start time and end time cannot be null");
+        }
+        long from = timeCalculator.toLong(start);
+        long to = timeCalculator.toLong(end);
+        if (from > to) {
+            throw new TimeLineException("Start time cannot be after end time");
+        }
+
+        globalLock.lock();
+        try {
+            Event<T> view = new Event<>();
+            for (int i = 0; i < bufferSize; i++) {
+                if (bufferStarts[i] <= to && bufferEnds[i] >= from && (bufferFlags[i] & INACTIVE) == 0) {
+                    action.accept(fill(view, bufferStarts[i], bufferEnds[i], bufferSubjects[i]));
+                }
+            }
+            for (Run run : runs) {
+                // 开始时间早于from - maxLength的事件不可能延伸到from
+                long row = run.lowerBound(LongSpans.earliestStart(from, run.maxLength));
+                for (; row < run.size && run.start(row) <= to; row++) {
+                    if (run.end(row) >= from && run.flag(row) == 0) {
+                        action.accept(fill(view, run.start(row), run.end(row), run.subject(row)));
+                    }
+                }
+            }
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取未删除的事件数量
+     * @return 事件数量
+     */
+    public long size() {
+        globalLock.lock();
+        try {
+            return size;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取字典中仍被引用的不同主体数量
+     * @return 主体数量
+     */
+    public int getSubjectCount() {
+        globalLock.lock();
+        try {
+            return subjectHandles.size();
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取各有序段占用的直接内存字节数
+     * @return 字节数
+     */
+    public long getOffHeapBytes() {
+        globalLock.lock();
+        try {
+            long bytes = 0;
+            for (Run run : runs) {
+                bytes += run.bytes();
+            }
+            return bytes;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 清除所有已删除的行：先写出缓冲区，再把全部段归并为一个段
+     * 删除只做标记，小段会在合并时顺带清除，大段则要到过半删除才会重写，需要及时回收直接内存时调用此方法
+     */
+    public void compact() {
+        globalLock.lock();
+        try {
+            if (bufferSize > 0) {
+                flushBuffer();
+            }
+            while (runs.size() > 1) {
+                Run right = runs.remove(runs.size() - 1);
+                runs.add(merge(runs.remove(runs.size() - 1), right));
+            }
+            if (!runs.isEmpty() && runs.get(0).deleted > 0) {
+                rewrite(0);
+            }
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 清空所有事件，各段的直接内存在段对象被GC回收时释放
+     */
+    public void clear() {
+        globalLock.lock();
+        try {
+            runs.clear();
+            bufferSize = 0;
+            size = 0;
+            subjectValues.clear();
+            subjectHandles.clear();
+            subjectRefs = new int[16];
+            freeCount = 0;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取主体的句柄并增加引用计数，调用方需持有全局锁
+     */
+    private int acquireHandle(Object subject) {
+        Integer handle = subjectHandles.get(subject);
+        if (handle == null) {
+            if (freeCount > 0) {
+                handle = freeHandles[--freeCount];
+                subjectValues.set(handle, subject);
+            } else {
+                handle = subjectValues.size();
+                subjectValues.add(subject);
+                if (handle == subjectRefs.length) {
+                    subjectRefs = Arrays.copyOf(subjectRefs, handle * 2);
+                }
+            }
+            subjectHandles.put(subject, handle);
+        }
+        subjectRefs[handle]++;
+        return handle;
+    }
+
+    /**
+     * 减少句柄的引用计数，降为0时从字典中移除主体并回收句柄，调用方需持有全局锁
+     */
+    private void releaseHandle(int handle) {
+        if (--subjectRefs[handle] > 0) {
+            return;
+        }
+        subjectHandles.remove(subjectValues.get(handle));
+        subjectValues.set(handle, null);
+        if (freeCount == freeHandles.length) {
+            freeHandles = Arrays.copyOf(freeHandles, freeCount * 2);
+        }
+        freeHandles[freeCount++] = handle;
+    }
+
+    private Event<T> fill(Event<T> view, long start, long end, int subject) {
+        view.setStart(timeCalculator.fromLong(start));
+        view.setEnd(timeCalculator.fromLong(end));
+        view.setSubject(subjectValues.get(subject));
+        return view;
+    }
+
+    /**
+     * 将缓冲区排序写成一个新段，再与前面不大于它的段合并，调用方需持有全局锁
+     */
+    private void flushBuffer() {
+        Integer[] order = new Integer[bufferSize];
+        for (int i = 0; i < bufferSize; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(bufferStarts[a], bufferStarts[b]));
+        long maxLength = 0;
+        for (int i = 0; i < bufferSize; i++) {
+            maxLength = Math.max(maxLength, LongSpans.length(bufferStarts[i], bufferEnds[i]));
+        }
+        Run run = new Run(bufferSize, maxLength);
+        for (int i = 0; i < bufferSize; i++) {
+            int source = order[i];
+            run.put(i, bufferStarts[source], bufferEnds[source], bufferSubjects[source], bufferFlags[source]);
+        }
+        bufferSize = 0;
+
+        while (!runs.isEmpty() && runs.get(runs.size() - 1).live() <= run.live() * 2) {
+            run = merge(runs.remove(runs.size() - 1), run);
+        }
+        if (run.live() > 0) {
+            runs.add(run);
+        }
+    }
+
+    /**
+     * 去掉段内已删除的行，整段都已删除时直接移除，调用方需持有全局锁
+     */
+    private void rewrite(int index) {
+        Run run = runs.get(index);
+        if (run.live() == 0) {
+            runs.remove(index);
+        } else {
+            runs.set(index, merge(run, new Run(0, 0)));
+        }
+    }
+
+    /**
+     * 归并两个段，同时清除已删除的行
+     */
+    private static Run merge(Run left, Run right) {
+        Run merged = new Run(left.live() + right.live(), Math.max(left.maxLength, right.maxLength));
+        long i = 0;
+        long j = 0;
+        long k = 0;
+        while (i < left.size || j < right.size) {
+            Run source;
+            long row;
+            if (j >= right.size || (i < left.size && left.start(i) <= right.start(j))) {
+                source = left;
+                row = i++;
+            } else {
+                source = right;
+                row = j++;
+            }
+            byte flag = source.flag(row);
+            if ((flag & DELETED) != 0) {
+                continue;
+            }
+            merged.put(k++, source.start(row), source.end(row), source.subject(row), flag);
+        }
+        return merged;
+    }
+}
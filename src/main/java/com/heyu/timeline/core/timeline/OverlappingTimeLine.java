@@ -1,27 +1,40 @@
 package com.heyu.timeline.core.timeline;
 
 import com.heyu.timeline.calculator.TimeCalculator;
+import com.heyu.timeline.calculator.TimeCalculatorFactory;
+import com.heyu.timeline.core.clock.ExpiryPolicy;
+import com.heyu.timeline.core.index.AttributeFilter;
+import com.heyu.timeline.core.index.AttributeIndex;
+import com.heyu.timeline.core.index.RoaringBitmap;
+import com.heyu.timeline.core.index.SubjectIndex;
+import com.heyu.timeline.core.index.TimeAggregateIndex;
 import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.core.model.Page;
+import com.heyu.timeline.core.model.PageCursor;
+import com.heyu.timeline.core.model.RecurringEvent;
+import com.heyu.timeline.core.model.TimeSlot;
+import com.heyu.timeline.core.model.TimelineBatch;
+import com.heyu.timeline.core.scheduler.ReservationConstraints;
+import com.heyu.timeline.core.scheduler.BatchPlanner;
+import com.heyu.timeline.core.scheduler.BatchPolicy;
+import com.heyu.timeline.core.scheduler.BatchScheduleResult;
 import com.heyu.timeline.exception.TimeLineException;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
-
-import lombok.AllArgsConstructor;
-import lombok.NoArgsConstructor;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
  * 时间线数据结构，用于存储和管理可能重叠的事件
  * @param <T> 时间类型
  */
-@AllArgsConstructor
-@NoArgsConstructor(force = true)
 public class OverlappingTimeLine<T> implements TimelineStructure<T> {
 
     // 使用列表存储所有事件
-    private final List<Event<T>> events = new ArrayList<>();
+    private final EventList<T> events = new EventList<>();
 
     // 使用TreeMap按开始时间索引事件，支持同一时间点的多个事件
     private final TreeMap<T, List<Event<T>>> startTimeIndex = new TreeMap<>(new Comparator<T>() {
@@ -49,6 +62,10 @@ public class OverlappingTimeLine<T> implements TimelineStructure<T> {
         }
     });
 
+    // 覆盖索引，按开始时间保存所有事件合并后的占用时间段，值为该时间段的结束时间
+    // 重叠或首尾相接的事件合并为同一个时间段
+    private final TreeMap<T, T> coverageIndex = new TreeMap<>(startTimeIndex.comparator());
+
     // 为每个时间桶提供锁机制
     private final Map<T, Lock> startLocks = new ConcurrentHashMap<>();
     private final Map<T, Lock> endLocks = new ConcurrentHashMap<>();
@@ -58,13 +75,112 @@ public class OverlappingTimeLine<T> implements TimelineStructure<T> {
     
     // 时间计算器，用于处理时间类型的加减运算
     private TimeCalculator<T> timeCalculator;
+    
+    // 过期策略，为null时不自动处理过期事件
+    private ExpiryPolicy<T> expiryPolicy;
+    
+    // 冷存储，保存被过期策略移出的事件
+    private final List<Event<T>> archivedEvents = new ArrayList<>();
+    
+    // 已处理过期的结束时间水位线，仅在DEACTIVATE模式下使用
+    private T expiryWatermark;
+    
+    // 重复事件只保存一份，不进入开始时间和结束时间索引
+    private final List<RecurringEvent<T>> recurringEvents = new ArrayList<>();
+    
+    // 展开重复事件使用的时间计算器，在第一次加入重复事件时确定
+    private TimeCalculator<T> recurringCalculator;
+    
+    // 聚合索引，在第一次统计时建立，之后随开始时间和结束时间索引一起维护
+    private TimeAggregateIndex<T> aggregateIndex;
+    
+    // 事件主体的二级索引，为null时未启用
+    private SubjectIndex<T> subjectIndex;
+    
+    // 上一次生成的快照
+    private TimelineSnapshot<T> lastSnapshot;
+    
+    // 上一次生成快照之后发生过变化的开始时间，在第一次生成快照时创建
+    private NavigableSet<T> dirtyKeys;
+    
+    // 属性标签的位图索引，只包含带标签的事件
+    private final AttributeIndex<T> attributeIndex = new AttributeIndex<>();
+    
+    // 事件加入索引时分配的序号，作为分页排序键的最后一级
+    private final Map<Event<T>, Long> sequences = new IdentityHashMap<>();
+    
+    // 下一个可分配的序号
+    private long nextSequence;
+    
+    // 最长事件的长度，用于限定向前查找包含某个时间点的事件的范围，删除事件时不缩小
+    private T maxLength;
+    
+    // 计算事件长度使用的时间计算器，在第一次加入事件时确定
+    private TimeCalculator<T> lengthCalculator;
+    
+    // 无法计算事件长度时为true，此时查找包含某个时间点的事件退回到同时沿两个索引访问
+    private boolean lengthUnbounded;
+
+    /**
+     * 创建一个空的时间线
+     */
+    public OverlappingTimeLine() {
+    }
+
+    /**
+     * 创建一个使用指定时间计算器的时间线
+     * @param timeCalculator 时间计算器
+     */
+    public OverlappingTimeLine(TimeCalculator<T> timeCalculator) {
+        this.timeCalculator = timeCalculator;
+    }
 
     /**
      * 设置时间计算器
      * @param timeCalculator 时间计算器
      */
     public void setTimeCalculator(TimeCalculator<T> timeCalculator) {
-        this.timeCalculator = timeCalculator;
+        globalLock.lock();
+        try {
+            this.timeCalculator = timeCalculator;
+            // 聚合索引依赖时间计算器的数值转换，需要重新建立
+            this.aggregateIndex = null;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取时间计算器
+     * @return 时间计算器，未设置时返回null
+     */
+    public TimeCalculator<T> getTimeCalculator() {
+        return timeCalculator;
+    }
+
+    /**
+     * 设置过期策略，启用由时钟驱动的过期处理
+     * 启用后每次添加或查询事件时都会按批次处理已经结束的事件
+     * @param expiryPolicy 过期策略，为null时关闭过期处理
+     */
+    public void setExpiryPolicy(ExpiryPolicy<T> expiryPolicy) {
+        globalLock.lock();
+        try {
+            this.expiryPolicy = expiryPolicy;
+            this.expiryWatermark = null;
+            // 只有归档模式需要按身份批量移除事件
+            events.trackPositions(expiryPolicy != null && expiryPolicy.getMode() == ExpiryPolicy.Mode.ARCHIVE);
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取当前过期策略
+     * @return 过期策略，未启用时返回null
+     */
+    public ExpiryPolicy<T> getExpiryPolicy() {
+        return expiryPolicy;
     }
 
     /**
@@ -77,18 +193,93 @@ public class OverlappingTimeLine<T> implements TimelineStructure<T> {
             throw new TimeLineException("Cannot add null event to timeline");
         }
         
-        // 如果事件只有持续时间而没有明确的开始和结束时间，则寻找合适的时间段
-        if (event.hasOnlyDuration()) {
-            assignTimeSlot(event);
+        if (event instanceof RecurringEvent) {
+            addRecurringEvent((RecurringEvent<T>) event);
+            return;
         }
-
+        
         globalLock.lock();
         try {
+            expireIncrementally();
+
+            // 如果事件只有持续时间而没有明确的开始和结束时间，则寻找合适的时间段
+            // 分配与插入在同一次加锁中完成，避免并发添加的事件被分配到同一个间隙
+            if (event.hasOnlyDuration()) {
+                assignTimeSlot(event);
+            }
+
             events.add(event);
+            indexEvent(event);
+
+            deactivateIfExpired(event);
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 添加重复事件，重复事件只保存一份，在查询时按时间窗口展开
+     * @param series 重复事件
+     * @throws TimeLineException 当重复周期不是正数或缺少时间计算器时抛出异常
+     */
+    private void addRecurringEvent(RecurringEvent<T> series) throws TimeLineException {
+        globalLock.lock();
+        try {
+            TimeCalculator<T> calculator = recurringCalculator != null
+                    ? recurringCalculator : resolveTimeCalculator(series.getStart());
+            if (calculator.toLong(series.getRule().getPeriod()) <= 0) {
+                throw new TimeLineException("Recurrence period must be positive");
+            }
+            recurringCalculator = calculator;
+            recurringEvents.add(series);
         } finally {
             globalLock.unlock();
         }
+    }
+
+    /**
+     * 展开与时间段有交集的重复事件发生，调用方需持有全局锁
+     * @param from 时间段开始时间
+     * @param to 时间段结束时间
+     * @param result 结果列表
+     */
+    private void expandRecurringEvents(T from, T to, List<Event<T>> result) {
+        for (RecurringEvent<T> series : recurringEvents) {
+            if (series.isActive()) {
+                result.addAll(series.getOccurrencesBetween(from, to, recurringCalculator));
+            }
+        }
+    }
+
+    /**
+     * 获取可用的时间计算器，未设置时根据时间的实际类型推断
+     * @param sample 用于推断类型的时间值
+     * @return 时间计算器
+     * @throws TimeLineException 当无法获得可用的时间计算器时抛出异常
+     */
+    @SuppressWarnings("unchecked")
+    private TimeCalculator<T> resolveTimeCalculator(T sample) throws TimeLineException {
+        if (timeCalculator != null) {
+            return timeCalculator;
+        }
+        if (sample != null) {
+            TimeCalculator<T> inferred = TimeCalculatorFactory.createTimeCalculator((Class<T>) sample.getClass());
+            try {
+                inferred.getZero();
+                return inferred;
+            } catch (UnsupportedOperationException e) {
+                // 推断出的类型不受支持，落到下面的异常
+            }
+        }
+        throw new TimeLineException("TimeCalculator is required for this operation. " +
+                "Please set a TimeCalculator using setTimeCalculator method.");
+    }
 
+    /**
+     * 将事件加入开始时间和结束时间索引，调用方需持有全局锁
+     * @param event 要索引的事件
+     */
+    private void indexEvent(Event<T> event) {
         // 为开始时间获取锁
         Lock startLock = startLocks.computeIfAbsent(event.getStart(), k -> new ReentrantLock());
         startLock.lock();
@@ -108,6 +299,163 @@ public class OverlappingTimeLine<T> implements TimelineStructure<T> {
         } finally {
             endLock.unlock();
         }
+
+        cover(event);
+        if (aggregateIndex != null) {
+            aggregateIndex.add(event);
+        }
+        if (subjectIndex != null) {
+            subjectIndex.add(event);
+        }
+        attributeIndex.add(event);
+        sequences.put(event, nextSequence++);
+        trackLength(event);
+        markDirty(event);
+    }
+
+    /**
+     * 用事件的长度更新最长事件的长度，调用方需持有全局锁
+     * @param event 事件
+     */
+    private void trackLength(Event<T> event) {
+        if (lengthUnbounded) {
+            return;
+        }
+        try {
+            if (lengthCalculator == null) {
+                lengthCalculator = resolveTimeCalculator(event.getStart());
+            }
+            T length = lengthCalculator.subtract(event.getEnd(), event.getStart());
+            if (maxLength == null || compareTime(length, maxLength) > 0) {
+                maxLength = length;
+            }
+        } catch (TimeLineException | RuntimeException e) {
+            lengthUnbounded = true;
+        }
+    }
+
+    /**
+     * 将事件从开始时间和结束时间索引中移除，调用方需持有全局锁
+     * @param event 要移除索引的事件
+     */
+    private void unindexEvent(Event<T> event) {
+        // 从开始时间索引中移除
+        Lock startLock = startLocks.get(event.getStart());
+        if (startLock != null) {
+            startLock.lock();
+            try {
+                List<Event<T>> startEvents = startTimeIndex.get(event.getStart());
+                if (startEvents != null) {
+                    startEvents.remove(event);
+                    // 如果该时间点没有其他事件了，清理索引和锁
+                    if (startEvents.isEmpty()) {
+                        startTimeIndex.remove(event.getStart());
+                        startLocks.remove(event.getStart());
+                    }
+                }
+            } finally {
+                startLock.unlock();
+            }
+        }
+
+        // 从结束时间索引中移除
+        Lock endLock = endLocks.get(event.getEnd());
+        if (endLock != null) {
+            endLock.lock();
+            try {
+                List<Event<T>> endEvents = endTimeIndex.get(event.getEnd());
+                if (endEvents != null) {
+                    endEvents.remove(event);
+                    // 如果该时间点没有其他事件了，清理索引和锁
+                    if (endEvents.isEmpty()) {
+                        endTimeIndex.remove(event.getEnd());
+                        endLocks.remove(event.getEnd());
+                    }
+                }
+            } finally {
+                endLock.unlock();
+            }
+        }
+
+        uncover(event);
+        markDirty(event);
+        if (aggregateIndex != null) {
+            aggregateIndex.remove(event);
+        }
+        if (subjectIndex != null) {
+            subjectIndex.remove(event);
+        }
+        attributeIndex.remove(event);
+        sequences.remove(event);
+    }
+
+    /**
+     * 将事件并入覆盖索引，与之重叠或首尾相接的时间段合并为一个，调用方需持有全局锁
+     * @param event 事件
+     */
+    private void cover(Event<T> event) {
+        T start = event.getStart();
+        T end = event.getEnd();
+        Map.Entry<T, T> floor = coverageIndex.floorEntry(start);
+        if (floor != null && compareTime(floor.getValue(), start) >= 0) {
+            start = floor.getKey();
+            if (compareTime(floor.getValue(), end) > 0) {
+                end = floor.getValue();
+            }
+        }
+        // 吸收所有在新时间段结束之前开始的时间段
+        Iterator<Map.Entry<T, T>> iterator = coverageIndex.subMap(start, true, end, true).entrySet().iterator();
+        while (iterator.hasNext()) {
+            T absorbedEnd = iterator.next().getValue();
+            if (compareTime(absorbedEnd, end) > 0) {
+                end = absorbedEnd;
+            }
+            iterator.remove();
+        }
+        coverageIndex.put(start, end);
+    }
+
+    /**
+     * 事件移出索引后重新计算其所在的覆盖时间段，只访问该时间段内开始的事件，调用方需持有全局锁
+     * @param event 已经从开始时间索引中移除的事件
+     */
+    private void uncover(Event<T> event) {
+        Map.Entry<T, T> covering = coverageIndex.floorEntry(event.getStart());
+        if (covering == null) {
+            return;
+        }
+        coverageIndex.remove(covering.getKey());
+        T currentStart = null;
+        T currentEnd = null;
+        for (List<Event<T>> bucket : startTimeIndex.subMap(covering.getKey(), true, covering.getValue(), true).values()) {
+            for (Event<T> remaining : bucket) {
+                if (currentStart == null) {
+                    currentStart = remaining.getStart();
+                    currentEnd = remaining.getEnd();
+                } else if (compareTime(remaining.getStart(), currentEnd) <= 0) {
+                    if (compareTime(remaining.getEnd(), currentEnd) > 0) {
+                        currentEnd = remaining.getEnd();
+                    }
+                } else {
+                    coverageIndex.put(currentStart, currentEnd);
+                    currentStart = remaining.getStart();
+                    currentEnd = remaining.getEnd();
+                }
+            }
+        }
+        if (currentStart != null) {
+            coverageIndex.put(currentStart, currentEnd);
+        }
+    }
+
+    /**
+     * 比较两个时间，与索引使用相同的比较规则
+     * @param t1 时间1
+     * @param t2 时间2
+     * @return 比较结果
+     */
+    private int compareTime(T t1, T t2) {
+        return startTimeIndex.comparator().compare(t1, t2);
     }
     
     /**
@@ -323,51 +671,116 @@ public class OverlappingTimeLine<T> implements TimelineStructure<T> {
 
         globalLock.lock();
         try {
-            // 从全局事件列表中移除
-            boolean removed = events.remove(event);
-            if (!removed) {
+            if (event instanceof RecurringEvent) {
+                return recurringEvents.remove(event);
+            }
+
+            // 从全局事件列表中移除，索引中按时间线实际保存的事件对象处理
+            int position = events.indexOf(event);
+            if (position < 0) {
                 return false; // 事件不存在
             }
 
-            // 从开始时间索引中移除
-            Lock startLock = startLocks.get(event.getStart());
-            if (startLock != null) {
-                startLock.lock();
-                try {
-                    List<Event<T>> startEvents = startTimeIndex.get(event.getStart());
-                    if (startEvents != null) {
-                        startEvents.remove(event);
-                        // 如果该时间点没有其他事件了，清理索引和锁
-                        if (startEvents.isEmpty()) {
-                            startTimeIndex.remove(event.getStart());
-                            startLocks.remove(event.getStart());
-                        }
-                    }
-                } finally {
-                    startLock.unlock();
-                }
+            unindexEvent(events.remove(position));
+            return true;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 在一次加锁中原子地应用一批修改：先删除全部要删除的事件，再添加全部要添加的事件
+     * 时间线允许事件重叠，只需要检查要删除的事件存在且要添加的事件时间有效
+     * 任何一步失败时按撤销日志逆序恢复已经应用的修改
+     * @param batch 要应用的修改
+     * @throws TimeLineException 当批次为null、要删除的事件不存在、要添加的事件时间无效或发生冲突时抛出异常
+     */
+    public void applyBatch(TimelineBatch<T> batch) throws TimeLineException {
+        if (batch == null) {
+            throw new TimeLineException("Batch cannot be null");
+        }
+        for (Event<T> event : batch.getAdditions()) {
+            if (event instanceof RecurringEvent) {
+                throw new TimeLineException("Recurring events cannot be added in a batch");
             }
+            checkRange(event.getStart(), event.getEnd());
+        }
 
-            // 从结束时间索引中移除
-            Lock endLock = endLocks.get(event.getEnd());
-            if (endLock != null) {
-                endLock.lock();
-                try {
-                    List<Event<T>> endEvents = endTimeIndex.get(event.getEnd());
-                    if (endEvents != null) {
-                        endEvents.remove(event);
-                        // 如果该时间点没有其他事件了，清理索引和锁
-                        if (endEvents.isEmpty()) {
-                            endTimeIndex.remove(event.getEnd());
-                            endLocks.remove(event.getEnd());
-                        }
+        globalLock.lock();
+        try {
+            expireIncrementally();
+            Deque<Runnable> undoLog = new ArrayDeque<>();
+            try {
+                for (Event<T> event : batch.getRemovals()) {
+                    int position = events.indexOf(event);
+                    if (position < 0) {
+                        throw new TimeLineException("Batch event to remove does not exist: " + event.getSubject());
                     }
-                } finally {
-                    endLock.unlock();
+                    Event<T> removed = events.remove(position);
+                    unindexEvent(removed);
+                    undoLog.push(() -> {
+                        events.add(position, removed);
+                        indexEvent(removed);
+                    });
+                }
+                for (Event<T> event : batch.getAdditions()) {
+                    events.add(event);
+                    indexEvent(event);
+                    undoLog.push(() -> {
+                        events.remove(events.size() - 1);
+                        unindexEvent(event);
+                    });
                 }
+            } catch (TimeLineException e) {
+                while (!undoLog.isEmpty()) {
+                    undoLog.pop().run();
+                }
+                throw e;
             }
 
-            return true;
+            for (Event<T> event : batch.getAdditions()) {
+                deactivateIfExpired(event);
+            }
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 原子地预约一个时间段：在同一次加锁中寻找最早的空闲时间段并加入占用该时间段的事件
+     * 与只有持续时间的事件不同，预约不使用淘汰策略，找不到满足约束的时间段时直接失败
+     * @param duration 持续时间
+     * @param subject 事件主体
+     * @param constraints 约束条件，为null时不做限制
+     * @return 分配到的时间段
+     * @throws TimeLineException 当持续时间为null、缺少时间计算器或在最晚结束时间之前没有足够的空闲时间时抛出异常
+     */
+    public TimeSlot<T> reserve(T duration, Object subject, ReservationConstraints<T> constraints) throws TimeLineException {
+        if (duration == null) {
+            throw new TimeLineException("Reservation duration cannot be null");
+        }
+
+        globalLock.lock();
+        try {
+            expireIncrementally();
+            if (timeCalculator == null) {
+                throw new TimeLineException("TimeCalculator is required to reserve time slots. " +
+                        "Please set a TimeCalculator using setTimeCalculator method.");
+            }
+            T notBefore = constraints != null && constraints.getNotBefore() != null
+                    ? constraints.getNotBefore() : getZeroTime();
+            T start = firstFreeSlotAfter(notBefore, duration).getStart();
+            T end = timeCalculator.add(start, duration);
+            if (constraints != null && constraints.getDeadline() != null
+                    && compareTime(end, constraints.getDeadline()) > 0) {
+                throw new TimeLineException("No free slot for the reservation ends before the deadline");
+            }
+            
+            Event<T> event = new Event<>(start, end, duration, subject, true);
+            events.add(event);
+            indexEvent(event);
+            deactivateIfExpired(event);
+            return new TimeSlot<>(start, end);
         } finally {
             globalLock.unlock();
         }
@@ -416,6 +829,7 @@ public class OverlappingTimeLine<T> implements TimelineStructure<T> {
     public List<Event<T>> getSortedEvents() {
         globalLock.lock();
         try {
+            expireIncrementally();
             List<Event<T>> sortedEvents = new ArrayList<>();
             for (Event<T> event : events) {
                 if (event.isActive()) {
@@ -445,6 +859,7 @@ public class OverlappingTimeLine<T> implements TimelineStructure<T> {
         // 查找开始时间小于等于指定时间的所有事件
         globalLock.lock();
         try {
+            expireIncrementally();
             SortedMap<T, List<Event<T>>> headMap = startTimeIndex.headMap(time, true);
             for (Map.Entry<T, List<Event<T>>> entry : headMap.entrySet()) {
                 Lock lock = startLocks.get(entry.getKey());
@@ -471,6 +886,10 @@ public class OverlappingTimeLine<T> implements TimelineStructure<T> {
                     }
                 }
             }
+            if (!recurringEvents.isEmpty()) {
+                expandRecurringEvents(time, time, result);
+                sortEvents(result);
+            }
         } finally {
             globalLock.unlock();
         }
@@ -508,6 +927,7 @@ public class OverlappingTimeLine<T> implements TimelineStructure<T> {
         // 查找开始时间在指定时间段之前或之内的事件
         globalLock.lock();
         try {
+            expireIncrementally();
             SortedMap<T, List<Event<T>>> headMap = startTimeIndex.headMap(end, true);
             for (Map.Entry<T, List<Event<T>>> entry : headMap.entrySet()) {
                 Lock lock = startLocks.get(entry.getKey());
@@ -540,6 +960,7 @@ public class OverlappingTimeLine<T> implements TimelineStructure<T> {
                     }
                 }
             }
+            expandRecurringEvents(start, end, result);
         } finally {
             globalLock.unlock();
         }
@@ -550,65 +971,889 @@ public class OverlappingTimeLine<T> implements TimelineStructure<T> {
     }
 
     /**
-     * 移除所有非活跃事件
-     * @return 被移除的事件数量
+     * 获取在指定时间段内活跃且满足条件的事件，条件在遍历索引时判断
+     * @param start 开始时间
+     * @param end 结束时间
+     * @param predicate 过滤条件
+     * @return 按时间顺序排列的事件列表
+     * @throws TimeLineException 当参数为null或开始时间晚于结束时间时抛出异常
      */
-    public int removeInactiveEvents() {
+    public List<Event<T>> getEventsBetween(T start, T end, Predicate<? super Event<T>> predicate)
+            throws TimeLineException {
+        return getEventsBetween(start, end, predicate, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 获取在指定时间段内活跃且满足条件的前limit个事件
+     * 沿开始时间索引遍历，条件在遍历时判断，只对同一开始时间桶内的命中事件排序，取满limit个后立即停止
+     * @param start 开始时间
+     * @param end 结束时间
+     * @param predicate 过滤条件
+     * @param limit 最多返回的事件数量
+     * @return 按时间顺序排列的事件列表
+     * @throws TimeLineException 当参数为null、limit为负数或开始时间晚于结束时间时抛出异常
+     */
+    public List<Event<T>> getEventsBetween(T start, T end, Predicate<? super Event<T>> predicate, int limit)
+            throws TimeLineException {
+        if (predicate == null) {
+            throw new TimeLineException("Predicate cannot be null");
+        }
+        if (limit < 0) {
+            throw new TimeLineException("Limit cannot be negative");
+        }
+        checkRange(start, end);
+        
+        List<Event<T>> result = new ArrayList<>();
         globalLock.lock();
         try {
-            List<Event<T>> inactiveEvents = getInactiveEvents();
-            int count = 0;
-            for (Event<T> event : inactiveEvents) {
-                try {
-                    if (removeEvent(event)) {
-                        count++;
+            expireIncrementally();
+            List<Event<T>> matched = new ArrayList<>();
+            for (List<Event<T>> bucket : startTimeIndex.headMap(end, true).values()) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                for (Event<T> event : bucket) {
+                    if (event.isActive() && compareTime(event.getEnd(), start) >= 0 && predicate.test(event)) {
+                        matched.add(event);
                     }
-                } catch (TimeLineException e) {
-                    // 忽略异常，继续处理其他事件
+                }
+                // 只对同一开始时间的少量命中事件排序，保证结果与全量排序的顺序一致
+                if (!matched.isEmpty()) {
+                    sortEvents(matched);
+                    for (Event<T> event : matched) {
+                        if (result.size() >= limit) {
+                            break;
+                        }
+                        result.add(event);
+                    }
+                    matched.clear();
+                }
+            }
+            if (!recurringEvents.isEmpty()) {
+                // 重复事件的发生与索引中的事件合并后再截取
+                List<Event<T>> occurrences = new ArrayList<>();
+                expandRecurringEvents(start, end, occurrences);
+                for (Event<T> occurrence : occurrences) {
+                    if (predicate.test(occurrence)) {
+                        result.add(occurrence);
+                    }
+                }
+                sortEvents(result);
+                if (result.size() > limit) {
+                    return new ArrayList<>(result.subList(0, limit));
                 }
             }
-            return count;
         } finally {
             globalLock.unlock();
         }
+        return result;
     }
 
     /**
-     * 获取所有事件（包括非活跃事件）
-     * @return 所有事件的列表
+     * 分页获取在指定时间段内活跃的事件，按开始时间、结束时间和加入顺序排列
+     * 下一页从游标记录的排序键之后沿开始时间索引继续，只对同一开始时间桶内的事件排序
+     * 开始于窗口之前但与窗口相交的事件只在第一页查找一次，之后随游标传递；查找时只访问开始时间在
+     * 窗口开始时间减去最长事件长度之后的事件，因此第一页的代价为O(log n + pageSize)再加上这一范围内的事件数量，
+     * 之后每页的代价为O(log n + pageSize)
+     * 翻页期间在游标之前插入或删除事件不会影响后续页的内容，游标中尚未返回的跨越事件如果已被删除或停用会被跳过；
+     * 重复事件的发生不参与分页
+     * @param start 开始时间
+     * @param end 结束时间
+     * @param cursor 上一页返回的游标，获取第一页时为null
+     * @param pageSize 每页的事件数量
+     * @return 一页事件
+     * @throws TimeLineException 当参数不合法时抛出异常
      */
-    public List<Event<T>> getAllEvents() {
-        globalLock.lock();
-        try {
-            return new ArrayList<>(events);
-        } finally {
-            globalLock.unlock();
+    public Page<T> getPage(T start, T end, PageCursor<T> cursor, int pageSize) throws TimeLineException {
+        if (pageSize <= 0) {
+            throw new TimeLineException("Page size must be positive");
         }
-    }
+        checkRange(start, end);
 
-    /**
-     * 获取所有非活跃事件
-     * @return 非活跃事件的列表
-     */
-    public List<Event<T>> getInactiveEvents() {
         globalLock.lock();
         try {
-            List<Event<T>> inactiveEvents = new ArrayList<>();
-            for (Event<T> event : events) {
-                if (!event.isActive()) {
-                    inactiveEvents.add(event);
+            expireIncrementally();
+            Comparator<Event<T>> keyOrder = (a, b) -> {
+                int result = compareTime(a.getStart(), b.getStart());
+                if (result == 0) {
+                    result = compareTime(a.getEnd(), b.getEnd());
+                }
+                return result != 0 ? result : Long.compare(sequences.get(a), sequences.get(b));
+            };
+            List<Event<T>> page = new ArrayList<>(pageSize + 1);
+            List<Event<T>> matched = new ArrayList<>();
+
+            // 开始于窗口之前但仍与窗口相交的事件排在最前面，第一页求出后随游标传递
+            boolean cursorBeforeWindow = cursor == null || compareTime(cursor.getStart(), start) < 0;
+            List<Event<T>> straddlers = new ArrayList<>();
+            if (cursorBeforeWindow) {
+                if (cursor != null && cursor.getPendingStraddlers() != null) {
+                    for (Event<T> event : cursor.getPendingStraddlers()) {
+                        if (event.isActive() && sequences.containsKey(event)) {
+                            straddlers.add(event);
+                        }
+                    }
+                } else {
+                    for (Event<T> event : getEventsContaining(start)) {
+                        if (event.isActive() && compareTime(event.getStart(), start) < 0
+                                && isAfterCursor(event, cursor)) {
+                            straddlers.add(event);
+                        }
+                    }
+                    straddlers.sort(keyOrder);
                 }
+                page.addAll(straddlers.subList(0, Math.min(straddlers.size(), pageSize + 1)));
             }
-            return inactiveEvents;
+
+            T from = cursorBeforeWindow ? start : cursor.getStart();
+            for (List<Event<T>> bucket : startTimeIndex.subMap(from, true, end, true).values()) {
+                if (page.size() > pageSize) {
+                    break;
+                }
+                for (Event<T> event : bucket) {
+                    if (event.isActive() && isAfterCursor(event, cursor)) {
+                        matched.add(event);
+                    }
+                }
+                addInKeyOrder(page, matched, keyOrder, pageSize + 1);
+            }
+
+            if (page.size() <= pageSize) {
+                return new Page<>(page, null);
+            }
+            Event<T> last = page.get(pageSize - 1);
+            List<Event<T>> pending = straddlers.size() > pageSize
+                    ? new ArrayList<>(straddlers.subList(pageSize, straddlers.size())) : new ArrayList<>();
+            return new Page<>(new ArrayList<>(page.subList(0, pageSize)),
+                    new PageCursor<>(last.getStart(), last.getEnd(), sequences.get(last), pending));
         } finally {
             globalLock.unlock();
         }
     }
 
     /**
-     * 清空所有事件
+     * 判断事件的排序键是否在游标之后
+     * @param event 事件
+     * @param cursor 游标，为null时所有事件都在其后
+     * @return 如果在游标之后返回true，否则返回false
      */
-    public void clear() {
+    private boolean isAfterCursor(Event<T> event, PageCursor<T> cursor) {
+        if (cursor == null) {
+            return true;
+        }
+        int result = compareTime(event.getStart(), cursor.getStart());
+        if (result == 0) {
+            result = compareTime(event.getEnd(), cursor.getEnd());
+        }
+        return result != 0 ? result > 0 : sequences.get(event) > cursor.getSequence();
+    }
+
+    /**
+     * 将候选事件排序后加入结果，直到结果达到给定数量，之后清空候选列表
+     * @param page 结果
+     * @param matched 候选事件
+     * @param keyOrder 排序键的比较器
+     * @param capacity 结果的最大数量
+     */
+    private void addInKeyOrder(List<Event<T>> page, List<Event<T>> matched, Comparator<Event<T>> keyOrder,
+                               int capacity) {
+        matched.sort(keyOrder);
+        for (Event<T> event : matched) {
+            if (page.size() >= capacity) {
+                break;
+            }
+            page.add(event);
+        }
+        matched.clear();
+    }
+
+    /**
+     * 获取开始时间在指定时间段内的所有事件（包括非活跃事件），直接截取开始时间索引的范围
+     * @param start 开始时间
+     * @param end 结束时间
+     * @return 按开始时间排列的事件列表
+     * @throws TimeLineException 当时间参数为null或开始时间晚于结束时间时抛出异常
+     */
+    public List<Event<T>> getEventsStartingBetween(T start, T end) throws TimeLineException {
+        checkRange(start, end);
+        globalLock.lock();
+        try {
+            expireIncrementally();
+            List<Event<T>> result = new ArrayList<>();
+            for (List<Event<T>> bucket : startTimeIndex.subMap(start, true, end, true).values()) {
+                result.addAll(bucket);
+            }
+            return result;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取结束时间在指定时间段内的所有事件（包括非活跃事件），直接截取结束时间索引的范围
+     * 适合只关心某段时间内已经结束的事件的过期、计费等处理
+     * @param start 开始时间
+     * @param end 结束时间
+     * @return 按结束时间排列的事件列表
+     * @throws TimeLineException 当时间参数为null或开始时间晚于结束时间时抛出异常
+     */
+    public List<Event<T>> getEventsEndingBetween(T start, T end) throws TimeLineException {
+        checkRange(start, end);
+        globalLock.lock();
+        try {
+            expireIncrementally();
+            List<Event<T>> result = new ArrayList<>();
+            for (List<Event<T>> bucket : endTimeIndex.subMap(start, true, end, true).values()) {
+                result.addAll(bucket);
+            }
+            return result;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 检查时间段参数
+     * @param start 开始时间
+     * @param end 结束时间
+     * @throws TimeLineException 当时间参数为null或开始时间晚于结束时间时抛出异常
+     */
+    private void checkRange(T start, T end) throws TimeLineException {
+        if (start == null || end == null) {
+            throw new TimeLineException("Start time and end time cannot be null");
+        }
+        if (compareTime(start, end) > 0) {
+            throw new TimeLineException("Start time cannot be after end time");
+        }
+    }
+
+    /**
+     * 启用以事件主体为键的二级索引
+     */
+    public void enableSubjectIndex() {
+        enableSubjectIndex(Event::getSubject);
+    }
+
+    /**
+     * 启用二级索引，索引键由给定函数从事件中提取，启用时为现有事件建立索引
+     * 之后的添加、移除都会同步更新索引；事件加入时间线后不应再修改影响键的字段
+     * @param keyExtractor 从事件中提取索引键的函数
+     */
+    public void enableSubjectIndex(Function<? super Event<T>, ?> keyExtractor) {
+        if (keyExtractor == null) {
+            throw new IllegalArgumentException("Key extractor cannot be null");
+        }
+        globalLock.lock();
+        try {
+            SubjectIndex<T> index = new SubjectIndex<>(keyExtractor, startTimeIndex.comparator());
+            for (Event<T> event : events) {
+                index.add(event);
+            }
+            subjectIndex = index;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 关闭二级索引
+     */
+    public void disableSubjectIndex() {
+        globalLock.lock();
+        try {
+            subjectIndex = null;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取指定键的所有事件（包括非活跃事件）
+     * 启用二级索引时直接查索引，否则逐个比较事件主体
+     * @param key 索引键，未启用二级索引时与事件主体比较
+     * @return 按开始时间排列的事件列表
+     */
+    public List<Event<T>> getEventsBySubject(Object key) {
+        globalLock.lock();
+        try {
+            if (subjectIndex != null) {
+                return subjectIndex.get(key);
+            }
+            List<Event<T>> result = new ArrayList<>();
+            for (Event<T> event : events) {
+                if (Objects.equals(event.getSubject(), key)) {
+                    result.add(event);
+                }
+            }
+            sortEvents(result);
+            return result;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取指定键下在时间段内活跃的事件
+     * 启用二级索引时只访问该键下开始时间不晚于时间段结束的事件，否则退化为时间范围查询后按主体过滤
+     * @param key 索引键，未启用二级索引时与事件主体比较
+     * @param start 开始时间
+     * @param end 结束时间
+     * @return 按开始时间排列的活跃事件列表
+     * @throws TimeLineException 当时间参数为null或开始时间晚于结束时间时抛出异常
+     */
+    public List<Event<T>> getEventsBySubjectBetween(Object key, T start, T end) throws TimeLineException {
+        checkRange(start, end);
+        globalLock.lock();
+        try {
+            expireIncrementally();
+            List<Event<T>> result = new ArrayList<>();
+            if (subjectIndex != null) {
+                for (Event<T> event : subjectIndex.getBetween(key, start, end)) {
+                    if (event.isActive()) {
+                        result.add(event);
+                    }
+                }
+                return result;
+            }
+            for (List<Event<T>> bucket : startTimeIndex.headMap(end, true).values()) {
+                for (Event<T> event : bucket) {
+                    if (event.isActive() && compareTime(event.getEnd(), start) >= 0
+                            && Objects.equals(event.getSubject(), key)) {
+                        result.add(event);
+                    }
+                }
+            }
+            return result;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取在指定时间之后开始的第一个活跃事件，沿开始时间索引向后查找，不包括重复事件的发生
+     * @param time 时间点
+     * @return 开始时间晚于该时间的最早事件，不存在时返回null
+     * @throws TimeLineException 当时间参数为null时抛出异常
+     */
+    public Event<T> nextEventAfter(T time) throws TimeLineException {
+        if (time == null) {
+            throw new TimeLineException("Time cannot be null");
+        }
+        globalLock.lock();
+        try {
+            expireIncrementally();
+            return firstActive(flatten(startTimeIndex.tailMap(time, false).values()));
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取在指定时间之前结束的最后一个活跃事件，沿结束时间索引向前查找，不包括重复事件的发生
+     * @param time 时间点
+     * @return 结束时间早于该时间的最晚事件，不存在时返回null
+     * @throws TimeLineException 当时间参数为null时抛出异常
+     */
+    public Event<T> previousEventBefore(T time) throws TimeLineException {
+        if (time == null) {
+            throw new TimeLineException("Time cannot be null");
+        }
+        globalLock.lock();
+        try {
+            expireIncrementally();
+            return firstActive(flatten(endTimeIndex.headMap(time, false).descendingMap().values()));
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取开始时间最早的活跃事件，不包括重复事件的发生
+     * @return 第一个事件，时间线为空时返回null
+     */
+    public Event<T> firstEvent() {
+        globalLock.lock();
+        try {
+            expireIncrementally();
+            return firstActive(flatten(startTimeIndex.values()));
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取结束时间最晚的活跃事件，不包括重复事件的发生
+     * @return 最后一个事件，时间线为空时返回null
+     */
+    public Event<T> lastEvent() {
+        globalLock.lock();
+        try {
+            expireIncrementally();
+            return firstActive(flatten(endTimeIndex.descendingMap().values()));
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取距离指定时间最近的k个活跃事件，包含该时间的事件距离为零，不包括重复事件的发生
+     * 之前的事件沿结束时间索引倒序访问，之后的事件沿开始时间索引顺序访问，两侧按距离合并
+     * @param time 时间点
+     * @param k 事件数量
+     * @return 按距离从近到远排列的事件
+     * @throws TimeLineException 当参数不合法或缺少时间计算器时抛出异常
+     */
+    public List<Event<T>> kNearest(T time, int k) throws TimeLineException {
+        if (time == null) {
+            throw new TimeLineException("Time cannot be null");
+        }
+        if (k < 0) {
+            throw new TimeLineException("k cannot be negative");
+        }
+
+        globalLock.lock();
+        try {
+            expireIncrementally();
+            return NearestEvents.merge(time, k, getEventsContaining(time),
+                    flatten(endTimeIndex.headMap(time, false).descendingMap().values()).iterator(),
+                    flatten(startTimeIndex.tailMap(time, false).values()).iterator(),
+                    resolveTimeCalculator(time));
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取包含指定时间的所有事件，调用方需持有全局锁
+     * 已知最长事件的长度时，只访问开始时间在该时间减去最长长度之后的事件；
+     * 否则同时沿开始时间索引向前、沿结束时间索引向后访问，先走完的一侧即给出全部结果，
+     * 访问的事件数量不超过两侧中较少的一侧
+     * @param time 时间点
+     * @return 开始时间不晚于且结束时间不早于该时间的事件
+     */
+    private List<Event<T>> getEventsContaining(T time) {
+        if (maxLength == null && !lengthUnbounded) {
+            return new ArrayList<>();
+        }
+        if (!lengthUnbounded) {
+            T lowest = null;
+            try {
+                lowest = lengthCalculator.subtract(time, maxLength);
+            } catch (RuntimeException e) {
+                // 超出时间类型的表示范围，退回到同时沿两个索引访问
+            }
+            if (lowest != null && compareTime(lowest, time) <= 0) {
+                List<Event<T>> result = new ArrayList<>();
+                for (Event<T> event : flatten(startTimeIndex.subMap(lowest, true, time, true).values())) {
+                    if (compareTime(event.getEnd(), time) >= 0) {
+                        result.add(event);
+                    }
+                }
+                return result;
+            }
+        }
+        Iterator<Event<T>> byStart = flatten(startTimeIndex.headMap(time, true).descendingMap().values()).iterator();
+        Iterator<Event<T>> byEnd = flatten(endTimeIndex.tailMap(time, true).values()).iterator();
+        List<Event<T>> fromStart = new ArrayList<>();
+        List<Event<T>> fromEnd = new ArrayList<>();
+        while (true) {
+            if (!byStart.hasNext()) {
+                return fromStart;
+            }
+            Event<T> event = byStart.next();
+            if (compareTime(event.getEnd(), time) >= 0) {
+                fromStart.add(event);
+            }
+            if (!byEnd.hasNext()) {
+                return fromEnd;
+            }
+            event = byEnd.next();
+            if (compareTime(event.getStart(), time) <= 0) {
+                fromEnd.add(event);
+            }
+        }
+    }
+
+    /**
+     * 将按时间分桶的事件展开为一个惰性序列
+     * @param buckets 事件桶
+     * @return 依次包含各桶中事件的序列
+     */
+    private Iterable<Event<T>> flatten(Collection<List<Event<T>>> buckets) {
+        return () -> buckets.stream().flatMap(List::stream).iterator();
+    }
+
+    /**
+     * 获取事件序列中的第一个活跃事件
+     * @param candidates 按查找顺序排列的事件
+     * @return 第一个活跃事件，不存在时返回null
+     */
+    private Event<T> firstActive(Iterable<Event<T>> candidates) {
+        for (Event<T> event : candidates) {
+            if (event.isActive()) {
+                return event;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 为已经加入时间线的事件设置属性标签，同时更新属性索引
+     * 事件加入时间线后直接调用Event.tag不会更新属性索引，按属性过滤时可能查不到该事件
+     * @param event 时间线中的事件
+     * @param name 属性名
+     * @param value 属性值
+     * @throws TimeLineException 当事件为null或不在时间线中时抛出异常
+     */
+    public void tagEvent(Event<T> event, String name, Object value) throws TimeLineException {
+        if (event == null) {
+            throw new TimeLineException("Cannot tag null event");
+        }
+
+        globalLock.lock();
+        try {
+            if (!sequences.containsKey(event)) {
+                throw new TimeLineException("Event is not in this timeline: " + event.getSubject());
+            }
+            attributeIndex.remove(event);
+            event.tag(name, value);
+            attributeIndex.add(event);
+            markDirty(event);
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 沿开始时间索引遍历与时间段有重叠的事件并检查属性，调用方需持有全局锁
+     * 访问的事件超过给定数量或最长事件的长度未知时放弃，由调用方改用属性位图
+     * @param start 开始时间
+     * @param end 结束时间
+     * @param filter 属性过滤条件
+     * @param budget 最多访问的事件数量
+     * @param result 用于收集结果的列表，放弃时保持不变
+     * @return 是否完成遍历
+     */
+    private boolean scanWindow(T start, T end, AttributeFilter filter, int budget, List<Event<T>> result) {
+        if (lengthUnbounded) {
+            return false;
+        }
+        if (maxLength == null) {
+            // 时间线中还没有事件
+            return true;
+        }
+        T lowest;
+        try {
+            lowest = lengthCalculator.subtract(start, maxLength);
+        } catch (RuntimeException e) {
+            return false;
+        }
+        if (compareTime(lowest, start) > 0) {
+            return false;
+        }
+        List<Event<T>> matched = new ArrayList<>();
+        int visited = 0;
+        for (Event<T> event : flatten(startTimeIndex.subMap(lowest, true, end, true).values())) {
+            if (++visited > budget) {
+                return false;
+            }
+            if (event.isActive() && compareTime(event.getEnd(), start) >= 0 && filter.matches(event)) {
+                matched.add(event);
+            }
+        }
+        result.addAll(matched);
+        return true;
+    }
+
+    /**
+     * 获取在指定时间段内活跃且满足属性过滤条件的所有事件
+     * 先对属性位图做与、或运算得到候选事件；若沿开始时间索引遍历时间段所访问的事件不多于候选事件，
+     * 则改为遍历时间段并逐个检查属性，否则只对候选事件检查时间范围，访问的事件数量不超过两者中较少一方的两倍
+     * @param start 开始时间
+     * @param end 结束时间
+     * @param filter 属性过滤条件
+     * @return 按时间顺序排列的事件列表
+     * @throws TimeLineException 当参数为null或开始时间晚于结束时间时抛出异常
+     */
+    public List<Event<T>> getEventsBetween(T start, T end, AttributeFilter filter) throws TimeLineException {
+        if (filter == null) {
+            throw new TimeLineException("Attribute filter cannot be null");
+        }
+        if (filter.isEmpty()) {
+            return getEventsBetween(start, end);
+        }
+        checkRange(start, end);
+
+        List<Event<T>> result = new ArrayList<>();
+        globalLock.lock();
+        try {
+            expireIncrementally();
+            RoaringBitmap candidates = attributeIndex.select(filter);
+            if (!scanWindow(start, end, filter, candidates.cardinality(), result)) {
+                candidates.forEach(ordinal -> {
+                    Event<T> event = attributeIndex.get(ordinal);
+                    if (event.isActive() && compareTime(event.getStart(), end) <= 0
+                            && compareTime(event.getEnd(), start) >= 0 && filter.matches(event)) {
+                        result.add(event);
+                    }
+                });
+            }
+            if (!recurringEvents.isEmpty()) {
+                List<Event<T>> occurrences = new ArrayList<>();
+                expandRecurringEvents(start, end, occurrences);
+                for (Event<T> occurrence : occurrences) {
+                    if (filter.matches(occurrence)) {
+                        result.add(occurrence);
+                    }
+                }
+            }
+        } finally {
+            globalLock.unlock();
+        }
+
+        sortEvents(result);
+        return result;
+    }
+
+    /**
+     * 移除所有非活跃事件
+     * @return 被移除的事件数量
+     */
+    public int removeInactiveEvents() {
+        globalLock.lock();
+        try {
+            List<Event<T>> inactiveEvents = getInactiveEvents();
+            int count = 0;
+            for (Event<T> event : inactiveEvents) {
+                try {
+                    if (removeEvent(event)) {
+                        count++;
+                    }
+                } catch (TimeLineException e) {
+                    // 忽略异常，继续处理其他事件
+                }
+            }
+            return count;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取所有事件（包括非活跃事件）
+     * @return 所有事件的列表
+     */
+    public List<Event<T>> getAllEvents() {
+        globalLock.lock();
+        try {
+            return new ArrayList<>(events);
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取时间线中保存的重复事件
+     * @return 重复事件列表
+     */
+    public List<RecurringEvent<T>> getRecurringEvents() {
+        globalLock.lock();
+        try {
+            return new ArrayList<>(recurringEvents);
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取按开始时间排列的所有事件（包括非活跃事件）
+     * @return 事件列表
+     */
+    public List<Event<T>> getEventsInStartOrder() {
+        globalLock.lock();
+        try {
+            List<Event<T>> result = new ArrayList<>(events.size());
+            for (List<Event<T>> bucket : startTimeIndex.values()) {
+                result.addAll(bucket);
+            }
+            return result;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取按结束时间排列的所有事件（包括非活跃事件）
+     * @return 事件列表
+     */
+    public List<Event<T>> getEventsInEndOrder() {
+        globalLock.lock();
+        try {
+            List<Event<T>> result = new ArrayList<>(events.size());
+            for (List<Event<T>> bucket : endTimeIndex.values()) {
+                result.addAll(bucket);
+            }
+            return result;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取所有事件（包括非活跃事件）覆盖的时间段，直接读取覆盖索引，不包括重复事件的发生
+     * @return 按时间顺序排列、互不相交的时间段
+     */
+    public List<TimeSlot<T>> getCoverage() {
+        globalLock.lock();
+        try {
+            return getCoverageSlots();
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 向空时间线批量装载已经排好序的事件，所有索引都按顺序线性建立
+     * @param byStart 按开始时间排列的事件
+     * @param byEnd 按结束时间排列的同一批事件
+     * @throws TimeLineException 当时间线不为空时抛出异常
+     */
+    void loadSorted(List<Event<T>> byStart, List<Event<T>> byEnd) throws TimeLineException {
+        globalLock.lock();
+        try {
+            if (!events.isEmpty()) {
+                throw new TimeLineException("Sorted events can only be loaded into an empty timeline");
+            }
+            events.addAll(byStart);
+            startTimeIndex.putAll(new SortedListMap<>(groupByKey(byStart, true), startTimeIndex.comparator()));
+            endTimeIndex.putAll(new SortedListMap<>(groupByKey(byEnd, false), endTimeIndex.comparator()));
+            for (T key : startTimeIndex.keySet()) {
+                startLocks.put(key, new ReentrantLock());
+            }
+            for (T key : endTimeIndex.keySet()) {
+                endLocks.put(key, new ReentrantLock());
+            }
+
+            // 按开始时间顺序一次扫描即可得到覆盖时间段
+            List<Map.Entry<T, T>> coverage = new ArrayList<>();
+            T currentStart = null;
+            T currentEnd = null;
+            for (Event<T> event : byStart) {
+                if (currentStart == null) {
+                    currentStart = event.getStart();
+                    currentEnd = event.getEnd();
+                } else if (compareTime(event.getStart(), currentEnd) <= 0) {
+                    if (compareTime(event.getEnd(), currentEnd) > 0) {
+                        currentEnd = event.getEnd();
+                    }
+                } else {
+                    coverage.add(new AbstractMap.SimpleImmutableEntry<>(currentStart, currentEnd));
+                    currentStart = event.getStart();
+                    currentEnd = event.getEnd();
+                }
+            }
+            if (currentStart != null) {
+                coverage.add(new AbstractMap.SimpleImmutableEntry<>(currentStart, currentEnd));
+            }
+            coverageIndex.putAll(new SortedListMap<>(coverage, coverageIndex.comparator()));
+
+            for (Event<T> event : byStart) {
+                attributeIndex.add(event);
+                sequences.put(event, nextSequence++);
+                trackLength(event);
+            }
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 将按时间排好序的事件按开始时间或结束时间分桶
+     * @param sorted 排好序的事件
+     * @param byStart 为true时按开始时间分桶，否则按结束时间分桶
+     * @return 按键递增排列的桶
+     */
+    private List<Map.Entry<T, List<Event<T>>>> groupByKey(List<Event<T>> sorted, boolean byStart) {
+        List<Map.Entry<T, List<Event<T>>>> buckets = new ArrayList<>();
+        List<Event<T>> bucket = null;
+        T key = null;
+        for (Event<T> event : sorted) {
+            T eventKey = byStart ? event.getStart() : event.getEnd();
+            if (bucket == null || compareTime(eventKey, key) != 0) {
+                key = eventKey;
+                bucket = new ArrayList<>();
+                buckets.add(new AbstractMap.SimpleImmutableEntry<>(key, bucket));
+            }
+            bucket.add(event);
+        }
+        return buckets;
+    }
+
+    /**
+     * 生成时间线当前状态的只读快照（不包括重复事件），未变化的部分与上一个快照共享
+     * @return 快照
+     */
+    public TimelineSnapshot<T> snapshot() {
+        globalLock.lock();
+        try {
+            lastSnapshot = TimelineSnapshot.build(lastSnapshot, dirtyKeys, startTimeIndex.comparator(), (lo, hi) -> {
+                NavigableMap<T, List<Event<T>>> range = startTimeIndex;
+                if (lo != null) {
+                    range = range.tailMap(lo, true);
+                }
+                if (hi != null) {
+                    range = range.headMap(hi, false);
+                }
+                List<Event<T>> result = new ArrayList<>();
+                for (List<Event<T>> bucket : range.values()) {
+                    result.addAll(bucket);
+                }
+                return result;
+            });
+            if (dirtyKeys == null) {
+                dirtyKeys = new TreeSet<>(startTimeIndex.comparator());
+            } else {
+                dirtyKeys.clear();
+            }
+            return lastSnapshot;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 记录事件的开始时间发生了变化，在生成过快照之后才需要记录
+     * @param event 发生变化的事件
+     */
+    private void markDirty(Event<T> event) {
+        if (dirtyKeys != null) {
+            dirtyKeys.add(event.getStart());
+        }
+    }
+
+    /**
+     * 获取所有非活跃事件
+     * @return 非活跃事件的列表
+     */
+    public List<Event<T>> getInactiveEvents() {
+        globalLock.lock();
+        try {
+            List<Event<T>> inactiveEvents = new ArrayList<>();
+            for (Event<T> event : events) {
+                if (!event.isActive()) {
+                    inactiveEvents.add(event);
+                }
+            }
+            return inactiveEvents;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 清空所有事件
+     */
+    public void clear() {
         globalLock.lock();
         try {
             events.clear();
@@ -616,8 +1861,389 @@ public class OverlappingTimeLine<T> implements TimelineStructure<T> {
             endTimeIndex.clear();
             startLocks.clear();
             endLocks.clear();
+            coverageIndex.clear();
+            archivedEvents.clear();
+            expiryWatermark = null;
+            recurringEvents.clear();
+            recurringCalculator = null;
+            aggregateIndex = null;
+            if (subjectIndex != null) {
+                subjectIndex.clear();
+            }
+            lastSnapshot = null;
+            dirtyKeys = null;
+            attributeIndex.clear();
+            sequences.clear();
+            maxLength = null;
+            lengthCalculator = null;
+            lengthUnbounded = false;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 批量安排只有持续时间的事件，在一次遍历空闲时间段的过程中为所有事件分配时间并加入时间线
+     * 与已有事件首尾相接的位置视为空闲，安排从零点开始
+     * @param batch 只有持续时间的事件
+     * @param policy 安排策略
+     * @return 安排结果，包含完工时间跨度和占用比例
+     * @throws TimeLineException 当事件不是只有持续时间或缺少时间计算器时抛出异常
+     */
+    public BatchScheduleResult<T> scheduleBatch(Collection<Event<T>> batch, BatchPolicy policy) throws TimeLineException {
+        if (batch == null || policy == null) {
+            throw new TimeLineException("Batch and policy cannot be null");
+        }
+        for (Event<T> event : batch) {
+            if (event == null || event.getDuration() == null || event.getStart() != null || event.getEnd() != null) {
+                throw new TimeLineException("Batch scheduling only accepts events with only duration");
+            }
+        }
+        if (timeCalculator == null) {
+            throw new TimeLineException("TimeCalculator is required to schedule events with only duration. " +
+                    "Please set a TimeCalculator using setTimeCalculator method.");
+        }
+
+        globalLock.lock();
+        try {
+            expireIncrementally();
+            List<TimeSlot<T>> busySlots = getCoverageSlots();
+
+            BatchPlanner<T> planner = new BatchPlanner<>(timeCalculator);
+            BatchScheduleResult<T> result = planner.plan(busySlots, getZeroTime(), batch, policy);
+            for (Event<T> event : result.getScheduledEvents()) {
+                events.add(event);
+                indexEvent(event);
+                deactivateIfExpired(event);
+            }
+            return result;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 从覆盖索引获取按顺序排列的占用时间段，调用方需持有全局锁
+     * @return 占用时间段列表
+     */
+    private List<TimeSlot<T>> getCoverageSlots() {
+        List<TimeSlot<T>> slots = new ArrayList<>(coverageIndex.size());
+        for (Map.Entry<T, T> entry : coverageIndex.entrySet()) {
+            slots.add(new TimeSlot<>(entry.getKey(), entry.getValue()));
+        }
+        return slots;
+    }
+
+    /**
+     * 获取时间窗口内所有长度不小于给定值的空闲时间段，即不被任何事件覆盖的时间
+     * 只访问覆盖索引中与窗口相交的时间段，重复事件的发生也视为占用
+     * @param start 窗口开始时间
+     * @param end 窗口结束时间
+     * @param minDuration 空闲时间段的最小长度
+     * @return 按时间顺序排列的空闲时间段
+     * @throws TimeLineException 当参数不合法或缺少时间计算器时抛出异常
+     */
+    public List<TimeSlot<T>> getFreeSlots(T start, T end, T minDuration) throws TimeLineException {
+        if (start == null || end == null || minDuration == null) {
+            throw new TimeLineException("Start time, end time and minimum duration cannot be null");
+        }
+        if (compareTime(start, end) > 0) {
+            throw new TimeLineException("Start time cannot be after end time");
+        }
+
+        globalLock.lock();
+        try {
+            expireIncrementally();
+            TimeCalculator<T> calculator = resolveTimeCalculator(start);
+            Map.Entry<T, T> floor = coverageIndex.floorEntry(start);
+            T from = floor != null ? floor.getKey() : start;
+            List<TimeSlot<T>> busySlots = new ArrayList<>();
+            for (Map.Entry<T, T> entry : coverageIndex.subMap(from, true, end, false).entrySet()) {
+                busySlots.add(new TimeSlot<>(entry.getKey(), entry.getValue()));
+            }
+            if (!recurringEvents.isEmpty()) {
+                List<Event<T>> occurrences = new ArrayList<>();
+                expandRecurringEvents(start, end, occurrences);
+                for (Event<T> occurrence : occurrences) {
+                    busySlots.add(new TimeSlot<>(occurrence.getStart(), occurrence.getEnd()));
+                }
+                busySlots.sort((a, b) -> compareTime(a.getStart(), b.getStart()));
+            }
+            return FreeSlots.collect(busySlots, start, end, minDuration, calculator);
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取指定时间之后第一个长度不小于给定值、不被任何事件覆盖的空闲时间段
+     * @param time 最早开始时间
+     * @param minDuration 空闲时间段的最小长度
+     * @return 空闲时间段，其后不再有占用时结束时间为null
+     * @throws TimeLineException 当参数为null或缺少时间计算器时抛出异常
+     */
+    public TimeSlot<T> firstFreeSlotAfter(T time, T minDuration) throws TimeLineException {
+        if (time == null || minDuration == null) {
+            throw new TimeLineException("Time and minimum duration cannot be null");
+        }
+
+        globalLock.lock();
+        try {
+            expireIncrementally();
+            TimeCalculator<T> calculator = resolveTimeCalculator(time);
+            T candidate = time;
+            while (true) {
+                Map.Entry<T, T> floor = coverageIndex.floorEntry(candidate);
+                if (floor != null && compareTime(floor.getValue(), candidate) > 0) {
+                    // 候选时间被覆盖，移动到覆盖时间段结束处
+                    candidate = floor.getValue();
+                    continue;
+                }
+                T end = calculator.add(candidate, minDuration);
+                T blockedUntil = findRecurringConflictEnd(candidate, end);
+                if (blockedUntil != null) {
+                    candidate = blockedUntil;
+                    continue;
+                }
+                Map.Entry<T, T> next = coverageIndex.higherEntry(candidate);
+                if (next == null || compareTime(end, next.getKey()) <= 0) {
+                    T slotEnd = next != null ? next.getKey() : null;
+                    T recurringStart = findNextRecurringStart(candidate);
+                    if (recurringStart != null && (slotEnd == null || compareTime(recurringStart, slotEnd) < 0)) {
+                        slotEnd = recurringStart;
+                    }
+                    return new TimeSlot<>(candidate, slotEnd);
+                }
+                candidate = next.getValue();
+            }
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 查找与时间段重叠的重复事件发生，调用方需持有全局锁
+     * @param from 时间段开始时间
+     * @param to 时间段结束时间
+     * @return 第一个重叠发生的结束时间，不存在时返回null
+     */
+    private T findRecurringConflictEnd(T from, T to) {
+        for (RecurringEvent<T> series : recurringEvents) {
+            T end = series.findOverlappingOccurrenceEnd(from, to, recurringCalculator);
+            if (end != null) {
+                return end;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 查找各重复事件中第一次开始时间不早于指定时间的发生，调用方需持有全局锁
+     * @param time 时间
+     * @return 最早的发生开始时间，不存在时返回null
+     */
+    private T findNextRecurringStart(T time) {
+        T next = null;
+        for (RecurringEvent<T> series : recurringEvents) {
+            T start = series.findNextOccurrenceStart(time, recurringCalculator);
+            if (start != null && (next == null || compareTime(start, next) < 0)) {
+                next = start;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * 按固定长度切分时间段，统计每个时间段内的事件数量
+     * 每个时间段的统计只需访问一次聚合索引，不需要逐个扫描事件；重复事件的发生不计入统计
+     * @param from 开始时间
+     * @param to 结束时间，最后一个时间段在此处截断
+     * @param bucketSize 时间段长度，与事件的持续时间使用相同的表示方式
+     * @return 每个时间段内与之有交集的事件数量（包括非活跃事件）
+     * @throws TimeLineException 当参数不合法或时间类型不支持数值转换时抛出异常
+     */
+    public List<Long> countPerBucket(T from, T to, T bucketSize) throws TimeLineException {
+        if (from == null || to == null || bucketSize == null) {
+            throw new TimeLineException("Start time, end time and bucket size cannot be null");
+        }
+        globalLock.lock();
+        try {
+            return getAggregateIndex(from).countPerBucket(from, to, bucketSize);
+        } catch (IllegalArgumentException | UnsupportedOperationException e) {
+            throw new TimeLineException("Cannot aggregate events: " + e.getMessage());
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 按固定长度切分时间段，统计每个时间段内事件的占用时长之和
+     * @param from 开始时间
+     * @param to 结束时间，最后一个时间段在此处截断
+     * @param bucketSize 时间段长度，与事件的持续时间使用相同的表示方式
+     * @return 每个时间段内以持续时间表示的占用时长（包括非活跃事件）
+     * @throws TimeLineException 当参数不合法或时间类型不支持数值转换时抛出异常
+     */
+    public List<T> busyTimePerBucket(T from, T to, T bucketSize) throws TimeLineException {
+        if (from == null || to == null || bucketSize == null) {
+            throw new TimeLineException("Start time, end time and bucket size cannot be null");
+        }
+        globalLock.lock();
+        try {
+            return getAggregateIndex(from).busyTimePerBucket(from, to, bucketSize);
+        } catch (IllegalArgumentException | UnsupportedOperationException e) {
+            throw new TimeLineException("Cannot aggregate events: " + e.getMessage());
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 统计事件在时间段[start, end)内的占用时长之和
+     * @param start 开始时间
+     * @param end 结束时间
+     * @return 以持续时间表示的占用时长（包括非活跃事件）
+     * @throws TimeLineException 当参数不合法或时间类型不支持数值转换时抛出异常
+     */
+    public T sumOver(T start, T end) throws TimeLineException {
+        if (start == null || end == null) {
+            throw new TimeLineException("Start time and end time cannot be null");
+        }
+        if (compareTime(start, end) > 0) {
+            throw new TimeLineException("Start time cannot be after end time");
+        }
+        globalLock.lock();
+        try {
+            return getAggregateIndex(start).busyTime(start, end);
+        } catch (IllegalArgumentException | UnsupportedOperationException e) {
+            throw new TimeLineException("Cannot aggregate events: " + e.getMessage());
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取聚合索引，第一次调用时根据现有事件建立，调用方需持有全局锁
+     * @param sample 用于推断时间计算器的时间值
+     * @return 聚合索引
+     * @throws TimeLineException 当无法获得时间计算器时抛出异常
+     */
+    private TimeAggregateIndex<T> getAggregateIndex(T sample) throws TimeLineException {
+        if (aggregateIndex == null) {
+            TimeAggregateIndex<T> index = new TimeAggregateIndex<>(resolveTimeCalculator(sample));
+            for (Event<T> event : events) {
+                index.add(event);
+            }
+            aggregateIndex = index;
+        }
+        return aggregateIndex;
+    }
+
+    /**
+     * 立即处理所有已经过期的事件
+     * @return 本次处理的过期事件数量
+     * @throws TimeLineException 当未设置过期策略时抛出异常
+     */
+    public int expireEvents() throws TimeLineException {
+        globalLock.lock();
+        try {
+            if (expiryPolicy == null) {
+                throw new TimeLineException("Expiry policy is not set. " +
+                        "Please set an ExpiryPolicy using setExpiryPolicy method.");
+            }
+            return expireBatch(Integer.MAX_VALUE);
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取冷存储中的所有事件
+     * @return 被过期策略移出时间线的事件列表
+     */
+    public List<Event<T>> getArchivedEvents() {
+        globalLock.lock();
+        try {
+            return new ArrayList<>(archivedEvents);
         } finally {
             globalLock.unlock();
         }
     }
+
+    /**
+     * 在启用过期策略时处理一个批次的过期事件，调用方需持有全局锁
+     */
+    private void expireIncrementally() {
+        if (expiryPolicy != null) {
+            expireBatch(expiryPolicy.getBatchSize());
+        }
+    }
+
+    /**
+     * DEACTIVATE模式下，结束时间不晚于水位线的新事件不会再被增量过期处理，直接视为过期，调用方需持有全局锁
+     * @param event 刚加入时间线的事件
+     */
+    private void deactivateIfExpired(Event<T> event) {
+        if (expiryPolicy != null && expiryPolicy.getMode() == ExpiryPolicy.Mode.DEACTIVATE
+                && expiryWatermark != null && compareTime(event.getEnd(), expiryWatermark) <= 0) {
+            event.deactivate();
+        }
+    }
+
+    /**
+     * 沿结束时间索引处理结束时间早于当前时间的事件，调用方需持有全局锁
+     * 同一结束时间上的事件总是在同一批次内处理
+     * @param limit 本批次最多处理的事件数量
+     * @return 实际处理的事件数量
+     */
+    private int expireBatch(int limit) {
+        T now = expiryPolicy.getTimeSource().now();
+        if (now == null) {
+            return 0;
+        }
+
+        if (expiryPolicy.getMode() == ExpiryPolicy.Mode.ARCHIVE) {
+            // 过期事件会被移出索引，因此每次都从索引头部开始即可
+            List<Event<T>> expired = new ArrayList<>();
+            for (List<Event<T>> bucket : endTimeIndex.headMap(now, false).values()) {
+                if (expired.size() >= limit) {
+                    break;
+                }
+                expired.addAll(bucket);
+            }
+            if (expired.isEmpty()) {
+                return 0;
+            }
+
+            // 按对象身份从事件列表中移除，开销与批次大小成正比
+            events.removeInstances(expired);
+            for (Event<T> event : expired) {
+                unindexEvent(event);
+                event.deactivate();
+                archivedEvents.add(event);
+            }
+            return expired.size();
+        }
+
+        // DEACTIVATE模式下事件仍留在索引中，从水位线之后继续处理
+        if (expiryWatermark != null && compareTime(expiryWatermark, now) >= 0) {
+            return 0;
+        }
+        NavigableMap<T, List<Event<T>>> pending = expiryWatermark == null
+                ? endTimeIndex.headMap(now, false)
+                : endTimeIndex.subMap(expiryWatermark, false, now, false);
+        int count = 0;
+        for (Map.Entry<T, List<Event<T>>> entry : pending.entrySet()) {
+            if (count >= limit) {
+                break;
+            }
+            for (Event<T> event : entry.getValue()) {
+                event.deactivate();
+                markDirty(event);
+            }
+            expiryWatermark = entry.getKey();
+            count += entry.getValue().size();
+        }
+        return count;
+    }
 }
\ No newline at end of file
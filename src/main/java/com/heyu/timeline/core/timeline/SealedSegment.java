@@ -0,0 +1,298 @@
+package com.heyu.timeline.core.timeline;
+
+import com.heyu.timeline.calculator.TimeCalculator;
+import com.heyu.timeline.core.model.Event;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 不可变的压缩事件段，事件按开始时间排列并按块编码
+ * 每块的第一个开始时间以zigzag变长整数保存，其余开始时间保存与前一个的差值，
+ * 结束时间保存为与开始时间的差值，主体保存为段内字典的句柄，最低位表示是否活跃，全部使用变长整数编码
+ * 每块在跳跃索引中记录第一个开始时间、最晚的结束时间和数据偏移，查询时可以整块跳过；
+ * 另外保存最晚结束时间的前缀最大值，查询时用二分查找同时确定第一个可能重叠的块和第一个开始时间过晚的块
+ * 只保存开始时间、结束时间、主体和活跃状态
+ * @param <T> 时间类型
+ */
+public final class SealedSegment<T> {
+
+    /**
+     * 每块包含的事件数量
+     */
+    public static final int BLOCK_SIZE = 128;
+
+    private final TimeCalculator<T> timeCalculator;
+
+    // 编码后的数据
+    private final byte[] data;
+
+    // 跳跃索引：每块的第一个开始时间、最晚的结束时间和数据偏移
+    private final long[] blockFirstStarts;
+    private final long[] blockMaxEnds;
+    private final int[] blockOffsets;
+
+    // 第0块到第i块中最晚的结束时间，单调不减，不写入输出流，读取时重新计算
+    private final long[] prefixMaxEnds;
+
+    // 段内主体字典
+    private final Object[] subjects;
+
+    private final int size;
+
+    private SealedSegment(TimeCalculator<T> timeCalculator, byte[] data, long[] blockFirstStarts,
+                          long[] blockMaxEnds, int[] blockOffsets, Object[] subjects, int size) {
+        this.timeCalculator = timeCalculator;
+        this.data = data;
+        this.blockFirstStarts = blockFirstStarts;
+        this.blockMaxEnds = blockMaxEnds;
+        this.blockOffsets = blockOffsets;
+        this.subjects = subjects;
+        this.size = size;
+        this.prefixMaxEnds = new long[blockMaxEnds.length];
+        long maxEnd = Long.MIN_VALUE;
+        for (int block = 0; block < blockMaxEnds.length; block++) {
+            maxEnd = Math.max(maxEnd, blockMaxEnds[block]);
+            prefixMaxEnds[block] = maxEnd;
+        }
+    }
+
+    /**
+     * 将按开始时间排列的事件编码为一个段
+     * @param events 按开始时间排列的事件，必须都有开始时间和结束时间
+     * @param timeCalculator 支持数值转换的时间计算器
+     * @param <T> 时间类型
+     * @return 新的段
+     */
+    static <T> SealedSegment<T> encode(List<Event<T>> events, TimeCalculator<T> timeCalculator) {
+        int blocks = (events.size() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        long[] blockFirstStarts = new long[blocks];
+        long[] blockMaxEnds = new long[blocks];
+        int[] blockOffsets = new int[blocks];
+        Map<Object, Integer> handles = new HashMap<>();
+        List<Object> subjects = new ArrayList<>();
+        Encoder encoder = new Encoder(Math.max(16, events.size() * 4));
+
+        long previous = 0;
+        for (int i = 0; i < events.size(); i++) {
+            Event<T> event = events.get(i);
+            long start = timeCalculator.toLong(event.getStart());
+            long end = timeCalculator.toLong(event.getEnd());
+            int block = i / BLOCK_SIZE;
+            if (i % BLOCK_SIZE == 0) {
+                blockFirstStarts[block] = start;
+                blockMaxEnds[block] = end;
+                blockOffsets[block] = encoder.size;
+                encoder.writeVarLong((start << 1) ^ (start >> 63));
+            } else {
+                encoder.writeVarLong(start - previous);
+                blockMaxEnds[block] = Math.max(blockMaxEnds[block], end);
+            }
+            previous = start;
+            encoder.writeVarLong(end - start);
+
+            Integer handle = handles.get(event.getSubject());
+            if (handle == null) {
+                handle = subjects.size();
+                subjects.add(event.getSubject());
+                handles.put(event.getSubject(), handle);
+            }
+            encoder.writeVarLong(((long) handle << 1) | (event.isActive() ? 0 : 1));
+        }
+        return new SealedSegment<>(timeCalculator, Arrays.copyOf(encoder.bytes, encoder.size), blockFirstStarts,
+                blockMaxEnds, blockOffsets, subjects.toArray(), events.size());
+    }
+
+    /**
+     * 收集与时间段有重叠的活跃事件，首尾相接也视为重叠
+     * @param from 开始时间的数值表示
+     * @param to 结束时间的数值表示
+     * @param result 收集结果的列表
+     */
+    void collect(long from, long to, List<Event<T>> result) {
+        // 前缀最大值小于from的块及其之前的块都不可能重叠，第一个开始时间晚于to的块及其之后的块也不可能重叠
+        int first = firstBlockEndingFrom(from);
+        int last = firstBlockStartingAfter(to);
+        for (int block = first; block < last; block++) {
+            if (blockMaxEnds[block] < from) {
+                continue;
+            }
+            int[] position = {blockOffsets[block]};
+            int rows = Math.min(BLOCK_SIZE, size - block * BLOCK_SIZE);
+            long start = 0;
+            for (int row = 0; row < rows; row++) {
+                if (row == 0) {
+                    long zigzag = readVarLong(position);
+                    start = (zigzag >>> 1) ^ -(zigzag & 1);
+                } else {
+                    start += readVarLong(position);
+                }
+                if (start > to) {
+                    break;
+                }
+                long end = start + readVarLong(position);
+                long subject = readVarLong(position);
+                if (end >= from && (subject & 1) == 0) {
+                    result.add(new Event<>(timeCalculator.fromLong(start), timeCalculator.fromLong(end),
+                            subjects[(int) (subject >>> 1)]));
+                }
+            }
+        }
+    }
+
+    /**
+     * 第一个前缀最大结束时间不早于给定值的块
+     */
+    private int firstBlockEndingFrom(long from) {
+        int lo = 0;
+        int hi = prefixMaxEnds.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (prefixMaxEnds[mid] < from) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * 第一个开始时间晚于给定值的块
+     */
+    private int firstBlockStartingAfter(long to) {
+        int lo = 0;
+        int hi = blockFirstStarts.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (blockFirstStarts[mid] <= to) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * 将段写入输出流，主体字典使用Java序列化
+     * @param out 输出流
+     * @throws IOException 当写入失败或主体不能序列化时抛出异常
+     */
+    void writeTo(ObjectOutputStream out) throws IOException {
+        out.writeInt(size);
+        out.writeInt(blockFirstStarts.length);
+        for (int block = 0; block < blockFirstStarts.length; block++) {
+            out.writeLong(blockFirstStarts[block]);
+            out.writeLong(blockMaxEnds[block]);
+            out.writeInt(blockOffsets[block]);
+        }
+        out.writeInt(data.length);
+        out.write(data);
+        out.writeObject(subjects);
+    }
+
+    /**
+     * 从输入流读取由writeTo写入的段
+     * @param in 输入流
+     * @param timeCalculator 支持数值转换的时间计算器
+     * @param <T> 时间类型
+     * @return 读取的段
+     * @throws IOException 当读取失败或数据损坏时抛出异常
+     */
+    static <T> SealedSegment<T> readFrom(ObjectInputStream in, TimeCalculator<T> timeCalculator) throws IOException {
+        int size = in.readInt();
+        int blocks = in.readInt();
+        long[] blockFirstStarts = new long[blocks];
+        long[] blockMaxEnds = new long[blocks];
+        int[] blockOffsets = new int[blocks];
+        for (int block = 0; block < blocks; block++) {
+            blockFirstStarts[block] = in.readLong();
+            blockMaxEnds[block] = in.readLong();
+            blockOffsets[block] = in.readInt();
+        }
+        byte[] data = new byte[in.readInt()];
+        in.readFully(data);
+        try {
+            Object[] subjects = (Object[]) in.readObject();
+            return new SealedSegment<>(timeCalculator, data, blockFirstStarts, blockMaxEnds, blockOffsets, subjects,
+                    size);
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Corrupted segment subjects", e);
+        }
+    }
+
+    /**
+     * 获取段中最早的开始时间，段为空时返回Long.MAX_VALUE
+     * @return 开始时间的数值表示
+     */
+    long getFirstStart() {
+        return blockFirstStarts.length == 0 ? Long.MAX_VALUE : blockFirstStarts[0];
+    }
+
+    /**
+     * 获取段中最晚的结束时间，段为空时返回Long.MIN_VALUE
+     * @return 结束时间的数值表示
+     */
+    long getMaxEnd() {
+        return prefixMaxEnds.length == 0 ? Long.MIN_VALUE : prefixMaxEnds[prefixMaxEnds.length - 1];
+    }
+
+    /**
+     * 获取段中的事件数量
+     * @return 事件数量
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 获取段占用的大致字节数，包括编码数据、跳跃索引和前缀最大值，不包括主体对象本身
+     * @return 字节数
+     */
+    public long getEncodedBytes() {
+        return data.length + blockFirstStarts.length * 28L + subjects.length * 8L;
+    }
+
+    private long readVarLong(int[] position) {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            byte b = data[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+
+    /**
+     * 可增长的变长整数编码缓冲区
+     */
+    private static final class Encoder {
+        private byte[] bytes;
+        private int size;
+
+        private Encoder(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        private void writeVarLong(long value) {
+            if (size + 10 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2 + 10);
+            }
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+    }
+}
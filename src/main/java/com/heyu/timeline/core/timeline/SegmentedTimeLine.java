@@ -0,0 +1,255 @@
+package com.heyu.timeline.core.timeline;
+
+import com.heyu.timeline.calculator.TimeCalculator;
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.core.model.RecurringEvent;
+import com.heyu.timeline.exception.TimeLineException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 由可变头部和不可变压缩段组成的时间线，允许事件重叠
+ * 新事件写入作为头部的可重叠时间线；调用seal之后，在截止时间之前已经结束的事件被移出头部，编码为一个压缩段，
+ * 查询同时覆盖头部和所有压缩段，对调用方透明
+ * 压缩段中的事件不可修改，也只保存开始时间、结束时间、主体和活跃状态
+ * @param <T> 时间类型
+ */
+public class SegmentedTimeLine<T> {
+
+    // 时间与长整数之间的转换
+    private final TimeCalculator<T> timeCalculator;
+
+    // 可变头部
+    private OverlappingTimeLine<T> head;
+
+    // 压缩段，按封存顺序排列
+    private final List<SealedSegment<T>> segments = new ArrayList<>();
+
+    // 头部和压缩段中的事件数量，避免计数时复制头部的事件列表
+    private int headSize;
+    private int sealedSize;
+
+    // 全局锁，保护头部的替换和压缩段列表
+    private final Lock globalLock = new ReentrantLock();
+
+    /**
+     * 创建时间线
+     * @param timeCalculator 支持数值转换的时间计算器
+     */
+    public SegmentedTimeLine(TimeCalculator<T> timeCalculator) {
+        if (timeCalculator == null) {
+            throw new IllegalArgumentException("TimeCalculator cannot be null");
+        }
+        this.timeCalculator = timeCalculator;
+        this.head = new OverlappingTimeLine<>(timeCalculator);
+    }
+
+    /**
+     * 向头部添加事件
+     * @param event 要添加的事件
+     * @throws TimeLineException 当事件为null、缺少开始或结束时间或是重复事件时抛出异常
+     */
+    public void addEvent(Event<T> event) throws TimeLineException {
+        if (event == null) {
+            throw new TimeLineException("Cannot add null event to timeline");
+        }
+        if (event.getStart() == null || event.getEnd() == null) {
+            throw new TimeLineException("Segmented timeline requires events with start and end time");
+        }
+        if (event instanceof RecurringEvent) {
+            throw new TimeLineException("Segmented timeline does not support recurring events");
+        }
+        globalLock.lock();
+        try {
+            head.addEvent(event);
+            headSize++;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 从头部删除事件，已经封存的事件不能删除
+     * @param event 要删除的事件
+     * @return 如果成功删除返回true，否则返回false
+     * @throws TimeLineException 当事件为null时抛出异常
+     */
+    public boolean removeEvent(Event<T> event) throws TimeLineException {
+        globalLock.lock();
+        try {
+            if (!head.removeEvent(event)) {
+                return false;
+            }
+            headSize--;
+            return true;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 将头部中在截止时间之前已经结束的事件封存为一个压缩段
+     * 头部中剩余的事件按已有的顺序线性装载到新的头部
+     * @param cutoff 截止时间
+     * @return 被封存的事件数量
+     * @throws TimeLineException 当截止时间为null时抛出异常
+     */
+    public int seal(T cutoff) throws TimeLineException {
+        if (cutoff == null) {
+            throw new TimeLineException("Cutoff time cannot be null");
+        }
+        long limit = timeCalculator.toLong(cutoff);
+
+        globalLock.lock();
+        try {
+            List<Event<T>> sealed = new ArrayList<>();
+            List<Event<T>> remainingByStart = new ArrayList<>();
+            for (Event<T> event : head.getEventsInStartOrder()) {
+                if (timeCalculator.toLong(event.getEnd()) < limit) {
+                    sealed.add(event);
+                } else {
+                    remainingByStart.add(event);
+                }
+            }
+            if (sealed.isEmpty()) {
+                return 0;
+            }
+            List<Event<T>> remainingByEnd = new ArrayList<>(remainingByStart.size());
+            for (Event<T> event : head.getEventsInEndOrder()) {
+                if (timeCalculator.toLong(event.getEnd()) >= limit) {
+                    remainingByEnd.add(event);
+                }
+            }
+
+            OverlappingTimeLine<T> newHead = new OverlappingTimeLine<>(timeCalculator);
+            newHead.loadSorted(remainingByStart, remainingByEnd);
+            segments.add(SealedSegment.encode(sealed, timeCalculator));
+            head = newHead;
+            headSize = remainingByStart.size();
+            sealedSize += sealed.size();
+            return sealed.size();
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取包含某个时间点的活跃事件
+     * @param time 时间点
+     * @return 事件列表，按开始时间排列
+     * @throws TimeLineException 当时间为null时抛出异常
+     */
+    public List<Event<T>> getEventsAt(T time) throws TimeLineException {
+        return getEventsBetween(time, time);
+    }
+
+    /**
+     * 获取与时间段有重叠的活跃事件，首尾相接也视为重叠，结果同时包括头部和压缩段中的事件
+     * @param start 开始时间
+     * @param end 结束时间
+     * @return 事件列表，按开始时间排列
+     * @throws TimeLineException 当时间为null或开始时间晚于结束时间时抛出异常
+     */
+    public List<Event<T>> getEventsBetween(T start, T end) throws TimeLineException {
+        if (start == null || end == null) {
+            throw new TimeLineException("Start time and end time cannot be null");
+        }
+        long from = timeCalculator.toLong(start);
+        long to = timeCalculator.toLong(end);
+        if (from > to) {
+            throw new TimeLineException("Start time cannot be after end time");
+        }
+
+        globalLock.lock();
+        try {
+            List<Event<T>> result = new ArrayList<>();
+            for (SealedSegment<T> segment : segments) {
+                segment.collect(from, to, result);
+            }
+            result.addAll(head.getEventsBetween(start, end));
+            if (!segments.isEmpty()) {
+                Collections.sort(result, Comparator.comparingLong(event -> timeCalculator.toLong(event.getStart())));
+            }
+            return result;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取事件总数，包括头部和压缩段
+     * @return 事件数量
+     */
+    public int size() {
+        globalLock.lock();
+        try {
+            return headSize + sealedSize;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取头部中的事件数量
+     * @return 事件数量
+     */
+    public int getHeadSize() {
+        globalLock.lock();
+        try {
+            return headSize;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取所有压缩段编码后占用的大致字节数
+     * @return 字节数
+     */
+    public long getSealedBytes() {
+        globalLock.lock();
+        try {
+            long bytes = 0;
+            for (SealedSegment<T> segment : segments) {
+                bytes += segment.getEncodedBytes();
+            }
+            return bytes;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 取出所有压缩段，取出后时间线只剩头部
+     * @return 按封存顺序排列的压缩段
+     */
+    List<SealedSegment<T>> takeSegments() {
+        globalLock.lock();
+        try {
+            List<SealedSegment<T>> taken = new ArrayList<>(segments);
+            segments.clear();
+            sealedSize = 0;
+            return taken;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取压缩段
+     * @return 压缩段列表
+     */
+    public List<SealedSegment<T>> getSegments() {
+        globalLock.lock();
+        try {
+            return Collections.unmodifiableList(new ArrayList<>(segments));
+        } finally {
+            globalLock.unlock();
+        }
+    }
+}
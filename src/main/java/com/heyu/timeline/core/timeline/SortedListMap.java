@@ -0,0 +1,83 @@
+package com.heyu.timeline.core.timeline;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedMap;
+
+/**
+ * 以已经按键排好序的列表为底层的只读有序映射
+ * 仅用于向空的TreeMap批量装载数据：TreeMap.putAll在参数是比较器相同的SortedMap时按顺序线性建树，
+ * 因此只需要提供comparator、size和entrySet，其余的有序视图操作均不支持
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+final class SortedListMap<K, V> extends AbstractMap<K, V> implements SortedMap<K, V> {
+
+    private final List<Entry<K, V>> entries;
+
+    private final Comparator<? super K> comparator;
+
+    /**
+     * 构造函数
+     * @param entries 按键严格递增排列的条目
+     * @param comparator 与目标TreeMap相同的比较器
+     */
+    SortedListMap(List<Entry<K, V>> entries, Comparator<? super K> comparator) {
+        this.entries = entries;
+        this.comparator = comparator;
+    }
+
+    @Override
+    public Comparator<? super K> comparator() {
+        return comparator;
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return entries.iterator();
+            }
+
+            @Override
+            public int size() {
+                return entries.size();
+            }
+        };
+    }
+
+    @Override
+    public K firstKey() {
+        return entries.get(0).getKey();
+    }
+
+    @Override
+    public K lastKey() {
+        return entries.get(entries.size() - 1).getKey();
+    }
+
+    @Override
+    public SortedMap<K, V> subMap(K fromKey, K toKey) {
+        throw new UnsupportedOperationException("Sorted views are not supported");
+    }
+
+    @Override
+    public SortedMap<K, V> headMap(K toKey) {
+        throw new UnsupportedOperationException("Sorted views are not supported");
+    }
+
+    @Override
+    public SortedMap<K, V> tailMap(K fromKey) {
+        throw new UnsupportedOperationException("Sorted views are not supported");
+    }
+}
@@ -0,0 +1,413 @@
+package com.heyu.timeline.core.timeline;
+
+import com.heyu.timeline.calculator.TimeCalculator;
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.exception.TimeLineException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 分层存储的时间线，允许事件重叠
+ * 较新的事件保存在内存中的热层；调用spill之后，结束时间早于给定年龄的事件被编码为压缩段写入本地文件，
+ * 内存中只保留每个冷段的文件路径和时间范围索引，查询涉及冷段时再从磁盘按需装载
+ * 最近读取过的冷段保存在按最近使用顺序淘汰的缓存中，缓存占用的字节数不超过设定的上限；读取磁盘时不持有全局锁
+ * 冷段文件使用唯一的文件名，多个时间线可以共用一个目录；关闭时间线时删除它写入的所有冷段文件
+ * 冷段中的事件不可修改，也只保存开始时间、结束时间、主体和活跃状态；主体需要可以序列化
+ * @param <T> 时间类型
+ */
+public class TieredTimeLine<T> implements AutoCloseable {
+
+    /**
+     * 默认的冷段缓存大小，单位为字节
+     */
+    public static final long DEFAULT_CACHE_BYTES = 16L * 1024 * 1024;
+
+    /**
+     * 冷段的索引项
+     */
+    private static final class ColdSegment<T> {
+        // 冷段文件，写入失败时为null
+        private final Path file;
+        // 写入失败时留在内存中的段
+        private final SealedSegment<T> pinned;
+        // 段内最早的开始时间和最晚的结束时间
+        private final long firstStart;
+        private final long maxEnd;
+        private final int size;
+
+        private ColdSegment(Path file, SealedSegment<T> segment) {
+            this.file = file;
+            this.pinned = file == null ? segment : null;
+            this.firstStart = segment.getFirstStart();
+            this.maxEnd = segment.getMaxEnd();
+            this.size = segment.size();
+        }
+    }
+
+    // 时间与长整数之间的转换
+    private final TimeCalculator<T> timeCalculator;
+
+    // 热层
+    private final SegmentedTimeLine<T> hot;
+
+    // 冷段文件所在的目录
+    private final Path directory;
+
+    // 超过这个年龄的事件会被写入冷段
+    private final T maxAge;
+
+    // 冷段缓存的字节数上限
+    private final long maxCacheBytes;
+
+    // 冷段索引，按写入顺序排列
+    private final List<ColdSegment<T>> coldSegments = new ArrayList<>();
+
+    // 最近读取过的冷段，按访问顺序排列
+    private final LinkedHashMap<ColdSegment<T>, SealedSegment<T>> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    // 缓存占用的字节数
+    private long cachedBytes;
+
+    // 从磁盘装载冷段的次数
+    private long segmentLoads;
+
+    // 是否已经关闭
+    private volatile boolean closed;
+
+    // 全局锁
+    private final Lock globalLock = new ReentrantLock();
+
+    /**
+     * 使用默认的缓存大小创建时间线
+     * @param timeCalculator 支持数值转换的时间计算器
+     * @param directory 冷段文件所在的目录，不存在时会在第一次写入时创建
+     * @param maxAge 事件结束后在热层中保留的时长
+     */
+    public TieredTimeLine(TimeCalculator<T> timeCalculator, Path directory, T maxAge) {
+        this(timeCalculator, directory, maxAge, DEFAULT_CACHE_BYTES);
+    }
+
+    /**
+     * 创建时间线
+     * @param timeCalculator 支持数值转换的时间计算器
+     * @param directory 冷段文件所在的目录，不存在时会在第一次写入时创建
+     * @param maxAge 事件结束后在热层中保留的时长
+     * @param maxCacheBytes 冷段缓存的字节数上限，为0时不缓存
+     */
+    public TieredTimeLine(TimeCalculator<T> timeCalculator, Path directory, T maxAge, long maxCacheBytes) {
+        if (timeCalculator == null) {
+            throw new IllegalArgumentException("TimeCalculator cannot be null");
+        }
+        if (directory == null) {
+            throw new IllegalArgumentException("Segment directory cannot be null");
+        }
+        if (maxAge == null) {
+            throw new IllegalArgumentException("Maximum age cannot be null");
+        }
+        if (maxCacheBytes < 0) {
+            throw new IllegalArgumentException("Cache size cannot be negative");
+        }
+        this.timeCalculator = timeCalculator;
+        this.hot = new SegmentedTimeLine<>(timeCalculator);
+        this.directory = directory;
+        this.maxAge = maxAge;
+        this.maxCacheBytes = maxCacheBytes;
+    }
+
+    /**
+     * 向热层添加事件
+     * @param event 要添加的事件
+     * @throws TimeLineException 当事件为null、缺少开始或结束时间或是重复事件时抛出异常
+     */
+    public void addEvent(Event<T> event) throws TimeLineException {
+        checkOpen();
+        hot.addEvent(event);
+    }
+
+    /**
+     * 从热层删除事件，已经写入冷段的事件不能删除
+     * @param event 要删除的事件
+     * @return 如果成功删除返回true，否则返回false
+     * @throws TimeLineException 当事件为null时抛出异常
+     */
+    public boolean removeEvent(Event<T> event) throws TimeLineException {
+        checkOpen();
+        return hot.removeEvent(event);
+    }
+
+    /**
+     * 将结束时间早于当前时间减去最大年龄的事件写入一个新的冷段文件
+     * 写入失败的段留在内存中，其余的段照常写入，查询结果不受影响
+     * @param now 当前时间
+     * @return 写入冷段的事件数量
+     * @throws TimeLineException 当时间为null、时间线已关闭或有段写入文件失败时抛出异常
+     */
+    public int spill(T now) throws TimeLineException {
+        if (now == null) {
+            throw new TimeLineException("Current time cannot be null");
+        }
+        T cutoff = timeCalculator.subtract(now, maxAge);
+
+        globalLock.lock();
+        try {
+            checkOpen();
+            hot.seal(cutoff);
+            int spilled = 0;
+            IOException failure = null;
+            for (SealedSegment<T> segment : hot.takeSegments()) {
+                Path file = null;
+                try {
+                    Files.createDirectories(directory);
+                    file = Files.createTempFile(directory, "segment-", ".seg");
+                    try (ObjectOutputStream out = new ObjectOutputStream(
+                            new BufferedOutputStream(Files.newOutputStream(file)))) {
+                        segment.writeTo(out);
+                    }
+                } catch (IOException e) {
+                    coldSegments.add(new ColdSegment<>(null, segment));
+                    deleteQuietly(file);
+                    if (failure == null) {
+                        failure = e;
+                    }
+                    continue;
+                }
+                coldSegments.add(new ColdSegment<>(file, segment));
+                spilled += segment.size();
+            }
+            if (failure != null) {
+                throw new TimeLineException("Failed to write cold segment, segment kept in memory", failure);
+            }
+            return spilled;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取包含某个时间点的活跃事件
+     * @param time 时间点
+     * @return 事件列表，按开始时间排列
+     * @throws TimeLineException 当时间为null或读取冷段失败时抛出异常
+     */
+    public List<Event<T>> getEventsAt(T time) throws TimeLineException {
+        return getEventsBetween(time, time);
+    }
+
+    /**
+     * 获取与时间段有重叠的活跃事件，首尾相接也视为重叠
+     * 只有时间范围与查询重叠的冷段才会被装载；热层和冷段索引在全局锁内一次读取，磁盘读取在锁外进行
+     * @param start 开始时间
+     * @param end 结束时间
+     * @return 事件列表，按开始时间排列
+     * @throws TimeLineException 当时间为null、开始时间晚于结束时间、时间线已关闭或读取冷段失败时抛出异常
+     */
+    public List<Event<T>> getEventsBetween(T start, T end) throws TimeLineException {
+        if (start == null || end == null) {
+            throw new TimeLineException("Start time and end time cannot be null");
+        }
+        long from = timeCalculator.toLong(start);
+        long to = timeCalculator.toLong(end);
+        if (from > to) {
+            throw new TimeLineException("Start time cannot be after end time");
+        }
+
+        List<Event<T>> result = new ArrayList<>();
+        List<ColdSegment<T>> missing = new ArrayList<>();
+        boolean touchedCold = false;
+        globalLock.lock();
+        try {
+            checkOpen();
+            for (ColdSegment<T> cold : coldSegments) {
+                if (cold.firstStart <= to && cold.maxEnd >= from) {
+                    touchedCold = true;
+                    SealedSegment<T> segment = cold.pinned != null ? cold.pinned : cache.get(cold);
+                    if (segment != null) {
+                        segment.collect(from, to, result);
+                    } else {
+                        missing.add(cold);
+                    }
+                }
+            }
+            result.addAll(hot.getEventsBetween(start, end));
+        } finally {
+            globalLock.unlock();
+        }
+
+        for (ColdSegment<T> cold : missing) {
+            SealedSegment<T> segment = read(cold);
+            segment.collect(from, to, result);
+            cache(cold, segment);
+        }
+        if (touchedCold) {
+            Collections.sort(result, Comparator.comparingLong(event -> timeCalculator.toLong(event.getStart())));
+        }
+        return result;
+    }
+
+    /**
+     * 获取事件总数，包括热层和冷段
+     * @return 事件数量
+     */
+    public int size() {
+        globalLock.lock();
+        try {
+            int size = hot.size();
+            for (ColdSegment<T> cold : coldSegments) {
+                size += cold.size;
+            }
+            return size;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取热层中的事件数量
+     * @return 事件数量
+     */
+    public int getHotSize() {
+        return hot.size();
+    }
+
+    /**
+     * 获取冷段数量
+     * @return 冷段数量
+     */
+    public int getColdSegmentCount() {
+        globalLock.lock();
+        try {
+            return coldSegments.size();
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取缓存中的冷段数量
+     * @return 冷段数量
+     */
+    public int getCachedSegmentCount() {
+        globalLock.lock();
+        try {
+            return cache.size();
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取缓存占用的大致字节数
+     * @return 字节数
+     */
+    public long getCachedBytes() {
+        globalLock.lock();
+        try {
+            return cachedBytes;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取从磁盘装载冷段的次数
+     * @return 装载次数
+     */
+    public long getSegmentLoads() {
+        globalLock.lock();
+        try {
+            return segmentLoads;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 关闭时间线，删除它写入的所有冷段文件并清空缓存，之后的读写操作都会抛出异常
+     * 删除失败的文件不再被引用，留给调用方清理
+     */
+    @Override
+    public void close() {
+        globalLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (ColdSegment<T> cold : coldSegments) {
+                deleteQuietly(cold.file);
+            }
+            coldSegments.clear();
+            cache.clear();
+            cachedBytes = 0;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 从磁盘读取冷段，不持有全局锁
+     */
+    private SealedSegment<T> read(ColdSegment<T> cold) throws TimeLineException {
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(cold.file)))) {
+            return SealedSegment.readFrom(in, timeCalculator);
+        } catch (IOException e) {
+            throw new TimeLineException("Failed to read cold segment " + cold.file, e);
+        }
+    }
+
+    /**
+     * 把从磁盘读取的冷段放入缓存，按最近使用顺序淘汰到不超过上限
+     * 单个冷段超过缓存上限时只用于本次查询
+     */
+    private void cache(ColdSegment<T> cold, SealedSegment<T> segment) {
+        globalLock.lock();
+        try {
+            segmentLoads++;
+            long bytes = segment.getEncodedBytes();
+            if (closed || cache.containsKey(cold) || bytes > maxCacheBytes) {
+                return;
+            }
+            Iterator<Map.Entry<ColdSegment<T>, SealedSegment<T>>> eldest = cache.entrySet().iterator();
+            while (cachedBytes + bytes > maxCacheBytes && eldest.hasNext()) {
+                cachedBytes -= eldest.next().getValue().getEncodedBytes();
+                eldest.remove();
+            }
+            cache.put(cold, segment);
+            cachedBytes += bytes;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    private void checkOpen() throws TimeLineException {
+        if (closed) {
+            throw new TimeLineException("Timeline has been closed");
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // 文件不再被引用
+        }
+    }
+}
@@ -1,24 +1,48 @@
 package com.heyu.timeline.core.timeline;
 
+import com.heyu.timeline.core.clock.ExpiryPolicy;
+import com.heyu.timeline.core.index.SubjectIndex;
+import com.heyu.timeline.core.index.TimeAggregateIndex;
+import com.heyu.timeline.core.model.AddResult;
 import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.core.model.Page;
+import com.heyu.timeline.core.model.PageCursor;
+import com.heyu.timeline.core.model.RecurringEvent;
+import com.heyu.timeline.core.model.TimeSlot;
+import com.heyu.timeline.core.model.TimelineBatch;
+import com.heyu.timeline.core.scheduler.ReservationConstraints;
+import com.heyu.timeline.core.scheduler.BatchPlanner;
+import com.heyu.timeline.core.scheduler.BatchPolicy;
+import com.heyu.timeline.core.scheduler.BatchScheduleResult;
+import com.heyu.timeline.core.strategy.ConflictContext;
 import com.heyu.timeline.core.strategy.EvictionStrategy;
 import com.heyu.timeline.exception.TimeLineException;
 import com.heyu.timeline.calculator.TimeCalculator;
+import com.heyu.timeline.calculator.TimeCalculatorFactory;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
- * 时间线类，事件不能重叠
+ * 时间线类，事件不能重叠（首尾相接的事件不视为重叠）
  * 如果有重叠事件，根据淘汰策略决定是插入到后续时间中还是直接抛弃
  * @param <T> 时间类型
  */
 public class TimeLine<T> implements TimelineStructure<T> {
     
+    /**
+     * 批量排程绕开重复事件时最多扩大展开范围的次数
+     * 每次扩大后都要重新展开重复事件并重新排程，范围每次至少延长一整批事件的总长度；
+     * 扩大这么多次仍然放不下，说明重复事件没有留下足够长的空闲时间段，继续扩大也不会收敛
+     */
+    private static final int MAX_HORIZON_EXTENSIONS = 32;
+    
     // 使用列表存储所有事件
-    private final List<Event<T>> events = new ArrayList<>();
+    private final EventList<T> events = new EventList<>();
     
     // 使用TreeMap按开始时间索引事件，支持同一时间点的多个事件
     private final TreeMap<T, Event<T>> startTimeIndex = new TreeMap<>(new Comparator<T>() {
@@ -59,12 +83,46 @@ public class TimeLine<T> implements TimelineStructure<T> {
     // 时间计算器，用于处理时间类型的加减运算
     private TimeCalculator<T> timeCalculator;
     
+    // 过期策略，为null时不自动处理过期事件
+    private ExpiryPolicy<T> expiryPolicy;
+    
+    // 冷存储，保存被过期策略移出的事件
+    private final List<Event<T>> archivedEvents = new ArrayList<>();
+    
+    // 已处理过期的结束时间水位线，仅在DEACTIVATE模式下使用
+    private T expiryWatermark;
+    
+    // 重复事件只保存一份，不进入开始时间和结束时间索引
+    private final List<RecurringEvent<T>> recurringEvents = new ArrayList<>();
+    
+    // 展开重复事件使用的时间计算器，在第一次加入重复事件时确定
+    private TimeCalculator<T> recurringCalculator;
+    
+    // 聚合索引，在第一次统计时建立，之后随开始时间和结束时间索引一起维护
+    private TimeAggregateIndex<T> aggregateIndex;
+    
+    // 事件主体的二级索引，为null时未启用
+    private SubjectIndex<T> subjectIndex;
+    
+    // 上一次生成的快照
+    private TimelineSnapshot<T> lastSnapshot;
+    
+    // 上一次生成快照之后发生过变化的开始时间，在第一次生成快照时创建
+    private NavigableSet<T> dirtyKeys;
+    
     /**
      * 设置时间计算器
      * @param timeCalculator 时间计算器
      */
     public void setTimeCalculator(TimeCalculator<T> timeCalculator) {
-        this.timeCalculator = timeCalculator;
+        globalLock.lock();
+        try {
+            this.timeCalculator = timeCalculator;
+            // 聚合索引依赖时间计算器的数值转换，需要重新建立
+            this.aggregateIndex = null;
+        } finally {
+            globalLock.unlock();
+        }
     }
     
     /**
@@ -86,84 +144,604 @@ public class TimeLine<T> implements TimelineStructure<T> {
         return evictionStrategy;
     }
     
+    /**
+     * 获取时间计算器
+     * @return 时间计算器，未设置时返回null
+     */
+    public TimeCalculator<T> getTimeCalculator() {
+        return timeCalculator;
+    }
+    
+    /**
+     * 设置过期策略，启用由时钟驱动的过期处理
+     * 启用后每次添加或查询事件时都会按批次处理已经结束的事件
+     * @param expiryPolicy 过期策略，为null时关闭过期处理
+     */
+    public void setExpiryPolicy(ExpiryPolicy<T> expiryPolicy) {
+        globalLock.lock();
+        try {
+            this.expiryPolicy = expiryPolicy;
+            this.expiryWatermark = null;
+            // 只有归档模式需要按身份批量移除事件
+            events.trackPositions(expiryPolicy != null && expiryPolicy.getMode() == ExpiryPolicy.Mode.ARCHIVE);
+        } finally {
+            globalLock.unlock();
+        }
+    }
+    
+    /**
+     * 获取当前过期策略
+     * @return 过期策略，未启用时返回null
+     */
+    public ExpiryPolicy<T> getExpiryPolicy() {
+        return expiryPolicy;
+    }
+    
     /**
      * 添加事件到时间线
      * @param event 要添加的事件
      * @throws TimeLineException 当事件为null或发生冲突时抛出异常
      */
     public void addEvent(Event<T> event) throws TimeLineException {
+        addEventWithResult(event);
+    }
+    
+    /**
+     * 添加事件到时间线，并返回冲突处理的结果
+     * 新事件的插入与淘汰策略要求的挤占、重新安排在同一次加锁中完成
+     * @param event 要添加的事件
+     * @return 添加结果，包含实际加入的事件以及被挤占的事件
+     * @throws TimeLineException 当事件为null或淘汰策略给出冲突的位置时抛出异常
+     */
+    public AddResult<T> addEventWithResult(Event<T> event) throws TimeLineException {
         if (event == null) {
             throw new TimeLineException("Cannot add null event to timeline");
         }
         
-        // 如果事件只有持续时间而没有明确的开始和结束时间，则寻找合适的时间段
-        if (event.hasOnlyDuration()) {
-            assignTimeSlot(event);
+        if (event instanceof RecurringEvent) {
+            return addRecurringEvent((RecurringEvent<T>) event);
         }
         
         globalLock.lock();
         try {
+            expireIncrementally();
+            
+            // 如果事件只有持续时间而没有明确的开始和结束时间，则寻找合适的时间段
+            // 分配与插入在同一次加锁中完成，避免并发添加的事件被分配到同一个间隙
+            if (event.hasOnlyDuration()) {
+                assignTimeSlot(event);
+            }
+            
             // 检查是否有重叠
+            TimeLineConflictContext context = null;
             if (hasOverlap(event)) {
-                // 根据淘汰策略处理冲突
-                Event<T> resolvedEvent = evictionStrategy.resolveConflict(event, new ArrayList<>(events));
+                // 根据淘汰策略处理冲突，策略只能看到冲突范围内的事件
+                context = new TimeLineConflictContext(event);
+                Event<T> resolvedEvent = evictionStrategy.resolveConflict(event, context);
                 if (resolvedEvent == null) {
                     // 事件被丢弃
-                    return;
-                } else {
-                    // 使用解决冲突后的事件
-                    event = resolvedEvent;
+                    return AddResult.rejected();
+                }
+                
+                // 使用解决冲突后的事件，并使策略要求的淘汰生效
+                event = resolvedEvent;
+                context.applyEvictions();
+                if (event.getStart() == null || event.getEnd() == null || hasOverlap(event)) {
+                    context.rollbackEvictions();
+                    throw new TimeLineException("Eviction strategy produced a conflicting placement for event: "
+                            + event.getSubject());
                 }
             }
             
             events.add(event);
+            indexEvent(event);
+            
+            deactivateIfExpired(event);
+            
+            if (context == null) {
+                return new AddResult<>(event, Collections.emptyList(), Collections.emptyList());
+            }
+            List<Event<T>> rescheduled = context.applyReschedules();
+            return new AddResult<>(event, context.getDisplaced(), rescheduled);
+        } finally {
+            globalLock.unlock();
+        }
+    }
+    
+    /**
+     * 添加重复事件，重复事件的发生不会被挤占，与现有事件冲突时直接丢弃
+     * 冲突检测只按周期计算发生的下标，不展开任何一次发生
+     * @param series 重复事件
+     * @return 添加结果
+     * @throws TimeLineException 当重复周期不是正数或缺少时间计算器时抛出异常
+     */
+    private AddResult<T> addRecurringEvent(RecurringEvent<T> series) throws TimeLineException {
+        globalLock.lock();
+        try {
+            TimeCalculator<T> calculator = recurringCalculator != null
+                    ? recurringCalculator : resolveTimeCalculator(series.getStart());
+            if (calculator.toLong(series.getRule().getPeriod()) <= 0) {
+                throw new TimeLineException("Recurrence period must be positive");
+            }
+            
+            for (RecurringEvent<T> existing : recurringEvents) {
+                if (series.overlaps(existing, calculator)) {
+                    return AddResult.rejected();
+                }
+            }
+            
+            // 只检查第一次发生开始之后、最后一次发生结束之前的普通事件
+            T lastEnd = series.getLastEnd(calculator);
+            Map.Entry<T, Event<T>> floor = startTimeIndex.floorEntry(series.getStart());
+            NavigableMap<T, Event<T>> window = startTimeIndex.tailMap(
+                    floor != null ? floor.getKey() : series.getStart(), true);
+            for (Event<T> existing : window.values()) {
+                if (lastEnd != null && compareTime(existing.getStart(), lastEnd) >= 0) {
+                    break;
+                }
+                if (series.findOverlappingOccurrenceEnd(existing.getStart(), existing.getEnd(), calculator) != null) {
+                    return AddResult.rejected();
+                }
+            }
             
-            // 为开始时间获取锁
-            Lock startLock = startLocks.computeIfAbsent(event.getStart(), k -> new ReentrantLock());
+            recurringCalculator = calculator;
+            recurringEvents.add(series);
+            return new AddResult<>(series, Collections.emptyList(), Collections.emptyList());
+        } finally {
+            globalLock.unlock();
+        }
+    }
+    
+    /**
+     * 查找与时间段重叠的重复事件发生，调用方需持有全局锁
+     * @param from 时间段开始时间
+     * @param to 时间段结束时间
+     * @return 第一个重叠发生的结束时间，不存在时返回null
+     */
+    private T findRecurringConflictEnd(T from, T to) {
+        for (RecurringEvent<T> series : recurringEvents) {
+            T end = series.findOverlappingOccurrenceEnd(from, to, recurringCalculator);
+            if (end != null) {
+                return end;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * 展开与时间段有交集的重复事件发生，调用方需持有全局锁
+     * @param from 时间段开始时间
+     * @param to 时间段结束时间
+     * @param result 结果列表
+     */
+    private void expandRecurringEvents(T from, T to, List<Event<T>> result) {
+        for (RecurringEvent<T> series : recurringEvents) {
+            if (series.isActive()) {
+                result.addAll(series.getOccurrencesBetween(from, to, recurringCalculator));
+            }
+        }
+    }
+    
+    /**
+     * 将事件加入开始时间和结束时间索引，调用方需持有全局锁
+     * @param event 要索引的事件
+     */
+    private void indexEvent(Event<T> event) {
+        // 为开始时间获取锁
+        Lock startLock = startLocks.computeIfAbsent(event.getStart(), k -> new ReentrantLock());
+        startLock.lock();
+        try {
+            // 按开始时间索引
+            startTimeIndex.put(event.getStart(), event);
+        } finally {
+            startLock.unlock();
+        }
+        
+        // 为结束时间获取锁
+        Lock endLock = endLocks.computeIfAbsent(event.getEnd(), k -> new ReentrantLock());
+        endLock.lock();
+        try {
+            // 按结束时间索引
+            endTimeIndex.put(event.getEnd(), event);
+        } finally {
+            endLock.unlock();
+        }
+    
+        if (aggregateIndex != null) {
+            aggregateIndex.add(event);
+        }
+        markDirty(event);
+        if (subjectIndex != null) {
+            subjectIndex.add(event);
+        }
+    }
+    
+    /**
+     * 将事件从开始时间和结束时间索引中移除，调用方需持有全局锁
+     * @param event 要移除索引的事件
+     */
+    private void unindexEvent(Event<T> event) {
+        // 从开始时间索引中移除
+        Lock startLock = startLocks.get(event.getStart());
+        if (startLock != null) {
             startLock.lock();
             try {
-                // 按开始时间索引
-                startTimeIndex.put(event.getStart(), event);
+                startTimeIndex.remove(event.getStart());
+                // 如果该时间点没有其他事件了，清理索引和锁
+                if (!startTimeIndex.containsKey(event.getStart())) {
+                    startLocks.remove(event.getStart());
+                }
             } finally {
                 startLock.unlock();
             }
-            
-            // 为结束时间获取锁
-            Lock endLock = endLocks.computeIfAbsent(event.getEnd(), k -> new ReentrantLock());
+        }
+        
+        // 从结束时间索引中移除
+        Lock endLock = endLocks.get(event.getEnd());
+        if (endLock != null) {
             endLock.lock();
             try {
-                // 按结束时间索引
-                endTimeIndex.put(event.getEnd(), event);
+                endTimeIndex.remove(event.getEnd());
+                // 如果该时间点没有其他事件了，清理索引和锁
+                if (!endTimeIndex.containsKey(event.getEnd())) {
+                    endLocks.remove(event.getEnd());
+                }
             } finally {
                 endLock.unlock();
             }
-        } finally {
-            globalLock.unlock();
         }
+    
+        if (aggregateIndex != null) {
+            aggregateIndex.remove(event);
+        }
+        markDirty(event);
+        if (subjectIndex != null) {
+            subjectIndex.remove(event);
+        }
+    }
+    
+    /**
+     * 比较两个时间，与索引使用相同的比较规则
+     * @param t1 时间1
+     * @param t2 时间2
+     * @return 比较结果
+     */
+    private int compareTime(T t1, T t2) {
+        return startTimeIndex.comparator().compare(t1, t2);
     }
     
     /**
      * 检查事件是否与其他事件重叠
+     * 时间线中的事件互不重叠，因此只需检查开始时间前后相邻的两个事件，首尾相接不视为重叠
      * @param event 要检查的事件
      * @return 如果有重叠返回true，否则返回false
      */
-    @SuppressWarnings("unchecked")
     private boolean hasOverlap(Event<T> event) {
-        // 查找开始时间小于等于指定事件结束时间的所有事件
-        SortedMap<T, Event<T>> headMap = startTimeIndex.headMap(event.getEnd(), true);
-        for (Event<T> existingEvent : headMap.values()) {
-            // 确保事件在指定时间仍然活跃（结束时间大于等于指定事件开始时间）
-            boolean isOverlapping = false;
-            if (existingEvent.getEnd() instanceof Comparable && event.getStart() instanceof Comparable) {
-                isOverlapping = ((Comparable<T>) existingEvent.getEnd()).compareTo(event.getStart()) >= 0;
-            } else {
-                isOverlapping = existingEvent.getEnd().toString().compareTo(event.getStart().toString()) >= 0;
+        // 开始时间不晚于新事件的最后一个事件，其结束时间是所有更早事件中最晚的
+        Map.Entry<T, Event<T>> floor = startTimeIndex.floorEntry(event.getStart());
+        if (floor != null && (compareTime(floor.getKey(), event.getStart()) == 0
+                || compareTime(floor.getValue().getEnd(), event.getStart()) > 0)) {
+            return true;
+        }
+        
+        // 开始时间晚于新事件的第一个事件必须在新事件结束之后才开始
+        Map.Entry<T, Event<T>> higher = startTimeIndex.higherEntry(event.getStart());
+        if (higher != null && compareTime(higher.getKey(), event.getEnd()) < 0) {
+            return true;
+        }
+        
+        // 结束时间索引同样不允许两个事件共用一个键
+        if (endTimeIndex.containsKey(event.getEnd())) {
+            return true;
+        }
+        
+        return !recurringEvents.isEmpty() && findRecurringConflictEnd(event.getStart(), event.getEnd()) != null;
+    }
+    
+    /**
+     * 获取与事件冲突的现有事件，返回索引上的惰性视图，调用方需持有全局锁
+     * @param event 新事件
+     * @return 按开始时间排序的冲突事件视图
+     */
+    private Collection<Event<T>> getConflictingEvents(Event<T> event) {
+        T from = event.getStart();
+        Map.Entry<T, Event<T>> floor = startTimeIndex.floorEntry(from);
+        if (floor != null && (compareTime(floor.getKey(), from) == 0
+                || compareTime(floor.getValue().getEnd(), from) > 0)) {
+            from = floor.getKey();
+        }
+        boolean toInclusive = compareTime(from, event.getEnd()) == 0;
+        return Collections.unmodifiableCollection(
+                startTimeIndex.subMap(from, true, event.getEnd(), toInclusive).values());
+    }
+    
+    /**
+     * 从指定时间开始寻找第一个能够容纳给定持续时间的空闲时间段，调用方需持有全局锁
+     * @param notBefore 最早开始时间
+     * @param duration 持续时间
+     * @param calculator 时间计算器
+     * @return 空闲时间段的开始时间
+     */
+    private T findFreeStart(T notBefore, T duration, TimeCalculator<T> calculator) {
+        T candidate = notBefore;
+        
+        // 沿开始时间索引跳过放不下的间隙
+        while (true) {
+            Map.Entry<T, Event<T>> floor = startTimeIndex.floorEntry(candidate);
+            if (floor != null && compareTime(floor.getValue().getEnd(), candidate) > 0) {
+                // 候选时间落在某个事件内部，移动到该事件结束处
+                candidate = floor.getValue().getEnd();
+                continue;
+            }
+            T end = calculator.add(candidate, duration);
+            T blockedUntil = recurringEvents.isEmpty() ? null : findRecurringConflictEnd(candidate, end);
+            if (blockedUntil != null) {
+                // 与某次重复发生重叠，移动到该次发生结束处
+                candidate = blockedUntil;
+                continue;
+            }
+            Map.Entry<T, Event<T>> next = startTimeIndex.higherEntry(candidate);
+            if (next == null || compareTime(end, next.getKey()) <= 0) {
+                return candidate;
+            }
+            candidate = next.getValue().getEnd();
+        }
+    }
+    
+    /**
+     * 查找各重复事件中第一次开始时间不早于指定时间的发生，调用方需持有全局锁
+     * @param time 时间
+     * @return 最早的发生开始时间，不存在时返回null
+     */
+    private T findNextRecurringStart(T time) {
+        T next = null;
+        for (RecurringEvent<T> series : recurringEvents) {
+            T start = series.findNextOccurrenceStart(time, recurringCalculator);
+            if (start != null && (next == null || compareTime(start, next) < 0)) {
+                next = start;
+            }
+        }
+        return next;
+    }
+    
+    /**
+     * 获取时间窗口内所有长度不小于给定值的空闲时间段
+     * 只沿开始时间索引访问窗口内的事件，重复事件的发生也视为占用
+     * @param start 窗口开始时间
+     * @param end 窗口结束时间
+     * @param minDuration 空闲时间段的最小长度
+     * @return 按时间顺序排列的空闲时间段
+     * @throws TimeLineException 当参数不合法或缺少时间计算器时抛出异常
+     */
+    public List<TimeSlot<T>> getFreeSlots(T start, T end, T minDuration) throws TimeLineException {
+        if (start == null || end == null || minDuration == null) {
+            throw new TimeLineException("Start time, end time and minimum duration cannot be null");
+        }
+        if (compareTime(start, end) > 0) {
+            throw new TimeLineException("Start time cannot be after end time");
+        }
+        
+        globalLock.lock();
+        try {
+            expireIncrementally();
+            TimeCalculator<T> calculator = resolveTimeCalculator(start);
+            
+            // 时间线中的事件互不重叠，窗口内的事件按开始时间排列即是占用时间段
+            Map.Entry<T, Event<T>> floor = startTimeIndex.floorEntry(start);
+            T from = floor != null ? floor.getKey() : start;
+            List<TimeSlot<T>> busySlots = new ArrayList<>();
+            for (Event<T> event : startTimeIndex.subMap(from, true, end, false).values()) {
+                busySlots.add(new TimeSlot<>(event.getStart(), event.getEnd()));
+            }
+            if (!recurringEvents.isEmpty()) {
+                List<Event<T>> occurrences = new ArrayList<>();
+                expandRecurringEvents(start, end, occurrences);
+                for (Event<T> occurrence : occurrences) {
+                    busySlots.add(new TimeSlot<>(occurrence.getStart(), occurrence.getEnd()));
+                }
+                busySlots.sort((a, b) -> compareTime(a.getStart(), b.getStart()));
+            }
+            return FreeSlots.collect(busySlots, start, end, minDuration, calculator);
+        } finally {
+            globalLock.unlock();
+        }
+    }
+    
+    /**
+     * 获取指定时间之后第一个长度不小于给定值的空闲时间段
+     * @param time 最早开始时间
+     * @param minDuration 空闲时间段的最小长度
+     * @return 空闲时间段，其后不再有占用时结束时间为null
+     * @throws TimeLineException 当参数为null或缺少时间计算器时抛出异常
+     */
+    public TimeSlot<T> firstFreeSlotAfter(T time, T minDuration) throws TimeLineException {
+        if (time == null || minDuration == null) {
+            throw new TimeLineException("Time and minimum duration cannot be null");
+        }
+        
+        globalLock.lock();
+        try {
+            expireIncrementally();
+            T start = findFreeStart(time, minDuration, resolveTimeCalculator(time));
+            Map.Entry<T, Event<T>> next = startTimeIndex.higherEntry(start);
+            T end = next != null ? next.getKey() : null;
+            if (!recurringEvents.isEmpty()) {
+                T recurringStart = findNextRecurringStart(start);
+                if (recurringStart != null && (end == null || compareTime(recurringStart, end) < 0)) {
+                    end = recurringStart;
+                }
+            }
+            return new TimeSlot<>(start, end);
+        } finally {
+            globalLock.unlock();
+        }
+    }
+    
+    /**
+     * 获取可用的时间计算器，未设置时根据时间的实际类型推断
+     * @param sample 用于推断类型的时间值
+     * @return 时间计算器
+     * @throws TimeLineException 当无法获得可用的时间计算器时抛出异常
+     */
+    @SuppressWarnings("unchecked")
+    private TimeCalculator<T> resolveTimeCalculator(T sample) throws TimeLineException {
+        if (timeCalculator != null) {
+            return timeCalculator;
+        }
+        if (sample != null) {
+            TimeCalculator<T> inferred = TimeCalculatorFactory.createTimeCalculator((Class<T>) sample.getClass());
+            try {
+                inferred.getZero();
+                return inferred;
+            } catch (UnsupportedOperationException e) {
+                // 推断出的类型不受支持，落到下面的异常
+            }
+        }
+        throw new TimeLineException("TimeCalculator is required to move events in time. " +
+                "Please set a TimeCalculator using setTimeCalculator method.");
+    }
+    
+    /**
+     * 时间线提供给淘汰策略的冲突上下文
+     */
+    private class TimeLineConflictContext implements ConflictContext<T> {
+        
+        private final Event<T> newEvent;
+        
+        private final List<Event<T>> evictions = new ArrayList<>();
+        
+        private final List<Event<T>> reschedules = new ArrayList<>();
+        
+        private final List<Event<T>> displaced = new ArrayList<>();
+        
+        private final List<Event<T>> detachedForReschedule = new ArrayList<>();
+        
+        private TimeCalculator<T> rescheduleCalculator;
+        
+        TimeLineConflictContext(Event<T> newEvent) {
+            this.newEvent = newEvent;
+        }
+        
+        @Override
+        public Collection<Event<T>> getConflictingEvents() {
+            return TimeLine.this.getConflictingEvents(newEvent);
+        }
+        
+        @Override
+        public Event<T> getPreviousEvent(T time) {
+            Map.Entry<T, Event<T>> entry = startTimeIndex.floorEntry(time);
+            return entry == null ? null : entry.getValue();
+        }
+        
+        @Override
+        public Event<T> getNextEvent(T time) {
+            Map.Entry<T, Event<T>> entry = startTimeIndex.higherEntry(time);
+            return entry == null ? null : entry.getValue();
+        }
+        
+        @Override
+        public Event<T> getLastEvent() {
+            Map.Entry<T, Event<T>> entry = endTimeIndex.lastEntry();
+            return entry == null ? null : entry.getValue();
+        }
+        
+        @Override
+        public T findFreeStart(T notBefore, T duration) throws TimeLineException {
+            return TimeLine.this.findFreeStart(notBefore, duration, getTimeCalculator());
+        }
+        
+        @Override
+        public TimeCalculator<T> getTimeCalculator() throws TimeLineException {
+            return resolveTimeCalculator(newEvent.getStart() != null ? newEvent.getStart() : newEvent.getDuration());
+        }
+        
+        @Override
+        public void evict(Event<T> event) {
+            if (event != null && event != newEvent) {
+                evictions.add(event);
+            }
+        }
+        
+        @Override
+        public void reschedule(Event<T> event) {
+            if (event != null && event != newEvent) {
+                reschedules.add(event);
+            }
+        }
+        
+        /**
+         * 使记录的淘汰生效，被重新安排的事件也先从原位置移除
+         * @throws TimeLineException 当需要重新安排事件但无法获得时间计算器时抛出异常
+         */
+        void applyEvictions() throws TimeLineException {
+            if (!reschedules.isEmpty()) {
+                // 在修改时间线之前确认能够计算持续时间
+                rescheduleCalculator = resolveTimeCalculator(reschedules.get(0).getStart());
+            }
+            for (Event<T> event : evictions) {
+                if (detach(event)) {
+                    displaced.add(event);
+                }
             }
-            if (isOverlapping) {
+            for (Event<T> event : reschedules) {
+                if (detach(event)) {
+                    detachedForReschedule.add(event);
+                }
+            }
+        }
+        
+        /**
+         * 将事件从时间线中摘除
+         * @param event 事件
+         * @return 是否确实摘除了该事件
+         */
+        private boolean detach(Event<T> event) {
+            if (startTimeIndex.get(event.getStart()) == event && events.remove(event)) {
+                unindexEvent(event);
                 return true;
             }
+            return false;
+        }
+        
+        /**
+         * 撤销已经生效的淘汰
+         */
+        void rollbackEvictions() {
+            for (Event<T> event : displaced) {
+                events.add(event);
+                indexEvent(event);
+            }
+            for (Event<T> event : detachedForReschedule) {
+                events.add(event);
+                indexEvent(event);
+            }
+            displaced.clear();
+            detachedForReschedule.clear();
+        }
+        
+        /**
+         * 在新事件插入后重新安排被挤占的事件
+         * @return 被重新安排的事件
+         */
+        List<Event<T>> applyReschedules() {
+            for (Event<T> event : detachedForReschedule) {
+                T duration = rescheduleCalculator.subtract(event.getEnd(), event.getStart());
+                T start = TimeLine.this.findFreeStart(event.getStart(), duration, rescheduleCalculator);
+                event.setStart(start);
+                event.setEnd(rescheduleCalculator.add(start, duration));
+                events.add(event);
+                indexEvent(event);
+            }
+            return new ArrayList<>(detachedForReschedule);
+        }
+        
+        /**
+         * 获取被移除的事件
+         * @return 被移除的事件
+         */
+        List<Event<T>> getDisplaced() {
+            return new ArrayList<>(displaced);
         }
-        return false;
     }
     
     /**
@@ -196,6 +774,20 @@ public class TimeLine<T> implements TimelineStructure<T> {
      * @throws TimeLineException 当无法找到合适的时间段时抛出异常
      */
     private void findAndAssignTimeSlot(Event<T> event) throws TimeLineException {
+        if (!recurringEvents.isEmpty()) {
+            // 存在重复事件时沿索引寻找空闲时间段，同时跳过各次发生
+            globalLock.lock();
+            try {
+                T notBefore = startTimeIndex.isEmpty() ? getZeroTime() : startTimeIndex.firstKey();
+                T start = findFreeStart(notBefore, event.getDuration(), timeCalculator);
+                event.setStart(start);
+                event.setEnd(timeCalculator.add(start, event.getDuration()));
+                return;
+            } finally {
+                globalLock.unlock();
+            }
+        }
+        
         // 获取所有已排序的事件
         List<Event<T>> sortedEvents = new ArrayList<>(events);
         sortEvents(sortedEvents);
@@ -343,43 +935,119 @@ public class TimeLine<T> implements TimelineStructure<T> {
         
         globalLock.lock();
         try {
+            if (event instanceof RecurringEvent) {
+                return recurringEvents.remove(event);
+            }
+            
             // 从全局事件列表中移除
             boolean removed = events.remove(event);
             if (!removed) {
                 return false; // 事件不存在
             }
             
-            // 从开始时间索引中移除
-            Lock startLock = startLocks.get(event.getStart());
-            if (startLock != null) {
-                startLock.lock();
-                try {
-                    startTimeIndex.remove(event.getStart());
-                    // 如果该时间点没有其他事件了，清理索引和锁
-                    if (!startTimeIndex.containsKey(event.getStart())) {
-                        startLocks.remove(event.getStart());
-                    }
-                } finally {
-                    startLock.unlock();
-                }
-            }
-            
-            // 从结束时间索引中移除
-            Lock endLock = endLocks.get(event.getEnd());
-            if (endLock != null) {
-                endLock.lock();
-                try {
-                    endTimeIndex.remove(event.getEnd());
-                    // 如果该时间点没有其他事件了，清理索引和锁
-                    if (!endTimeIndex.containsKey(event.getEnd())) {
-                        endLocks.remove(event.getEnd());
+            unindexEvent(event);
+            return true;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+    
+    /**
+     * 在一次加锁中原子地应用一批修改：先删除全部要删除的事件，再添加全部要添加的事件
+     * 删除之后、添加之前统一检查冲突，批次中的事件既不能与时间线中剩余的事件重叠，也不能彼此重叠，且不使用淘汰策略
+     * 任何一步失败时按撤销日志逆序恢复已经应用的修改
+     * @param batch 要应用的修改
+     * @throws TimeLineException 当批次为null、要删除的事件不存在、要添加的事件时间无效或发生冲突时抛出异常
+     */
+    public void applyBatch(TimelineBatch<T> batch) throws TimeLineException {
+        if (batch == null) {
+            throw new TimeLineException("Batch cannot be null");
+        }
+        for (Event<T> event : batch.getAdditions()) {
+            if (event instanceof RecurringEvent) {
+                throw new TimeLineException("Recurring events cannot be added in a batch");
+            }
+            checkRange(event.getStart(), event.getEnd());
+        }
+        
+        globalLock.lock();
+        try {
+            expireIncrementally();
+            Deque<Runnable> undoLog = new ArrayDeque<>();
+            try {
+                for (Event<T> event : batch.getRemovals()) {
+                    int position = events.indexOf(event);
+                    if (position < 0) {
+                        throw new TimeLineException("Batch event to remove does not exist: " + event.getSubject());
+                    }
+                    Event<T> removed = events.remove(position);
+                    unindexEvent(removed);
+                    undoLog.push(() -> {
+                        events.add(position, removed);
+                        indexEvent(removed);
+                    });
+                }
+                for (Event<T> event : batch.getAdditions()) {
+                    if (hasOverlap(event)) {
+                        throw new TimeLineException("Batch event conflicts with existing events: " + event.getSubject());
                     }
-                } finally {
-                    endLock.unlock();
+                    events.add(event);
+                    indexEvent(event);
+                    undoLog.push(() -> {
+                        events.remove(events.size() - 1);
+                        unindexEvent(event);
+                    });
+                }
+            } catch (TimeLineException e) {
+                while (!undoLog.isEmpty()) {
+                    undoLog.pop().run();
                 }
+                throw e;
             }
             
-            return true;
+            for (Event<T> event : batch.getAdditions()) {
+                deactivateIfExpired(event);
+            }
+        } finally {
+            globalLock.unlock();
+        }
+    }
+    
+    /**
+     * 原子地预约一个时间段：在同一次加锁中寻找最早的空闲时间段并加入占用该时间段的事件
+     * 与只有持续时间的事件不同，预约不使用淘汰策略，找不到满足约束的时间段时直接失败
+     * @param duration 持续时间
+     * @param subject 事件主体
+     * @param constraints 约束条件，为null时不做限制
+     * @return 分配到的时间段
+     * @throws TimeLineException 当持续时间为null、缺少时间计算器或在最晚结束时间之前没有足够的空闲时间时抛出异常
+     */
+    public TimeSlot<T> reserve(T duration, Object subject, ReservationConstraints<T> constraints) throws TimeLineException {
+        if (duration == null) {
+            throw new TimeLineException("Reservation duration cannot be null");
+        }
+        
+        globalLock.lock();
+        try {
+            expireIncrementally();
+            if (timeCalculator == null) {
+                throw new TimeLineException("TimeCalculator is required to reserve time slots. " +
+                        "Please set a TimeCalculator using setTimeCalculator method.");
+            }
+            T notBefore = constraints != null && constraints.getNotBefore() != null
+                    ? constraints.getNotBefore() : getZeroTime();
+            T start = findFreeStart(notBefore, duration, timeCalculator);
+            T end = timeCalculator.add(start, duration);
+            if (constraints != null && constraints.getDeadline() != null
+                    && compareTime(end, constraints.getDeadline()) > 0) {
+                throw new TimeLineException("No free slot for the reservation ends before the deadline");
+            }
+            
+            Event<T> event = new Event<>(start, end, duration, subject, true);
+            events.add(event);
+            indexEvent(event);
+            deactivateIfExpired(event);
+            return new TimeSlot<>(start, end);
         } finally {
             globalLock.unlock();
         }
@@ -428,6 +1096,7 @@ public class TimeLine<T> implements TimelineStructure<T> {
     public List<Event<T>> getSortedEvents() {
         globalLock.lock();
         try {
+            expireIncrementally();
             List<Event<T>> sortedEvents = new ArrayList<>();
             for (Event<T> event : events) {
                 if (event.isActive()) {
@@ -457,6 +1126,7 @@ public class TimeLine<T> implements TimelineStructure<T> {
         // 查找开始时间小于等于指定时间的所有事件
         globalLock.lock();
         try {
+            expireIncrementally();
             SortedMap<T, Event<T>> headMap = startTimeIndex.headMap(time, true);
             for (Event<T> event : headMap.values()) {
                 // 确保事件在指定时间仍然活跃（结束时间大于等于指定时间）且事件本身是活跃的
@@ -470,6 +1140,10 @@ public class TimeLine<T> implements TimelineStructure<T> {
                     result.add(event);
                 }
             }
+            if (!recurringEvents.isEmpty()) {
+                expandRecurringEvents(time, time, result);
+                sortEvents(result);
+            }
         } finally {
             globalLock.unlock();
         }
@@ -506,6 +1180,7 @@ public class TimeLine<T> implements TimelineStructure<T> {
         // 查找开始时间在指定时间段之前或之内的事件
         globalLock.lock();
         try {
+            expireIncrementally();
             SortedMap<T, Event<T>> headMap = startTimeIndex.headMap(end, true);
             for (Event<T> event : headMap.values()) {
                 // 确保事件与指定时间段有重叠且事件本身是活跃的
@@ -526,6 +1201,7 @@ public class TimeLine<T> implements TimelineStructure<T> {
                     result.add(event);
                 }
             }
+            expandRecurringEvents(start, end, result);
         } finally {
             globalLock.unlock();
         }
@@ -535,6 +1211,388 @@ public class TimeLine<T> implements TimelineStructure<T> {
         return result;
     }
     
+    /**
+     * 获取在指定时间段内活跃且满足条件的事件，条件在遍历索引时判断
+     * @param start 开始时间
+     * @param end 结束时间
+     * @param predicate 过滤条件
+     * @return 按时间顺序排列的事件列表
+     * @throws TimeLineException 当参数为null或开始时间晚于结束时间时抛出异常
+     */
+    public List<Event<T>> getEventsBetween(T start, T end, Predicate<? super Event<T>> predicate)
+            throws TimeLineException {
+        return getEventsBetween(start, end, predicate, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * 获取在指定时间段内活跃且满足条件的前limit个事件
+     * 从窗口开始时间的前驱事件沿开始时间索引遍历，条件在遍历时判断，取满limit个后立即停止，
+     * 索引顺序即结果顺序，不需要再排序
+     * @param start 开始时间
+     * @param end 结束时间
+     * @param predicate 过滤条件
+     * @param limit 最多返回的事件数量
+     * @return 按时间顺序排列的事件列表
+     * @throws TimeLineException 当参数为null、limit为负数或开始时间晚于结束时间时抛出异常
+     */
+    public List<Event<T>> getEventsBetween(T start, T end, Predicate<? super Event<T>> predicate, int limit)
+            throws TimeLineException {
+        if (predicate == null) {
+            throw new TimeLineException("Predicate cannot be null");
+        }
+        if (limit < 0) {
+            throw new TimeLineException("Limit cannot be negative");
+        }
+        checkRange(start, end);
+        
+        List<Event<T>> result = new ArrayList<>();
+        globalLock.lock();
+        try {
+            expireIncrementally();
+            // 事件互不重叠，开始时间早于窗口的事件中只有前驱可能与窗口相交
+            Map.Entry<T, Event<T>> floor = startTimeIndex.floorEntry(start);
+            T from = floor != null ? floor.getKey() : start;
+            for (Event<T> event : startTimeIndex.subMap(from, true, end, true).values()) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                if (event.isActive() && compareTime(event.getEnd(), start) >= 0 && predicate.test(event)) {
+                    result.add(event);
+                }
+            }
+            if (!recurringEvents.isEmpty()) {
+                // 重复事件的发生与索引中的事件合并后再截取
+                List<Event<T>> occurrences = new ArrayList<>();
+                expandRecurringEvents(start, end, occurrences);
+                for (Event<T> occurrence : occurrences) {
+                    if (predicate.test(occurrence)) {
+                        result.add(occurrence);
+                    }
+                }
+                sortEvents(result);
+                if (result.size() > limit) {
+                    return new ArrayList<>(result.subList(0, limit));
+                }
+            }
+        } finally {
+            globalLock.unlock();
+        }
+        return result;
+    }
+    
+    /**
+     * 分页获取在指定时间段内活跃的事件，按开始时间排列
+     * 下一页从游标记录的开始时间之后沿开始时间索引继续，每页的代价为O(log n + pageSize)，
+     * 翻页期间在游标之前插入或删除事件不会影响后续页的内容；重复事件的发生不参与分页
+     * @param start 开始时间
+     * @param end 结束时间
+     * @param cursor 上一页返回的游标，获取第一页时为null
+     * @param pageSize 每页的事件数量
+     * @return 一页事件
+     * @throws TimeLineException 当参数不合法时抛出异常
+     */
+    public Page<T> getPage(T start, T end, PageCursor<T> cursor, int pageSize) throws TimeLineException {
+        if (pageSize <= 0) {
+            throw new TimeLineException("Page size must be positive");
+        }
+        checkRange(start, end);
+        
+        globalLock.lock();
+        try {
+            expireIncrementally();
+            // 开始时间互不相同，开始时间本身就是唯一的排序键
+            NavigableMap<T, Event<T>> range;
+            if (cursor == null) {
+                Map.Entry<T, Event<T>> floor = startTimeIndex.floorEntry(start);
+                range = startTimeIndex.subMap(floor != null ? floor.getKey() : start, true, end, true);
+            } else {
+                range = startTimeIndex.subMap(cursor.getStart(), false, end, true);
+            }
+            List<Event<T>> page = new ArrayList<>(pageSize + 1);
+            for (Event<T> event : range.values()) {
+                if (page.size() > pageSize) {
+                    break;
+                }
+                if (event.isActive() && compareTime(event.getEnd(), start) >= 0) {
+                    page.add(event);
+                }
+            }
+            if (page.size() <= pageSize) {
+                return new Page<>(page, null);
+            }
+            Event<T> last = page.get(pageSize - 1);
+            return new Page<>(new ArrayList<>(page.subList(0, pageSize)),
+                    new PageCursor<>(last.getStart(), last.getEnd(), 0));
+        } finally {
+            globalLock.unlock();
+        }
+    }
+    
+    /**
+     * 获取开始时间在指定时间段内的所有事件（包括非活跃事件），直接截取开始时间索引的范围
+     * @param start 开始时间
+     * @param end 结束时间
+     * @return 按开始时间排列的事件列表
+     * @throws TimeLineException 当时间参数为null或开始时间晚于结束时间时抛出异常
+     */
+    public List<Event<T>> getEventsStartingBetween(T start, T end) throws TimeLineException {
+        checkRange(start, end);
+        globalLock.lock();
+        try {
+            expireIncrementally();
+            List<Event<T>> result = new ArrayList<>();
+            result.addAll(startTimeIndex.subMap(start, true, end, true).values());
+            return result;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+    
+    /**
+     * 获取结束时间在指定时间段内的所有事件（包括非活跃事件），直接截取结束时间索引的范围
+     * 适合只关心某段时间内已经结束的事件的过期、计费等处理
+     * @param start 开始时间
+     * @param end 结束时间
+     * @return 按结束时间排列的事件列表
+     * @throws TimeLineException 当时间参数为null或开始时间晚于结束时间时抛出异常
+     */
+    public List<Event<T>> getEventsEndingBetween(T start, T end) throws TimeLineException {
+        checkRange(start, end);
+        globalLock.lock();
+        try {
+            expireIncrementally();
+            List<Event<T>> result = new ArrayList<>();
+            result.addAll(endTimeIndex.subMap(start, true, end, true).values());
+            return result;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+    
+    /**
+     * 检查时间段参数
+     * @param start 开始时间
+     * @param end 结束时间
+     * @throws TimeLineException 当时间参数为null或开始时间晚于结束时间时抛出异常
+     */
+    private void checkRange(T start, T end) throws TimeLineException {
+        if (start == null || end == null) {
+            throw new TimeLineException("Start time and end time cannot be null");
+        }
+        if (compareTime(start, end) > 0) {
+            throw new TimeLineException("Start time cannot be after end time");
+        }
+    }
+    
+    /**
+     * 启用以事件主体为键的二级索引
+     */
+    public void enableSubjectIndex() {
+        enableSubjectIndex(Event::getSubject);
+    }
+    
+    /**
+     * 启用二级索引，索引键由给定函数从事件中提取，启用时为现有事件建立索引
+     * 之后的添加、移除都会同步更新索引；事件加入时间线后不应再修改影响键的字段
+     * @param keyExtractor 从事件中提取索引键的函数
+     */
+    public void enableSubjectIndex(Function<? super Event<T>, ?> keyExtractor) {
+        if (keyExtractor == null) {
+            throw new IllegalArgumentException("Key extractor cannot be null");
+        }
+        globalLock.lock();
+        try {
+            SubjectIndex<T> index = new SubjectIndex<>(keyExtractor, startTimeIndex.comparator());
+            for (Event<T> event : events) {
+                index.add(event);
+            }
+            subjectIndex = index;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+    
+    /**
+     * 关闭二级索引
+     */
+    public void disableSubjectIndex() {
+        globalLock.lock();
+        try {
+            subjectIndex = null;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+    
+    /**
+     * 获取指定键的所有事件（包括非活跃事件）
+     * 启用二级索引时直接查索引，否则逐个比较事件主体
+     * @param key 索引键，未启用二级索引时与事件主体比较
+     * @return 按开始时间排列的事件列表
+     */
+    public List<Event<T>> getEventsBySubject(Object key) {
+        globalLock.lock();
+        try {
+            if (subjectIndex != null) {
+                return subjectIndex.get(key);
+            }
+            List<Event<T>> result = new ArrayList<>();
+            for (Event<T> event : events) {
+                if (Objects.equals(event.getSubject(), key)) {
+                    result.add(event);
+                }
+            }
+            sortEvents(result);
+            return result;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+    
+    /**
+     * 获取指定键下在时间段内活跃的事件
+     * 启用二级索引时只访问该键下开始时间不晚于时间段结束的事件，否则退化为时间范围查询后按主体过滤
+     * @param key 索引键，未启用二级索引时与事件主体比较
+     * @param start 开始时间
+     * @param end 结束时间
+     * @return 按开始时间排列的活跃事件列表
+     * @throws TimeLineException 当时间参数为null或开始时间晚于结束时间时抛出异常
+     */
+    public List<Event<T>> getEventsBySubjectBetween(Object key, T start, T end) throws TimeLineException {
+        checkRange(start, end);
+        globalLock.lock();
+        try {
+            expireIncrementally();
+            List<Event<T>> result = new ArrayList<>();
+            if (subjectIndex != null) {
+                for (Event<T> event : subjectIndex.getBetween(key, start, end)) {
+                    if (event.isActive()) {
+                        result.add(event);
+                    }
+                }
+                return result;
+            }
+            for (Event<T> event : startTimeIndex.headMap(end, true).values()) {
+                if (event.isActive() && compareTime(event.getEnd(), start) >= 0
+                        && Objects.equals(event.getSubject(), key)) {
+                    result.add(event);
+                }
+            }
+            return result;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+    
+    /**
+     * 获取在指定时间之后开始的第一个活跃事件，沿开始时间索引向后查找，不包括重复事件的发生
+     * @param time 时间点
+     * @return 开始时间晚于该时间的最早事件，不存在时返回null
+     * @throws TimeLineException 当时间参数为null时抛出异常
+     */
+    public Event<T> nextEventAfter(T time) throws TimeLineException {
+        if (time == null) {
+            throw new TimeLineException("Time cannot be null");
+        }
+        globalLock.lock();
+        try {
+            expireIncrementally();
+            return firstActive(startTimeIndex.tailMap(time, false).values());
+        } finally {
+            globalLock.unlock();
+        }
+    }
+    
+    /**
+     * 获取在指定时间之前结束的最后一个活跃事件，沿结束时间索引向前查找，不包括重复事件的发生
+     * @param time 时间点
+     * @return 结束时间早于该时间的最晚事件，不存在时返回null
+     * @throws TimeLineException 当时间参数为null时抛出异常
+     */
+    public Event<T> previousEventBefore(T time) throws TimeLineException {
+        if (time == null) {
+            throw new TimeLineException("Time cannot be null");
+        }
+        globalLock.lock();
+        try {
+            expireIncrementally();
+            return firstActive(endTimeIndex.headMap(time, false).descendingMap().values());
+        } finally {
+            globalLock.unlock();
+        }
+    }
+    
+    /**
+     * 获取开始时间最早的活跃事件，不包括重复事件的发生
+     * @return 第一个事件，时间线为空时返回null
+     */
+    public Event<T> firstEvent() {
+        globalLock.lock();
+        try {
+            expireIncrementally();
+            return firstActive(startTimeIndex.values());
+        } finally {
+            globalLock.unlock();
+        }
+    }
+    
+    /**
+     * 获取结束时间最晚的活跃事件，不包括重复事件的发生
+     * @return 最后一个事件，时间线为空时返回null
+     */
+    public Event<T> lastEvent() {
+        globalLock.lock();
+        try {
+            expireIncrementally();
+            return firstActive(endTimeIndex.descendingMap().values());
+        } finally {
+            globalLock.unlock();
+        }
+    }
+    
+    /**
+     * 获取距离指定时间最近的k个活跃事件，包含该时间的事件距离为零，不包括重复事件的发生
+     * 时间线中的事件互不重叠，开始时间不晚于该时间的事件按开始时间倒序排列时结束时间也是倒序的，
+     * 因此只需从该时间出发沿开始时间索引向两侧逐步合并
+     * @param time 时间点
+     * @param k 事件数量
+     * @return 按距离从近到远排列的事件
+     * @throws TimeLineException 当参数不合法或缺少时间计算器时抛出异常
+     */
+    public List<Event<T>> kNearest(T time, int k) throws TimeLineException {
+        if (time == null) {
+            throw new TimeLineException("Time cannot be null");
+        }
+        if (k < 0) {
+            throw new TimeLineException("k cannot be negative");
+        }
+        
+        globalLock.lock();
+        try {
+            expireIncrementally();
+            return NearestEvents.merge(time, k, Collections.emptyList(),
+                    startTimeIndex.headMap(time, true).descendingMap().values().iterator(),
+                    startTimeIndex.tailMap(time, false).values().iterator(),
+                    resolveTimeCalculator(time));
+        } finally {
+            globalLock.unlock();
+        }
+    }
+    
+    /**
+     * 获取事件序列中的第一个活跃事件
+     * @param candidates 按查找顺序排列的事件
+     * @return 第一个活跃事件，不存在时返回null
+     */
+    private Event<T> firstActive(Collection<Event<T>> candidates) {
+        for (Event<T> event : candidates) {
+            if (event.isActive()) {
+                return event;
+            }
+        }
+        return null;
+    }
+    
     /**
      * 移除所有非活跃事件
      * @return 被移除的事件数量
@@ -572,6 +1630,114 @@ public class TimeLine<T> implements TimelineStructure<T> {
         }
     }
     
+    /**
+     * 获取时间线中保存的重复事件
+     * @return 重复事件列表
+     */
+    public List<RecurringEvent<T>> getRecurringEvents() {
+        globalLock.lock();
+        try {
+            return new ArrayList<>(recurringEvents);
+        } finally {
+            globalLock.unlock();
+        }
+    }
+    
+    /**
+     * 获取按开始时间排列的所有事件（包括非活跃事件）
+     * @return 事件列表
+     */
+    public List<Event<T>> getEventsInStartOrder() {
+        globalLock.lock();
+        try {
+            return new ArrayList<>(startTimeIndex.values());
+        } finally {
+            globalLock.unlock();
+        }
+    }
+    
+    /**
+     * 获取按结束时间排列的所有事件（包括非活跃事件）
+     * @return 事件列表
+     */
+    public List<Event<T>> getEventsInEndOrder() {
+        globalLock.lock();
+        try {
+            return new ArrayList<>(endTimeIndex.values());
+        } finally {
+            globalLock.unlock();
+        }
+    }
+    
+    /**
+     * 获取所有事件（包括非活跃事件）覆盖的时间段，不包括重复事件的发生
+     * 时间线中的事件互不重叠，只需沿开始时间索引合并首尾相接的事件
+     * @return 按时间顺序排列、互不相交的时间段
+     */
+    public List<TimeSlot<T>> getCoverage() {
+        globalLock.lock();
+        try {
+            List<TimeSlot<T>> slots = new ArrayList<>();
+            T currentStart = null;
+            T currentEnd = null;
+            for (Event<T> event : startTimeIndex.values()) {
+                if (currentStart != null && compareTime(event.getStart(), currentEnd) <= 0) {
+                    currentEnd = event.getEnd();
+                    continue;
+                }
+                if (currentStart != null) {
+                    slots.add(new TimeSlot<>(currentStart, currentEnd));
+                }
+                currentStart = event.getStart();
+                currentEnd = event.getEnd();
+            }
+            if (currentStart != null) {
+                slots.add(new TimeSlot<>(currentStart, currentEnd));
+            }
+            return slots;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+    
+    /**
+     * 生成时间线当前状态的只读快照（不包括重复事件），未变化的部分与上一个快照共享
+     * @return 快照
+     */
+    public TimelineSnapshot<T> snapshot() {
+        globalLock.lock();
+        try {
+            lastSnapshot = TimelineSnapshot.build(lastSnapshot, dirtyKeys, startTimeIndex.comparator(), (lo, hi) -> {
+                NavigableMap<T, Event<T>> range = startTimeIndex;
+                if (lo != null) {
+                    range = range.tailMap(lo, true);
+                }
+                if (hi != null) {
+                    range = range.headMap(hi, false);
+                }
+                return new ArrayList<>(range.values());
+            });
+            if (dirtyKeys == null) {
+                dirtyKeys = new TreeSet<>(startTimeIndex.comparator());
+            } else {
+                dirtyKeys.clear();
+            }
+            return lastSnapshot;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+    
+    /**
+     * 记录事件的开始时间发生了变化，在生成过快照之后才需要记录
+     * @param event 发生变化的事件
+     */
+    private void markDirty(Event<T> event) {
+        if (dirtyKeys != null) {
+            dirtyKeys.add(event.getStart());
+        }
+    }
+    
     /**
      * 获取所有非活跃事件
      * @return 非活跃事件的列表
@@ -602,8 +1768,282 @@ public class TimeLine<T> implements TimelineStructure<T> {
             endTimeIndex.clear();
             startLocks.clear();
             endLocks.clear();
+            archivedEvents.clear();
+            expiryWatermark = null;
+            recurringEvents.clear();
+            recurringCalculator = null;
+            aggregateIndex = null;
+            if (subjectIndex != null) {
+                subjectIndex.clear();
+            }
+            lastSnapshot = null;
+            dirtyKeys = null;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+    
+    /**
+     * 批量安排只有持续时间的事件，在一次遍历空闲时间段的过程中为所有事件分配时间并加入时间线
+     * 与已有事件首尾相接的位置视为空闲，安排从零点开始；重复事件的发生也视为占用
+     * 有重复事件时先展开到足够容纳整批事件的时间范围，安排结果超出该范围时扩大范围重新安排
+     * @param batch 只有持续时间的事件
+     * @param policy 安排策略
+     * @return 安排结果，包含完工时间跨度和占用比例
+     * @throws TimeLineException 当事件不是只有持续时间、缺少时间计算器或重复事件占满时间线时抛出异常
+     */
+    public BatchScheduleResult<T> scheduleBatch(Collection<Event<T>> batch, BatchPolicy policy) throws TimeLineException {
+        if (batch == null || policy == null) {
+            throw new TimeLineException("Batch and policy cannot be null");
+        }
+        for (Event<T> event : batch) {
+            if (event == null || event.getDuration() == null || event.getStart() != null || event.getEnd() != null) {
+                throw new TimeLineException("Batch scheduling only accepts events with only duration");
+            }
+        }
+        if (timeCalculator == null) {
+            throw new TimeLineException("TimeCalculator is required to schedule events with only duration. " +
+                    "Please set a TimeCalculator using setTimeCalculator method.");
+        }
+        
+        globalLock.lock();
+        try {
+            expireIncrementally();
+            // 时间线中的事件互不重叠，开始时间索引本身就是按顺序排列的占用时间段
+            List<TimeSlot<T>> busySlots = new ArrayList<>(startTimeIndex.size());
+            for (Event<T> event : startTimeIndex.values()) {
+                busySlots.add(new TimeSlot<>(event.getStart(), event.getEnd()));
+            }
+            
+            BatchPlanner<T> planner = new BatchPlanner<>(timeCalculator);
+            T zeroTime = getZeroTime();
+            BatchScheduleResult<T> result = planner.plan(busySlots, zeroTime, batch, policy);
+            if (!recurringEvents.isEmpty()) {
+                // 展开范围：已有事件的最晚结束时间之后再加上整批事件的总长度
+                T totalDuration = timeCalculator.getZero();
+                for (Event<T> event : batch) {
+                    totalDuration = timeCalculator.add(totalDuration, event.getDuration());
+                }
+                T horizon = endTimeIndex.isEmpty() || compareTime(endTimeIndex.lastKey(), zeroTime) < 0
+                        ? zeroTime : endTimeIndex.lastKey();
+                horizon = timeCalculator.add(horizon, totalDuration);
+                for (int attempt = 0; ; attempt++) {
+                    List<Event<T>> occurrences = new ArrayList<>();
+                    expandRecurringEvents(zeroTime, horizon, occurrences);
+                    List<TimeSlot<T>> withOccurrences = new ArrayList<>(busySlots);
+                    for (Event<T> occurrence : occurrences) {
+                        withOccurrences.add(new TimeSlot<>(occurrence.getStart(), occurrence.getEnd()));
+                    }
+                    withOccurrences.sort((a, b) -> compareTime(a.getStart(), b.getStart()));
+                    result = planner.plan(withOccurrences, zeroTime, batch, policy);
+                    if (compareTime(result.getCompletionTime(), horizon) <= 0) {
+                        break;
+                    }
+                    if (attempt >= MAX_HORIZON_EXTENSIONS) {
+                        throw new TimeLineException("Cannot place batch around recurring events");
+                    }
+                    horizon = timeCalculator.add(result.getCompletionTime(), totalDuration);
+                }
+            }
+            for (Event<T> event : result.getScheduledEvents()) {
+                events.add(event);
+                indexEvent(event);
+                deactivateIfExpired(event);
+            }
+            return result;
         } finally {
             globalLock.unlock();
         }
     }
+    
+    /**
+     * 按固定长度切分时间段，统计每个时间段内的事件数量
+     * 每个时间段的统计只需访问一次聚合索引，不需要逐个扫描事件；重复事件的发生不计入统计
+     * @param from 开始时间
+     * @param to 结束时间，最后一个时间段在此处截断
+     * @param bucketSize 时间段长度，与事件的持续时间使用相同的表示方式
+     * @return 每个时间段内与之有交集的事件数量（包括非活跃事件）
+     * @throws TimeLineException 当参数不合法或时间类型不支持数值转换时抛出异常
+     */
+    public List<Long> countPerBucket(T from, T to, T bucketSize) throws TimeLineException {
+        if (from == null || to == null || bucketSize == null) {
+            throw new TimeLineException("Start time, end time and bucket size cannot be null");
+        }
+        globalLock.lock();
+        try {
+            return getAggregateIndex(from).countPerBucket(from, to, bucketSize);
+        } catch (IllegalArgumentException | UnsupportedOperationException e) {
+            throw new TimeLineException("Cannot aggregate events: " + e.getMessage());
+        } finally {
+            globalLock.unlock();
+        }
+    }
+    
+    /**
+     * 按固定长度切分时间段，统计每个时间段内事件的占用时长之和
+     * @param from 开始时间
+     * @param to 结束时间，最后一个时间段在此处截断
+     * @param bucketSize 时间段长度，与事件的持续时间使用相同的表示方式
+     * @return 每个时间段内以持续时间表示的占用时长（包括非活跃事件）
+     * @throws TimeLineException 当参数不合法或时间类型不支持数值转换时抛出异常
+     */
+    public List<T> busyTimePerBucket(T from, T to, T bucketSize) throws TimeLineException {
+        if (from == null || to == null || bucketSize == null) {
+            throw new TimeLineException("Start time, end time and bucket size cannot be null");
+        }
+        globalLock.lock();
+        try {
+            return getAggregateIndex(from).busyTimePerBucket(from, to, bucketSize);
+        } catch (IllegalArgumentException | UnsupportedOperationException e) {
+            throw new TimeLineException("Cannot aggregate events: " + e.getMessage());
+        } finally {
+            globalLock.unlock();
+        }
+    }
+    
+    /**
+     * 统计事件在时间段[start, end)内的占用时长之和
+     * @param start 开始时间
+     * @param end 结束时间
+     * @return 以持续时间表示的占用时长（包括非活跃事件）
+     * @throws TimeLineException 当参数不合法或时间类型不支持数值转换时抛出异常
+     */
+    public T sumOver(T start, T end) throws TimeLineException {
+        if (start == null || end == null) {
+            throw new TimeLineException("Start time and end time cannot be null");
+        }
+        if (compareTime(start, end) > 0) {
+            throw new TimeLineException("Start time cannot be after end time");
+        }
+        globalLock.lock();
+        try {
+            return getAggregateIndex(start).busyTime(start, end);
+        } catch (IllegalArgumentException | UnsupportedOperationException e) {
+            throw new TimeLineException("Cannot aggregate events: " + e.getMessage());
+        } finally {
+            globalLock.unlock();
+        }
+    }
+    
+    /**
+     * 获取聚合索引，第一次调用时根据现有事件建立，调用方需持有全局锁
+     * @param sample 用于推断时间计算器的时间值
+     * @return 聚合索引
+     * @throws TimeLineException 当无法获得时间计算器时抛出异常
+     */
+    private TimeAggregateIndex<T> getAggregateIndex(T sample) throws TimeLineException {
+        if (aggregateIndex == null) {
+            TimeAggregateIndex<T> index = new TimeAggregateIndex<>(resolveTimeCalculator(sample));
+            for (Event<T> event : events) {
+                index.add(event);
+            }
+            aggregateIndex = index;
+        }
+        return aggregateIndex;
+    }
+    
+    /**
+     * 立即处理所有已经过期的事件
+     * @return 本次处理的过期事件数量
+     * @throws TimeLineException 当未设置过期策略时抛出异常
+     */
+    public int expireEvents() throws TimeLineException {
+        globalLock.lock();
+        try {
+            if (expiryPolicy == null) {
+                throw new TimeLineException("Expiry policy is not set. " +
+                        "Please set an ExpiryPolicy using setExpiryPolicy method.");
+            }
+            return expireBatch(Integer.MAX_VALUE);
+        } finally {
+            globalLock.unlock();
+        }
+    }
+    
+    /**
+     * 获取冷存储中的所有事件
+     * @return 被过期策略移出时间线的事件列表
+     */
+    public List<Event<T>> getArchivedEvents() {
+        globalLock.lock();
+        try {
+            return new ArrayList<>(archivedEvents);
+        } finally {
+            globalLock.unlock();
+        }
+    }
+    
+    /**
+     * 在启用过期策略时处理一个批次的过期事件，调用方需持有全局锁
+     */
+    private void expireIncrementally() {
+        if (expiryPolicy != null) {
+            expireBatch(expiryPolicy.getBatchSize());
+        }
+    }
+    
+    /**
+     * DEACTIVATE模式下，结束时间不晚于水位线的新事件不会再被增量过期处理，直接视为过期，调用方需持有全局锁
+     * @param event 刚加入时间线的事件
+     */
+    private void deactivateIfExpired(Event<T> event) {
+        if (expiryPolicy != null && expiryPolicy.getMode() == ExpiryPolicy.Mode.DEACTIVATE
+                && expiryWatermark != null && compareTime(event.getEnd(), expiryWatermark) <= 0) {
+            event.deactivate();
+        }
+    }
+    
+    /**
+     * 沿结束时间索引处理结束时间早于当前时间的事件，调用方需持有全局锁
+     * @param limit 本批次最多处理的事件数量
+     * @return 实际处理的事件数量
+     */
+    private int expireBatch(int limit) {
+        T now = expiryPolicy.getTimeSource().now();
+        if (now == null) {
+            return 0;
+        }
+        
+        if (expiryPolicy.getMode() == ExpiryPolicy.Mode.ARCHIVE) {
+            // 过期事件会被移出索引，因此每次都从索引头部开始即可
+            List<Event<T>> expired = new ArrayList<>();
+            for (Event<T> event : endTimeIndex.headMap(now, false).values()) {
+                if (expired.size() >= limit) {
+                    break;
+                }
+                expired.add(event);
+            }
+            if (expired.isEmpty()) {
+                return 0;
+            }
+            
+            // 按对象身份从事件列表中移除，开销与批次大小成正比
+            events.removeInstances(expired);
+            for (Event<T> event : expired) {
+                unindexEvent(event);
+                event.deactivate();
+                archivedEvents.add(event);
+            }
+            return expired.size();
+        }
+        
+        // DEACTIVATE模式下事件仍留在索引中，从水位线之后继续处理
+        if (expiryWatermark != null && compareTime(expiryWatermark, now) >= 0) {
+            return 0;
+        }
+        NavigableMap<T, Event<T>> pending = expiryWatermark == null
+                ? endTimeIndex.headMap(now, false)
+                : endTimeIndex.subMap(expiryWatermark, false, now, false);
+        int count = 0;
+        for (Map.Entry<T, Event<T>> entry : pending.entrySet()) {
+            if (count >= limit) {
+                break;
+            }
+            entry.getValue().deactivate();
+            markDirty(entry.getValue());
+            expiryWatermark = entry.getKey();
+            count++;
+        }
+        return count;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,271 @@
+package com.heyu.timeline.core.timeline;
+
+import com.heyu.timeline.calculator.TimeCalculator;
+import com.heyu.timeline.calculator.TimeCalculatorFactory;
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.core.model.RecurringEvent;
+import com.heyu.timeline.core.model.TimeSlot;
+import com.heyu.timeline.core.model.TimelineBatch;
+import com.heyu.timeline.core.scheduler.ReservationConstraints;
+import com.heyu.timeline.exception.TimeLineException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * TimelineStructure默认方法的实现，只依赖接口中最基本的操作
+ * 供没有覆盖这些方法的外部实现使用，每次调用都线性扫描全部事件，内置的时间线都以索引覆盖了这些方法
+ */
+final class TimelineDefaults {
+
+    private TimelineDefaults() {
+    }
+
+    /**
+     * 按开始时间或结束时间对事件稳定排序
+     * @param events 事件
+     * @param byStart 是否按开始时间排序，否则按结束时间排序
+     * @param <T> 时间类型
+     * @return 排好序的新列表
+     */
+    static <T> List<Event<T>> sorted(List<Event<T>> events, boolean byStart) {
+        List<Event<T>> result = new ArrayList<>(events);
+        result.sort((a, b) -> byStart
+                ? TimelineOperations.compare(a.getStart(), b.getStart())
+                : TimelineOperations.compare(a.getEnd(), b.getEnd()));
+        return result;
+    }
+
+    /**
+     * 合并按开始时间排列的事件覆盖的时间段，重叠或首尾相接的事件合并为一个时间段
+     * @param byStart 按开始时间排列的事件
+     * @param <T> 时间类型
+     * @return 按时间顺序排列、互不相交的时间段
+     */
+    static <T> List<TimeSlot<T>> coverage(List<Event<T>> byStart) {
+        List<TimeSlot<T>> result = new ArrayList<>();
+        T start = null;
+        T end = null;
+        for (Event<T> event : byStart) {
+            if (start != null && TimelineOperations.compare(event.getStart(), end) <= 0) {
+                if (TimelineOperations.compare(event.getEnd(), end) > 0) {
+                    end = event.getEnd();
+                }
+                continue;
+            }
+            if (start != null) {
+                result.add(new TimeSlot<>(start, end));
+            }
+            start = event.getStart();
+            end = event.getEnd();
+        }
+        if (start != null) {
+            result.add(new TimeSlot<>(start, end));
+        }
+        return result;
+    }
+
+    /**
+     * 检查时间段参数
+     * @param start 开始时间
+     * @param end 结束时间
+     * @param <T> 时间类型
+     * @throws TimeLineException 当时间为null或开始时间晚于结束时间时抛出异常
+     */
+    static <T> void checkRange(T start, T end) throws TimeLineException {
+        if (start == null || end == null) {
+            throw new TimeLineException("Start time and end time cannot be null");
+        }
+        if (TimelineOperations.compare(start, end) > 0) {
+            throw new TimeLineException("Start time cannot be after end time");
+        }
+    }
+
+    /**
+     * 从排好序的事件中取出开始时间或结束时间在闭区间[start, end]内的事件
+     * @param events 按开始时间或结束时间排列的事件
+     * @param start 开始时间
+     * @param end 结束时间
+     * @param byStart 按开始时间还是结束时间判断
+     * @param <T> 时间类型
+     * @return 保持原有顺序的事件列表
+     */
+    static <T> List<Event<T>> within(List<Event<T>> events, T start, T end, boolean byStart) {
+        List<Event<T>> result = new ArrayList<>();
+        for (Event<T> event : events) {
+            T key = byStart ? event.getStart() : event.getEnd();
+            if (TimelineOperations.compare(key, start) >= 0 && TimelineOperations.compare(key, end) <= 0) {
+                result.add(event);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 在按开始时间排列的活跃事件中查找开始时间晚于指定时间的第一个事件
+     * @param sorted 按开始时间排列的活跃事件
+     * @param time 时间点
+     * @param <T> 时间类型
+     * @return 事件，不存在时返回null
+     */
+    static <T> Event<T> firstStartingAfter(List<Event<T>> sorted, T time) {
+        for (Event<T> event : sorted) {
+            if (TimelineOperations.compare(event.getStart(), time) > 0) {
+                return event;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 查找结束时间最晚的事件，可以限定结束时间早于指定时间
+     * @param events 事件
+     * @param before 结束时间的上界（不含），为null时不限定
+     * @param <T> 时间类型
+     * @return 事件，不存在时返回null
+     */
+    static <T> Event<T> latestEnding(List<Event<T>> events, T before) {
+        Event<T> latest = null;
+        for (Event<T> event : events) {
+            if (before != null && TimelineOperations.compare(event.getEnd(), before) >= 0) {
+                continue;
+            }
+            if (latest == null || TimelineOperations.compare(event.getEnd(), latest.getEnd()) > 0) {
+                latest = event;
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * 获取距离指定时间最近的k个活跃事件，两侧的事件先排好序再交给NearestEvents合并
+     * @param timeline 时间线
+     * @param time 时间点
+     * @param k 事件数量
+     * @param <T> 时间类型
+     * @return 按距离从近到远排列的事件
+     * @throws TimeLineException 当缺少时间计算器且无法按时间类型推断时抛出异常
+     */
+    static <T> List<Event<T>> kNearest(TimelineStructure<T> timeline, T time, int k) throws TimeLineException {
+        List<Event<T>> containing = new ArrayList<>();
+        List<Event<T>> before = new ArrayList<>();
+        List<Event<T>> after = new ArrayList<>();
+        for (Event<T> event : timeline.getSortedEvents()) {
+            if (TimelineOperations.compare(event.getEnd(), time) < 0) {
+                before.add(event);
+            } else if (TimelineOperations.compare(event.getStart(), time) > 0) {
+                after.add(event);
+            } else {
+                containing.add(event);
+            }
+        }
+        before = sorted(before, false);
+        Collections.reverse(before);
+        return NearestEvents.merge(time, k, containing, before.iterator(), after.iterator(),
+                calculatorFor(timeline, time));
+    }
+
+    /**
+     * 获取时间线的时间计算器，未设置时按时间类型推断
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> TimeCalculator<T> calculatorFor(TimelineStructure<T> timeline, T sample)
+            throws TimeLineException {
+        if (timeline.getTimeCalculator() != null) {
+            return timeline.getTimeCalculator();
+        }
+        TimeCalculator<T> inferred = TimeCalculatorFactory.createTimeCalculator((Class<T>) sample.getClass());
+        try {
+            inferred.getZero();
+            return inferred;
+        } catch (UnsupportedOperationException e) {
+            throw new TimeLineException("TimeCalculator is required for this operation. " +
+                    "Please set a TimeCalculator using setTimeCalculator method.");
+        }
+    }
+
+    /**
+     * 逐个删除和添加事件，任何一步失败时按相反顺序撤销已经完成的步骤
+     * @param timeline 时间线
+     * @param batch 要应用的修改
+     * @param <T> 时间类型
+     * @throws TimeLineException 当要删除的事件不存在或添加失败时抛出异常
+     */
+    static <T> void applyBatch(TimelineStructure<T> timeline, TimelineBatch<T> batch) throws TimeLineException {
+        for (Event<T> event : batch.getAdditions()) {
+            if (event instanceof RecurringEvent) {
+                throw new TimeLineException("Recurring events cannot be added in a batch");
+            }
+            checkRange(event.getStart(), event.getEnd());
+        }
+        List<Event<T>> removed = new ArrayList<>();
+        List<Event<T>> added = new ArrayList<>();
+        try {
+            for (Event<T> event : batch.getRemovals()) {
+                if (!timeline.removeEvent(event)) {
+                    throw new TimeLineException("Batch event to remove does not exist: " + event.getSubject());
+                }
+                removed.add(event);
+            }
+            for (Event<T> event : batch.getAdditions()) {
+                timeline.addEvent(event);
+                added.add(event);
+            }
+        } catch (TimeLineException e) {
+            for (int i = added.size() - 1; i >= 0; i--) {
+                timeline.removeEvent(added.get(i));
+            }
+            for (int i = removed.size() - 1; i >= 0; i--) {
+                timeline.addEvent(removed.get(i));
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 在所有事件之间寻找不早于约束的最早空闲时间段，并加入占用该时间段的事件
+     * @param timeline 时间线
+     * @param duration 持续时间
+     * @param subject 事件主体
+     * @param constraints 约束条件，为null时不做限制
+     * @param <T> 时间类型
+     * @return 分配到的时间段
+     * @throws TimeLineException 当缺少时间计算器或在最晚结束时间之前没有足够的空闲时间时抛出异常
+     */
+    static <T> TimeSlot<T> reserve(TimelineStructure<T> timeline, T duration, Object subject,
+                                   ReservationConstraints<T> constraints) throws TimeLineException {
+        TimeCalculator<T> calculator = timeline.getTimeCalculator();
+        if (calculator == null) {
+            throw new TimeLineException("TimeCalculator is required to reserve time slots. " +
+                    "Please set a TimeCalculator using setTimeCalculator method.");
+        }
+        T start;
+        if (constraints != null && constraints.getNotBefore() != null) {
+            start = constraints.getNotBefore();
+        } else {
+            try {
+                start = calculator.getZero();
+            } catch (UnsupportedOperationException e) {
+                throw new TimeLineException("TimeCalculator does not support getting zero time. " +
+                        "Please provide a TimeCalculator implementation that supports getZero() method.");
+            }
+        }
+        for (Event<T> event : timeline.getEventsInStartOrder()) {
+            if (calculator.compare(event.getEnd(), start) <= 0) {
+                continue;
+            }
+            if (calculator.compare(event.getStart(), calculator.add(start, duration)) >= 0) {
+                break;
+            }
+            start = event.getEnd();
+        }
+        T end = calculator.add(start, duration);
+        if (constraints != null && constraints.getDeadline() != null
+                && calculator.compare(end, constraints.getDeadline()) > 0) {
+            throw new TimeLineException("No free slot for the reservation ends before the deadline");
+        }
+        timeline.addEvent(new Event<>(start, end, duration, subject, true));
+        return new TimeSlot<>(start, end);
+    }
+}
@@ -0,0 +1,299 @@
+package com.heyu.timeline.core.timeline;
+
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.core.model.RecurringEvent;
+import com.heyu.timeline.core.model.TimeSlot;
+import com.heyu.timeline.core.model.TimelineDiff;
+import com.heyu.timeline.exception.TimeLineException;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 时间线的集合运算，全部以归并的方式处理两条已经排好序的序列，代价与两侧长度之和成正比
+ */
+final class TimelineOperations {
+
+    private TimelineOperations() {
+    }
+
+    /**
+     * 将两条时间线的事件合并到一条新的可重叠时间线
+     * 新时间线保存的是事件的副本，之后对原时间线中事件的修改（例如过期停用或重新安排）不会影响新时间线的索引
+     * @param left 一条时间线
+     * @param right 另一条时间线
+     * @param <T> 时间类型
+     * @return 新时间线
+     * @throws TimeLineException 当另一条时间线为null或重复事件无法加入时抛出异常
+     */
+    static <T> OverlappingTimeLine<T> merge(TimelineStructure<T> left, TimelineStructure<T> right)
+            throws TimeLineException {
+        if (right == null) {
+            throw new TimeLineException("Timeline to merge cannot be null");
+        }
+        OverlappingTimeLine<T> merged = new OverlappingTimeLine<>(
+                left.getTimeCalculator() != null ? left.getTimeCalculator() : right.getTimeCalculator());
+        // 两种顺序中的同一个事件必须对应同一个副本
+        Map<Event<T>, Event<T>> copies = new IdentityHashMap<>();
+        merged.loadSorted(
+                copyAll(mergeSorted(left.getEventsInStartOrder(), right.getEventsInStartOrder(), true), copies),
+                copyAll(mergeSorted(left.getEventsInEndOrder(), right.getEventsInEndOrder(), false), copies));
+        for (RecurringEvent<T> series : left.getRecurringEvents()) {
+            merged.addEvent(copySeries(series));
+        }
+        for (RecurringEvent<T> series : right.getRecurringEvents()) {
+            merged.addEvent(copySeries(series));
+        }
+        return merged;
+    }
+
+    private static <T> List<Event<T>> copyAll(List<Event<T>> events, Map<Event<T>, Event<T>> copies) {
+        List<Event<T>> result = new ArrayList<>(events.size());
+        for (Event<T> event : events) {
+            result.add(copies.computeIfAbsent(event, TimelineSnapshot::copy));
+        }
+        return result;
+    }
+
+    private static <T> RecurringEvent<T> copySeries(RecurringEvent<T> series) {
+        RecurringEvent<T> copy = new RecurringEvent<>(series.getStart(), series.getEnd(), series.getSubject(),
+                series.getRule());
+        copy.setActive(series.isActive());
+        copy.setPriority(series.getPriority());
+        copy.setAttributes(new HashMap<>(series.getAttributes()));
+        return copy;
+    }
+
+    /**
+     * 计算两组时间段的并集
+     * @param left 按时间顺序排列、互不相交的时间段
+     * @param right 按时间顺序排列、互不相交的时间段
+     * @param <T> 时间类型
+     * @return 并集
+     */
+    static <T> List<TimeSlot<T>> union(List<TimeSlot<T>> left, List<TimeSlot<T>> right) {
+        List<TimeSlot<T>> result = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        T currentStart = null;
+        T currentEnd = null;
+        while (i < left.size() || j < right.size()) {
+            TimeSlot<T> next;
+            if (j >= right.size() || (i < left.size()
+                    && compare(left.get(i).getStart(), right.get(j).getStart()) <= 0)) {
+                next = left.get(i++);
+            } else {
+                next = right.get(j++);
+            }
+            if (currentStart != null && compare(next.getStart(), currentEnd) <= 0) {
+                if (compare(next.getEnd(), currentEnd) > 0) {
+                    currentEnd = next.getEnd();
+                }
+                continue;
+            }
+            if (currentStart != null) {
+                result.add(new TimeSlot<>(currentStart, currentEnd));
+            }
+            currentStart = next.getStart();
+            currentEnd = next.getEnd();
+        }
+        if (currentStart != null) {
+            result.add(new TimeSlot<>(currentStart, currentEnd));
+        }
+        return result;
+    }
+
+    /**
+     * 计算两组时间段的交集，只在端点相接的部分不计入
+     * @param left 按时间顺序排列、互不相交的时间段
+     * @param right 按时间顺序排列、互不相交的时间段
+     * @param <T> 时间类型
+     * @return 交集
+     */
+    static <T> List<TimeSlot<T>> intersect(List<TimeSlot<T>> left, List<TimeSlot<T>> right) {
+        List<TimeSlot<T>> result = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < left.size() && j < right.size()) {
+            TimeSlot<T> a = left.get(i);
+            TimeSlot<T> b = right.get(j);
+            T start = compare(a.getStart(), b.getStart()) >= 0 ? a.getStart() : b.getStart();
+            T end = compare(a.getEnd(), b.getEnd()) <= 0 ? a.getEnd() : b.getEnd();
+            if (compare(start, end) < 0) {
+                result.add(new TimeSlot<>(start, end));
+            }
+            // 先结束的一侧不会再与另一侧后面的时间段相交
+            if (compare(a.getEnd(), b.getEnd()) <= 0) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 计算在左侧而不在右侧的时间
+     * @param left 按时间顺序排列、互不相交的时间段
+     * @param right 按时间顺序排列、互不相交的时间段
+     * @param <T> 时间类型
+     * @return 差集
+     */
+    static <T> List<TimeSlot<T>> difference(List<TimeSlot<T>> left, List<TimeSlot<T>> right) {
+        List<TimeSlot<T>> result = new ArrayList<>();
+        int j = 0;
+        for (TimeSlot<T> a : left) {
+            T cursor = a.getStart();
+            // 跳过在当前时间段开始之前已经结束的时间段
+            while (j < right.size() && compare(right.get(j).getEnd(), cursor) <= 0) {
+                j++;
+            }
+            while (j < right.size() && compare(right.get(j).getStart(), a.getEnd()) < 0) {
+                TimeSlot<T> b = right.get(j);
+                if (compare(b.getStart(), cursor) > 0) {
+                    result.add(new TimeSlot<>(cursor, b.getStart()));
+                }
+                if (compare(b.getEnd(), cursor) > 0) {
+                    cursor = b.getEnd();
+                }
+                if (compare(b.getEnd(), a.getEnd()) >= 0) {
+                    break;
+                }
+                j++;
+            }
+            if (compare(cursor, a.getEnd()) < 0) {
+                result.add(new TimeSlot<>(cursor, a.getEnd()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 计算从旧时间线到新时间线的差异
+     * @param older 旧时间线
+     * @param newer 新时间线
+     * @param <T> 时间类型
+     * @return 差异
+     * @throws TimeLineException 当新时间线为null时抛出异常
+     */
+    static <T> TimelineDiff<T> diff(TimelineStructure<T> older, TimelineStructure<T> newer) throws TimeLineException {
+        if (newer == null) {
+            throw new TimeLineException("Timeline to compare cannot be null");
+        }
+        List<Event<T>> added = new ArrayList<>();
+        List<Event<T>> removed = new ArrayList<>();
+        List<Event<T>> changed = new ArrayList<>();
+        diffSorted(older.getEventsInStartOrder(), newer.getEventsInStartOrder(), TimelineOperations::compare,
+                added, removed, changed);
+        return new TimelineDiff<>(added, removed, changed);
+    }
+
+    /**
+     * 归并比较两组按开始时间排好序的事件，开始时间相同的事件再按主体配对
+     * @param older 旧版本的事件
+     * @param newer 新版本的事件
+     * @param comparator 开始时间的比较器
+     * @param added 收集新增的事件
+     * @param removed 收集删除的事件
+     * @param changed 收集修改的事件
+     * @param <T> 时间类型
+     */
+    static <T> void diffSorted(List<Event<T>> older, List<Event<T>> newer, Comparator<? super T> comparator,
+                               List<Event<T>> added, List<Event<T>> removed, List<Event<T>> changed) {
+        int i = 0;
+        int j = 0;
+        while (i < older.size() || j < newer.size()) {
+            int cmp;
+            if (i >= older.size()) {
+                cmp = 1;
+            } else if (j >= newer.size()) {
+                cmp = -1;
+            } else {
+                cmp = comparator.compare(older.get(i).getStart(), newer.get(j).getStart());
+            }
+            if (cmp < 0) {
+                removed.add(older.get(i++));
+                continue;
+            }
+            if (cmp > 0) {
+                added.add(newer.get(j++));
+                continue;
+            }
+
+            // 开始时间相同的一组事件，组内通常只有很少几个
+            T start = older.get(i).getStart();
+            int olderEnd = i;
+            while (olderEnd < older.size() && comparator.compare(older.get(olderEnd).getStart(), start) == 0) {
+                olderEnd++;
+            }
+            int newerEnd = j;
+            while (newerEnd < newer.size() && comparator.compare(newer.get(newerEnd).getStart(), start) == 0) {
+                newerEnd++;
+            }
+            boolean[] matched = new boolean[newerEnd - j];
+            for (int a = i; a < olderEnd; a++) {
+                Event<T> before = older.get(a);
+                int match = -1;
+                for (int b = j; b < newerEnd; b++) {
+                    if (!matched[b - j] && Objects.equals(before.getSubject(), newer.get(b).getSubject())) {
+                        match = b;
+                        break;
+                    }
+                }
+                if (match < 0) {
+                    removed.add(before);
+                    continue;
+                }
+                matched[match - j] = true;
+                Event<T> after = newer.get(match);
+                if (!before.equals(after) || !before.getAttributes().equals(after.getAttributes())) {
+                    changed.add(after);
+                }
+            }
+            for (int b = j; b < newerEnd; b++) {
+                if (!matched[b - j]) {
+                    added.add(newer.get(b));
+                }
+            }
+            i = olderEnd;
+            j = newerEnd;
+        }
+    }
+
+    /**
+     * 归并两组按开始时间或结束时间排好序的事件，时间相同时左侧在前
+     */
+    private static <T> List<Event<T>> mergeSorted(List<Event<T>> left, List<Event<T>> right, boolean byStart) {
+        List<Event<T>> result = new ArrayList<>(left.size() + right.size());
+        int i = 0;
+        int j = 0;
+        while (i < left.size() && j < right.size()) {
+            T a = byStart ? left.get(i).getStart() : left.get(i).getEnd();
+            T b = byStart ? right.get(j).getStart() : right.get(j).getEnd();
+            result.add(compare(a, b) <= 0 ? left.get(i++) : right.get(j++));
+        }
+        while (i < left.size()) {
+            result.add(left.get(i++));
+        }
+        while (j < right.size()) {
+            result.add(right.get(j++));
+        }
+        return result;
+    }
+
+    /**
+     * 与时间线索引相同的比较规则
+     */
+    @SuppressWarnings("unchecked")
+    static <T> int compare(T t1, T t2) {
+        if (t1 instanceof Comparable && t2 instanceof Comparable) {
+            return ((Comparable<T>) t1).compareTo(t2);
+        }
+        return t1.toString().compareTo(t2.toString());
+    }
+}
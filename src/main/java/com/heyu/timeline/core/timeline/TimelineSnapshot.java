@@ -0,0 +1,203 @@
+package com.heyu.timeline.core.timeline;
+
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.core.model.TimelineDiff;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+
+/**
+ * 时间线的只读快照，事件按开始时间排列并分成若干块
+ * 同一条时间线先后生成的快照共享未发生变化的块，比较两个这样的快照时只需要处理不同的块
+ * @param <T> 时间类型
+ */
+public final class TimelineSnapshot<T> {
+
+    // 每块的目标事件数，同一开始时间的事件总是放在同一块中
+    static final int CHUNK_SIZE = 64;
+
+    /**
+     * 读取开始时间在[lo, hi)之内的事件，lo或hi为null表示该方向不设边界
+     */
+    interface RangeReader<T> {
+        List<Event<T>> read(T lo, T hi);
+    }
+
+    private final List<List<Event<T>>> chunks;
+
+    private final Comparator<? super T> comparator;
+
+    private final int size;
+
+    private TimelineSnapshot(List<List<Event<T>>> chunks, Comparator<? super T> comparator) {
+        this.chunks = chunks;
+        this.comparator = comparator;
+        int total = 0;
+        for (List<Event<T>> chunk : chunks) {
+            total += chunk.size();
+        }
+        this.size = total;
+    }
+
+    /**
+     * 生成新的快照，上一个快照中没有变化的块直接沿用
+     * @param previous 同一条时间线的上一个快照，为null时完整生成
+     * @param dirtyKeys 上一个快照之后发生过变化的开始时间
+     * @param comparator 开始时间的比较器
+     * @param reader 按开始时间范围读取时间线中的事件
+     * @param <T> 时间类型
+     * @return 新的快照
+     */
+    static <T> TimelineSnapshot<T> build(TimelineSnapshot<T> previous, NavigableSet<T> dirtyKeys,
+                                         Comparator<? super T> comparator, RangeReader<T> reader) {
+        List<List<Event<T>>> chunks = new ArrayList<>();
+        if (previous == null || previous.chunks.isEmpty()) {
+            split(reader.read(null, null), comparator, chunks);
+            return new TimelineSnapshot<>(chunks, comparator);
+        }
+
+        // 每块负责从自身第一个开始时间到下一块第一个开始时间的范围，第一块向前不设边界
+        List<List<Event<T>>> old = previous.chunks;
+        for (int i = 0; i < old.size(); i++) {
+            T lo = i == 0 ? null : old.get(i).get(0).getStart();
+            T hi = i + 1 < old.size() ? old.get(i + 1).get(0).getStart() : null;
+            T dirty = lo == null ? (dirtyKeys.isEmpty() ? null : dirtyKeys.first()) : dirtyKeys.ceiling(lo);
+            if (dirty == null || (hi != null && comparator.compare(dirty, hi) >= 0)) {
+                chunks.add(old.get(i));
+            } else {
+                split(reader.read(lo, hi), comparator, chunks);
+            }
+        }
+        return new TimelineSnapshot<>(chunks, comparator);
+    }
+
+    /**
+     * 复制事件并按块大小切分，不拆开开始时间相同的事件
+     */
+    private static <T> void split(List<Event<T>> events, Comparator<? super T> comparator,
+                                  List<List<Event<T>>> chunks) {
+        List<Event<T>> chunk = new ArrayList<>();
+        for (Event<T> event : events) {
+            if (chunk.size() >= CHUNK_SIZE
+                    && comparator.compare(chunk.get(chunk.size() - 1).getStart(), event.getStart()) != 0) {
+                chunks.add(Collections.unmodifiableList(chunk));
+                chunk = new ArrayList<>();
+            }
+            chunk.add(copy(event));
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(Collections.unmodifiableList(chunk));
+        }
+    }
+
+    /**
+     * 复制事件当前的状态，之后对原事件的修改不会影响副本
+     */
+    static <T> Event<T> copy(Event<T> event) {
+        Event<T> copy = new Event<>(event.getStart(), event.getEnd(), event.getDuration(),
+                event.getSubject(), event.isActive());
+        copy.setPriority(event.getPriority());
+        copy.setAttributes(new HashMap<>(event.getAttributes()));
+        return copy;
+    }
+
+    /**
+     * 获取快照中的事件数量
+     * @return 事件数量
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 获取快照中按开始时间排列的所有事件
+     * @return 事件列表
+     */
+    public List<Event<T>> getEvents() {
+        List<Event<T>> result = new ArrayList<>(size);
+        for (List<Event<T>> chunk : chunks) {
+            result.addAll(chunk);
+        }
+        return result;
+    }
+
+    /**
+     * 获取快照中与时间段有重叠的活跃事件，首尾相接也视为重叠
+     * 第一个开始时间晚于结束时间的块及其之后的块不会被访问
+     * @param start 开始时间
+     * @param end 结束时间
+     * @return 事件列表，按开始时间排列
+     */
+    public List<Event<T>> getEventsBetween(T start, T end) {
+        List<Event<T>> result = new ArrayList<>();
+        for (List<Event<T>> chunk : chunks) {
+            if (comparator.compare(chunk.get(0).getStart(), end) > 0) {
+                break;
+            }
+            for (Event<T> event : chunk) {
+                if (comparator.compare(event.getStart(), end) <= 0 && comparator.compare(event.getEnd(), start) >= 0
+                        && event.isActive()) {
+                    result.add(event);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 计算从本快照到较新快照的差异
+     * 两个快照共享的块直接跳过，只有不同的块参与逐个事件的归并
+     * @param newer 较新的快照
+     * @return 差异
+     */
+    public TimelineDiff<T> diff(TimelineSnapshot<T> newer) {
+        List<Event<T>> added = new ArrayList<>();
+        List<Event<T>> removed = new ArrayList<>();
+        List<Event<T>> changed = new ArrayList<>();
+
+        Map<List<Event<T>>, Integer> newerPositions = new IdentityHashMap<>();
+        for (int j = 0; j < newer.chunks.size(); j++) {
+            newerPositions.put(newer.chunks.get(j), j);
+        }
+
+        int i = 0;
+        int j = 0;
+        while (i < chunks.size() || j < newer.chunks.size()) {
+            if (i < chunks.size() && j < newer.chunks.size() && chunks.get(i) == newer.chunks.get(j)) {
+                i++;
+                j++;
+                continue;
+            }
+            // 找到下一对共享的块，两者之间的部分逐个事件比较
+            int nextI = i;
+            int nextJ = newer.chunks.size();
+            while (nextI < chunks.size()) {
+                Integer position = newerPositions.get(chunks.get(nextI));
+                if (position != null && position >= j) {
+                    nextJ = position;
+                    break;
+                }
+                nextI++;
+            }
+            TimelineOperations.diffSorted(flatten(chunks, i, nextI), flatten(newer.chunks, j, nextJ),
+                    comparator, added, removed, changed);
+            i = nextI;
+            j = nextJ;
+        }
+        return new TimelineDiff<>(added, removed, changed);
+    }
+
+    private static <T> List<Event<T>> flatten(List<List<Event<T>>> chunks, int from, int to) {
+        List<Event<T>> result = new ArrayList<>();
+        for (int k = from; k < to; k++) {
+            result.addAll(chunks.get(k));
+        }
+        return result;
+    }
+}
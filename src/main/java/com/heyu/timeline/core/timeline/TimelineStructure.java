@@ -2,12 +2,22 @@ package com.heyu.timeline.core.timeline;
 
 import com.heyu.timeline.calculator.TimeCalculator;
 import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.core.model.RecurringEvent;
+import com.heyu.timeline.core.model.TimeSlot;
+import com.heyu.timeline.core.model.TimelineBatch;
+import com.heyu.timeline.core.model.TimelineDiff;
+import com.heyu.timeline.core.scheduler.ReservationConstraints;
 import com.heyu.timeline.exception.TimeLineException;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Predicate;
 
 /**
  * 时间线结构接口，定义了时间线的基本操作
+ * 在最初的基本操作之后加入的方法都有默认实现，只依赖基本操作并线性扫描全部事件，
+ * 已有的外部实现不需要修改即可编译，需要更好的性能时再以索引覆盖
  * @param <T> 时间类型
  */
 public interface TimelineStructure<T> {
@@ -18,6 +28,14 @@ public interface TimelineStructure<T> {
      */
     void setTimeCalculator(TimeCalculator<T> timeCalculator);
     
+    /**
+     * 获取时间计算器，默认返回null
+     * @return 时间计算器，未设置时返回null
+     */
+    default TimeCalculator<T> getTimeCalculator() {
+        return null;
+    }
+    
     /**
      * 添加事件到时间线
      * @param event 要添加的事件
@@ -66,6 +84,134 @@ public interface TimelineStructure<T> {
      */
     List<Event<T>> getEventsBetween(T start, T end) throws TimeLineException;
     
+    /**
+     * 获取在指定时间段内活跃且满足条件的事件，条件在遍历索引时判断
+     * @param start 开始时间
+     * @param end 结束时间
+     * @param predicate 过滤条件
+     * @return 按时间顺序排列的事件列表
+     * @throws TimeLineException 当参数为null或开始时间晚于结束时间时抛出异常
+     */
+    default List<Event<T>> getEventsBetween(T start, T end, Predicate<? super Event<T>> predicate)
+            throws TimeLineException {
+        return getEventsBetween(start, end, predicate, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * 获取在指定时间段内活跃且满足条件的前limit个事件，条件在遍历索引时判断，取满后停止遍历
+     * 默认实现先取出时间段内的全部事件，再按开始时间排序并过滤
+     * @param start 开始时间
+     * @param end 结束时间
+     * @param predicate 过滤条件
+     * @param limit 最多返回的事件数量
+     * @return 按时间顺序排列的事件列表
+     * @throws TimeLineException 当参数为null、limit为负数或开始时间晚于结束时间时抛出异常
+     */
+    default List<Event<T>> getEventsBetween(T start, T end, Predicate<? super Event<T>> predicate, int limit)
+            throws TimeLineException {
+        if (predicate == null) {
+            throw new TimeLineException("Predicate cannot be null");
+        }
+        if (limit < 0) {
+            throw new TimeLineException("Limit cannot be negative");
+        }
+        TimelineDefaults.checkRange(start, end);
+        List<Event<T>> result = new ArrayList<>();
+        for (Event<T> event : TimelineDefaults.sorted(getEventsBetween(start, end), true)) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (predicate.test(event)) {
+                result.add(event);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 获取开始时间在指定时间段内的所有事件（包括非活跃事件）
+     * @param start 开始时间
+     * @param end 结束时间
+     * @return 按开始时间排列的事件列表
+     * @throws TimeLineException 当时间参数为null或开始时间晚于结束时间时抛出异常
+     */
+    default List<Event<T>> getEventsStartingBetween(T start, T end) throws TimeLineException {
+        TimelineDefaults.checkRange(start, end);
+        return TimelineDefaults.within(getEventsInStartOrder(), start, end, true);
+    }
+    
+    /**
+     * 获取结束时间在指定时间段内的所有事件（包括非活跃事件）
+     * @param start 开始时间
+     * @param end 结束时间
+     * @return 按结束时间排列的事件列表
+     * @throws TimeLineException 当时间参数为null或开始时间晚于结束时间时抛出异常
+     */
+    default List<Event<T>> getEventsEndingBetween(T start, T end) throws TimeLineException {
+        TimelineDefaults.checkRange(start, end);
+        return TimelineDefaults.within(getEventsInEndOrder(), start, end, false);
+    }
+    
+    /**
+     * 获取在指定时间之后开始的第一个活跃事件
+     * @param time 时间点
+     * @return 开始时间晚于该时间的最早事件，不存在时返回null
+     * @throws TimeLineException 当时间参数为null时抛出异常
+     */
+    default Event<T> nextEventAfter(T time) throws TimeLineException {
+        if (time == null) {
+            throw new TimeLineException("Time cannot be null");
+        }
+        return TimelineDefaults.firstStartingAfter(getSortedEvents(), time);
+    }
+    
+    /**
+     * 获取在指定时间之前结束的最后一个活跃事件
+     * @param time 时间点
+     * @return 结束时间早于该时间的最晚事件，不存在时返回null
+     * @throws TimeLineException 当时间参数为null时抛出异常
+     */
+    default Event<T> previousEventBefore(T time) throws TimeLineException {
+        if (time == null) {
+            throw new TimeLineException("Time cannot be null");
+        }
+        return TimelineDefaults.latestEnding(getSortedEvents(), time);
+    }
+    
+    /**
+     * 获取开始时间最早的活跃事件
+     * @return 第一个事件，时间线为空时返回null
+     */
+    default Event<T> firstEvent() {
+        List<Event<T>> sorted = getSortedEvents();
+        return sorted.isEmpty() ? null : sorted.get(0);
+    }
+    
+    /**
+     * 获取结束时间最晚的活跃事件
+     * @return 最后一个事件，时间线为空时返回null
+     */
+    default Event<T> lastEvent() {
+        return TimelineDefaults.latestEnding(getSortedEvents(), null);
+    }
+    
+    /**
+     * 获取距离指定时间最近的k个活跃事件，包含该时间的事件距离为零
+     * @param time 时间点
+     * @param k 事件数量
+     * @return 按距离从近到远排列的事件
+     * @throws TimeLineException 当参数不合法或缺少时间计算器时抛出异常
+     */
+    default List<Event<T>> kNearest(T time, int k) throws TimeLineException {
+        if (time == null) {
+            throw new TimeLineException("Time cannot be null");
+        }
+        if (k < 0) {
+            throw new TimeLineException("k cannot be negative");
+        }
+        return TimelineDefaults.kNearest(this, time, k);
+    }
+    
     /**
      * 移除所有非活跃事件
      * @return 被移除的事件数量
@@ -88,4 +234,142 @@ public interface TimelineStructure<T> {
      * 清空所有事件
      */
     void clear();
-}
\ No newline at end of file
+    
+    /**
+     * 在一次加锁中原子地应用一批修改：先删除全部要删除的事件，再添加全部要添加的事件
+     * 任何一步失败时已经应用的修改全部撤销，时间线保持原状
+     * 默认实现逐个调用removeEvent和addEvent并在失败时反向撤销，不在同一次加锁中完成，
+     * 也无法撤销addEvent按淘汰策略对其他事件做出的修改，需要原子性的实现应覆盖此方法
+     * @param batch 要应用的修改
+     * @throws TimeLineException 当批次为null、要删除的事件不存在、要添加的事件时间无效或发生冲突时抛出异常
+     */
+    default void applyBatch(TimelineBatch<T> batch) throws TimeLineException {
+        if (batch == null) {
+            throw new TimeLineException("Batch cannot be null");
+        }
+        TimelineDefaults.applyBatch(this, batch);
+    }
+    
+    /**
+     * 原子地预约一个时间段：在同一次加锁中寻找最早的空闲时间段并加入占用该时间段的事件
+     * 默认实现扫描getEventsInStartOrder寻找空闲时间段后调用addEvent，不考虑重复事件，
+     * 两步之间不加锁，并发预约时需要原子性的实现应覆盖此方法
+     * @param duration 持续时间
+     * @param subject 事件主体
+     * @param constraints 约束条件，为null时不做限制
+     * @return 分配到的时间段
+     * @throws TimeLineException 当持续时间为null、缺少时间计算器或在最晚结束时间之前没有足够的空闲时间时抛出异常
+     */
+    default TimeSlot<T> reserve(T duration, Object subject, ReservationConstraints<T> constraints)
+            throws TimeLineException {
+        if (duration == null) {
+            throw new TimeLineException("Reservation duration cannot be null");
+        }
+        return TimelineDefaults.reserve(this, duration, subject, constraints);
+    }
+    
+    /**
+     * 原子地预约从零点开始最早的空闲时间段
+     * @param duration 持续时间
+     * @param subject 事件主体
+     * @return 分配到的时间段
+     * @throws TimeLineException 当持续时间为null或缺少时间计算器时抛出异常
+     */
+    default TimeSlot<T> reserve(T duration, Object subject) throws TimeLineException {
+        return reserve(duration, subject, null);
+    }
+    
+    /**
+     * 获取按开始时间排列的所有事件（包括非活跃事件），直接按开始时间索引的顺序输出
+     * 默认实现对getAllEvents的结果排序
+     * @return 事件列表
+     */
+    default List<Event<T>> getEventsInStartOrder() {
+        return TimelineDefaults.sorted(getAllEvents(), true);
+    }
+    
+    /**
+     * 获取按结束时间排列的所有事件（包括非活跃事件），直接按结束时间索引的顺序输出
+     * 默认实现对getAllEvents的结果排序
+     * @return 事件列表
+     */
+    default List<Event<T>> getEventsInEndOrder() {
+        return TimelineDefaults.sorted(getAllEvents(), false);
+    }
+    
+    /**
+     * 获取所有事件（包括非活跃事件）覆盖的时间段，重叠或首尾相接的事件合并为一个时间段
+     * @return 按时间顺序排列、互不相交的时间段
+     */
+    default List<TimeSlot<T>> getCoverage() {
+        return TimelineDefaults.coverage(getEventsInStartOrder());
+    }
+    
+    /**
+     * 获取时间线中保存的重复事件，默认没有重复事件
+     * @return 重复事件列表
+     */
+    default List<RecurringEvent<T>> getRecurringEvents() {
+        return Collections.emptyList();
+    }
+    
+    /**
+     * 将两条时间线的事件合并到一条新的可重叠时间线中，两条时间线本身不变
+     * 按开始时间和结束时间索引做归并，新时间线的索引按顺序线性建立，总代价为O(n + m)
+     * @param other 另一条时间线
+     * @return 包含两条时间线全部事件的新时间线
+     * @throws TimeLineException 当另一条时间线为null或重复事件无法加入时抛出异常
+     */
+    default OverlappingTimeLine<T> mergeWith(TimelineStructure<T> other) throws TimeLineException {
+        return TimelineOperations.merge(this, other);
+    }
+    
+    /**
+     * 计算两条时间线覆盖范围的并集
+     * @param other 另一条时间线
+     * @return 按时间顺序排列、互不相交的时间段
+     */
+    default List<TimeSlot<T>> unionCoverage(TimelineStructure<T> other) {
+        return TimelineOperations.union(getCoverage(), other.getCoverage());
+    }
+    
+    /**
+     * 计算两条时间线覆盖范围的交集，例如两个日程都被占用的时间
+     * @param other 另一条时间线
+     * @return 按时间顺序排列、互不相交的时间段，只在端点相接的部分不计入
+     */
+    default List<TimeSlot<T>> intersectCoverage(TimelineStructure<T> other) {
+        return TimelineOperations.intersect(getCoverage(), other.getCoverage());
+    }
+    
+    /**
+     * 计算本时间线覆盖而另一条时间线未覆盖的时间
+     * @param other 另一条时间线
+     * @return 按时间顺序排列、互不相交的时间段
+     */
+    default List<TimeSlot<T>> differenceCoverage(TimelineStructure<T> other) {
+        return TimelineOperations.difference(getCoverage(), other.getCoverage());
+    }
+    
+    /**
+     * 生成时间线当前状态的只读快照（不包括重复事件）
+     * 第一次生成之后时间线会记录发生变化的开始时间，下一次只重新生成变化所在的块，其余块与上一个快照共享
+     * 直接修改已加入时间线的事件对象不会被记录
+     * 默认实现不记录变化，每次都按getEventsInStartOrder完整生成
+     * @return 快照
+     */
+    default TimelineSnapshot<T> snapshot() {
+        return TimelineSnapshot.build(null, null, TimelineOperations::compare, (lo, hi) -> getEventsInStartOrder());
+    }
+    
+    /**
+     * 计算从本时间线到另一条时间线的差异，按开始时间索引归并比较
+     * 开始时间和主体都相同的事件视为同一个事件
+     * @param other 另一条时间线
+     * @return 差异
+     * @throws TimeLineException 当另一条时间线为null时抛出异常
+     */
+    default TimelineDiff<T> diff(TimelineStructure<T> other) throws TimeLineException {
+        return TimelineOperations.diff(this, other);
+    }
+}
@@ -0,0 +1,368 @@
+package com.heyu.timeline.core.timeline;
+
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.exception.TimeLineException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * 多版本时间线，允许事件重叠
+ * 每次修改都会提交一个新的版本号，索引中的每个条目记录自己在哪个版本加入、在哪个版本删除，
+ * 因此可以查询任意仍被保留的历史版本中的事件
+ * 早于保留范围的版本会被回收，回收的代价只与被回收的条目数量有关
+ * @param <T> 时间类型
+ */
+public class VersionedTimeLine<T> {
+
+    /**
+     * 索引中的一个条目，在[created, deleted)范围内的版本中可见
+     */
+    private static final class Version<T> {
+        private final Event<T> event;
+        private final long created;
+        private long deleted = Long.MAX_VALUE;
+
+        private Version(Event<T> event, long created) {
+            this.event = event;
+            this.created = created;
+        }
+
+        private boolean isVisibleAt(long version) {
+            return created <= version && version < deleted;
+        }
+    }
+
+    // 按开始时间索引所有版本的条目
+    private final TreeMap<T, List<Version<T>>> startTimeIndex = new TreeMap<>(new Comparator<T>() {
+        @SuppressWarnings("unchecked")
+        @Override
+        public int compare(T o1, T o2) {
+            if (o1 instanceof Comparable && o2 instanceof Comparable) {
+                return ((Comparable<T>) o1).compareTo(o2);
+            }
+            // 如果类型不可比较，使用toString进行比较
+            return o1.toString().compareTo(o2.toString());
+        }
+    });
+
+    // 已删除的条目，按删除版本递增排列，回收时从头部开始
+    private final Deque<Version<T>> deletedVersions = new ArrayDeque<>();
+
+    // 提交时间（毫秒）到该时间之前最后一个版本号的映射
+    private final TreeMap<Long, Long> commitTimes = new TreeMap<>();
+
+    // 全局锁
+    private final Lock globalLock = new ReentrantLock();
+
+    // 提供提交时间的时钟
+    private final LongSupplier clock;
+
+    // 保留的历史版本数量
+    private long retainedVersions;
+
+    // 当前版本号，空时间线的版本号为0
+    private long currentVersion;
+
+    /**
+     * 创建保留所有历史版本的时间线
+     */
+    public VersionedTimeLine() {
+        this(Long.MAX_VALUE);
+    }
+
+    /**
+     * 创建只保留最近若干个版本的时间线
+     * @param retainedVersions 当前版本之前保留的版本数量
+     */
+    public VersionedTimeLine(long retainedVersions) {
+        this(retainedVersions, System::currentTimeMillis);
+    }
+
+    /**
+     * 创建只保留最近若干个版本的时间线，并使用指定的时钟记录提交时间
+     * @param retainedVersions 当前版本之前保留的版本数量
+     * @param clock 返回当前毫秒时间的时钟
+     */
+    public VersionedTimeLine(long retainedVersions, LongSupplier clock) {
+        if (retainedVersions < 0) {
+            throw new IllegalArgumentException("Retained versions cannot be negative");
+        }
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock cannot be null");
+        }
+        this.retainedVersions = retainedVersions;
+        this.clock = clock;
+        commitTimes.put(clock.getAsLong(), 0L);
+    }
+
+    /**
+     * 设置保留的历史版本数量，缩小保留范围时立即回收过期的版本
+     * @param retainedVersions 当前版本之前保留的版本数量
+     */
+    public void setRetainedVersions(long retainedVersions) {
+        if (retainedVersions < 0) {
+            throw new IllegalArgumentException("Retained versions cannot be negative");
+        }
+        globalLock.lock();
+        try {
+            this.retainedVersions = retainedVersions;
+            collectGarbage();
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 添加事件，提交一个新版本
+     * 时间线保存事件的副本，之后修改传入的事件对象不会影响任何版本
+     * @param event 要添加的事件
+     * @return 提交的版本号
+     * @throws TimeLineException 当事件为null、缺少开始或结束时间或开始时间晚于结束时间时抛出异常
+     */
+    public long addEvent(Event<T> event) throws TimeLineException {
+        if (event == null) {
+            throw new TimeLineException("Cannot add null event to timeline");
+        }
+        if (event.getStart() == null || event.getEnd() == null) {
+            throw new TimeLineException("Versioned timeline requires events with start and end time");
+        }
+        if (startTimeIndex.comparator().compare(event.getStart(), event.getEnd()) > 0) {
+            throw new TimeLineException("Start time cannot be after end time");
+        }
+
+        Event<T> copy = new Event<>(event.getStart(), event.getEnd(), event.getDuration(),
+                event.getSubject(), event.isActive());
+        copy.setPriority(event.getPriority());
+        copy.setAttributes(new HashMap<>(event.getAttributes()));
+
+        globalLock.lock();
+        try {
+            long version = currentVersion + 1;
+            startTimeIndex.computeIfAbsent(copy.getStart(), k -> new ArrayList<>()).add(new Version<>(copy, version));
+            commit(version);
+            return version;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 删除当前版本中与给定事件相等的事件，提交一个新版本，历史版本中仍然可以查询到该事件
+     * @param event 要删除的事件
+     * @return 提交的版本号，事件不存在时返回-1且不提交新版本
+     * @throws TimeLineException 当事件为null时抛出异常
+     */
+    public long removeEvent(Event<T> event) throws TimeLineException {
+        if (event == null) {
+            throw new TimeLineException("Cannot remove null event from timeline");
+        }
+        if (event.getStart() == null) {
+            return -1;
+        }
+
+        globalLock.lock();
+        try {
+            List<Version<T>> bucket = startTimeIndex.get(event.getStart());
+            if (bucket == null) {
+                return -1;
+            }
+            for (Version<T> entry : bucket) {
+                if (entry.deleted == Long.MAX_VALUE && entry.event.equals(event)) {
+                    long version = currentVersion + 1;
+                    entry.deleted = version;
+                    deletedVersions.addLast(entry);
+                    commit(version);
+                    return version;
+                }
+            }
+            return -1;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取当前版本中与时间段有重叠的活跃事件
+     * @param start 开始时间
+     * @param end 结束时间
+     * @return 事件列表，按开始时间排列
+     * @throws TimeLineException 当时间为null或开始时间晚于结束时间时抛出异常
+     */
+    public List<Event<T>> getEventsBetween(T start, T end) throws TimeLineException {
+        globalLock.lock();
+        try {
+            return getEventsBetween(start, end, currentVersion);
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取指定版本中与时间段有重叠的活跃事件
+     * @param start 开始时间
+     * @param end 结束时间
+     * @param asOfVersion 版本号
+     * @return 事件列表，按开始时间排列
+     * @throws TimeLineException 当时间为null、开始时间晚于结束时间或版本不存在、已被回收时抛出异常
+     */
+    public List<Event<T>> getEventsBetween(T start, T end, long asOfVersion) throws TimeLineException {
+        if (start == null || end == null) {
+            throw new TimeLineException("Start time and end time cannot be null");
+        }
+        Comparator<? super T> comparator = startTimeIndex.comparator();
+        if (comparator.compare(start, end) > 0) {
+            throw new TimeLineException("Start time cannot be after end time");
+        }
+
+        globalLock.lock();
+        try {
+            checkVersion(asOfVersion);
+            List<Event<T>> result = new ArrayList<>();
+            for (List<Version<T>> bucket : startTimeIndex.headMap(end, true).values()) {
+                for (Version<T> entry : bucket) {
+                    if (entry.isVisibleAt(asOfVersion) && entry.event.isActive()
+                            && comparator.compare(entry.event.getEnd(), start) >= 0) {
+                        result.add(entry.event);
+                    }
+                }
+            }
+            return result;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取指定版本中包含某个时间点的活跃事件
+     * @param time 时间点
+     * @param asOfVersion 版本号
+     * @return 事件列表，按开始时间排列
+     * @throws TimeLineException 当时间为null或版本不存在、已被回收时抛出异常
+     */
+    public List<Event<T>> getEventsAt(T time, long asOfVersion) throws TimeLineException {
+        return getEventsBetween(time, time, asOfVersion);
+    }
+
+    /**
+     * 获取某个时刻的版本号，即在该时刻或之前提交的最后一个版本
+     * @param timestampMillis 毫秒时间
+     * @return 版本号
+     * @throws TimeLineException 当该时刻早于时间线创建或对应的版本已被回收时抛出异常
+     */
+    public long getVersionAt(long timestampMillis) throws TimeLineException {
+        globalLock.lock();
+        try {
+            Map.Entry<Long, Long> entry = commitTimes.floorEntry(timestampMillis);
+            if (entry == null) {
+                throw new TimeLineException("No retained version was committed at or before " + timestampMillis);
+            }
+            return entry.getValue();
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取当前版本号
+     * @return 当前版本号
+     */
+    public long getCurrentVersion() {
+        globalLock.lock();
+        try {
+            return currentVersion;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取仍然可以查询的最早版本号
+     * @return 最早版本号
+     */
+    public long getOldestVersion() {
+        globalLock.lock();
+        try {
+            return oldestVersion();
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 获取索引中保存的条目数量，包括仍在保留范围内的已删除条目
+     * @return 条目数量
+     */
+    public int getEntryCount() {
+        globalLock.lock();
+        try {
+            int count = 0;
+            for (List<Version<T>> bucket : startTimeIndex.values()) {
+                count += bucket.size();
+            }
+            return count;
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    /**
+     * 记录新版本的提交时间并回收过期的版本，调用方需持有全局锁
+     */
+    private void commit(long version) {
+        currentVersion = version;
+        commitTimes.put(clock.getAsLong(), version);
+        collectGarbage();
+    }
+
+    /**
+     * 回收在所有保留版本中都不可见的条目，调用方需持有全局锁
+     */
+    private void collectGarbage() {
+        long oldest = oldestVersion();
+        while (!deletedVersions.isEmpty() && deletedVersions.peekFirst().deleted <= oldest) {
+            Version<T> entry = deletedVersions.pollFirst();
+            List<Version<T>> bucket = startTimeIndex.get(entry.event.getStart());
+            Iterator<Version<T>> iterator = bucket.iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next() == entry) {
+                    iterator.remove();
+                    break;
+                }
+            }
+            if (bucket.isEmpty()) {
+                startTimeIndex.remove(entry.event.getStart());
+            }
+        }
+        // 提交时间按版本递增，回收映射到已回收版本的时刻
+        while (!commitTimes.isEmpty() && commitTimes.firstEntry().getValue() < oldest) {
+            commitTimes.pollFirstEntry();
+        }
+    }
+
+    /**
+     * 检查版本是否可以查询，调用方需持有全局锁
+     */
+    private void checkVersion(long version) throws TimeLineException {
+        if (version > currentVersion) {
+            throw new TimeLineException("Version " + version + " has not been committed yet");
+        }
+        if (version < oldestVersion()) {
+            throw new TimeLineException("Version " + version + " has been garbage collected");
+        }
+    }
+
+    private long oldestVersion() {
+        return Math.max(0, currentVersion - retainedVersions);
+    }
+}
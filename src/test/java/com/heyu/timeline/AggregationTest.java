@@ -0,0 +1,80 @@
+package com.heyu.timeline;
+
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.core.timeline.OverlappingTimeLine;
+import com.heyu.timeline.core.timeline.TimeLine;
+import com.heyu.timeline.exception.TimeLineException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 按时间段聚合统计测试
+ */
+public class AggregationTest {
+
+    @Test
+    @DisplayName("测试按时间段统计事件数量和占用时长")
+    public void testBuckets() throws TimeLineException {
+        OverlappingTimeLine<Integer> timeLine = new OverlappingTimeLine<>();
+        timeLine.addEvent(new Event<>(0, 15, "A"));
+        timeLine.addEvent(new Event<>(5, 8, "B"));
+        timeLine.addEvent(new Event<>(20, 30, "C"));
+
+        assertEquals(Arrays.asList(2L, 1L, 1L), timeLine.countPerBucket(0, 30, 10));
+        assertEquals(Arrays.asList(13, 5, 10), timeLine.busyTimePerBucket(0, 30, 10));
+        assertEquals(Integer.valueOf(8), timeLine.sumOver(6, 12));
+
+        // 统计索引随事件的增删同步更新
+        timeLine.removeEvent(new Event<>(5, 8, "B"));
+        timeLine.addEvent(new Event<>(25, 40, "D"));
+        assertEquals(Arrays.asList(1L, 1L, 2L, 1L), timeLine.countPerBucket(0, 35, 10));
+        assertEquals(Arrays.asList(10, 5, 15, 5), timeLine.busyTimePerBucket(0, 35, 10));
+    }
+
+    @Test
+    @DisplayName("测试使用Java时间类型统计")
+    public void testLocalDateTime() throws TimeLineException {
+        TimeLine<LocalDateTime> timeLine = new TimeLine<>();
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+        timeLine.addEvent(new Event<>(base.plusMinutes(1), base.plusMinutes(3), "Call"));
+
+        LocalDateTime epoch = LocalDateTime.of(2000, 1, 1, 0, 0);
+        LocalDateTime minute = epoch.plus(Duration.ofMinutes(1));
+        List<LocalDateTime> busy = timeLine.busyTimePerBucket(base, base.plusMinutes(4), minute);
+        assertEquals(4, busy.size());
+        assertEquals(epoch, busy.get(0));
+        assertEquals(minute, busy.get(1));
+        assertEquals(minute, busy.get(2));
+        assertEquals(Arrays.asList(0L, 1L, 1L, 0L), timeLine.countPerBucket(base, base.plusMinutes(4), minute));
+    }
+
+    @Test
+    @DisplayName("测试时间范围接近long边界时的时间段个数")
+    public void testWideRangeBuckets() throws TimeLineException {
+        OverlappingTimeLine<Long> timeLine = new OverlappingTimeLine<>();
+        long quarter = 1L << 62;
+        timeLine.addEvent(new Event<>(-quarter, -quarter + 10, "Early"));
+        timeLine.addEvent(new Event<>(quarter - 12, quarter - 2, "Late"));
+
+        // 时间跨度加上时间段长度会超出long范围
+        assertEquals(Arrays.asList(1L, 1L), timeLine.countPerBucket(-quarter, quarter - 2, quarter));
+        assertEquals(Arrays.asList(10L, 10L), timeLine.busyTimePerBucket(-quarter, quarter - 2, quarter));
+        assertEquals(Arrays.asList(1L, 1L, 1L), timeLine.countPerBucket(-quarter, quarter - 2, quarter - 2));
+    }
+
+    @Test
+    @DisplayName("测试非法的时间段长度")
+    public void testInvalidBucketSize() throws TimeLineException {
+        TimeLine<Integer> timeLine = new TimeLine<>();
+        timeLine.addEvent(new Event<>(0, 5, "A"));
+        assertThrows(TimeLineException.class, () -> timeLine.countPerBucket(0, 10, 0));
+        assertThrows(TimeLineException.class, () -> timeLine.sumOver(10, 0));
+    }
+}
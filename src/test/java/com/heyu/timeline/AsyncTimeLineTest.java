@@ -0,0 +1,94 @@
+package com.heyu.timeline;
+
+import com.heyu.timeline.core.model.AddResult;
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.core.timeline.AsyncTimeLine;
+import com.heyu.timeline.core.timeline.OverlappingTimeLine;
+import com.heyu.timeline.core.timeline.TimeLine;
+import com.heyu.timeline.exception.TimeLineException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 单写线程异步时间线测试
+ */
+public class AsyncTimeLineTest {
+
+    @Test
+    @DisplayName("测试多个提交方并发异步写入")
+    public void testConcurrentProducers() throws Exception {
+        OverlappingTimeLine<Integer> delegate = new OverlappingTimeLine<>();
+        try (AsyncTimeLine<Integer> timeLine = new AsyncTimeLine<>(delegate, 64, Executors.defaultThreadFactory())) {
+            List<CompletableFuture<AddResult<Integer>>> futures = new ArrayList<>();
+            List<Thread> producers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                final int thread = t;
+                Thread producer = new Thread(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        CompletableFuture<AddResult<Integer>> future = timeLine.addEventAsync(
+                                new Event<>(i * 10, i * 10 + 15, thread + "-" + i));
+                        synchronized (futures) {
+                            futures.add(future);
+                        }
+                    }
+                });
+                producers.add(producer);
+                producer.start();
+            }
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+
+            assertEquals(2000, timeLine.getSnapshot().size());
+            assertEquals(8, timeLine.getEventsBetween(100, 100).size());
+            assertEquals(2000, delegate.getEventsInStartOrder().size());
+
+            assertTrue(timeLine.removeEventAsync(new Event<>(0, 15, "0-0")).get());
+            assertFalse(timeLine.removeEventAsync(new Event<>(0, 15, "0-0")).get());
+            assertEquals(1999, timeLine.getSnapshot().size());
+        }
+    }
+
+    @Test
+    @DisplayName("测试异步写入失败和关闭")
+    public void testFailuresAndClose() throws Exception {
+        AsyncTimeLine<Integer> timeLine = new AsyncTimeLine<>(new TimeLine<>());
+        CompletableFuture<AddResult<Integer>> first = timeLine.addEventAsync(new Event<>(0, 10, "A"));
+        CompletableFuture<AddResult<Integer>> conflicting = timeLine.addEventAsync(new Event<>(5, 15, "B"));
+        CompletableFuture<AddResult<Integer>> missingCalculator = timeLine.addEventAsync(new Event<>(5, "C"));
+        assertTrue(first.get().isAccepted());
+        // 默认的丢弃策略直接丢弃冲突的事件，结果中可以看出未被接受
+        assertFalse(conflicting.get().isAccepted());
+        ExecutionException failure = assertThrows(ExecutionException.class, missingCalculator::get);
+        assertTrue(failure.getCause() instanceof TimeLineException);
+        assertEquals(1, timeLine.getEventsBetween(0, 20).size());
+
+        timeLine.close();
+        ExecutionException closed = assertThrows(ExecutionException.class,
+                () -> timeLine.addEventAsync(new Event<>(20, 30, "D")).get());
+        assertTrue(closed.getCause() instanceof IllegalStateException);
+    }
+
+    @Test
+    @DisplayName("测试在结果的回调中关闭不会阻塞写线程")
+    public void testCloseFromCallback() throws Exception {
+        AsyncTimeLine<Integer> timeLine = new AsyncTimeLine<>(new OverlappingTimeLine<>());
+        CompletableFuture<Void> closed = timeLine.addEventAsync(new Event<>(0, 10, "A")).thenRun(timeLine::close);
+        closed.get(5, TimeUnit.SECONDS);
+
+        ExecutionException rejected = assertThrows(ExecutionException.class,
+                () -> timeLine.addEventAsync(new Event<>(20, 30, "B")).get(5, TimeUnit.SECONDS));
+        assertTrue(rejected.getCause() instanceof IllegalStateException);
+        assertEquals(1, timeLine.getSnapshot().size());
+    }
+}
@@ -0,0 +1,136 @@
+package com.heyu.timeline;
+
+import com.heyu.timeline.core.index.AttributeFilter;
+import com.heyu.timeline.core.index.RoaringBitmap;
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.core.timeline.OverlappingTimeLine;
+import com.heyu.timeline.exception.TimeLineException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 属性过滤和压缩位图测试
+ */
+public class AttributeFilterTest {
+
+    @Test
+    @DisplayName("测试压缩位图在稀疏和稠密块之间的运算")
+    public void testBitmap() {
+        RoaringBitmap evens = new RoaringBitmap();
+        RoaringBitmap threes = new RoaringBitmap();
+        for (int i = 0; i < 20000; i++) {
+            if (i % 2 == 0) {
+                evens.add(i);
+            }
+            if (i % 3 == 0) {
+                threes.add(i);
+            }
+        }
+        threes.add(100000);
+
+        assertEquals(10000, evens.cardinality());
+        assertEquals(3334, evens.and(threes).cardinality());
+        assertEquals(10000 + 6667 + 1 - 3334, evens.or(threes).cardinality());
+        assertTrue(evens.or(threes).contains(100000));
+
+        for (int i = 0; i < 20000; i += 2) {
+            if (i % 6 != 0) {
+                evens.remove(i);
+            }
+        }
+        List<Integer> values = new ArrayList<>();
+        evens.forEach(values::add);
+        assertEquals(3334, values.size());
+        assertEquals(Integer.valueOf(6), values.get(1));
+        assertEquals(3334, evens.and(threes).cardinality());
+    }
+
+    @Test
+    @DisplayName("测试按属性过滤时间范围查询")
+    public void testFilteredRangeQuery() throws TimeLineException {
+        OverlappingTimeLine<Integer> timeLine = new OverlappingTimeLine<>();
+        timeLine.addEvent(new Event<>(0, 10, "A").tag("region", "eu").tag("type", "batch"));
+        timeLine.addEvent(new Event<>(5, 15, "B").tag("region", "us").tag("type", "batch"));
+        timeLine.addEvent(new Event<>(8, 20, "C").tag("region", "eu").tag("type", "online"));
+        timeLine.addEvent(new Event<>(30, 40, "D").tag("region", "eu").tag("type", "batch"));
+        timeLine.addEvent(new Event<>(0, 40, "Untagged"));
+
+        List<Event<Integer>> euBatch = timeLine.getEventsBetween(0, 20,
+                AttributeFilter.where("region", "eu").and("type", "batch"));
+        assertEquals(1, euBatch.size());
+        assertEquals("A", euBatch.get(0).getSubject());
+
+        List<Event<Integer>> anyRegion = timeLine.getEventsBetween(0, 20,
+                AttributeFilter.where("region", "eu", "us"));
+        assertEquals(3, anyRegion.size());
+
+        timeLine.removeEvent(new Event<>(0, 10, "A"));
+        assertTrue(timeLine.getEventsBetween(0, 20,
+                AttributeFilter.where("region", "eu").and("type", "batch")).isEmpty());
+        assertEquals(4, timeLine.getEventsBetween(0, 40, new AttributeFilter()).size());
+    }
+
+    @Test
+    @DisplayName("测试加入后通过时间线设置的标签会更新属性索引")
+    public void testTagAfterInsertion() throws TimeLineException {
+        OverlappingTimeLine<Integer> timeLine = new OverlappingTimeLine<>();
+        Event<Integer> event = new Event<>(0, 10, "A").tag("region", "eu");
+        timeLine.addEvent(event);
+
+        timeLine.tagEvent(event, "region", "us");
+        assertTrue(timeLine.getEventsBetween(0, 10, AttributeFilter.where("region", "eu")).isEmpty());
+        assertEquals(1, timeLine.getEventsBetween(0, 10, AttributeFilter.where("region", "us")).size());
+
+        Event<Integer> untagged = new Event<>(20, 30, "B");
+        timeLine.addEvent(untagged);
+        timeLine.tagEvent(untagged, "type", "batch");
+        assertEquals(1, timeLine.getEventsBetween(0, 40, AttributeFilter.where("type", "batch")).size());
+
+        // 直接修改加入后的事件不会被错误地返回
+        event.tag("region", "apac");
+        assertTrue(timeLine.getEventsBetween(0, 10, AttributeFilter.where("region", "us")).isEmpty());
+
+        assertThrows(TimeLineException.class, () -> timeLine.tagEvent(new Event<>(0, 10, "C"), "region", "eu"));
+    }
+
+    @Test
+    @DisplayName("测试时间窗口和属性位图两种查询路径结果一致")
+    public void testWindowAndIndexPathsAgree() throws TimeLineException {
+        OverlappingTimeLine<Integer> timeLine = new OverlappingTimeLine<>();
+        List<Event<Integer>> all = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            int start = (i * 37) % 10000;
+            Event<Integer> event = new Event<>(start, start + i % 25, "E" + i)
+                    .tag("region", i % 2 == 0 ? "eu" : "us")
+                    .tag("rare", i % 500 == 0);
+            timeLine.addEvent(event);
+            all.add(event);
+        }
+
+        // 窗口很窄而条件很宽时走时间窗口，窗口很宽而条件很窄时走位图
+        int[][] windows = {{100, 110}, {0, 10000}, {5000, 5000}, {2000, 8000}};
+        AttributeFilter[] filters = {AttributeFilter.where("region", "eu"), AttributeFilter.where("rare", true)};
+        for (int[] window : windows) {
+            for (AttributeFilter filter : filters) {
+                List<Object> expected = new ArrayList<>();
+                for (Event<Integer> event : all) {
+                    if (event.getStart() <= window[1] && event.getEnd() >= window[0] && filter.matches(event)) {
+                        expected.add(event.getSubject());
+                    }
+                }
+                List<Object> actual = new ArrayList<>();
+                for (Event<Integer> event : timeLine.getEventsBetween(window[0], window[1], filter)) {
+                    actual.add(event.getSubject());
+                }
+                expected.sort(null);
+                actual.sort(null);
+                assertEquals(expected, actual);
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.heyu.timeline;
+
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.core.model.TimelineBatch;
+import com.heyu.timeline.core.timeline.OverlappingTimeLine;
+import com.heyu.timeline.core.timeline.TimeLine;
+import com.heyu.timeline.exception.TimeLineException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 批量原子修改测试
+ */
+public class BatchMutationTest {
+
+    @Test
+    @DisplayName("测试在不可重叠时间线上原子地移动事件")
+    public void testMoveEvent() throws TimeLineException {
+        TimeLine<Integer> timeLine = new TimeLine<>();
+        Event<Integer> booking = new Event<>(10, 20, "Booking");
+        timeLine.addEvent(booking);
+        timeLine.addEvent(new Event<>(30, 40, "Other"));
+
+        // 新位置与原位置重叠，只有先删除原事件才能放下
+        timeLine.applyBatch(new TimelineBatch<Integer>()
+                .remove(booking)
+                .add(new Event<>(15, 25, "Booking")));
+        assertEquals(Arrays.asList(new Event<>(15, 25, "Booking"), new Event<>(30, 40, "Other")),
+                timeLine.getEventsBetween(0, 100));
+        assertTrue(timeLine.getEventsAt(12).isEmpty());
+    }
+
+    @Test
+    @DisplayName("测试冲突时整批回滚")
+    public void testRollbackOnConflict() throws TimeLineException {
+        TimeLine<Integer> timeLine = new TimeLine<>();
+        Event<Integer> booking = new Event<>(10, 20, "Booking");
+        timeLine.addEvent(booking);
+        timeLine.addEvent(new Event<>(30, 40, "Other"));
+
+        // 批次中的两个事件彼此重叠
+        assertThrows(TimeLineException.class, () -> timeLine.applyBatch(new TimelineBatch<Integer>()
+                .remove(booking)
+                .add(new Event<>(0, 12, "A"))
+                .add(new Event<>(11, 15, "B"))));
+        // 与剩余的事件重叠
+        assertThrows(TimeLineException.class, () -> timeLine.applyBatch(new TimelineBatch<Integer>()
+                .remove(booking)
+                .add(new Event<>(25, 35, "C"))));
+        // 要删除的事件不存在
+        assertThrows(TimeLineException.class, () -> timeLine.applyBatch(new TimelineBatch<Integer>()
+                .remove(booking)
+                .remove(new Event<>(50, 60, "Missing"))));
+
+        assertEquals(Arrays.asList(booking, new Event<>(30, 40, "Other")), timeLine.getEventsBetween(0, 100));
+        assertEquals(Collections.singletonList(booking), timeLine.getEventsAt(15));
+        assertEquals(booking, timeLine.firstEvent());
+    }
+
+    @Test
+    @DisplayName("测试可重叠时间线的批量修改")
+    public void testOverlappingBatch() throws TimeLineException {
+        OverlappingTimeLine<Integer> timeLine = new OverlappingTimeLine<>();
+        Event<Integer> first = new Event<>(10, 20, "First");
+        timeLine.addEvent(first);
+
+        assertThrows(TimeLineException.class, () -> timeLine.applyBatch(new TimelineBatch<Integer>()
+                .add(new Event<>(0, 5, "Added"))
+                .remove(new Event<>(50, 60, "Missing"))));
+        assertThrows(TimeLineException.class, () -> timeLine.applyBatch(new TimelineBatch<Integer>()
+                .add(new Event<>(9, 5, "Invalid"))));
+        assertEquals(Collections.singletonList(first), timeLine.getEventsBetween(0, 100));
+
+        timeLine.applyBatch(new TimelineBatch<Integer>()
+                .remove(first)
+                .add(new Event<>(12, 22, "First"))
+                .add(new Event<>(15, 18, "Second")));
+        assertEquals(2, timeLine.getEventsAt(16).size());
+        assertTrue(timeLine.getEventsAt(11).isEmpty());
+    }
+}
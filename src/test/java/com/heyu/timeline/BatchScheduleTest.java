@@ -0,0 +1,137 @@
+package com.heyu.timeline;
+
+import com.heyu.timeline.calculator.TimeCalculatorFactory;
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.core.model.RecurrenceRule;
+import com.heyu.timeline.core.model.RecurringEvent;
+import com.heyu.timeline.core.scheduler.BatchPolicy;
+import com.heyu.timeline.core.scheduler.BatchScheduleResult;
+import com.heyu.timeline.core.timeline.OverlappingTimeLine;
+import com.heyu.timeline.core.timeline.TimeLine;
+import com.heyu.timeline.exception.TimeLineException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 批量安排只有持续时间的事件测试
+ */
+public class BatchScheduleTest {
+
+    private TimeLine<Integer> createTimeLine() throws TimeLineException {
+        TimeLine<Integer> timeLine = new TimeLine<>();
+        timeLine.setTimeCalculator(TimeCalculatorFactory.createTimeCalculator(Integer.class));
+        // 占用10-20和25-30，留下0-10和20-25两个间隙
+        timeLine.addEvent(new Event<>(10, 20, "Busy 1"));
+        timeLine.addEvent(new Event<>(25, 30, "Busy 2"));
+        return timeLine;
+    }
+
+    @Test
+    @DisplayName("测试首次适应递减填满间隙")
+    public void testFirstFitDecreasing() throws TimeLineException {
+        TimeLine<Integer> timeLine = createTimeLine();
+        Event<Integer> a = new Event<>(6, "A");
+        Event<Integer> b = new Event<>(5, "B");
+        Event<Integer> c = new Event<>(4, "C");
+        Event<Integer> d = new Event<>(3, "D");
+
+        BatchScheduleResult<Integer> result = timeLine.scheduleBatch(Arrays.asList(a, b, c, d),
+                BatchPolicy.FIRST_FIT_DECREASING);
+
+        // A放入0-6，B放入20-25，C放入6-10，D放到最后
+        assertEquals(Integer.valueOf(0), a.getStart());
+        assertEquals(Integer.valueOf(20), b.getStart());
+        assertEquals(Integer.valueOf(6), c.getStart());
+        assertEquals(Integer.valueOf(30), d.getStart());
+        assertEquals(Integer.valueOf(33), result.getCompletionTime());
+        assertEquals(Integer.valueOf(33), result.getMakespan());
+        assertEquals(33.0 / 33.0, result.getUtilization(), 1e-9);
+        assertEquals(6, timeLine.getSortedEvents().size());
+
+        List<Event<Integer>> scheduled = result.getScheduledEvents();
+        assertEquals("A", scheduled.get(0).getSubject());
+        assertEquals("D", scheduled.get(3).getSubject());
+    }
+
+    @Test
+    @DisplayName("测试最短优先按顺序安排")
+    public void testShortestFirst() throws TimeLineException {
+        TimeLine<Integer> timeLine = createTimeLine();
+        Event<Integer> a = new Event<>(8, "A");
+        Event<Integer> b = new Event<>(2, "B");
+        Event<Integer> c = new Event<>(4, "C");
+
+        timeLine.scheduleBatch(Arrays.asList(a, b, c), BatchPolicy.SHORTEST_FIRST);
+
+        // B放入0-2，C放入2-6，A放不进剩余的间隙，排到最后
+        assertEquals(Integer.valueOf(0), b.getStart());
+        assertEquals(Integer.valueOf(2), c.getStart());
+        assertEquals(Integer.valueOf(30), a.getStart());
+    }
+
+    @Test
+    @DisplayName("测试最长优先按顺序安排")
+    public void testLongestFirst() throws TimeLineException {
+        TimeLine<Integer> timeLine = createTimeLine();
+        Event<Integer> a = new Event<>(8, "A");
+        Event<Integer> b = new Event<>(2, "B");
+        Event<Integer> c = new Event<>(4, "C");
+
+        BatchScheduleResult<Integer> result = timeLine.scheduleBatch(Arrays.asList(a, b, c),
+                BatchPolicy.LONGEST_FIRST);
+
+        // A放入0-8，C只能排在A之后的20-24，B在C之后已放不进间隙，排到最后
+        assertEquals(Integer.valueOf(0), a.getStart());
+        assertEquals(Integer.valueOf(20), c.getStart());
+        assertEquals(Integer.valueOf(30), b.getStart());
+        assertEquals(Integer.valueOf(32), result.getCompletionTime());
+    }
+
+    @Test
+    @DisplayName("测试在可重叠时间线上按占用范围的并集安排")
+    public void testOverlappingTimeLineBatch() throws TimeLineException {
+        OverlappingTimeLine<Integer> timeline = new OverlappingTimeLine<>();
+        timeline.setTimeCalculator(TimeCalculatorFactory.createTimeCalculator(Integer.class));
+        timeline.addEvent(new Event<>(0, 10, "Busy 1"));
+        timeline.addEvent(new Event<>(5, 15, "Busy 2"));
+        timeline.addEvent(new Event<>(20, 30, "Busy 3"));
+
+        Event<Integer> job = new Event<>(5, "Job");
+        timeline.scheduleBatch(Arrays.asList(job), BatchPolicy.FIRST_FIT_DECREASING);
+        assertEquals(Integer.valueOf(15), job.getStart());
+        assertEquals(Integer.valueOf(20), job.getEnd());
+    }
+
+    @Test
+    @DisplayName("测试批量安排避开重复事件的发生")
+    public void testAvoidsRecurringOccurrences() throws TimeLineException {
+        TimeLine<Integer> timeLine = new TimeLine<>();
+        timeLine.setTimeCalculator(TimeCalculatorFactory.createTimeCalculator(Integer.class));
+        timeLine.addEvent(new RecurringEvent<>(0, 5, "Series", new RecurrenceRule<>(8)));
+
+        Event<Integer> a = new Event<>(3, "A");
+        Event<Integer> b = new Event<>(3, "B");
+        Event<Integer> c = new Event<>(2, "C");
+        timeLine.scheduleBatch(Arrays.asList(a, b, c), BatchPolicy.FIRST_FIT_DECREASING);
+
+        // 发生占用0-5、8-13、16-21，只剩下5-8、13-16等长度为3的间隙
+        assertEquals(Integer.valueOf(5), a.getStart());
+        assertEquals(Integer.valueOf(13), b.getStart());
+        assertEquals(Integer.valueOf(21), c.getStart());
+        assertEquals(1, timeLine.getEventsAt(1).size());
+        assertEquals(1, timeLine.getEventsAt(14).size());
+    }
+
+    @Test
+    @DisplayName("测试批量安排只接受只有持续时间的事件")
+    public void testRejectsExplicitEvents() throws TimeLineException {
+        TimeLine<Integer> timeLine = createTimeLine();
+        assertThrows(TimeLineException.class, () -> timeLine.scheduleBatch(
+                Arrays.asList(new Event<>(1, 2, "Explicit")), BatchPolicy.SHORTEST_FIRST));
+    }
+}
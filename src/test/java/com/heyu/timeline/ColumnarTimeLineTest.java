@@ -0,0 +1,82 @@
+package com.heyu.timeline;
+
+import com.heyu.timeline.calculator.TimeCalculatorFactory;
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.core.timeline.ColumnarTimeLine;
+import com.heyu.timeline.core.timeline.OverlappingTimeLine;
+import com.heyu.timeline.exception.TimeLineException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.heyu.timeline.TimeLineFixtures.assertMatchesReference;
+import static com.heyu.timeline.TimeLineFixtures.randomEvents;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 堆上列式时间线测试
+ */
+public class ColumnarTimeLineTest {
+
+    @Test
+    @DisplayName("测试列式时间线的查询结果与可重叠时间线一致")
+    public void testMatchesOverlappingTimeLine() throws TimeLineException {
+        ColumnarTimeLine<Long> columnar = new ColumnarTimeLine<>(TimeCalculatorFactory.createTimeCalculator(Long.class));
+        OverlappingTimeLine<Long> reference = new OverlappingTimeLine<>();
+        List<Event<Long>> events = randomEvents(7).count(3000).lengths(30, 800, 200).inactiveEvery(11).build();
+        for (Event<Long> event : events) {
+            reference.addEvent(event);
+        }
+        for (Event<Long> event : events.subList(0, 1000)) {
+            columnar.addEvent(event);
+        }
+        columnar.addEvents(events.subList(1000, events.size()));
+        List<Event<Long>> all = reference.getAllEvents();
+        for (int i = 0; i < 3000; i += 5) {
+            Event<Long> event = all.get(i);
+            reference.removeEvent(event);
+            assertTrue(columnar.removeEvent(event));
+        }
+
+        assertEquals(reference.getAllEvents().size(), columnar.size());
+        assertMatchesReference(reference, columnar::getEventsBetween, 0, 10000, 89, 40);
+        for (long time = 0; time < 10000; time += 89) {
+            assertEquals(reference.getEventsBetween(time, time + 40).size(), columnar.countBetween(time, time + 40));
+        }
+    }
+
+    @Test
+    @DisplayName("测试跨度超出long范围的事件仍能被查到")
+    public void testLengthOverflow() throws TimeLineException {
+        ColumnarTimeLine<Long> timeLine = new ColumnarTimeLine<>(TimeCalculatorFactory.createTimeCalculator(Long.class));
+        timeLine.addEvent(new Event<>(Long.MIN_VALUE + 1, Long.MAX_VALUE - 1, "Forever"));
+        timeLine.addEvent(new Event<>(5L, 10L, "Short"));
+        assertEquals(2, timeLine.countBetween(6L, 7L));
+        assertEquals(1, timeLine.getEventsBetween(100L, 200L).size());
+        assertEquals("Forever", timeLine.getEventsAt(Long.MAX_VALUE - 1).get(0).getSubject());
+    }
+
+    @Test
+    @DisplayName("测试列式时间线的基本操作")
+    public void testBasicOperations() throws TimeLineException {
+        ColumnarTimeLine<Integer> timeLine = new ColumnarTimeLine<>(TimeCalculatorFactory.createTimeCalculator(Integer.class));
+        timeLine.addEvent(new Event<>(20, 30, "B"));
+        timeLine.addEvent(new Event<>(0, 10, "A"));
+        timeLine.addEvents(Arrays.asList(new Event<>(5, 25, "C"), new Event<>(40, 50, "D")));
+
+        assertEquals(Arrays.asList(new Event<>(0, 10, "A"), new Event<>(5, 25, "C")), timeLine.getEventsAt(8));
+        assertEquals(3, timeLine.countBetween(9, 20));
+        assertFalse(timeLine.removeEvent(new Event<>(0, 10, "Other")));
+        assertTrue(timeLine.removeEvent(new Event<>(0, 10, "A")));
+        assertEquals(1, timeLine.countBetween(8, 8));
+        assertThrows(TimeLineException.class, () -> timeLine.addEvent(new Event<>(10, 5, "Invalid")));
+        assertThrows(TimeLineException.class, () -> timeLine.addEvents(Arrays.asList(new Event<>(1, 2, "Valid"),
+                new Event<>(3, "Duration only"))));
+        assertEquals(3, timeLine.size());
+
+        timeLine.clear();
+        assertEquals(0, timeLine.countBetween(0, 100));
+    }
+}
@@ -3,6 +3,7 @@ package com.heyu.timeline;
 import com.heyu.timeline.core.strategy.EvictionStrategy;
 import com.heyu.timeline.core.timeline.TimeLine;
 import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.exception.TimeLineException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import static org.junit.jupiter.api.Assertions.*;
@@ -43,4 +44,83 @@ public class EvictionStrategyTest {
         
         assertEquals(2, timeLine.getSortedEvents().size());
     }
-}
\ No newline at end of file
+    
+    @Test
+    @DisplayName("测试延迟策略同时更新开始和结束时间")
+    public void testDelayStrategyKeepsDuration() throws TimeLineException {
+        TimeLine<Integer> timeLine = new TimeLine<>();
+        timeLine.setEvictionStrategy(EvictionStrategy.getDelayStrategy());
+        
+        timeLine.addEvent(new Event<>(1, 5, "事件1"));
+        timeLine.addEvent(new Event<>(10, 15, "事件2"));
+        Event<Integer> delayed = new Event<>(3, 8, "事件3");
+        timeLine.addEvent(delayed);
+        
+        // 延迟到最后一个事件之后，持续时间保持为5
+        assertEquals(Integer.valueOf(15), delayed.getStart());
+        assertEquals(Integer.valueOf(20), delayed.getEnd());
+    }
+    
+    @Test
+    @DisplayName("测试顺延策略寻找下一个足够大的间隙")
+    public void testShiftStrategy() throws TimeLineException {
+        TimeLine<Integer> timeLine = new TimeLine<>();
+        timeLine.setEvictionStrategy(EvictionStrategy.getShiftStrategy());
+        
+        timeLine.addEvent(new Event<>(0, 5, "事件1"));
+        timeLine.addEvent(new Event<>(7, 10, "事件2"));
+        timeLine.addEvent(new Event<>(14, 20, "事件3"));
+        
+        // 5-7的间隙放不下，10-14的间隙刚好放下
+        Event<Integer> shifted = new Event<>(2, 6, "事件4");
+        timeLine.addEvent(shifted);
+        assertEquals(Integer.valueOf(10), shifted.getStart());
+        assertEquals(Integer.valueOf(14), shifted.getEnd());
+        
+        // 没有足够大的间隙时安排在最后
+        Event<Integer> tail = new Event<>(0, 5, "事件5");
+        timeLine.addEvent(tail);
+        assertEquals(Integer.valueOf(20), tail.getStart());
+        assertEquals(5, timeLine.getSortedEvents().size());
+    }
+    
+    @Test
+    @DisplayName("测试替换策略淘汰冲突事件")
+    public void testReplaceStrategy() throws TimeLineException {
+        TimeLine<Integer> timeLine = new TimeLine<>();
+        timeLine.setEvictionStrategy(EvictionStrategy.getReplaceStrategy());
+        
+        timeLine.addEvent(new Event<>(0, 5, "事件1"));
+        timeLine.addEvent(new Event<>(5, 10, "事件2"));
+        timeLine.addEvent(new Event<>(10, 15, "事件3"));
+        timeLine.addEvent(new Event<>(20, 25, "事件4"));
+        
+        // 与事件1、事件2、事件3冲突，不相交的事件4不受影响
+        timeLine.addEvent(new Event<>(3, 12, "新事件"));
+        assertEquals(2, timeLine.getSortedEvents().size());
+        assertEquals("新事件", timeLine.getSortedEvents().get(0).getSubject());
+        assertEquals("事件4", timeLine.getSortedEvents().get(1).getSubject());
+        
+        // 与新事件、事件4首尾相接，不视为冲突，不淘汰任何事件
+        timeLine.addEvent(new Event<>(12, 20, "填充事件"));
+        assertEquals(3, timeLine.getSortedEvents().size());
+        assertEquals("填充事件", timeLine.getSortedEvents().get(1).getSubject());
+        assertEquals("事件4", timeLine.getSortedEvents().get(2).getSubject());
+    }
+    
+    @Test
+    @DisplayName("测试策略给出冲突位置时回滚")
+    public void testConflictingResolutionIsRejected() throws TimeLineException {
+        TimeLine<Integer> timeLine = new TimeLine<>();
+        timeLine.setEvictionStrategy((newEvent, context) -> {
+            // 淘汰第一个冲突事件后原样返回，仍与第二个冲突事件重叠
+            context.evict(context.getConflictingEvents().iterator().next());
+            return newEvent;
+        });
+        
+        timeLine.addEvent(new Event<>(0, 5, "事件1"));
+        timeLine.addEvent(new Event<>(5, 10, "事件2"));
+        assertThrows(TimeLineException.class, () -> timeLine.addEvent(new Event<>(3, 8, "新事件")));
+        assertEquals(2, timeLine.getSortedEvents().size());
+    }
+}
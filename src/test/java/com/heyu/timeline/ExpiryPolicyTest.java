@@ -0,0 +1,139 @@
+package com.heyu.timeline;
+
+import com.heyu.timeline.calculator.TimeCalculatorFactory;
+import com.heyu.timeline.core.clock.ExpiryPolicy;
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.core.model.TimeSlot;
+import com.heyu.timeline.core.scheduler.BatchPolicy;
+import com.heyu.timeline.core.timeline.OverlappingTimeLine;
+import com.heyu.timeline.core.timeline.TimeLine;
+import com.heyu.timeline.exception.TimeLineException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 时钟驱动的过期处理测试
+ */
+public class ExpiryPolicyTest {
+
+    @Test
+    @DisplayName("测试DEACTIVATE模式按时钟停用过期事件")
+    public void testDeactivateMode() throws TimeLineException {
+        AtomicInteger clock = new AtomicInteger(0);
+        OverlappingTimeLine<Integer> timeline = new OverlappingTimeLine<>();
+        timeline.setExpiryPolicy(new ExpiryPolicy<>(clock::get, ExpiryPolicy.Mode.DEACTIVATE));
+
+        Event<Integer> event1 = new Event<>(1, 5, "Event 1");
+        Event<Integer> event2 = new Event<>(3, 8, "Event 2");
+        Event<Integer> event3 = new Event<>(10, 15, "Event 3");
+        timeline.addEvent(event1);
+        timeline.addEvent(event2);
+        timeline.addEvent(event3);
+
+        // 时钟前进到6，Event 1已经结束
+        clock.set(6);
+        assertEquals(1, timeline.expireEvents());
+        assertFalse(event1.isActive());
+        assertTrue(event2.isActive());
+        assertEquals(3, timeline.getAllEvents().size());
+
+        // 查询时自动处理过期事件
+        clock.set(9);
+        assertEquals(1, timeline.getSortedEvents().size());
+        assertFalse(event2.isActive());
+
+        // 添加一个在水位线之前就已结束的事件，应直接视为过期
+        Event<Integer> late = new Event<>(0, 2, "Late");
+        timeline.addEvent(late);
+        assertFalse(late.isActive());
+    }
+
+    @Test
+    @DisplayName("测试ARCHIVE模式将过期事件移入冷存储")
+    public void testArchiveMode() throws TimeLineException {
+        AtomicInteger clock = new AtomicInteger(0);
+        TimeLine<Integer> timeLine = new TimeLine<>();
+        timeLine.setExpiryPolicy(new ExpiryPolicy<>(clock::get, ExpiryPolicy.Mode.ARCHIVE, 1));
+
+        timeLine.addEvent(new Event<>(1, 5, "Event 1"));
+        timeLine.addEvent(new Event<>(10, 15, "Event 2"));
+        timeLine.addEvent(new Event<>(20, 25, "Event 3"));
+
+        // 批次大小为1，每次访问只处理一个过期事件
+        clock.set(30);
+        assertEquals(2, timeLine.getEventsBetween(0, 30).size());
+        assertEquals(1, timeLine.getArchivedEvents().size());
+        assertEquals(2, timeLine.getAllEvents().size());
+
+        assertEquals(2, timeLine.expireEvents());
+        assertTrue(timeLine.getAllEvents().isEmpty());
+        assertEquals(3, timeLine.getArchivedEvents().size());
+        assertFalse(timeLine.getArchivedEvents().get(0).isActive());
+
+        // 冷存储中的事件释放了原来的时间段
+        timeLine.addEvent(new Event<>(12, 14, "Event 4"));
+        assertEquals(1, timeLine.getAllEvents().size());
+    }
+
+    @Test
+    @DisplayName("测试ARCHIVE模式分批移除后剩余事件保持加入顺序")
+    public void testArchiveKeepsInsertionOrder() throws TimeLineException {
+        AtomicInteger clock = new AtomicInteger(0);
+        OverlappingTimeLine<Integer> timeline = new OverlappingTimeLine<>();
+        timeline.setExpiryPolicy(new ExpiryPolicy<>(clock::get, ExpiryPolicy.Mode.ARCHIVE, 3));
+
+        List<Event<Integer>> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            // 偶数事件很早结束，奇数事件一直持续
+            Event<Integer> event = new Event<>(i, i % 2 == 0 ? i + 1 : 1000 + i, "E" + i);
+            timeline.addEvent(event);
+            if (i % 2 == 1) {
+                expected.add(event);
+            }
+        }
+
+        clock.set(200);
+        assertEquals(50, timeline.expireEvents());
+        assertEquals(expected, timeline.getAllEvents());
+        assertTrue(timeline.removeEvent(new Event<>(1, 1001, "E1")));
+        assertEquals(expected.subList(1, expected.size()), timeline.getAllEvents());
+    }
+
+    @Test
+    @DisplayName("测试DEACTIVATE模式下预约和批量安排的事件也按水位线停用")
+    public void testDeactivateReserveAndBatch() throws TimeLineException {
+        AtomicInteger clock = new AtomicInteger(0);
+        TimeLine<Integer> timeLine = new TimeLine<>();
+        timeLine.setTimeCalculator(TimeCalculatorFactory.createTimeCalculator(Integer.class));
+        timeLine.setExpiryPolicy(new ExpiryPolicy<>(clock::get, ExpiryPolicy.Mode.DEACTIVATE));
+        timeLine.addEvent(new Event<>(3, 5, "Busy"));
+
+        clock.set(10);
+        assertEquals(1, timeLine.expireEvents());
+
+        // 水位线为5，新事件结束时间不晚于5时直接视为过期
+        TimeSlot<Integer> slot = timeLine.reserve(2, "Reserved", null);
+        assertEquals(Integer.valueOf(2), slot.getEnd());
+        Event<Integer> job = new Event<>(1, "Job");
+        timeLine.scheduleBatch(Collections.singletonList(job), BatchPolicy.FIRST_FIT_DECREASING);
+        assertEquals(Integer.valueOf(3), job.getEnd());
+        assertFalse(job.isActive());
+        for (Event<Integer> event : timeLine.getAllEvents()) {
+            assertFalse(event.isActive());
+        }
+    }
+
+    @Test
+    @DisplayName("测试未设置过期策略时手动过期")
+    public void testExpireWithoutPolicy() {
+        TimeLine<Integer> timeLine = new TimeLine<>();
+        assertThrows(TimeLineException.class, timeLine::expireEvents);
+    }
+}
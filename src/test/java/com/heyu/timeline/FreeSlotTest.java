@@ -0,0 +1,67 @@
+package com.heyu.timeline;
+
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.core.model.RecurrenceRule;
+import com.heyu.timeline.core.model.RecurringEvent;
+import com.heyu.timeline.core.model.TimeSlot;
+import com.heyu.timeline.core.timeline.OverlappingTimeLine;
+import com.heyu.timeline.core.timeline.TimeLine;
+import com.heyu.timeline.exception.TimeLineException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 空闲时间段查询测试
+ */
+public class FreeSlotTest {
+
+    @Test
+    @DisplayName("测试时间线的空闲时间段查询")
+    public void testTimeLineFreeSlots() throws TimeLineException {
+        TimeLine<Integer> timeLine = new TimeLine<>();
+        timeLine.addEvent(new Event<>(10, 20, "A"));
+        timeLine.addEvent(new Event<>(22, 30, "B"));
+        timeLine.addEvent(new Event<>(40, 50, "C"));
+
+        List<TimeSlot<Integer>> slots = timeLine.getFreeSlots(15, 60, 5);
+        assertEquals(Arrays.asList(new TimeSlot<>(30, 40), new TimeSlot<>(50, 60)), slots);
+        assertEquals(3, timeLine.getFreeSlots(0, 45, 2).size());
+
+        assertEquals(new TimeSlot<>(30, 40), timeLine.firstFreeSlotAfter(12, 5));
+        assertEquals(new TimeSlot<>(50, null), timeLine.firstFreeSlotAfter(12, 15));
+    }
+
+    @Test
+    @DisplayName("测试重叠时间线按覆盖范围查询空闲时间段")
+    public void testOverlappingCoverage() throws TimeLineException {
+        OverlappingTimeLine<Integer> timeLine = new OverlappingTimeLine<>();
+        Event<Integer> longEvent = new Event<>(0, 30, "Long");
+        timeLine.addEvent(longEvent);
+        timeLine.addEvent(new Event<>(5, 10, "Inner"));
+        timeLine.addEvent(new Event<>(30, 35, "Touching"));
+        timeLine.addEvent(new Event<>(50, 60, "Later"));
+
+        assertEquals(Arrays.asList(new TimeSlot<>(35, 50), new TimeSlot<>(60, 70)), timeLine.getFreeSlots(0, 70, 5));
+
+        // 移除长事件后覆盖范围被重新计算
+        timeLine.removeEvent(longEvent);
+        assertEquals(Arrays.asList(new TimeSlot<>(0, 5), new TimeSlot<>(10, 30), new TimeSlot<>(35, 50)),
+                timeLine.getFreeSlots(0, 50, 1));
+        assertEquals(new TimeSlot<>(10, 30), timeLine.firstFreeSlotAfter(6, 10));
+    }
+
+    @Test
+    @DisplayName("测试重复事件的发生视为占用")
+    public void testRecurringOccupiesSlots() throws TimeLineException {
+        TimeLine<Integer> timeLine = new TimeLine<>();
+        timeLine.addEvent(new RecurringEvent<>(0, 5, "Series", new RecurrenceRule<>(10)));
+
+        assertEquals(Arrays.asList(new TimeSlot<>(5, 10), new TimeSlot<>(15, 20)), timeLine.getFreeSlots(3, 20, 5));
+        assertEquals(new TimeSlot<>(5, 10), timeLine.firstFreeSlotAfter(2, 3));
+    }
+}
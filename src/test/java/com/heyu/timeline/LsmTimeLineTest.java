@@ -0,0 +1,133 @@
+package com.heyu.timeline;
+
+import com.heyu.timeline.calculator.TimeCalculatorFactory;
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.core.timeline.LsmTimeLine;
+import com.heyu.timeline.core.timeline.OverlappingTimeLine;
+import com.heyu.timeline.exception.TimeLineException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static com.heyu.timeline.TimeLineFixtures.assertMatchesReference;
+import static com.heyu.timeline.TimeLineFixtures.randomEvents;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LSM时间线测试
+ */
+public class LsmTimeLineTest {
+
+    @Test
+    @DisplayName("测试跨内存表和有序段的查询结果与可重叠时间线一致")
+    public void testMatchesOverlappingTimeLine() throws TimeLineException {
+        try (LsmTimeLine<Long> lsm = new LsmTimeLine<>(TimeCalculatorFactory.createTimeCalculator(Long.class), true, 64, 4)) {
+            OverlappingTimeLine<Long> reference = new OverlappingTimeLine<>();
+            List<Event<Long>> events = randomEvents(11).count(3000).lengths(30, 600, 150).build();
+            Random random = new Random(11);
+            List<Event<Long>> added = new ArrayList<>();
+            for (int i = 0; i < events.size(); i++) {
+                Event<Long> event = events.get(i);
+                reference.addEvent(event);
+                lsm.addEvent(event);
+                added.add(event);
+                if (i % 7 == 0) {
+                    Event<Long> removed = added.get(random.nextInt(added.size()));
+                    assertEquals(reference.removeEvent(removed), lsm.removeEvent(removed));
+                }
+            }
+
+            assertMatchesReference(reference, lsm::getEventsBetween, 0, 10000, 97, 50);
+            lsm.compact();
+            assertEquals(1, lsm.getRunCount());
+            assertMatchesReference(reference, lsm::getEventsBetween, 0, 10000, 97, 50);
+        }
+    }
+
+    @Test
+    @DisplayName("测试哈希值相同的不同主体在合并和查询时分别解析")
+    public void testHashCollisionAcrossRuns() throws TimeLineException {
+        try (LsmTimeLine<Long> lsm = new LsmTimeLine<>(TimeCalculatorFactory.createTimeCalculator(Long.class), true, 2, 8)) {
+            // "Aa"和"BB"的哈希值相同
+            lsm.addEvent(new Event<>(0L, 10L, "Aa"));
+            lsm.addEvent(new Event<>(0L, 10L, "BB"));
+            assertTrue(lsm.removeEvent(new Event<>(0L, 10L, "Aa")));
+            lsm.addEvent(new Event<>(5L, 8L, "X"));
+            lsm.addEvent(new Event<>(0L, 10L, "Aa"));
+            assertTrue(lsm.removeEvent(new Event<>(0L, 10L, "BB")));
+            assertEquals(Arrays.asList("Aa", "X"), subjects(lsm.getEventsBetween(0L, 20L)));
+
+            lsm.compact();
+            assertEquals(1, lsm.getRunCount());
+            assertEquals(Arrays.asList("Aa", "X"), subjects(lsm.getEventsBetween(0L, 20L)));
+            assertFalse(lsm.removeEvent(new Event<>(0L, 10L, "BB")));
+        }
+    }
+
+    private static List<Object> subjects(List<Event<Long>> events) {
+        List<Object> result = new ArrayList<>();
+        for (Event<Long> event : events) {
+            result.add(event.getSubject());
+        }
+        return result;
+    }
+
+    @Test
+    @DisplayName("测试不允许重叠时冲突检查覆盖所有层")
+    public void testConflictCheckAcrossLevels() throws TimeLineException {
+        try (LsmTimeLine<Integer> lsm = new LsmTimeLine<>(TimeCalculatorFactory.createTimeCalculator(Integer.class), false, 2, 8)) {
+            lsm.addEvent(new Event<>(0, 10, "A"));
+            lsm.addEvent(new Event<>(20, 30, "B"));
+            lsm.addEvent(new Event<>(40, 50, "C"));
+            assertEquals(1, lsm.getRunCount());
+
+            assertThrows(TimeLineException.class, () -> lsm.addEvent(new Event<>(5, 15, "X")));
+            assertThrows(TimeLineException.class, () -> lsm.addEvent(new Event<>(45, 46, "Y")));
+            lsm.addEvent(new Event<>(10, 20, "Touching"));
+
+            assertTrue(lsm.removeEvent(new Event<>(0, 10, "A")));
+            assertFalse(lsm.removeEvent(new Event<>(0, 10, "A")));
+            lsm.addEvent(new Event<>(2, 8, "D"));
+            assertEquals(Arrays.asList(new Event<>(2, 8, "D"), new Event<>(10, 20, "Touching")), lsm.getEventsBetween(0, 15));
+        }
+    }
+
+    @Test
+    @DisplayName("测试跨度超出long范围的事件仍能被查到")
+    public void testLengthOverflow() throws TimeLineException {
+        try (LsmTimeLine<Long> lsm = new LsmTimeLine<>(TimeCalculatorFactory.createTimeCalculator(Long.class), true, 2, 8)) {
+            lsm.addEvent(new Event<>(Long.MIN_VALUE + 1, Long.MAX_VALUE - 1, "Forever"));
+            lsm.addEvent(new Event<>(5L, 10L, "Short"));
+            lsm.addEvent(new Event<>(20L, 30L, "Later"));
+            assertEquals(2, lsm.getEventsBetween(6L, 6L).size());
+            assertEquals(1, lsm.getEventsBetween(100L, 200L).size());
+        }
+    }
+
+    @Test
+    @DisplayName("测试合并清除墓碑并在后台控制有序段数量")
+    public void testCompaction() throws Exception {
+        try (LsmTimeLine<Long> lsm = new LsmTimeLine<>(TimeCalculatorFactory.createTimeCalculator(Long.class), true, 16, 3)) {
+            for (long i = 0; i < 400; i++) {
+                lsm.addEvent(new Event<>(i, i + 1, "E" + i));
+            }
+            for (int attempt = 0; attempt < 200 && lsm.getRunCount() > 3; attempt++) {
+                Thread.sleep(10);
+            }
+            assertTrue(lsm.getRunCount() <= 3);
+            assertEquals(400, lsm.getEventsBetween(0L, 1000L).size());
+
+            for (long i = 0; i < 400; i++) {
+                assertTrue(lsm.removeEvent(new Event<>(i, i + 1, "E" + i)));
+            }
+            lsm.compact();
+            assertEquals(1, lsm.getRunCount());
+            assertTrue(lsm.getEventsBetween(0L, 1000L).isEmpty());
+            assertThrows(TimeLineException.class, () -> lsm.addEvent(new Event<>(5L, 1L, "Invalid")));
+        }
+    }
+}
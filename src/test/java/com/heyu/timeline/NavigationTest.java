@@ -0,0 +1,127 @@
+package com.heyu.timeline;
+
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.core.timeline.OverlappingTimeLine;
+import com.heyu.timeline.core.timeline.TimeLine;
+import com.heyu.timeline.core.timeline.TimelineStructure;
+import com.heyu.timeline.exception.TimeLineException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 导航查询测试
+ */
+public class NavigationTest {
+
+    private void fill(TimelineStructure<Integer> timeLine) throws TimeLineException {
+        timeLine.addEvent(new Event<>(0, 5, "A"));
+        timeLine.addEvent(new Event<>(10, 20, "B"));
+        timeLine.addEvent(new Event<>(30, 32, "C"));
+        timeLine.addEvent(new Event<>(50, 60, "D"));
+    }
+
+    @Test
+    @DisplayName("测试时间线的前后事件查询")
+    public void testNextAndPrevious() throws TimeLineException {
+        TimeLine<Integer> timeLine = new TimeLine<>();
+        fill(timeLine);
+
+        assertEquals("C", timeLine.nextEventAfter(10).getSubject());
+        assertEquals("A", timeLine.previousEventBefore(10).getSubject());
+        assertNull(timeLine.nextEventAfter(50));
+        assertNull(timeLine.previousEventBefore(5));
+        assertEquals("A", timeLine.firstEvent().getSubject());
+        assertEquals("D", timeLine.lastEvent().getSubject());
+
+        // 非活跃事件被跳过
+        timeLine.firstEvent().deactivate();
+        assertEquals("B", timeLine.firstEvent().getSubject());
+    }
+
+    @Test
+    @DisplayName("测试时间线的最近事件查询")
+    public void testKNearest() throws TimeLineException {
+        TimeLine<Integer> timeLine = new TimeLine<>();
+        fill(timeLine);
+
+        List<Event<Integer>> nearest = timeLine.kNearest(24, 3);
+        assertEquals(3, nearest.size());
+        assertEquals("B", nearest.get(0).getSubject());
+        assertEquals("C", nearest.get(1).getSubject());
+        assertEquals("A", nearest.get(2).getSubject());
+
+        assertEquals("B", timeLine.kNearest(15, 1).get(0).getSubject());
+        assertEquals(4, timeLine.kNearest(15, 10).size());
+        assertTrue(timeLine.kNearest(15, 0).isEmpty());
+    }
+
+    @Test
+    @DisplayName("测试重叠时间线的导航查询")
+    public void testOverlapping() throws TimeLineException {
+        OverlappingTimeLine<Integer> timeLine = new OverlappingTimeLine<>();
+        fill(timeLine);
+        timeLine.addEvent(new Event<>(0, 100, "Long"));
+        timeLine.addEvent(new Event<>(12, 14, "Inner"));
+
+        assertEquals("Inner", timeLine.nextEventAfter(10).getSubject());
+        assertEquals("Long", timeLine.lastEvent().getSubject());
+
+        List<Event<Integer>> nearest = timeLine.kNearest(13, 4);
+        assertEquals(4, nearest.size());
+        assertEquals(0, nearest.stream().limit(3).filter(e -> e.getSubject().equals("A")
+                || e.getSubject().equals("C")).count());
+        assertEquals("A", nearest.get(3).getSubject());
+    }
+
+    @Test
+    @DisplayName("测试按开始时间和结束时间的范围查询")
+    public void testStartingAndEndingBetween() throws TimeLineException {
+        OverlappingTimeLine<Integer> timeLine = new OverlappingTimeLine<>();
+        fill(timeLine);
+        timeLine.addEvent(new Event<>(15, 32, "Overlap"));
+
+        List<Event<Integer>> ending = timeLine.getEventsEndingBetween(20, 40);
+        assertEquals(3, ending.size());
+        assertEquals("B", ending.get(0).getSubject());
+
+        List<Event<Integer>> starting = timeLine.getEventsStartingBetween(10, 30);
+        assertEquals(3, starting.size());
+        assertEquals("C", starting.get(2).getSubject());
+
+        // 非活跃事件同样返回
+        TimeLine<Integer> plain = new TimeLine<>();
+        fill(plain);
+        plain.firstEvent().deactivate();
+        assertEquals(2, plain.getEventsEndingBetween(0, 20).size());
+        assertThrows(TimeLineException.class, () -> plain.getEventsStartingBetween(20, 10));
+    }
+
+    @Test
+    @DisplayName("测试带过滤条件和数量限制的范围查询")
+    public void testPredicateAndLimit() throws TimeLineException {
+        OverlappingTimeLine<Integer> timeLine = new OverlappingTimeLine<>();
+        fill(timeLine);
+        timeLine.addEvent(new Event<>(10, 12, "B"));
+        timeLine.addEvent(new Event<>(0, 100, "Long"));
+
+        List<Event<Integer>> matched = timeLine.getEventsBetween(0, 60, e -> !"Long".equals(e.getSubject()), 3);
+        assertEquals(3, matched.size());
+        assertEquals("A", matched.get(0).getSubject());
+        assertEquals(Integer.valueOf(12), matched.get(1).getEnd());
+        assertEquals(Integer.valueOf(20), matched.get(2).getEnd());
+
+        assertEquals(2, timeLine.getEventsBetween(0, 60, e -> "B".equals(e.getSubject())).size());
+
+        TimeLine<Integer> plain = new TimeLine<>();
+        fill(plain);
+        List<Event<Integer>> firstTwo = plain.getEventsBetween(15, 60, e -> true, 2);
+        assertEquals(2, firstTwo.size());
+        assertEquals("B", firstTwo.get(0).getSubject());
+        assertEquals("C", firstTwo.get(1).getSubject());
+        assertTrue(plain.getEventsBetween(15, 60, e -> true, 0).isEmpty());
+    }
+}
@@ -0,0 +1,170 @@
+package com.heyu.timeline;
+
+import com.heyu.timeline.calculator.TimeCalculatorFactory;
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.core.timeline.OffHeapTimeLine;
+import com.heyu.timeline.core.timeline.OverlappingTimeLine;
+import com.heyu.timeline.exception.TimeLineException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.heyu.timeline.TimeLineFixtures.assertMatchesReference;
+import static com.heyu.timeline.TimeLineFixtures.randomEvents;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 堆外列式时间线测试
+ */
+public class OffHeapTimeLineTest {
+
+    @Test
+    @DisplayName("测试堆外时间线的查询结果与可重叠时间线一致")
+    public void testMatchesOverlappingTimeLine() throws TimeLineException {
+        OffHeapTimeLine<Long> offHeap = new OffHeapTimeLine<>(TimeCalculatorFactory.createTimeCalculator(Long.class), 16);
+        OverlappingTimeLine<Long> reference = new OverlappingTimeLine<>();
+        List<Event<Long>> added = randomEvents(42).lengths(20, 500, 100).subjects(50).build();
+        for (Event<Long> event : added) {
+            offHeap.addEvent(event);
+            reference.addEvent(event);
+        }
+        for (int i = 0; i < 2000; i += 3) {
+            assertTrue(offHeap.removeEvent(added.get(i)));
+            reference.removeEvent(added.get(i));
+        }
+        assertFalse(offHeap.removeEvent(new Event<>(1L, 2L, "Missing")));
+
+        assertEquals(reference.getAllEvents().size(), offHeap.size());
+        assertTrue(offHeap.getOffHeapBytes() > 0);
+        assertMatchesReference(reference, offHeap::getEventsBetween, 0, 10000, 97, 50);
+        for (long time = 0; time < 10000; time += 97) {
+            assertEquals(reference.getEventsAt(time).size(), offHeap.getEventsAt(time).size());
+        }
+    }
+
+    @Test
+    @DisplayName("测试删除事件后回收不再使用的主体句柄")
+    public void testSubjectHandlesReleased() throws TimeLineException {
+        OffHeapTimeLine<Long> timeLine = new OffHeapTimeLine<>(TimeCalculatorFactory.createTimeCalculator(Long.class), 8);
+        for (int round = 0; round < 10; round++) {
+            List<Event<Long>> added = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                Event<Long> event = new Event<>((long) i, i + 5L, "R" + round + "-" + (i % 20));
+                timeLine.addEvent(event);
+                added.add(event);
+            }
+            assertEquals(20, timeLine.getSubjectCount());
+            for (Event<Long> event : added) {
+                assertTrue(timeLine.removeEvent(event));
+            }
+            assertEquals(0, timeLine.getSubjectCount());
+        }
+
+        // 复用的句柄指向新的主体
+        timeLine.addEvent(new Event<>(1L, 3L, "Fresh"));
+        assertEquals("Fresh", timeLine.getEventsAt(2L).get(0).getSubject());
+        assertEquals(1, timeLine.getSubjectCount());
+    }
+
+    @Test
+    @DisplayName("测试跨度超出long范围的事件仍能被查到")
+    public void testLengthOverflow() throws TimeLineException {
+        OffHeapTimeLine<Long> timeLine = new OffHeapTimeLine<>(TimeCalculatorFactory.createTimeCalculator(Long.class), 2);
+        timeLine.addEvent(new Event<>(Long.MIN_VALUE + 1, Long.MAX_VALUE - 1, "Forever"));
+        timeLine.addEvent(new Event<>(5L, 10L, "Short"));
+        timeLine.addEvent(new Event<>(20L, 30L, "Later"));
+        timeLine.addEvent(new Event<>(40L, 50L, "Last"));
+        assertEquals(2, timeLine.getEventsAt(6L).size());
+        assertEquals(1, timeLine.getEventsBetween(100L, 200L).size());
+    }
+
+    @Test
+    @DisplayName("测试清除已删除的行后释放直接内存")
+    public void testCompactPurgesDeletedRows() throws TimeLineException {
+        OffHeapTimeLine<Long> timeLine = new OffHeapTimeLine<>(TimeCalculatorFactory.createTimeCalculator(Long.class), 64);
+        List<Event<Long>> added = new ArrayList<>();
+        for (long i = 0; i < 1000; i++) {
+            Event<Long> event = new Event<>(i, i + 2, "S" + (i % 7));
+            timeLine.addEvent(event);
+            added.add(event);
+        }
+        timeLine.compact();
+        long full = timeLine.getOffHeapBytes();
+        assertEquals(1000 * 21L, full);
+
+        // 删除少于一半时只做标记
+        for (int i = 0; i < 400; i++) {
+            assertTrue(timeLine.removeEvent(added.get(i)));
+        }
+        assertEquals(full, timeLine.getOffHeapBytes());
+        timeLine.compact();
+        assertEquals(600 * 21L, timeLine.getOffHeapBytes());
+
+        // 段内第301次删除过半，自动重写为剩余的299行
+        for (int i = 400; i < 701; i++) {
+            assertTrue(timeLine.removeEvent(added.get(i)));
+        }
+        assertEquals(299 * 21L, timeLine.getOffHeapBytes());
+        for (int i = 701; i < 750; i++) {
+            assertTrue(timeLine.removeEvent(added.get(i)));
+        }
+        timeLine.compact();
+        assertEquals(250 * 21L, timeLine.getOffHeapBytes());
+        assertEquals(250, timeLine.size());
+        assertEquals(3, timeLine.getEventsBetween(800L, 800L).size());
+        assertTrue(timeLine.getEventsBetween(0L, 740L).isEmpty());
+
+        for (int i = 750; i < 1000; i++) {
+            assertTrue(timeLine.removeEvent(added.get(i)));
+        }
+        assertEquals(0, timeLine.getOffHeapBytes());
+        assertEquals(0, timeLine.getSubjectCount());
+    }
+
+    @Test
+    @DisplayName("测试单个段跨越多块直接内存")
+    public void testRunSpansSeveralChunks() throws TimeLineException {
+        OffHeapTimeLine<Long> timeLine = new OffHeapTimeLine<>(TimeCalculatorFactory.createTimeCalculator(Long.class), 1 << 16);
+        long count = (1L << 20) + 5000;
+        for (long i = 0; i < count; i++) {
+            timeLine.addEvent(new Event<>(i * 2, i * 2 + 3, "S" + (i % 3)));
+        }
+        timeLine.compact();
+        assertEquals(count, timeLine.size());
+        assertEquals(count * 21, timeLine.getOffHeapBytes());
+
+        // 第2^20行是第二块的第一行
+        long boundary = (1L << 20) * 2;
+        List<Event<Long>> around = timeLine.getEventsBetween(boundary - 1, boundary);
+        assertEquals(3, around.size());
+        assertEquals(boundary - 4, (long) around.get(0).getStart());
+        assertEquals(boundary, (long) around.get(2).getStart());
+        assertEquals(2, timeLine.getEventsAt((count - 1) * 2 + 1).size());
+        assertTrue(timeLine.removeEvent(new Event<>(boundary, boundary + 3, "S" + ((1L << 20) % 3))));
+        assertEquals(2, timeLine.getEventsBetween(boundary - 1, boundary).size());
+    }
+
+    @Test
+    @DisplayName("测试事件视图在遍历中被复用")
+    public void testFlyweightView() throws TimeLineException {
+        OffHeapTimeLine<Integer> timeLine = new OffHeapTimeLine<>(TimeCalculatorFactory.createTimeCalculator(Integer.class));
+        timeLine.addEvent(new Event<>(0, 10, "A"));
+        timeLine.addEvent(new Event<>(5, 15, "B"));
+        Event<Integer> inactive = new Event<>(6, 8, "C");
+        inactive.deactivate();
+        timeLine.addEvent(inactive);
+
+        List<Event<Integer>> views = new ArrayList<>();
+        timeLine.forEachBetween(6, 7, views::add);
+        assertEquals(2, views.size());
+        assertSame(views.get(0), views.get(1));
+        assertEquals(2, timeLine.getEventsAt(7).size());
+        assertThrows(TimeLineException.class, () -> timeLine.getEventsBetween(5, 1));
+
+        timeLine.clear();
+        assertEquals(0, timeLine.size());
+        assertTrue(timeLine.getEventsAt(7).isEmpty());
+    }
+}
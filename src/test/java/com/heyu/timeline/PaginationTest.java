@@ -0,0 +1,105 @@
+package com.heyu.timeline;
+
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.core.model.Page;
+import com.heyu.timeline.core.timeline.OverlappingTimeLine;
+import com.heyu.timeline.core.timeline.TimeLine;
+import com.heyu.timeline.exception.TimeLineException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 游标分页测试
+ */
+public class PaginationTest {
+
+    @Test
+    @DisplayName("测试时间线按游标逐页读取")
+    public void testTimeLinePages() throws TimeLineException {
+        TimeLine<Integer> timeLine = new TimeLine<>();
+        for (int i = 0; i < 10; i++) {
+            timeLine.addEvent(new Event<>(i * 10, i * 10 + 5, "E" + i));
+        }
+
+        Page<Integer> first = timeLine.getPage(12, 100, null, 4);
+        assertEquals(4, first.getEvents().size());
+        assertEquals("E1", first.getEvents().get(0).getSubject());
+        assertTrue(first.hasNext());
+
+        // 翻页期间在游标之前插入事件不影响下一页
+        timeLine.addEvent(new Event<>(16, 18, "Inserted"));
+        Page<Integer> second = timeLine.getPage(12, 100, first.getNextCursor(), 4);
+        assertEquals("E5", second.getEvents().get(0).getSubject());
+        Page<Integer> third = timeLine.getPage(12, 100, second.getNextCursor(), 4);
+        assertEquals(1, third.getEvents().size());
+        assertFalse(third.hasNext());
+    }
+
+    @Test
+    @DisplayName("测试重叠时间线分页不重复不遗漏")
+    public void testOverlappingPages() throws TimeLineException {
+        OverlappingTimeLine<Integer> timeLine = new OverlappingTimeLine<>();
+        timeLine.addEvent(new Event<>(0, 50, "Spanning"));
+        for (int i = 0; i < 5; i++) {
+            timeLine.addEvent(new Event<>(20, 25, "Same" + i));
+        }
+        timeLine.addEvent(new Event<>(20, 22, "Shorter"));
+        timeLine.addEvent(new Event<>(30, 40, "Later"));
+
+        List<Object> subjects = new ArrayList<>();
+        Page<Integer> page = timeLine.getPage(10, 35, null, 3);
+        while (true) {
+            for (Event<Integer> event : page.getEvents()) {
+                subjects.add(event.getSubject());
+            }
+            if (!page.hasNext()) {
+                break;
+            }
+            page = timeLine.getPage(10, 35, page.getNextCursor(), 3);
+        }
+        assertEquals(8, subjects.size());
+        assertEquals(8, subjects.stream().distinct().count());
+        assertEquals("Spanning", subjects.get(0));
+        assertEquals("Shorter", subjects.get(1));
+        assertEquals("Same0", subjects.get(2));
+        assertEquals("Later", subjects.get(7));
+    }
+
+    @Test
+    @DisplayName("测试跨越窗口开始时间的事件分布在多页时不重复不遗漏")
+    public void testStraddlersAcrossPages() throws TimeLineException {
+        OverlappingTimeLine<Integer> timeLine = new OverlappingTimeLine<>();
+        for (int i = 0; i < 1000; i++) {
+            timeLine.addEvent(new Event<>(i, i + 1, "Short" + i));
+        }
+        for (int i = 0; i < 7; i++) {
+            timeLine.addEvent(new Event<>(480 + i, 510 + i, "Long" + i));
+        }
+        Event<Integer> removed = new Event<>(486, 516, "Long6");
+
+        List<Object> subjects = new ArrayList<>();
+        Page<Integer> page = timeLine.getPage(500, 505, null, 3);
+        while (true) {
+            for (Event<Integer> event : page.getEvents()) {
+                subjects.add(event.getSubject());
+            }
+            if (!page.hasNext()) {
+                break;
+            }
+            if (subjects.size() == 3) {
+                assertTrue(timeLine.removeEvent(removed));
+            }
+            page = timeLine.getPage(500, 505, page.getNextCursor(), 3);
+        }
+        // Long0-Long5、Short499以及开始于500-505的6个短事件
+        assertEquals(13, subjects.size());
+        assertEquals(13, subjects.stream().distinct().count());
+        assertEquals("Long0", subjects.get(0));
+        assertFalse(subjects.contains("Long6"));
+    }
+}
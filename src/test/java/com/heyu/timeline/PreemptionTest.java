@@ -0,0 +1,72 @@
+package com.heyu.timeline;
+
+import com.heyu.timeline.core.model.AddResult;
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.core.strategy.EvictionStrategy;
+import com.heyu.timeline.core.timeline.TimeLine;
+import com.heyu.timeline.exception.TimeLineException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 基于优先级的抢占测试
+ */
+public class PreemptionTest {
+
+    @Test
+    @DisplayName("测试高优先级事件挤占低优先级事件")
+    public void testPreemptAndDrop() throws TimeLineException {
+        TimeLine<Integer> timeLine = new TimeLine<>();
+        timeLine.setEvictionStrategy(EvictionStrategy.getPreemptStrategy());
+
+        Event<Integer> low1 = new Event<>(0, 5, "Low 1", 1);
+        Event<Integer> low2 = new Event<>(5, 10, "Low 2", 2);
+        timeLine.addEvent(low1);
+        timeLine.addEvent(low2);
+
+        AddResult<Integer> result = timeLine.addEventWithResult(new Event<>(3, 8, "High", 5));
+        assertTrue(result.isAccepted());
+        assertEquals(2, result.getDisplacedEvents().size());
+        assertTrue(result.getRescheduledEvents().isEmpty());
+        assertEquals(1, timeLine.getSortedEvents().size());
+        assertEquals("High", timeLine.getSortedEvents().get(0).getSubject());
+    }
+
+    @Test
+    @DisplayName("测试无法抢占优先级不低于自己的事件")
+    public void testCannotPreemptEqualPriority() throws TimeLineException {
+        TimeLine<Integer> timeLine = new TimeLine<>();
+        timeLine.setEvictionStrategy(EvictionStrategy.getPreemptStrategy());
+
+        timeLine.addEvent(new Event<>(0, 5, "Low", 1));
+        timeLine.addEvent(new Event<>(5, 10, "Same", 3));
+
+        AddResult<Integer> result = timeLine.addEventWithResult(new Event<>(3, 8, "New", 3));
+        assertFalse(result.isAccepted());
+        assertEquals(2, timeLine.getSortedEvents().size());
+    }
+
+    @Test
+    @DisplayName("测试被挤占的事件重新安排到后续空闲时间段")
+    public void testPreemptAndReschedule() throws TimeLineException {
+        TimeLine<Integer> timeLine = new TimeLine<>();
+        timeLine.setEvictionStrategy(EvictionStrategy.getPreemptAndRescheduleStrategy());
+
+        Event<Integer> low = new Event<>(0, 5, "Low", 0);
+        timeLine.addEvent(low);
+        timeLine.addEvent(new Event<>(12, 20, "Other", 9));
+
+        AddResult<Integer> result = timeLine.addEventWithResult(new Event<>(3, 8, "High", 5));
+        assertTrue(result.isAccepted());
+        assertTrue(result.getDisplacedEvents().isEmpty());
+        assertEquals(1, result.getRescheduledEvents().size());
+
+        // 8-12的间隙放不下持续时间为5的事件，安排到最后
+        assertSame(low, result.getRescheduledEvents().get(0));
+        assertEquals(Integer.valueOf(20), low.getStart());
+        assertEquals(Integer.valueOf(25), low.getEnd());
+        assertEquals(3, timeLine.getSortedEvents().size());
+    }
+}
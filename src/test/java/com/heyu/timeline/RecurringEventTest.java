@@ -0,0 +1,98 @@
+package com.heyu.timeline;
+
+import com.heyu.timeline.calculator.TimeCalculatorFactory;
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.core.model.RecurrenceRule;
+import com.heyu.timeline.core.model.RecurringEvent;
+import com.heyu.timeline.core.strategy.EvictionStrategy;
+import com.heyu.timeline.core.timeline.OverlappingTimeLine;
+import com.heyu.timeline.core.timeline.TimeLine;
+import com.heyu.timeline.exception.TimeLineException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 重复事件测试
+ */
+public class RecurringEventTest {
+
+    @Test
+    @DisplayName("测试查询时只展开时间窗口内的发生")
+    public void testLazyExpansion() throws TimeLineException {
+        TimeLine<Integer> timeLine = new TimeLine<>();
+        timeLine.addEvent(new RecurringEvent<>(0, 2, "Daily", new RecurrenceRule<>(10).except(20)));
+
+        List<Event<Integer>> events = timeLine.getEventsBetween(5, 45);
+        assertEquals(3, events.size());
+        assertEquals(Integer.valueOf(10), events.get(0).getStart());
+        assertEquals(Integer.valueOf(30), events.get(1).getStart());
+        assertEquals(Integer.valueOf(42), events.get(2).getEnd());
+
+        assertEquals(1, timeLine.getEventsAt(1001).size());
+        assertTrue(timeLine.getEventsAt(20).isEmpty());
+        assertTrue(timeLine.getAllEvents().isEmpty());
+        assertEquals(1, timeLine.getRecurringEvents().size());
+    }
+
+    @Test
+    @DisplayName("测试普通事件与重复事件的发生冲突")
+    public void testConflictWithOccurrence() throws TimeLineException {
+        TimeLine<Integer> timeLine = new TimeLine<>();
+        timeLine.addEvent(new RecurringEvent<>(0, 5, "Series", new RecurrenceRule<>(10, 101)));
+
+        timeLine.addEvent(new Event<>(1003, 1004, "Clash"));
+        assertTrue(timeLine.getAllEvents().isEmpty());
+
+        // 首尾相接不视为冲突
+        timeLine.addEvent(new Event<>(1005, 1010, "Gap"));
+        assertEquals(1, timeLine.getAllEvents().size());
+
+        // 最后一次发生之后不再冲突
+        timeLine.addEvent(new Event<>(1010, 1020, "After"));
+        assertEquals(2, timeLine.getAllEvents().size());
+
+        timeLine.setEvictionStrategy(EvictionStrategy.getShiftStrategy());
+        timeLine.setTimeCalculator(TimeCalculatorFactory.createTimeCalculator(Integer.class));
+        timeLine.addEvent(new Event<>(3, 6, "Shifted"));
+        Event<Integer> shifted = timeLine.getEventsAt(6).get(0);
+        assertEquals("Shifted", shifted.getSubject());
+        assertEquals(Integer.valueOf(5), shifted.getStart());
+    }
+
+    @Test
+    @DisplayName("测试重复事件之间的冲突检测")
+    public void testSeriesConflict() throws TimeLineException {
+        TimeLine<Integer> timeLine = new TimeLine<>();
+        timeLine.addEvent(new RecurringEvent<>(0, 2, "Even", new RecurrenceRule<>(4)));
+
+        // 周期8与周期4的最大公约数为4，偏移2且长度2的序列只会首尾相接
+        timeLine.addEvent(new RecurringEvent<>(2, 4, "Odd", new RecurrenceRule<>(8)));
+        assertEquals(2, timeLine.getRecurringEvents().size());
+
+        timeLine.addEvent(new RecurringEvent<>(1, 2, "Clash", new RecurrenceRule<>(12)));
+        assertEquals(2, timeLine.getRecurringEvents().size());
+
+        // 有限序列逐次检查其发生
+        timeLine.addEvent(new RecurringEvent<>(100, 102, "Once", new RecurrenceRule<>(50, 1)));
+        assertEquals(2, timeLine.getRecurringEvents().size());
+    }
+
+    @Test
+    @DisplayName("测试重叠时间线展开和移除重复事件")
+    public void testOverlappingTimeLine() throws TimeLineException {
+        OverlappingTimeLine<Integer> timeLine = new OverlappingTimeLine<>();
+        RecurringEvent<Integer> series = new RecurringEvent<>(0, 5, "Series", new RecurrenceRule<>(10, 3));
+        timeLine.addEvent(series);
+        timeLine.addEvent(new Event<>(2, 4, "Meeting"));
+
+        assertEquals(2, timeLine.getEventsAt(3).size());
+        assertEquals(3, timeLine.getEventsBetween(0, 100).size() - 1);
+
+        assertTrue(timeLine.removeEvent(series));
+        assertEquals(1, timeLine.getEventsBetween(0, 100).size());
+    }
+}
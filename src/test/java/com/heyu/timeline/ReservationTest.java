@@ -0,0 +1,101 @@
+package com.heyu.timeline;
+
+import com.heyu.timeline.calculator.TimeCalculatorFactory;
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.core.model.TimeSlot;
+import com.heyu.timeline.core.scheduler.ReservationConstraints;
+import com.heyu.timeline.core.timeline.OverlappingTimeLine;
+import com.heyu.timeline.core.timeline.TimeLine;
+import com.heyu.timeline.core.timeline.TimelineStructure;
+import com.heyu.timeline.exception.TimeLineException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 原子预约测试
+ */
+public class ReservationTest {
+
+    @Test
+    @DisplayName("测试按约束条件预约时间段")
+    public void testReserveWithConstraints() throws TimeLineException {
+        TimeLine<Integer> timeLine = new TimeLine<>();
+        timeLine.setTimeCalculator(TimeCalculatorFactory.createTimeCalculator(Integer.class));
+        timeLine.addEvent(new Event<>(0, 10, "A"));
+        timeLine.addEvent(new Event<>(14, 20, "B"));
+
+        assertEquals(new TimeSlot<>(10, 14), timeLine.reserve(4, "Fits gap"));
+        assertEquals(new TimeSlot<>(25, 30),
+                timeLine.reserve(5, "Later", new ReservationConstraints<Integer>().notBefore(25)));
+        assertThrows(TimeLineException.class, () -> timeLine.reserve(5, "Too late",
+                new ReservationConstraints<Integer>().notBefore(18).deadline(24)));
+        assertEquals(4, timeLine.getEventsBetween(0, 100).size());
+
+        OverlappingTimeLine<Integer> overlapping = new OverlappingTimeLine<>();
+        overlapping.setTimeCalculator(TimeCalculatorFactory.createTimeCalculator(Integer.class));
+        overlapping.addEvent(new Event<>(0, 10, "A"));
+        overlapping.addEvent(new Event<>(5, 15, "B"));
+        assertEquals(new TimeSlot<>(15, 18), overlapping.reserve(3, "C"));
+        assertThrows(TimeLineException.class, () -> new TimeLine<Integer>().reserve(3, "No calculator"));
+    }
+
+    @Test
+    @DisplayName("测试并发预约不会分配到同一个时间段")
+    public void testConcurrentReservations() throws Exception {
+        TimeLine<Integer> timeLine = new TimeLine<>();
+        timeLine.setTimeCalculator(TimeCalculatorFactory.createTimeCalculator(Integer.class));
+        List<TimeSlot<Integer>> slots = runConcurrently(timeLine, true);
+
+        assertEquals(800, slots.stream().distinct().count());
+        assertEquals(800, timeLine.getEventsBetween(0, 4000).size());
+        assertEquals(new TimeSlot<>(0, 4000), timeLine.getCoverage().get(0));
+    }
+
+    @Test
+    @DisplayName("测试并发添加只有持续时间的事件不会丢失")
+    public void testConcurrentDurationOnlyEvents() throws Exception {
+        TimeLine<Integer> timeLine = new TimeLine<>();
+        timeLine.setTimeCalculator(TimeCalculatorFactory.createTimeCalculator(Integer.class));
+        runConcurrently(timeLine, false);
+
+        assertEquals(800, timeLine.getEventsBetween(0, 4000).size());
+        assertEquals(1, timeLine.getCoverage().size());
+    }
+
+    private static List<TimeSlot<Integer>> runConcurrently(TimelineStructure<Integer> timeLine, boolean reserve)
+            throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<TimeSlot<Integer>>>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    List<TimeSlot<Integer>> result = new ArrayList<>();
+                    for (int i = 0; i < 100; i++) {
+                        if (reserve) {
+                            result.add(timeLine.reserve(5, thread + "-" + i));
+                        } else {
+                            timeLine.addEvent(new Event<>(5, thread + "-" + i));
+                        }
+                    }
+                    return result;
+                }));
+            }
+            List<TimeSlot<Integer>> slots = new ArrayList<>();
+            for (Future<List<TimeSlot<Integer>>> future : futures) {
+                slots.addAll(future.get());
+            }
+            return slots;
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
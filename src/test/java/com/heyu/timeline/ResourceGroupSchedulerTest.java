@@ -0,0 +1,225 @@
+package com.heyu.timeline;
+
+import com.heyu.timeline.calculator.TimeCalculator;
+import com.heyu.timeline.calculator.TimeCalculatorFactory;
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.core.model.RecurrenceRule;
+import com.heyu.timeline.core.model.RecurringEvent;
+import com.heyu.timeline.core.scheduler.ResourceGroupScheduler;
+import com.heyu.timeline.core.timeline.TimeLine;
+import com.heyu.timeline.exception.TimeLineException;
+import com.heyu.timeline.factory.TimeLinePool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 资源组调度测试
+ */
+public class ResourceGroupSchedulerTest {
+
+    private final TimeCalculator<Integer> calculator = TimeCalculatorFactory.createTimeCalculator(Integer.class);
+
+    @BeforeEach
+    public void setUp() {
+        TimeLinePool.clear();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        TimeLinePool.clear();
+    }
+
+    @Test
+    @DisplayName("测试事件被安排到能够最早开始的时间线")
+    public void testAssignToEarliestResource() throws TimeLineException {
+        TimeLine<Integer> machine1 = new TimeLine<>();
+        TimeLine<Integer> machine2 = new TimeLine<>();
+        machine1.addEvent(new Event<>(0, 10, "Busy"));
+        machine2.addEvent(new Event<>(0, 4, "Busy"));
+        machine2.addEvent(new Event<>(6, 20, "Busy"));
+
+        ResourceGroupScheduler<Integer> scheduler = new ResourceGroupScheduler<>(
+                Arrays.asList(machine1, machine2), calculator);
+
+        // machine2在4-6有一个间隙，能放下持续时间为2的事件
+        ResourceGroupScheduler.Assignment<Integer> small = scheduler.assign(new Event<>(2, "Small"));
+        assertEquals(1, small.getResourceIndex());
+        assertEquals(Integer.valueOf(4), small.getEvent().getStart());
+
+        // 持续时间为3的事件最早只能在machine1的10开始
+        ResourceGroupScheduler.Assignment<Integer> large = scheduler.assign(new Event<>(3, "Large"));
+        assertEquals(0, large.getResourceIndex());
+        assertEquals(Integer.valueOf(10), large.getEvent().getStart());
+        assertEquals(2, machine1.getSortedEvents().size());
+    }
+
+    @Test
+    @DisplayName("测试批量安排和重新平衡")
+    public void testAssignAllAndRebalance() throws TimeLineException {
+        TimeLinePool.setMaxTimeLines(3);
+        ResourceGroupScheduler<Integer> scheduler = ResourceGroupScheduler.fromPool(calculator, "m1", "m2", "m3");
+
+        List<Event<Integer>> jobs = new ArrayList<>();
+        for (int duration : new int[]{7, 3, 5, 2, 4, 6}) {
+            jobs.add(new Event<>(duration, "Job " + duration));
+        }
+        List<ResourceGroupScheduler.Assignment<Integer>> assignments = scheduler.assignAll(jobs);
+        assertEquals(6, assignments.size());
+
+        // 最长优先：7、6、5分别占用三台机器，4、3、2依次补到最早空闲的机器上
+        int latestEnd = 0;
+        for (ResourceGroupScheduler.Assignment<Integer> assignment : assignments) {
+            latestEnd = Math.max(latestEnd, assignment.getEvent().getEnd());
+        }
+        assertEquals(9, latestEnd);
+
+        // 外部在m1上新增一个事件后重新平衡
+        TimeLinePool.<Integer>getTimeLine("m1").addEvent(new Event<>(20, 30, "External"));
+        List<ResourceGroupScheduler.Assignment<Integer>> rebalanced = scheduler.rebalance();
+        assertEquals(6, rebalanced.size());
+        int total = 0;
+        for (TimeLine<Integer> timeLine : scheduler.getResources()) {
+            total += timeLine.getAllEvents().size();
+        }
+        assertEquals(7, total);
+    }
+
+    @Test
+    @DisplayName("测试碎片化的间隙中选择最早能容纳事件的位置")
+    public void testEarliestFitAmongFragmentedGaps() throws TimeLineException {
+        TimeLine<Integer> machine1 = new TimeLine<>();
+        TimeLine<Integer> machine2 = new TimeLine<>();
+        // machine1留下长度为1的间隙，machine2在30之后留下长度为5的间隙
+        for (int i = 0; i < 20; i++) {
+            machine1.addEvent(new Event<>(i * 3, i * 3 + 2, "Busy" + i));
+        }
+        machine2.addEvent(new Event<>(0, 30, "Busy"));
+        machine2.addEvent(new Event<>(35, 100, "Busy"));
+
+        ResourceGroupScheduler<Integer> scheduler = new ResourceGroupScheduler<>(
+                Arrays.asList(machine1, machine2), calculator);
+        assertEquals(Integer.valueOf(2), scheduler.assign(new Event<>(1, "Tiny")).getEvent().getStart());
+        ResourceGroupScheduler.Assignment<Integer> medium = scheduler.assign(new Event<>(4, "Medium"));
+        assertEquals(1, medium.getResourceIndex());
+        assertEquals(Integer.valueOf(30), medium.getEvent().getStart());
+        // machine2的间隙只剩下34-35，长度为2的事件只能放到machine1的末尾
+        ResourceGroupScheduler.Assignment<Integer> small = scheduler.assign(new Event<>(2, "Small"));
+        assertEquals(0, small.getResourceIndex());
+        assertEquals(Integer.valueOf(59), small.getEvent().getStart());
+        assertEquals(Integer.valueOf(5), scheduler.assign(new Event<>(1, "Last")).getEvent().getStart());
+    }
+
+    @Test
+    @DisplayName("测试重新平衡失败时事件回到原来的位置")
+    public void testRebalanceRollback() throws TimeLineException {
+        boolean[] failing = {false};
+        TimeCalculator<Integer> flaky = new TimeCalculator<Integer>() {
+            @Override
+            public Integer add(Integer start, Integer duration) {
+                if (failing[0] && duration == 3) {
+                    throw new IllegalStateException("Injected failure");
+                }
+                return calculator.add(start, duration);
+            }
+
+            @Override
+            public Integer subtract(Integer end, Integer duration) {
+                return calculator.subtract(end, duration);
+            }
+
+            @Override
+            public int compare(Integer t1, Integer t2) {
+                return calculator.compare(t1, t2);
+            }
+
+            @Override
+            public Integer getZero() {
+                return calculator.getZero();
+            }
+        };
+        TimeLine<Integer> machine1 = new TimeLine<>();
+        TimeLine<Integer> machine2 = new TimeLine<>();
+        ResourceGroupScheduler<Integer> scheduler = new ResourceGroupScheduler<>(
+                Arrays.asList(machine1, machine2), flaky);
+        scheduler.assign(new Event<>(3, "A"));
+        scheduler.assign(new Event<>(5, "B"));
+        scheduler.assign(new Event<>(2, "C"));
+        List<String> before = new ArrayList<>();
+        for (ResourceGroupScheduler.Assignment<Integer> assignment : scheduler.getAssignments()) {
+            before.add(assignment.getResourceIndex() + ":" + assignment.getEvent());
+        }
+
+        failing[0] = true;
+        assertThrows(IllegalStateException.class, scheduler::rebalance);
+        List<String> after = new ArrayList<>();
+        for (ResourceGroupScheduler.Assignment<Integer> assignment : scheduler.getAssignments()) {
+            after.add(assignment.getResourceIndex() + ":" + assignment.getEvent());
+        }
+        assertEquals(before, after);
+        assertEquals(2, machine1.getSortedEvents().size());
+        assertEquals(1, machine2.getSortedEvents().size());
+    }
+
+    @Test
+    @DisplayName("测试安排事件时避开重复事件的发生")
+    public void testAvoidsRecurringOccurrences() throws TimeLineException {
+        TimeLine<Integer> machine = new TimeLine<>();
+        // 每10个单位开一次5个单位的会，空闲时间段长度都是5
+        machine.addEvent(new RecurringEvent<>(0, 5, "Standup", new RecurrenceRule<>(10)));
+        ResourceGroupScheduler<Integer> scheduler = new ResourceGroupScheduler<>(
+                Collections.singletonList(machine), calculator);
+
+        assertEquals(Integer.valueOf(5), scheduler.assign(new Event<>(3, "A")).getEvent().getStart());
+        assertEquals(Integer.valueOf(15), scheduler.assign(new Event<>(3, "B")).getEvent().getStart());
+        for (int i = 0; i < 10; i++) {
+            Event<Integer> event = scheduler.assign(new Event<>(4, "C" + i)).getEvent();
+            assertEquals(Integer.valueOf(25 + i * 10), event.getStart());
+        }
+        assertThrows(TimeLineException.class, () -> scheduler.assign(new Event<>(6, "Too long")));
+    }
+
+    @Test
+    @DisplayName("测试多条时间线时选择结果与逐条查找一致")
+    public void testMatchesExhaustiveSearch() throws TimeLineException {
+        Random random = new Random(17);
+        List<TimeLine<Integer>> machines = new ArrayList<>();
+        for (int m = 0; m < 13; m++) {
+            TimeLine<Integer> machine = new TimeLine<>();
+            machine.setTimeCalculator(calculator);
+            int cursor = random.nextInt(5);
+            for (int i = 0; i < 30; i++) {
+                int length = 1 + random.nextInt(6);
+                machine.addEvent(new Event<>(cursor, cursor + length, "Busy" + m + "-" + i));
+                cursor += length + random.nextInt(8);
+            }
+            machines.add(machine);
+        }
+        ResourceGroupScheduler<Integer> scheduler = new ResourceGroupScheduler<>(machines, calculator);
+
+        for (int i = 0; i < 200; i++) {
+            int duration = 1 + random.nextInt(7);
+            int expectedResource = -1;
+            Integer expectedStart = null;
+            for (int m = 0; m < machines.size(); m++) {
+                Integer start = machines.get(m).firstFreeSlotAfter(0, duration).getStart();
+                if (expectedStart == null || start < expectedStart) {
+                    expectedStart = start;
+                    expectedResource = m;
+                }
+            }
+            ResourceGroupScheduler.Assignment<Integer> assignment = scheduler.assign(new Event<>(duration, "Job" + i));
+            assertEquals(expectedStart, assignment.getEvent().getStart());
+            assertEquals(expectedResource, assignment.getResourceIndex());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.heyu.timeline;
+
+import com.heyu.timeline.calculator.TimeCalculatorFactory;
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.core.timeline.OverlappingTimeLine;
+import com.heyu.timeline.core.timeline.SegmentedTimeLine;
+import com.heyu.timeline.exception.TimeLineException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.heyu.timeline.TimeLineFixtures.assertMatchesReference;
+import static com.heyu.timeline.TimeLineFixtures.randomEvents;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 压缩段时间线测试
+ */
+public class SegmentedTimeLineTest {
+
+    @Test
+    @DisplayName("测试封存之后查询同时覆盖头部和压缩段")
+    public void testQueriesSpanHeadAndSegments() throws TimeLineException {
+        SegmentedTimeLine<Long> segmented = new SegmentedTimeLine<>(TimeCalculatorFactory.createTimeCalculator(Long.class));
+        OverlappingTimeLine<Long> reference = new OverlappingTimeLine<>();
+        List<Event<Long>> events = randomEvents(3).count(5000).starts(-1000, 100000).lengths(100, 3000, 50)
+                .subjects(40).inactiveEvery(13).build();
+        for (Event<Long> event : events) {
+            segmented.addEvent(event);
+            reference.addEvent(event);
+        }
+
+        int sealed = segmented.seal(40000L) + segmented.seal(70000L);
+        assertTrue(sealed > 3000);
+        assertEquals(0, segmented.seal(0L));
+        assertEquals(5000, segmented.size());
+        assertEquals(5000 - sealed, segmented.getHeadSize());
+        assertEquals(2, segmented.getSegments().size());
+        // 每个事件编码后只占几个字节
+        assertTrue(segmented.getSealedBytes() < sealed * 12L);
+
+        assertMatchesReference(reference, segmented::getEventsBetween, -1000, 100000, 731, 300);
+        assertEquals(reference.getEventsAt(39990L).size(), segmented.getEventsAt(39990L).size());
+    }
+
+    @Test
+    @DisplayName("测试头部在封存后仍然可以修改")
+    public void testHeadRemainsMutable() throws TimeLineException {
+        SegmentedTimeLine<Integer> timeLine = new SegmentedTimeLine<>(TimeCalculatorFactory.createTimeCalculator(Integer.class));
+        timeLine.addEvent(new Event<>(0, 10, "Old"));
+        timeLine.addEvent(new Event<>(5, 30, "Open"));
+        assertEquals(1, timeLine.seal(20));
+
+        assertFalse(timeLine.removeEvent(new Event<>(0, 10, "Old")));
+        assertTrue(timeLine.removeEvent(new Event<>(5, 30, "Open")));
+        timeLine.addEvent(new Event<>(8, 12, "New"));
+        assertEquals(2, timeLine.size());
+        assertEquals(1, timeLine.getHeadSize());
+        assertEquals(Arrays.asList(new Event<>(0, 10, "Old"), new Event<>(8, 12, "New")), timeLine.getEventsBetween(9, 9));
+    }
+}
@@ -0,0 +1,57 @@
+package com.heyu.timeline;
+
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.core.timeline.OverlappingTimeLine;
+import com.heyu.timeline.core.timeline.TimeLine;
+import com.heyu.timeline.exception.TimeLineException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 事件主体二级索引测试
+ */
+public class SubjectIndexTest {
+
+    @Test
+    @DisplayName("测试按主体查询事件并随增删同步更新")
+    public void testLookupBySubject() throws TimeLineException {
+        OverlappingTimeLine<Integer> timeLine = new OverlappingTimeLine<>();
+        timeLine.addEvent(new Event<>(0, 10, "job-1"));
+        timeLine.addEvent(new Event<>(5, 15, "job-2"));
+        timeLine.enableSubjectIndex();
+        timeLine.addEvent(new Event<>(20, 30, "job-1"));
+
+        List<Event<Integer>> events = timeLine.getEventsBySubject("job-1");
+        assertEquals(2, events.size());
+        assertEquals(Integer.valueOf(20), events.get(1).getStart());
+
+        assertEquals(1, timeLine.getEventsBySubjectBetween("job-1", 12, 25).size());
+
+        timeLine.removeEvent(0, 10, "job-1");
+        assertEquals(1, timeLine.getEventsBySubject("job-1").size());
+        timeLine.clear();
+        assertTrue(timeLine.getEventsBySubject("job-2").isEmpty());
+    }
+
+    @Test
+    @DisplayName("测试使用自定义的键提取函数")
+    public void testKeyExtractor() throws TimeLineException {
+        TimeLine<Integer> timeLine = new TimeLine<>();
+        timeLine.enableSubjectIndex(event -> event.getSubject().toString().split(":")[0]);
+        timeLine.addEvent(new Event<>(0, 10, "alice:build"));
+        timeLine.addEvent(new Event<>(10, 20, "bob:test"));
+        timeLine.addEvent(new Event<>(20, 30, "alice:deploy"));
+
+        assertEquals(2, timeLine.getEventsBySubject("alice").size());
+        assertEquals(1, timeLine.getEventsBySubjectBetween("alice", 25, 40).size());
+
+        // 未启用索引时按主体逐个比较
+        timeLine.disableSubjectIndex();
+        assertEquals(1, timeLine.getEventsBySubject("bob:test").size());
+        assertEquals(1, timeLine.getEventsBySubjectBetween("bob:test", 0, 15).size());
+    }
+}
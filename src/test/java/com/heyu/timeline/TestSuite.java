@@ -16,9 +16,32 @@ import org.junit.platform.suite.api.Suite;
     TimeLineStrategyExampleTest.class,
     TimeLineUsageExampleTest.class,
     TimelineStructureExampleTest.class,
+    TimelineStructureDefaultsTest.class,
     AutoScheduleTest.class,
     TypeParameterTest.class,
-    JavaTimeTypesTest.class
+    JavaTimeTypesTest.class,
+    ExpiryPolicyTest.class,
+    PreemptionTest.class,
+    BatchScheduleTest.class,
+    ResourceGroupSchedulerTest.class,
+    RecurringEventTest.class,
+    AggregationTest.class,
+    FreeSlotTest.class,
+    NavigationTest.class,
+    SubjectIndexTest.class,
+    AttributeFilterTest.class,
+    PaginationTest.class,
+    TimelineOperationsTest.class,
+    TimelineDiffTest.class,
+    VersionedTimeLineTest.class,
+    BatchMutationTest.class,
+    ReservationTest.class,
+    AsyncTimeLineTest.class,
+    OffHeapTimeLineTest.class,
+    ColumnarTimeLineTest.class,
+    SegmentedTimeLineTest.class,
+    LsmTimeLineTest.class,
+    TieredTimeLineTest.class
 })
 public class TestSuite {
     // 测试套件，运行所有测试类
@@ -0,0 +1,138 @@
+package com.heyu.timeline;
+
+import com.heyu.timeline.calculator.TimeCalculatorFactory;
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.core.timeline.OverlappingTimeLine;
+import com.heyu.timeline.core.timeline.TieredTimeLine;
+import com.heyu.timeline.exception.TimeLineException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static com.heyu.timeline.TimeLineFixtures.assertMatchesReference;
+import static com.heyu.timeline.TimeLineFixtures.randomEvents;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分层存储时间线测试
+ */
+public class TieredTimeLineTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("测试冷段写入磁盘后查询结果与可重叠时间线一致")
+    public void testMatchesOverlappingTimeLine() throws TimeLineException, IOException {
+        TieredTimeLine<Long> tiered = new TieredTimeLine<>(TimeCalculatorFactory.createTimeCalculator(Long.class),
+                directory, 1000L);
+        OverlappingTimeLine<Long> reference = new OverlappingTimeLine<>();
+        for (Event<Long> event : randomEvents(5).lengths(40, 500, 100).build()) {
+            reference.addEvent(event);
+            tiered.addEvent(event);
+        }
+
+        int spilled = tiered.spill(5000L) + tiered.spill(8000L);
+        assertTrue(spilled > 0);
+        assertEquals(2, tiered.getColdSegmentCount());
+        assertEquals(2000 - spilled, tiered.getHotSize());
+        assertEquals(2000, tiered.size());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(2, files.count());
+        }
+
+        tiered.getEventsBetween(9800L, 9900L);
+        assertEquals(0, tiered.getSegmentLoads());
+        assertMatchesReference(reference, tiered::getEventsBetween, 0, 10000, 101, 60);
+        assertEquals(2, tiered.getSegmentLoads());
+    }
+
+    @Test
+    @DisplayName("测试冷段缓存按最近使用顺序淘汰并遵守大小上限")
+    public void testCacheBound() throws TimeLineException {
+        TieredTimeLine<Long> probe = new TieredTimeLine<>(TimeCalculatorFactory.createTimeCalculator(Long.class),
+                directory.resolve("probe"), 0L);
+        fill(probe, 0);
+        probe.spill(1000L);
+        probe.getEventsAt(50L);
+        long segmentBytes = probe.getCachedBytes();
+        assertTrue(segmentBytes > 0);
+
+        TieredTimeLine<Long> tiered = new TieredTimeLine<>(TimeCalculatorFactory.createTimeCalculator(Long.class),
+                directory.resolve("tiered"), 0L, segmentBytes * 2 + 64);
+        for (int segment = 0; segment < 3; segment++) {
+            fill(tiered, segment * 1000L);
+            tiered.spill(segment * 1000L + 1000L);
+        }
+        assertEquals(3, tiered.getColdSegmentCount());
+        assertEquals(0, tiered.getHotSize());
+
+        assertEquals(1, tiered.getEventsAt(50L).size());
+        assertEquals(1, tiered.getEventsAt(1050L).size());
+        assertEquals(1, tiered.getEventsAt(50L).size());
+        assertEquals(2, tiered.getSegmentLoads());
+        assertEquals(1, tiered.getEventsAt(2050L).size());
+        assertEquals(2, tiered.getCachedSegmentCount());
+        assertTrue(tiered.getCachedBytes() <= segmentBytes * 2 + 64);
+        assertEquals(1, tiered.getEventsAt(50L).size());
+        assertEquals(3, tiered.getSegmentLoads());
+        assertEquals(1, tiered.getEventsAt(1050L).size());
+        assertEquals(4, tiered.getSegmentLoads());
+    }
+
+    @Test
+    @DisplayName("测试写入冷段失败时事件仍留在内存中")
+    public void testSpillFailureKeepsEvents() throws TimeLineException {
+        TieredTimeLine<Long> tiered = new TieredTimeLine<>(TimeCalculatorFactory.createTimeCalculator(Long.class),
+                directory, 10L);
+        tiered.addEvent(new Event<>(0L, 5L, new Object()));
+        tiered.addEvent(new Event<>(50L, 60L, "Recent"));
+
+        assertThrows(TimeLineException.class, () -> tiered.spill(100L));
+        assertEquals(1, tiered.getColdSegmentCount());
+        assertEquals(1, tiered.getEventsAt(3L).size());
+        assertEquals(2, tiered.size());
+        assertThrows(IllegalArgumentException.class, () -> new TieredTimeLine<>(
+                TimeCalculatorFactory.createTimeCalculator(Long.class), directory, 10L, -1));
+    }
+
+    @Test
+    @DisplayName("测试共用目录的时间线互不覆盖，关闭时删除各自的冷段文件")
+    public void testSharedDirectoryAndClose() throws TimeLineException, IOException {
+        TieredTimeLine<Long> first = new TieredTimeLine<>(TimeCalculatorFactory.createTimeCalculator(Long.class),
+                directory, 0L);
+        TieredTimeLine<Long> second = new TieredTimeLine<>(TimeCalculatorFactory.createTimeCalculator(Long.class),
+                directory, 0L);
+        first.addEvent(new Event<>(0L, 5L, "First"));
+        second.addEvent(new Event<>(0L, 5L, "Second"));
+        first.spill(10L);
+        second.spill(10L);
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(2, files.count());
+        }
+        assertEquals("First", first.getEventsAt(3L).get(0).getSubject());
+        assertEquals("Second", second.getEventsAt(3L).get(0).getSubject());
+
+        first.close();
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+        assertThrows(TimeLineException.class, () -> first.getEventsAt(3L));
+        assertEquals("Second", second.getEventsAt(3L).get(0).getSubject());
+        second.close();
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    private static void fill(TieredTimeLine<Long> timeLine, long offset) throws TimeLineException {
+        for (long i = 0; i < 300; i++) {
+            timeLine.addEvent(new Event<>(offset + i * 3, offset + i * 3 + 2, "E" + (offset + i)));
+        }
+    }
+}
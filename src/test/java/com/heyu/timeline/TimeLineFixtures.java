@@ -0,0 +1,153 @@
+package com.heyu.timeline;
+
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.core.timeline.OverlappingTimeLine;
+import com.heyu.timeline.exception.TimeLineException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 存储引擎测试共用的随机事件和与可重叠时间线对比的工具
+ */
+final class TimeLineFixtures {
+
+    private TimeLineFixtures() {
+    }
+
+    /**
+     * 按时间段查询事件的方法，用于以方法引用传入不同的时间线
+     */
+    @FunctionalInterface
+    interface RangeQuery {
+        List<Event<Long>> getEventsBetween(Long start, Long end) throws TimeLineException;
+    }
+
+    /**
+     * 创建随机事件生成器
+     * @param seed 随机数种子
+     * @return 生成器
+     */
+    static RandomEvents randomEvents(long seed) {
+        return new RandomEvents(seed);
+    }
+
+    /**
+     * 将事件转换为与顺序无关的比较键
+     * @param events 事件列表
+     * @return 排好序的"开始-结束-主体"字符串
+     */
+    static List<String> keys(List<Event<Long>> events) {
+        List<String> keys = new ArrayList<>();
+        for (Event<Long> event : events) {
+            keys.add(event.getStart() + "-" + event.getEnd() + "-" + event.getSubject());
+        }
+        keys.sort(null);
+        return keys;
+    }
+
+    /**
+     * 按固定步长滑动查询窗口，断言每个窗口的查询结果与可重叠时间线一致
+     * @param reference 作为基准的可重叠时间线
+     * @param actual 被测时间线的查询方法
+     * @param from 第一个窗口的开始时间
+     * @param to 窗口开始时间的上界（不含）
+     * @param step 步长
+     * @param width 窗口长度
+     * @throws TimeLineException 查询失败时抛出异常
+     */
+    static void assertMatchesReference(OverlappingTimeLine<Long> reference, RangeQuery actual,
+                                       long from, long to, long step, long width) throws TimeLineException {
+        for (long time = from; time < to; time += step) {
+            assertEquals(keys(reference.getEventsBetween(time, time + width)),
+                    keys(actual.getEventsBetween(time, time + width)), "window starting at " + time);
+        }
+    }
+
+    /**
+     * 随机事件生成器：开始时间均匀分布，每隔固定个数生成一个长事件
+     */
+    static final class RandomEvents {
+        private final long seed;
+        private int count = 2000;
+        private long origin;
+        private int startRange = 10000;
+        private int shortLength = 30;
+        private int longLength = 500;
+        private int longEvery = 100;
+        private int subjects;
+        private int inactiveEvery;
+
+        private RandomEvents(long seed) {
+            this.seed = seed;
+        }
+
+        /**
+         * @param count 事件数量
+         */
+        RandomEvents count(int count) {
+            this.count = count;
+            return this;
+        }
+
+        /**
+         * @param origin 最早的开始时间
+         * @param startRange 开始时间的取值个数
+         */
+        RandomEvents starts(long origin, int startRange) {
+            this.origin = origin;
+            this.startRange = startRange;
+            return this;
+        }
+
+        /**
+         * @param shortLength 普通事件长度的上界（不含）
+         * @param longLength 长事件长度的上界（不含）
+         * @param longEvery 每隔多少个事件生成一个长事件
+         */
+        RandomEvents lengths(int shortLength, int longLength, int longEvery) {
+            this.shortLength = shortLength;
+            this.longLength = longLength;
+            this.longEvery = longEvery;
+            return this;
+        }
+
+        /**
+         * @param subjects 不同主体的个数，为0时每个事件的主体都不同
+         */
+        RandomEvents subjects(int subjects) {
+            this.subjects = subjects;
+            return this;
+        }
+
+        /**
+         * @param inactiveEvery 每隔多少个事件生成一个非活跃事件，为0时全部活跃
+         */
+        RandomEvents inactiveEvery(int inactiveEvery) {
+            this.inactiveEvery = inactiveEvery;
+            return this;
+        }
+
+        /**
+         * 生成事件，相同参数总是生成相同的事件
+         * @return 事件列表
+         */
+        List<Event<Long>> build() {
+            Random random = new Random(seed);
+            List<Event<Long>> events = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long start = origin + random.nextInt(startRange);
+                long end = start + random.nextInt(i % longEvery == 0 ? longLength : shortLength);
+                Event<Long> event = new Event<>(start, end, "S" + (subjects == 0 ? i : i % subjects));
+                if (inactiveEvery > 0 && i % inactiveEvery == 0) {
+                    event.deactivate();
+                }
+                events.add(event);
+            }
+            return events;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.heyu.timeline;
+
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.core.model.TimelineDiff;
+import com.heyu.timeline.core.timeline.OverlappingTimeLine;
+import com.heyu.timeline.core.timeline.TimeLine;
+import com.heyu.timeline.core.timeline.TimelineSnapshot;
+import com.heyu.timeline.exception.TimeLineException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 时间线差异测试
+ */
+public class TimelineDiffTest {
+
+    @Test
+    @DisplayName("测试两条时间线之间的差异")
+    public void testDiffBetweenTimelines() throws TimeLineException {
+        TimeLine<Integer> older = new TimeLine<>();
+        older.addEvent(new Event<>(0, 10, "A"));
+        older.addEvent(new Event<>(20, 30, "B"));
+        older.addEvent(new Event<>(40, 50, "C"));
+        OverlappingTimeLine<Integer> newer = new OverlappingTimeLine<>();
+        newer.addEvent(new Event<>(0, 10, "A"));
+        newer.addEvent(new Event<>(20, 35, "B"));
+        newer.addEvent(new Event<>(20, 25, "D"));
+        newer.addEvent(new Event<>(60, 70, "E"));
+
+        TimelineDiff<Integer> diff = older.diff(newer);
+        assertEquals(Arrays.asList(new Event<>(20, 25, "D"), new Event<>(60, 70, "E")), diff.getAdded());
+        assertEquals(Collections.singletonList(new Event<>(40, 50, "C")), diff.getRemoved());
+        assertEquals(Collections.singletonList(new Event<>(20, 35, "B")), diff.getChanged());
+        assertTrue(older.diff(older).isEmpty());
+    }
+
+    @Test
+    @DisplayName("测试同一条时间线先后生成的快照之间的差异")
+    public void testDiffBetweenSnapshots() throws TimeLineException {
+        OverlappingTimeLine<Integer> timeLine = new OverlappingTimeLine<>();
+        for (int i = 0; i < 1000; i++) {
+            timeLine.addEvent(new Event<>(i * 10, i * 10 + 5, "E" + i));
+        }
+        TimelineSnapshot<Integer> first = timeLine.snapshot();
+        assertEquals(1000, first.size());
+        assertTrue(first.diff(timeLine.snapshot()).isEmpty());
+
+        Event<Integer> tagged = timeLine.getEventsAt(5002).get(0);
+        timeLine.removeEvent(tagged);
+        timeLine.addEvent(tagged.tag("room", "A"));
+        timeLine.removeEvent(timeLine.getEventsAt(7002).get(0));
+        timeLine.addEvent(new Event<>(-10, -5, "Early"));
+        timeLine.addEvent(new Event<>(7000, 7003, "Replacement"));
+        timeLine.addEvent(new Event<>(20000, 20005, "Late"));
+
+        TimelineSnapshot<Integer> second = timeLine.snapshot();
+        assertEquals(1002, second.size());
+        assertEquals(1000, first.size());
+
+        TimelineDiff<Integer> diff = first.diff(second);
+        assertEquals(Arrays.asList(new Event<>(-10, -5, "Early"), new Event<>(7000, 7003, "Replacement"),
+                new Event<>(20000, 20005, "Late")), diff.getAdded());
+        assertEquals(Collections.singletonList(new Event<>(7000, 7005, "E700")), diff.getRemoved());
+        assertEquals(1, diff.getChanged().size());
+        assertEquals("A", diff.getChanged().get(0).getAttribute("room"));
+
+        // 快照保存的是事件当时的状态
+        assertEquals(second.getEvents(), timeLine.snapshot().getEvents());
+        assertNull(first.getEvents().get(500).getAttribute("room"));
+        assertTrue(second.diff(timeLine.snapshot()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("测试给事件加属性后快照之间的差异")
+    public void testDiffAfterTagEvent() throws TimeLineException {
+        OverlappingTimeLine<Integer> timeLine = new OverlappingTimeLine<>();
+        for (int i = 0; i < 1000; i++) {
+            timeLine.addEvent(new Event<>(i * 10, i * 10 + 5, "E" + i));
+        }
+        TimelineSnapshot<Integer> first = timeLine.snapshot();
+
+        timeLine.tagEvent(timeLine.getEventsAt(3002).get(0), "region", "eu");
+        TimelineSnapshot<Integer> second = timeLine.snapshot();
+
+        TimelineDiff<Integer> diff = first.diff(second);
+        assertTrue(diff.getAdded().isEmpty());
+        assertTrue(diff.getRemoved().isEmpty());
+        assertEquals(1, diff.getChanged().size());
+        assertEquals("eu", diff.getChanged().get(0).getAttribute("region"));
+        assertNull(first.getEvents().get(300).getAttribute("region"));
+        assertEquals("eu", second.getEvents().get(300).getAttribute("region"));
+    }
+}
@@ -0,0 +1,84 @@
+package com.heyu.timeline;
+
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.core.model.TimeSlot;
+import com.heyu.timeline.core.timeline.OverlappingTimeLine;
+import com.heyu.timeline.core.timeline.TimeLine;
+import com.heyu.timeline.exception.TimeLineException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 时间线集合运算测试
+ */
+public class TimelineOperationsTest {
+
+    @Test
+    @DisplayName("测试合并两条时间线得到新的可重叠时间线")
+    public void testMerge() throws TimeLineException {
+        TimeLine<Integer> left = new TimeLine<>();
+        left.addEvent(new Event<>(0, 10, "A"));
+        left.addEvent(new Event<>(20, 30, "B"));
+        OverlappingTimeLine<Integer> right = new OverlappingTimeLine<>();
+        right.addEvent(new Event<>(5, 25, "C"));
+        right.addEvent(new Event<>(5, 8, "D"));
+        right.addEvent(new Event<>(40, 50, "E"));
+
+        OverlappingTimeLine<Integer> merged = left.mergeWith(right);
+        assertEquals(5, merged.getEventsInStartOrder().size());
+        assertEquals(Arrays.asList(0, 5, 5, 20, 40), starts(merged.getEventsInStartOrder()));
+        assertEquals(Arrays.asList(8, 10, 25, 30, 50), ends(merged.getEventsInEndOrder()));
+        assertEquals(3, merged.getEventsAt(6).size());
+        assertEquals(3, merged.getEventsBetween(22, 45).size());
+        assertEquals(Arrays.asList(new TimeSlot<>(0, 30), new TimeSlot<>(40, 50)), merged.getCoverage());
+
+        // 合并后的时间线可以继续正常增删
+        merged.addEvent(new Event<>(45, 60, "F"));
+        assertTrue(merged.removeEvent(new Event<>(5, 8, "D")));
+        assertEquals(Arrays.asList(new TimeSlot<>(0, 30), new TimeSlot<>(40, 60)), merged.getCoverage());
+        assertEquals(2, left.getEventsInStartOrder().size());
+
+        // 合并结果保存的是副本，修改原时间线中的事件不会影响合并结果
+        Event<Integer> source = right.getEventsAt(22).get(0);
+        source.deactivate();
+        source.setStart(1);
+        assertEquals(Arrays.asList(5, 20), starts(merged.getEventsAt(22)));
+    }
+
+    @Test
+    @DisplayName("测试覆盖范围的并集、交集和差集")
+    public void testCoverageOperations() throws TimeLineException {
+        TimeLine<Integer> left = new TimeLine<>();
+        left.addEvent(new Event<>(0, 10, "A"));
+        left.addEvent(new Event<>(10, 15, "B"));
+        left.addEvent(new Event<>(20, 30, "C"));
+        left.addEvent(new Event<>(50, 60, "D"));
+        OverlappingTimeLine<Integer> right = new OverlappingTimeLine<>();
+        right.addEvent(new Event<>(5, 12, "E"));
+        right.addEvent(new Event<>(8, 22, "F"));
+        right.addEvent(new Event<>(30, 40, "G"));
+        right.addEvent(new Event<>(52, 55, "H"));
+
+        assertEquals(Arrays.asList(new TimeSlot<>(0, 15), new TimeSlot<>(20, 30), new TimeSlot<>(50, 60)),
+                left.getCoverage());
+        assertEquals(Arrays.asList(new TimeSlot<>(0, 40), new TimeSlot<>(50, 60)), left.unionCoverage(right));
+        assertEquals(Arrays.asList(new TimeSlot<>(5, 15), new TimeSlot<>(20, 22), new TimeSlot<>(52, 55)),
+                left.intersectCoverage(right));
+        assertEquals(Arrays.asList(new TimeSlot<>(0, 5), new TimeSlot<>(22, 30), new TimeSlot<>(50, 52),
+                new TimeSlot<>(55, 60)), left.differenceCoverage(right));
+        assertEquals(Arrays.asList(new TimeSlot<>(15, 20), new TimeSlot<>(30, 40)), right.differenceCoverage(left));
+    }
+
+    private static List<Integer> starts(List<Event<Integer>> events) {
+        return Arrays.asList(events.stream().map(Event::getStart).toArray(Integer[]::new));
+    }
+
+    private static List<Integer> ends(List<Event<Integer>> events) {
+        return Arrays.asList(events.stream().map(Event::getEnd).toArray(Integer[]::new));
+    }
+}
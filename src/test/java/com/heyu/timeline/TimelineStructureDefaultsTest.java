@@ -0,0 +1,279 @@
+package com.heyu.timeline;
+
+import com.heyu.timeline.calculator.TimeCalculator;
+import com.heyu.timeline.calculator.TimeCalculatorFactory;
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.core.model.TimeSlot;
+import com.heyu.timeline.core.model.TimelineBatch;
+import com.heyu.timeline.core.model.TimelineDiff;
+import com.heyu.timeline.core.scheduler.ReservationConstraints;
+import com.heyu.timeline.core.timeline.TimelineSnapshot;
+import com.heyu.timeline.core.timeline.TimelineStructure;
+import com.heyu.timeline.exception.TimeLineException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TimelineStructure默认方法测试，使用只实现了最初基本操作的外部实现
+ */
+public class TimelineStructureDefaultsTest {
+
+    @Test
+    @DisplayName("测试按开始和结束时间排列的事件与覆盖范围")
+    public void testOrderAndCoverage() throws TimeLineException {
+        ListTimeline timeline = new ListTimeline();
+        Event<Integer> late = new Event<>(20, 25, "C");
+        late.deactivate();
+        timeline.addEvent(late);
+        timeline.addEvent(new Event<>(0, 12, "A"));
+        timeline.addEvent(new Event<>(5, 10, "B"));
+        timeline.addEvent(new Event<>(12, 15, "D"));
+
+        assertEquals(Arrays.asList("A", "B", "D", "C"), subjects(timeline.getEventsInStartOrder()));
+        assertEquals(Arrays.asList("B", "A", "D", "C"), subjects(timeline.getEventsInEndOrder()));
+        assertEquals(Arrays.asList(new TimeSlot<>(0, 15), new TimeSlot<>(20, 25)), timeline.getCoverage());
+        assertTrue(timeline.getRecurringEvents().isEmpty());
+        assertNull(timeline.getTimeCalculator());
+    }
+
+    @Test
+    @DisplayName("测试默认快照与差异")
+    public void testSnapshotAndDiff() throws TimeLineException {
+        ListTimeline timeline = new ListTimeline();
+        timeline.addEvent(new Event<>(10, 20, "B"));
+        timeline.addEvent(new Event<>(0, 5, "A"));
+        TimelineSnapshot<Integer> first = timeline.snapshot();
+        assertEquals(Arrays.asList("A", "B"), subjects(first.getEvents()));
+
+        timeline.removeEvent(new Event<>(0, 5, "A"));
+        timeline.addEvent(new Event<>(30, 40, "C"));
+        TimelineDiff<Integer> diff = first.diff(timeline.snapshot());
+        assertEquals(Collections.singletonList(new Event<>(30, 40, "C")), diff.getAdded());
+        assertEquals(Collections.singletonList(new Event<>(0, 5, "A")), diff.getRemoved());
+        assertTrue(diff.getChanged().isEmpty());
+    }
+
+    @Test
+    @DisplayName("测试默认的导航查询和最近事件")
+    public void testNavigation() throws TimeLineException {
+        ListTimeline timeline = new ListTimeline();
+        timeline.addEvent(new Event<>(0, 30, "Long"));
+        timeline.addEvent(new Event<>(5, 8, "Short"));
+        timeline.addEvent(new Event<>(40, 45, "After"));
+        Event<Integer> inactive = new Event<>(50, 60, "Inactive");
+        inactive.deactivate();
+        timeline.addEvent(inactive);
+
+        assertEquals("After", timeline.nextEventAfter(5).getSubject());
+        assertNull(timeline.nextEventAfter(40));
+        assertEquals("Short", timeline.previousEventBefore(20).getSubject());
+        assertEquals("Long", timeline.previousEventBefore(40).getSubject());
+        assertNull(timeline.previousEventBefore(8));
+        assertEquals("Long", timeline.firstEvent().getSubject());
+        assertEquals("After", timeline.lastEvent().getSubject());
+
+        assertEquals(Arrays.asList("Long", "After", "Short"), subjects(timeline.kNearest(25, 3)));
+        assertEquals(Arrays.asList("After", "Long"), subjects(timeline.kNearest(38, 2)));
+        assertThrows(TimeLineException.class, () -> timeline.kNearest(10, -1));
+        assertThrows(TimeLineException.class, () -> timeline.nextEventAfter(null));
+    }
+
+    @Test
+    @DisplayName("测试默认的按开始时间和结束时间范围查询")
+    public void testStartingAndEndingBetween() throws TimeLineException {
+        ListTimeline timeline = new ListTimeline();
+        timeline.addEvent(new Event<>(10, 50, "A"));
+        timeline.addEvent(new Event<>(0, 20, "B"));
+        Event<Integer> inactive = new Event<>(15, 18, "C");
+        inactive.deactivate();
+        timeline.addEvent(inactive);
+
+        assertEquals(Arrays.asList("A", "C"), subjects(timeline.getEventsStartingBetween(10, 15)));
+        assertEquals(Arrays.asList("C", "B"), subjects(timeline.getEventsEndingBetween(18, 20)));
+        assertTrue(timeline.getEventsStartingBetween(51, 60).isEmpty());
+        assertThrows(TimeLineException.class, () -> timeline.getEventsStartingBetween(20, 10));
+        assertThrows(TimeLineException.class, () -> timeline.getEventsEndingBetween(null, 10));
+    }
+
+    @Test
+    @DisplayName("测试默认的带条件和数量限制的范围查询")
+    public void testPredicateAndLimit() throws TimeLineException {
+        ListTimeline timeline = new ListTimeline();
+        for (int i = 9; i >= 0; i--) {
+            timeline.addEvent(new Event<>(i * 10, i * 10 + 5, i % 2 == 0 ? "Even" + i : "Odd" + i));
+        }
+
+        assertEquals(Arrays.asList("Even2", "Even4", "Even6"),
+                subjects(timeline.getEventsBetween(15, 65, e -> e.getSubject().toString().startsWith("Even"))));
+        assertEquals(Arrays.asList("Odd1", "Odd3"),
+                subjects(timeline.getEventsBetween(0, 100, e -> e.getSubject().toString().startsWith("Odd"), 2)));
+        assertTrue(timeline.getEventsBetween(0, 100, e -> true, 0).isEmpty());
+        assertThrows(TimeLineException.class, () -> timeline.getEventsBetween(0, 10, null));
+        assertThrows(TimeLineException.class, () -> timeline.getEventsBetween(0, 10, e -> true, -1));
+    }
+
+    @Test
+    @DisplayName("测试默认的批量修改在失败时撤销")
+    public void testApplyBatchRollsBack() throws TimeLineException {
+        ListTimeline timeline = new ListTimeline();
+        timeline.addEvent(new Event<>(0, 10, "A"));
+        timeline.addEvent(new Event<>(20, 30, "B"));
+
+        timeline.applyBatch(new TimelineBatch<Integer>()
+                .remove(new Event<>(0, 10, "A"))
+                .add(new Event<>(40, 50, "C")));
+        assertEquals(Arrays.asList("B", "C"), subjects(timeline.getSortedEvents()));
+
+        // 第二个要添加的事件被拒绝，已删除和已添加的事件都被恢复
+        TimelineBatch<Integer> failing = new TimelineBatch<Integer>()
+                .remove(new Event<>(20, 30, "B"))
+                .add(new Event<>(60, 70, "D"))
+                .add(new Event<>(80, 90, null));
+        assertThrows(TimeLineException.class, () -> timeline.applyBatch(failing));
+        assertEquals(Arrays.asList("B", "C"), subjects(timeline.getSortedEvents()));
+
+        assertThrows(TimeLineException.class, () -> timeline.applyBatch(new TimelineBatch<Integer>()
+                .remove(new Event<>(0, 10, "A"))));
+        assertThrows(TimeLineException.class, () -> timeline.applyBatch(null));
+        assertEquals(2, timeline.getAllEvents().size());
+    }
+
+    @Test
+    @DisplayName("测试默认的预约在事件之间寻找最早的空闲时间段")
+    public void testReserve() throws TimeLineException {
+        ListTimeline timeline = new ListTimeline();
+        timeline.addEvent(new Event<>(0, 10, "A"));
+        timeline.addEvent(new Event<>(12, 20, "B"));
+        timeline.addEvent(new Event<>(25, 40, "C"));
+        assertThrows(TimeLineException.class, () -> timeline.reserve(5, "NoCalculator"));
+
+        timeline.setTimeCalculator(TimeCalculatorFactory.createTimeCalculator(Integer.class));
+        assertEquals(new TimeSlot<>(20, 25), timeline.reserve(5, "Fits"));
+        assertEquals(new TimeSlot<>(40, 43), timeline.reserve(3, "Tail"));
+        assertEquals(new TimeSlot<>(10, 12),
+                timeline.reserve(2, "Constrained", new ReservationConstraints<Integer>().notBefore(5)));
+        assertThrows(TimeLineException.class,
+                () -> timeline.reserve(10, "Late", new ReservationConstraints<Integer>().deadline(50)));
+        assertThrows(TimeLineException.class, () -> timeline.reserve(null, "Null"));
+        assertEquals(6, timeline.getAllEvents().size());
+    }
+
+    private static List<Object> subjects(List<Event<Integer>> events) {
+        List<Object> subjects = new ArrayList<>();
+        for (Event<Integer> event : events) {
+            subjects.add(event.getSubject());
+        }
+        return subjects;
+    }
+
+    /**
+     * 只实现最初基本操作的时间线，事件保存在列表中
+     */
+    private static final class ListTimeline implements TimelineStructure<Integer> {
+        private final List<Event<Integer>> events = new ArrayList<>();
+        private TimeCalculator<Integer> timeCalculator;
+
+        @Override
+        public void setTimeCalculator(TimeCalculator<Integer> timeCalculator) {
+            this.timeCalculator = timeCalculator;
+        }
+
+        @Override
+        public TimeCalculator<Integer> getTimeCalculator() {
+            return timeCalculator;
+        }
+
+        @Override
+        public void addEvent(Event<Integer> event) throws TimeLineException {
+            if (event == null) {
+                throw new TimeLineException("Cannot add null event to timeline");
+            }
+            if (event.getSubject() == null) {
+                throw new TimeLineException("Event subject cannot be null");
+            }
+            events.add(event);
+        }
+
+        @Override
+        public boolean removeEvent(Event<Integer> event) throws TimeLineException {
+            if (event == null) {
+                throw new TimeLineException("Cannot remove null event from timeline");
+            }
+            return events.remove(event);
+        }
+
+        @Override
+        public boolean removeEvent(Integer start, Integer end, Object subject) {
+            for (Iterator<Event<Integer>> it = events.iterator(); it.hasNext(); ) {
+                Event<Integer> event = it.next();
+                if (event.getStart().equals(start) && event.getEnd().equals(end)
+                        && Objects.equals(event.getSubject(), subject)) {
+                    it.remove();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public List<Event<Integer>> getSortedEvents() {
+            List<Event<Integer>> result = new ArrayList<>();
+            for (Event<Integer> event : events) {
+                if (event.isActive()) {
+                    result.add(event);
+                }
+            }
+            result.sort((a, b) -> a.getStart().compareTo(b.getStart()));
+            return result;
+        }
+
+        @Override
+        public List<Event<Integer>> getEventsAt(Integer time) {
+            return getEventsBetween(time, time);
+        }
+
+        @Override
+        public List<Event<Integer>> getEventsBetween(Integer start, Integer end) {
+            List<Event<Integer>> result = new ArrayList<>();
+            for (Event<Integer> event : getSortedEvents()) {
+                if (event.getStart() <= end && event.getEnd() >= start) {
+                    result.add(event);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public int removeInactiveEvents() {
+            int before = events.size();
+            events.removeIf(event -> !event.isActive());
+            return before - events.size();
+        }
+
+        @Override
+        public List<Event<Integer>> getAllEvents() {
+            return new ArrayList<>(events);
+        }
+
+        @Override
+        public List<Event<Integer>> getInactiveEvents() {
+            List<Event<Integer>> result = new ArrayList<>(events);
+            result.removeIf(Event::isActive);
+            return result;
+        }
+
+        @Override
+        public void clear() {
+            events.clear();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.heyu.timeline;
+
+import com.heyu.timeline.core.model.Event;
+import com.heyu.timeline.core.timeline.VersionedTimeLine;
+import com.heyu.timeline.exception.TimeLineException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 多版本时间线测试
+ */
+public class VersionedTimeLineTest {
+
+    @Test
+    @DisplayName("测试按版本和提交时间查询历史状态")
+    public void testAsOfQueries() throws TimeLineException {
+        AtomicLong clock = new AtomicLong(1000);
+        VersionedTimeLine<Integer> timeLine = new VersionedTimeLine<>(Long.MAX_VALUE, clock::get);
+
+        clock.set(2000);
+        long v1 = timeLine.addEvent(new Event<>(10, 20, "Meeting"));
+        clock.set(3000);
+        long v2 = timeLine.addEvent(new Event<>(15, 30, "Review"));
+        clock.set(4000);
+        long v3 = timeLine.removeEvent(new Event<>(10, 20, "Meeting"));
+
+        assertEquals(3, v3);
+        assertEquals(-1, timeLine.removeEvent(new Event<>(10, 20, "Meeting")));
+        assertEquals(Collections.singletonList(new Event<>(15, 30, "Review")), timeLine.getEventsBetween(0, 100));
+        assertEquals(Arrays.asList(new Event<>(10, 20, "Meeting"), new Event<>(15, 30, "Review")),
+                timeLine.getEventsBetween(0, 100, v2));
+        assertEquals(Collections.singletonList(new Event<>(10, 20, "Meeting")), timeLine.getEventsAt(12, v1));
+        assertTrue(timeLine.getEventsBetween(0, 100, 0).isEmpty());
+
+        assertEquals(0, timeLine.getVersionAt(1500));
+        assertEquals(v2, timeLine.getVersionAt(3500));
+        assertEquals(v3, timeLine.getVersionAt(9000));
+        assertThrows(TimeLineException.class, () -> timeLine.getVersionAt(500));
+        assertThrows(TimeLineException.class, () -> timeLine.getEventsBetween(0, 100, 4));
+    }
+
+    @Test
+    @DisplayName("测试回收保留范围之外的版本")
+    public void testGarbageCollection() throws TimeLineException {
+        VersionedTimeLine<Integer> timeLine = new VersionedTimeLine<>(2);
+        Event<Integer> event = new Event<>(0, 10, "A");
+        timeLine.addEvent(event);
+        event.setSubject("Changed");
+        for (int i = 1; i <= 5; i++) {
+            timeLine.removeEvent(new Event<>(0, 10, i == 1 ? "A" : "B" + (i - 1)));
+            timeLine.addEvent(new Event<>(0, 10, "B" + i));
+        }
+
+        assertEquals(11, timeLine.getCurrentVersion());
+        assertEquals(9, timeLine.getOldestVersion());
+        // 版本9及之前删除的条目已被回收，只剩版本10删除的B4和当前的B5
+        assertEquals(2, timeLine.getEntryCount());
+        assertEquals(Collections.singletonList(new Event<>(0, 10, "B4")), timeLine.getEventsAt(5, 9));
+        assertThrows(TimeLineException.class, () -> timeLine.getEventsAt(5, 8));
+
+        timeLine.setRetainedVersions(0);
+        assertEquals(1, timeLine.getEntryCount());
+        assertEquals(Collections.singletonList(new Event<>(0, 10, "B5")), timeLine.getEventsBetween(0, 10));
+        assertThrows(IllegalArgumentException.class, () -> timeLine.setRetainedVersions(-1));
+    }
+}